@@ -1,9 +1,13 @@
 package carson.dev.tech.api;
 
 
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.api.dto.IngestionJobDTO;
+import carson.dev.tech.api.dto.ParseStatsDTO;
 import carson.dev.tech.api.response.Response;
 import ch.qos.logback.core.encoder.EchoEncoder;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 
 import java.io.IOException;
 import java.util.List;
@@ -12,7 +16,32 @@ public interface IRAGService {
 
   Response<List<String>> queryRagTagList();
 
-  Response<String> uploadFile(String ragTag, List<MultipartFile> files);
+  Response<String> uploadFile(String ragTag, List<MultipartFile> files) throws Exception;
 
-  Response<String> analyzeGithubRepo(String repoUrl, String username, String token) throws Exception;
+  /**
+   * Indexes {@code ref} (a branch or tag, the default branch when null) of a repository. Only paths matching one of
+   * the {@code include} globs, if any, and none of the {@code exclude} globs are indexed.
+   */
+  Response<String> analyzeGithubRepo(String repoUrl, String username, String token, String ref,
+                                     List<String> include, List<String> exclude) throws Exception;
+
+  /** Queues an upload for background ingestion; data is the job id. */
+  Response<String> submitUploadJob(String ragTag, List<MultipartFile> files) throws IOException;
+
+  /** Queues a repository analysis for background ingestion; data is the job id. */
+  Response<String> submitGithubRepoJob(String repoUrl, String username, String token, String ref,
+                                       List<String> include, List<String> exclude);
+
+  Response<IngestionJobDTO> queryJob(String jobId);
+
+  /** Emits the job state periodically until it reaches a terminal status. */
+  Flux<IngestionJobDTO> streamJobProgress(String jobId);
+
+  Response<Boolean> cancelJob(String jobId);
+
+  /** Hit/miss counters of the embedding and retrieval caches. */
+  Response<List<CacheStatsDTO>> queryCacheStats();
+
+  /** Tika pool load, timeouts and parse latency per MIME type. */
+  Response<ParseStatsDTO> queryParseStats();
 }
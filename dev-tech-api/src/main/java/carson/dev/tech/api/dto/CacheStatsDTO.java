@@ -0,0 +1,32 @@
+package carson.dev.tech.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Hit/miss counters of one cache since startup.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDTO implements Serializable {
+  private String name;
+  /** served from the in-process tier */
+  private long localHits;
+  /** served from Redis */
+  private long remoteHits;
+  private long misses;
+  /** entries currently held in the in-process tier */
+  private long size;
+  private long evictions;
+
+  public double getHitRate() {
+    long total = localHits + remoteHits + misses;
+    return total == 0 ? 0 : (double) (localHits + remoteHits) / total;
+  }
+}
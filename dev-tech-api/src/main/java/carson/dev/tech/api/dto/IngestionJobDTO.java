@@ -0,0 +1,37 @@
+package carson.dev.tech.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of an asynchronous ingestion job, as stored in Redis and streamed to clients.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJobDTO implements Serializable {
+  private String jobId;
+  /** "upload" or "git" */
+  private String type;
+  private String ragTag;
+  private IngestionJobStatus status;
+  private long filesScanned;
+  private long chunksEmbedded;
+  private long rowsWritten;
+  private long errors;
+  /** failure reason, or a short summary once finished */
+  private String message;
+  private long submittedAt;
+  private long updatedAt;
+
+  @JsonIgnore
+  public boolean isTerminal() {
+    return status != null && status.isTerminal();
+  }
+}
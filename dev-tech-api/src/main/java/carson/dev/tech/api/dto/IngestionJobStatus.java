@@ -0,0 +1,13 @@
+package carson.dev.tech.api.dto;
+
+public enum IngestionJobStatus {
+  PENDING,
+  RUNNING,
+  SUCCEEDED,
+  FAILED,
+  CANCELLED;
+
+  public boolean isTerminal() {
+    return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+  }
+}
@@ -0,0 +1,44 @@
+package carson.dev.tech.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Tika parser pool counters since startup, with latency and failures per detected MIME type.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParseStatsDTO implements Serializable {
+  /** documents parsed in child JVMs rather than in this one */
+  private boolean forked;
+  private int active;
+  private int queued;
+  /** parses refused because every thread was busy and the queue was full */
+  private long rejected;
+  /** timed-out in-process parses whose thread has not returned yet */
+  private int stuck;
+  private List<MimeType> mimeTypes;
+
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class MimeType implements Serializable {
+    private String mimeType;
+    private long parses;
+    private long failures;
+    private long timeouts;
+    /** refused or stopped for exceeding a size limit */
+    private long oversized;
+    private long bytes;
+    private double avgMillis;
+    private double maxMillis;
+  }
+}
@@ -0,0 +1,48 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.admission.AdmissionSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admission control of the generate, generate_stream and generate_stream_rag endpoints, per provider-qualified model.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.admission", ignoreInvalidFields = true)
+public class AdmissionConfigProperties {
+
+    /** generations of one model running at the same time, default is 2 */
+    private int maxInFlight = 2;
+    /** limits overriding max-in-flight, keyed by provider-qualified model prefix, e.g. "openai:" */
+    private Map<String, Integer> modelMaxInFlight = new HashMap<>();
+    /** generations of one model waiting for a slot before new ones get 429, default is 32 */
+    private int maxQueued = 32;
+    /** waiting generations of one model from a single client, default is 4 */
+    private int maxQueuedPerClient = 4;
+    /** how long a generation may wait for a slot in milliseconds before it gets 429, default is 30000 */
+    private long queueTimeoutMs = 30_000;
+    /** streamed chunks held for a slow consumer before its stream is cut off, default is 512 */
+    private int streamBuffer = 512;
+    /**
+     * proxies (IP addresses or CIDR ranges) whose X-Client-Id and X-Forwarded-For headers name the client; any other
+     * caller is keyed by its remote address, default is none
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    public AdmissionSettings toSettings() {
+        return AdmissionSettings.builder()
+                .maxInFlight(maxInFlight)
+                .modelMaxInFlight(Map.copyOf(modelMaxInFlight))
+                .maxQueued(maxQueued)
+                .maxQueuedPerClient(maxQueuedPerClient)
+                .queueTimeoutMs(queueTimeoutMs)
+                .streamBuffer(streamBuffer)
+                .build();
+    }
+
+}
@@ -0,0 +1,49 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties({RetrievalCacheConfigProperties.class, SemanticCacheConfigProperties.class})
+public class CacheConfig {
+
+    /**
+     * RagTagChangeNotifier bean, fired whenever chunks of a ragTag are written or deleted.
+     * why need it: caches on every instance must drop results computed before the change.
+     */
+    @Bean
+    public RagTagChangeNotifier ragTagChangeNotifier(RedissonClient redissonClient) {
+        return new RagTagChangeNotifier(redissonClient);
+    }
+
+    /**
+     * RetrievalCache bean in front of the vector similarity search.
+     * why need it: repeated questions skip the query embedding and the vector scan.
+     */
+    @Bean
+    public RetrievalCache retrievalCache(RetrievalCacheConfigProperties properties, RagTagChangeNotifier ragTagChangeNotifier) {
+        long maxEntries = properties.isEnabled() ? properties.getMaxEntries() : 0;
+        return new RetrievalCache(maxEntries, Duration.ofMinutes(properties.getTtlMinutes()), ragTagChangeNotifier);
+    }
+
+    /**
+     * SemanticAnswerCache bean in front of the chat model for RAG questions.
+     * why need it: a question close enough to one already answered replays that answer instead of generating again.
+     * When disabled, questions go straight to the model without being embedded and answers are not kept.
+     */
+    @Bean
+    public SemanticAnswerCache semanticAnswerCache(EmbeddingClient embeddingClient, SemanticCacheConfigProperties properties,
+                                                   RagTagChangeNotifier ragTagChangeNotifier) {
+        return new SemanticAnswerCache(embeddingClient, properties.isEnabled(), properties.getSimilarityThreshold(),
+                Duration.ofMinutes(properties.getTtlMinutes()), properties.getMaxEntriesPerTag(), ragTagChangeNotifier);
+    }
+
+}
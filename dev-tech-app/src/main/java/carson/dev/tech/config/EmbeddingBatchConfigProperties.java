@@ -0,0 +1,37 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.embedding.EmbeddingBatchSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Micro-batching of embedding requests from concurrent callers, with queries ahead of ingestion.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.embedding-batch", ignoreInvalidFields = true)
+public class EmbeddingBatchConfigProperties {
+
+    /** set whether embedding requests are batched across callers, default is true */
+    private boolean enabled = true;
+    /** texts sent upstream in one request, default is 64 */
+    private int maxBatchTexts = 64;
+    /** tokens sent upstream in one request, default is 8192 */
+    private int maxBatchTokens = 8192;
+    /** how long ingestion texts wait for others to fill a batch in milliseconds, default is 10 */
+    private long windowMs = 10;
+    /** how long query texts wait for others to fill a batch in milliseconds, default is 2 */
+    private long interactiveWindowMs = 2;
+    /** batches upstream at the same time, one of them kept for queries, default is 2 */
+    private int maxConcurrentBatches = 2;
+
+    public EmbeddingBatchSettings toSettings() {
+        return EmbeddingBatchSettings.builder()
+                .maxBatchTexts(maxBatchTexts)
+                .maxBatchTokens(maxBatchTokens)
+                .windowMs(windowMs)
+                .interactiveWindowMs(interactiveWindowMs)
+                .maxConcurrentBatches(maxConcurrentBatches)
+                .build();
+    }
+
+}
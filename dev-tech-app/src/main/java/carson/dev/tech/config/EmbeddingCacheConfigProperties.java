@@ -0,0 +1,22 @@
+package carson.dev.tech.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Content-hash embedding cache in front of the embedding model.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.embedding-cache", ignoreInvalidFields = true)
+public class EmbeddingCacheConfigProperties {
+
+    /** set whether embeddings are cached at all, default is true */
+    private boolean enabled = true;
+    /** set whether the shared Redis tier is used, default is true */
+    private boolean redisEnabled = true;
+    /** bytes of vectors kept in the in-process tier, default is 64MB (~20k vectors of 768 dims) */
+    private long localMaxBytes = 64L * 1024 * 1024;
+    /** how long vectors live in Redis in hours, default is 168 (7 days) */
+    private long ttlHours = 168;
+
+}
@@ -0,0 +1,50 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.endpoint.EndpointPoolSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ollama and OpenAI-compatible servers sharing the chat and embedding traffic, and how requests are routed to them.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.endpoint-pool", ignoreInvalidFields = true)
+public class EndpointPoolConfigProperties {
+
+    /** Ollama servers, default is empty (spring.ai.ollama.base-url alone) */
+    private List<String> ollamaBaseUrls = new ArrayList<>();
+    /** OpenAI-compatible servers, default is empty (spring.ai.openai.base-url alone) */
+    private List<String> openaiBaseUrls = new ArrayList<>();
+    /** LEAST_OUTSTANDING or EWMA_LATENCY, default is LEAST_OUTSTANDING */
+    private EndpointPoolSettings.Routing routing = EndpointPoolSettings.Routing.LEAST_OUTSTANDING;
+    /** health check interval in milliseconds, 0 turns the checks off, default is 5000 */
+    private long healthCheckIntervalMs = 5_000;
+    /** health check connect and read timeout in milliseconds, default is 2000 */
+    private int probeTimeoutMs = 2_000;
+    /** failed requests in a row that eject a server, default is 3 */
+    private int ejectAfterFailures = 3;
+    /** first ejection in milliseconds, doubled while the server keeps failing, default is 10000 */
+    private long ejectionMs = 10_000;
+    /** longest ejection in milliseconds, default is 300000 */
+    private long maxEjectionMs = 300_000;
+    /** servers a request is tried on before its error reaches the caller, default is 2 */
+    private int maxAttempts = 2;
+    /** requests in flight on each server with the model loaded before servers without it are used, default is 4 */
+    private int pinSpillOutstanding = 4;
+
+    public EndpointPoolSettings toSettings() {
+        return EndpointPoolSettings.builder()
+                .routing(routing)
+                .healthCheckIntervalMs(healthCheckIntervalMs)
+                .ejectAfterFailures(ejectAfterFailures)
+                .ejectionMs(ejectionMs)
+                .maxEjectionMs(maxEjectionMs)
+                .maxAttempts(maxAttempts)
+                .pinSpillOutstanding(pinSpillOutstanding)
+                .build();
+    }
+
+}
@@ -0,0 +1,146 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.git.BareRepositoryCache;
+import carson.dev.tech.trigger.git.GitRepositoryIndexer;
+import carson.dev.tech.trigger.git.ShallowGitFetcher;
+import carson.dev.tech.trigger.ingest.CodeAwareSplitter;
+import carson.dev.tech.trigger.ingest.DocumentFileParser;
+import carson.dev.tech.trigger.ingest.IngestionJobManager;
+import carson.dev.tech.trigger.ingest.IngestionPipeline;
+import carson.dev.tech.trigger.ingest.LocalVectorStoreMaintenance;
+import carson.dev.tech.trigger.ingest.PgVectorStoreMaintenance;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import carson.dev.tech.trigger.ingest.TikaParserPool;
+import carson.dev.tech.trigger.ingest.VectorStoreMaintenance;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties({IngestionConfigProperties.class, TikaParseConfigProperties.class})
+public class IngestionConfig {
+
+    /**
+     * StreamingTextSplitter bean, same chunk rules as the TokenTextSplitter bean.
+     * why need it: cuts chunks while a file is still being read, so a large upload is never one String in memory.
+     */
+    @Bean
+    public StreamingTextSplitter streamingTextSplitter() {
+        return new StreamingTextSplitter();
+    }
+
+    /**
+     * TikaParserPool bean shared by every upload and repository run.
+     * why need it: a bounded set of parser threads with time and size limits, instead of an executor per file whose
+     * runaway parses are never stopped.
+     */
+    @Bean(destroyMethod = "close")
+    public TikaParserPool tikaParserPool(TikaParseConfigProperties properties) {
+        return new TikaParserPool(properties.toSettings());
+    }
+
+    /**
+     * CodeAwareSplitter bean for Java, TypeScript, Python, YAML and Markdown files of a repository.
+     * why need it: cuts at class / method / function boundaries and records path, symbol and line range, so a chunk
+     * is one coherent piece of code instead of the end of one method and the start of the next.
+     */
+    @Bean
+    public CodeAwareSplitter codeAwareSplitter() {
+        return new CodeAwareSplitter();
+    }
+
+    @Bean
+    public DocumentFileParser documentFileParser(StreamingTextSplitter streamingTextSplitter, CodeAwareSplitter codeAwareSplitter,
+                                                 TikaParserPool tikaParserPool) {
+        return new DocumentFileParser(streamingTextSplitter, codeAwareSplitter, tikaParserPool);
+    }
+
+    /**
+     * IngestionPipeline bean used by analyze_git_repository and file/upload.
+     * why need it: embeds and inserts chunks in token-sized batches instead of one round trip per file.
+     */
+    @Bean
+    public IngestionPipeline ingestionPipeline(EmbeddingClient embeddingClient, VectorStore ragVectorStore,
+                                               DocumentFileParser documentFileParser, RagTagChangeNotifier ragTagChangeNotifier,
+                                               IngestionConfigProperties properties) {
+        return IngestionPipeline.builder()
+                .embeddingClient(embeddingClient)
+                .vectorStore(ragVectorStore)
+                .documentFileParser(documentFileParser)
+                .ragTagChangeNotifier(ragTagChangeNotifier)
+                .parseThreads(properties.getParseThreads())
+                .embedThreads(properties.getEmbedThreads())
+                .writeThreads(properties.getWriteThreads())
+                .queueCapacity(properties.getQueueCapacity())
+                .embedBatchTokens(properties.getEmbedBatchTokens())
+                .writeBatchTokens(properties.getWriteBatchTokens())
+                .build();
+    }
+
+    /**
+     * IngestionJobManager bean behind the /job endpoints.
+     * why need it: runs ingestion on its own bounded pool and keeps job state in Redis for every instance to read.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public IngestionJobManager ingestionJobManager(RedissonClient redissonClient, IngestionConfigProperties properties) {
+        return new IngestionJobManager(redissonClient,
+                properties.getJobThreads(),
+                properties.getJobQueueCapacity(),
+                properties.getJobProgressIntervalMs(),
+                Duration.ofHours(properties.getJobTtlHours()));
+    }
+
+    /**
+     * VectorStoreMaintenance bean for deleting chunks by ragTag / path metadata, partition-aware in the partitioned layout.
+     * Depends on pgVectorStore because the vector_store table must exist before its indexes are created.
+     */
+    @Bean(initMethod = "createIndexes")
+    @DependsOn("pgVectorStore")
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "pgvector", matchIfMissing = true)
+    public VectorStoreMaintenance vectorStoreMaintenance(JdbcTemplate jdbcTemplate, PgVectorIndexManager pgVectorIndexManager,
+                                                         RagTagChangeNotifier ragTagChangeNotifier) {
+        return new PgVectorStoreMaintenance(jdbcTemplate, pgVectorIndexManager, ragTagChangeNotifier);
+    }
+
+    /**
+     * VectorStoreMaintenance bean of the local store, for spring.ai.rag.store=local.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "local")
+    public VectorStoreMaintenance localVectorStoreMaintenance(MappedVectorStore vectorStore, RagTagChangeNotifier ragTagChangeNotifier) {
+        return new LocalVectorStoreMaintenance(vectorStore, ragTagChangeNotifier);
+    }
+
+    /**
+     * BareRepositoryCache bean holding the fetched repositories, keyed by normalized URL.
+     * why need it: repeat analyses of a repository, under any ragTag, become incremental fetches instead of clones.
+     */
+    @Bean
+    public BareRepositoryCache bareRepositoryCache(IngestionConfigProperties properties) {
+        return new BareRepositoryCache(Paths.get(properties.getGitWorkspace()), properties.getGitCacheMaxBytes(),
+                new ShallowGitFetcher(properties.getGitDepth()));
+    }
+
+    /**
+     * GitRepositoryIndexer bean used by analyze_git_repository.
+     * why need it: re-runs only re-embed the files changed since the last indexed commit.
+     */
+    @Bean
+    public GitRepositoryIndexer gitRepositoryIndexer(IngestionPipeline ingestionPipeline, VectorStoreMaintenance vectorStoreMaintenance,
+                                                     RedissonClient redissonClient, BareRepositoryCache bareRepositoryCache) {
+        return new GitRepositoryIndexer(ingestionPipeline, vectorStoreMaintenance, redissonClient, bareRepositoryCache);
+    }
+
+}
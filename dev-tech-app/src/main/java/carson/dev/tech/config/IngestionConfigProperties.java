@@ -0,0 +1,40 @@
+package carson.dev.tech.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Stage parallelism and batch sizes for the repository ingestion pipeline.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.ingest", ignoreInvalidFields = true)
+public class IngestionConfigProperties {
+
+    /** Tika / plain-text parse workers, each streaming one file into chunks, default is 4 */
+    private int parseThreads = 4;
+    /** concurrent embedding requests, default is 4 */
+    private int embedThreads = 4;
+    /** concurrent JDBC batch inserts, default is 2 */
+    private int writeThreads = 2;
+    /** capacity of each queue between stages, default is 256 */
+    private int queueCapacity = 256;
+    /** tokens sent in one embedding request, default is 8192 (nomic-embed-text context size) */
+    private int embedBatchTokens = 8192;
+    /** tokens written in one JDBC batch, default is 65536 */
+    private int writeBatchTokens = 65536;
+    /** ingestion jobs running at the same time, default is 2 */
+    private int jobThreads = 2;
+    /** jobs waiting for a free slot before submissions are rejected, default is 16 */
+    private int jobQueueCapacity = 16;
+    /** how often job progress is written to Redis in milliseconds, default is 1000 */
+    private long jobProgressIntervalMs = 1000;
+    /** how long job state is kept in Redis in hours, default is 24 */
+    private long jobTtlHours = 24;
+    /** directory caching one bare repository per repository URL, shared by its ragTags and used for incremental re-indexing */
+    private String gitWorkspace = "./git-repos";
+    /** disk space of the repository cache before least recently used repositories are evicted, 0 for no limit, default is 10 GiB */
+    private long gitCacheMaxBytes = 10L * 1024 * 1024 * 1024;
+    /** commits fetched from the tip of the analyzed ref, 0 for the full history, default is 1 */
+    private int gitDepth = 1;
+
+}
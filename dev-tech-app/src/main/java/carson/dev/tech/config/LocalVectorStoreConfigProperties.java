@@ -0,0 +1,55 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.vector.HnswSettings;
+import carson.dev.tech.trigger.vector.QuantizationSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Memory-mapped local vector store, the RAG store when spring.ai.rag.store is local.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.local-store", ignoreInvalidFields = true)
+public class LocalVectorStoreConfigProperties {
+
+    /** directory of the store files, created if missing, default is ./vector-data */
+    private String directory = "./vector-data";
+    /** set whether searches go through the HNSW graph, default is true */
+    private boolean hnswEnabled = true;
+    /** HNSW links per node, default is 16 */
+    private int m = 16;
+    /** HNSW candidate list size while inserting, default is 100 */
+    private int efConstruction = 100;
+    /** HNSW candidate list size per query, default is 64 */
+    private int efSearch = 64;
+    /** queries over at most this many rows (all rows, or the rows of the ragTag) scan exactly, default is 10000 */
+    private int exactSearchThreshold = 10_000;
+    /** NONE, INT8 or PQ codes searched before an exact re-rank, default is NONE */
+    private QuantizationSettings.Type quantization = QuantizationSettings.Type.NONE;
+    /** PQ bytes per row, 0 means one per 8 dimensions, default is 0 */
+    private int pqSubvectors = 0;
+    /** candidates re-ranked on the float32 rows per result, default is 10 */
+    private int rerankFactor = 10;
+    /** chunks needed (and sampled) to train the quantizer, smaller stores search exactly, default is 10000 */
+    private int quantizationTrainingRows = 10_000;
+
+    public HnswSettings toSettings() {
+        return HnswSettings.builder()
+                .enabled(hnswEnabled)
+                .m(m)
+                .efConstruction(efConstruction)
+                .efSearch(efSearch)
+                .exactSearchThreshold(exactSearchThreshold)
+                .build();
+    }
+
+    public QuantizationSettings toQuantizationSettings() {
+        return QuantizationSettings.builder()
+                .type(quantization)
+                .pqSubvectors(pqSubvectors)
+                .rerankFactor(rerankFactor)
+                .trainingRows(quantizationTrainingRows)
+                .build();
+    }
+
+}
@@ -1,37 +1,116 @@
 package carson.dev.tech.config;
 
+import carson.dev.tech.trigger.embedding.BatchingEmbeddingClient;
+import carson.dev.tech.trigger.embedding.CachingEmbeddingClient;
+import carson.dev.tech.trigger.embedding.OllamaBatchEmbeddingClient;
+import carson.dev.tech.trigger.embedding.PrecomputedEmbeddingClient;
+import carson.dev.tech.trigger.endpoint.EndpointClients;
+import carson.dev.tech.trigger.endpoint.EndpointPool;
+import carson.dev.tech.trigger.endpoint.OllamaEndpointProbe;
+import carson.dev.tech.trigger.endpoint.OpenAiEndpointProbe;
+import carson.dev.tech.trigger.endpoint.PooledChatClient;
+import carson.dev.tech.trigger.endpoint.PooledEmbeddingClient;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import carson.dev.tech.trigger.vector.PartitionedPgVectorStore;
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.embedding.EmbeddingClient;
 import org.springframework.ai.ollama.OllamaChatClient;
-import org.springframework.ai.ollama.OllamaEmbeddingClient;
 import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.openai.OpenAiChatClient;
+import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.OpenAiEmbeddingClient;
 import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.PgVectorStore;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
+@EnableConfigurationProperties({EmbeddingCacheConfigProperties.class, EmbeddingBatchConfigProperties.class, EndpointPoolConfigProperties.class, VectorIndexConfigProperties.class, LocalVectorStoreConfigProperties.class})
 public class OllamaConfig {
 
-    @Bean
-    public OllamaApi ollamaApi(@Value("${spring.ai.ollama.base-url}") String baseUrl) {
-        return new OllamaApi(baseUrl);
+    /**
+     * EndpointPool bean over every Ollama server, for chat and embeddings alike.
+     * why need it: several Ollama boxes share the traffic, each request going to a healthy server that has its model loaded.
+     * @param baseUrl Ollama server used when no list is configured
+     * @param numBatch tokens Ollama evaluates at once while embedding
+     * @param properties servers, routing and ejection settings
+     * @return EndpointPool instance
+     */
+    @Bean(destroyMethod = "close")
+    public EndpointPool ollamaEndpointPool(@Value("${spring.ai.ollama.base-url}") String baseUrl,
+                                           @Value("${spring.ai.ollama.embedding.options.num-batch:0}") int numBatch,
+                                           EndpointPoolConfigProperties properties) {
+        Map<String, EndpointClients> clients = new LinkedHashMap<>();
+        for (String url : properties.getOllamaBaseUrls().isEmpty() ? List.of(baseUrl) : properties.getOllamaBaseUrls()) {
+            OllamaChatClient chatClient = new OllamaChatClient(new OllamaApi(url));
+            clients.put(url, EndpointClients.builder()
+                    .chatClient(chatClient)
+                    .streamingChatClient(chatClient)
+                    .embeddingClient(new OllamaBatchEmbeddingClient(url, "nomic-embed-text", numBatch))
+                    .build());
+        }
+        return new EndpointPool("ollama", clients, new OllamaEndpointProbe(properties.getProbeTimeoutMs()), properties.toSettings());
     }
 
-    @Bean
-    public OllamaChatClient ollamaChatClient(OllamaApi ollamaApi) {
-        return new OllamaChatClient(ollamaApi);
+    /**
+     * EndpointPool bean over every OpenAI-compatible server.
+     * why need it: same routing and failover as Ollama for gateways or self-hosted OpenAI-compatible servers.
+     * @param baseUrl server used when no list is configured
+     * @param apikey API key sent to every server
+     * @param properties servers, routing and ejection settings
+     * @return EndpointPool instance
+     */
+    @Bean(destroyMethod = "close")
+    public EndpointPool openAiEndpointPool(@Value("${spring.ai.openai.base-url}") String baseUrl, @Value("${spring.ai.openai.api-key}") String apikey,
+                                           EndpointPoolConfigProperties properties) {
+        Map<String, EndpointClients> clients = new LinkedHashMap<>();
+        for (String url : properties.getOpenaiBaseUrls().isEmpty() ? List.of(baseUrl) : properties.getOpenaiBaseUrls()) {
+            OpenAiApi openAiApi = new OpenAiApi(url, apikey);
+            OpenAiChatClient chatClient = new OpenAiChatClient(openAiApi);
+            clients.put(url, EndpointClients.builder()
+                    .chatClient(chatClient)
+                    .streamingChatClient(chatClient)
+                    .embeddingClient(new OpenAiEmbeddingClient(openAiApi))
+                    .build());
+        }
+        return new EndpointPool("openai", clients, new OpenAiEndpointProbe(apikey, properties.getProbeTimeoutMs()), properties.toSettings());
     }
 
+    /**
+     * Ollama chat client routing each prompt through the Ollama endpoint pool, pinned by the model of its options.
+     * @param pool Ollama endpoint pool
+     * @return PooledChatClient instance
+     */
     @Bean
-    public OpenAiApi openAiApi(@Value("${spring.ai.openai.base-url}") String baseUrl, @Value("${spring.ai.openai.api-key}") String apikey) {
-        return new OpenAiApi(baseUrl, apikey);
+    public PooledChatClient ollamaChatClient(@Qualifier("ollamaEndpointPool") EndpointPool pool) {
+        return new PooledChatClient(pool, prompt -> prompt.getOptions() instanceof OllamaOptions options ? options.getModel() : null);
     }
 
+    /**
+     * OpenAI chat client routing each prompt through the OpenAI endpoint pool, pinned by the model of its options.
+     * @param pool OpenAI endpoint pool
+     * @return PooledChatClient instance
+     */
+    @Bean
+    public PooledChatClient openAiPooledChatClient(@Qualifier("openAiEndpointPool") EndpointPool pool) {
+        return new PooledChatClient(pool, prompt -> prompt.getOptions() instanceof OpenAiChatOptions options ? options.getModel() : null);
+    }
 
     /**
      * TokenTextSplitter bean for splitting text into tokens.
@@ -45,40 +124,106 @@ public class OllamaConfig {
     }
 
     /**
-     * SimpleVectorStore bean for managing vector embeddings in memory.
-     * This is useful for small datasets or quick prototyping.
-     * why need it: Store and retrieve vector embeddings for RAG or other AI tasks.
+     * EmbeddingClient bean shared by every vector store.
+     * why need it: one place decides which embedding model is used, so the stores and the ingestion pipeline always agree.
+     * Identical text is embedded once: vectors are cached by (model, content hash) in-process and in Redis.
+     * Cache misses of concurrent callers are batched into one upstream request, queries ahead of ingestion.
      * @param model The embedding model to use, e.g., "nomic-embed-text" or OpenAI's embedding model.
-     * @param ollamaApi OllamaApi instance for API interactions
-     * @param openAiApi OpenAiApi instance for API interactions
-     * @return SimpleVectorStore instance
+     * @param ollamaEndpointPool Ollama servers, embedded through their batch endpoint
+     * @param openAiEndpointPool OpenAI-compatible servers
+     * @param redissonClient RedissonClient for the shared cache tier
+     * @param properties embedding cache settings
+     * @param batchProperties embedding batching settings
+     * @return EmbeddingClient instance
      */
     @Bean
-    public SimpleVectorStore vectorStore(@Value("${spring.ai.rag.embed}") String model, OllamaApi ollamaApi, OpenAiApi openAiApi) {
-        // If the model is "nomic-embed-text", use OllamaEmbeddingClient(Deepseek), otherwise use OpenAiEmbeddingClient.
+    @Primary
+    public EmbeddingClient embeddingClient(@Value("${spring.ai.rag.embed}") String model,
+                                           @Qualifier("ollamaEndpointPool") EndpointPool ollamaEndpointPool,
+                                           @Qualifier("openAiEndpointPool") EndpointPool openAiEndpointPool,
+                                           RedissonClient redissonClient,
+                                           EmbeddingCacheConfigProperties properties, EmbeddingBatchConfigProperties batchProperties) {
+        EmbeddingClient embeddingClient;
+        // If the model is "nomic-embed-text", use Ollama(Deepseek), otherwise use OpenAI.
         if ("nomic-embed-text".equalsIgnoreCase(model)) {
-            OllamaEmbeddingClient embeddingClient = new OllamaEmbeddingClient(ollamaApi);
-            embeddingClient.withDefaultOptions(OllamaOptions.create().withModel("nomic-embed-text"));
-            return new SimpleVectorStore(embeddingClient);
+            embeddingClient = new PooledEmbeddingClient(ollamaEndpointPool, "nomic-embed-text");
         } else {
-            OpenAiEmbeddingClient embeddingClient = new OpenAiEmbeddingClient(openAiApi);
-            return new SimpleVectorStore(embeddingClient);
+            embeddingClient = new PooledEmbeddingClient(openAiEndpointPool, null);
+        }
+        if (batchProperties.isEnabled()) {
+            embeddingClient = new BatchingEmbeddingClient(embeddingClient, batchProperties.toSettings());
+        }
+        if (!properties.isEnabled()) {
+            return embeddingClient;
         }
+        return new CachingEmbeddingClient(embeddingClient, model,
+                properties.isRedisEnabled() ? redissonClient : null,
+                properties.getLocalMaxBytes(),
+                Duration.ofHours(properties.getTtlHours()));
     }
 
+    /**
+     * MappedVectorStore bean that keeps vectors as float32 in memory-mapped files, replacing SimpleVectorStore.
+     * This is useful for a single node without Postgres: startup maps the files instead of parsing JSON, and vectors stay off the heap.
+     * why need it: Store and retrieve vector embeddings locally, up to millions of chunks.
+     * Searches walk an in-memory HNSW graph, so their cost grows sub-linearly with the number of chunks.
+     * @param embeddingClient EmbeddingClient used to turn documents and queries into vectors
+     * @param properties store directory, HNSW and quantization settings
+     * @return MappedVectorStore instance
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "pgvector", matchIfMissing = true)
+    public MappedVectorStore vectorStore(EmbeddingClient embeddingClient, LocalVectorStoreConfigProperties properties) {
+        return new MappedVectorStore(Paths.get(properties.getDirectory()), embeddingClient, properties.toSettings(),
+                properties.toQuantizationSettings());
+    }
+
+    /**
+     * MappedVectorStore bean of spring.ai.rag.store=local, also registered as ragVectorStore so uploads, repository ingestion and chat retrieval use it.
+     * why need it: spring.ai.rag.store=local runs without Postgres; none of the pgvector beans are created then.
+     * @param embeddingClient EmbeddingClient used to turn documents and queries into vectors
+     * @param properties store directory, HNSW and quantization settings
+     * @return MappedVectorStore instance
+     */
+    @Bean(name = {"vectorStore", "ragVectorStore"}, destroyMethod = "close")
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "local")
+    public MappedVectorStore localVectorStore(EmbeddingClient embeddingClient, LocalVectorStoreConfigProperties properties) {
+        return new MappedVectorStore(Paths.get(properties.getDirectory()), embeddingClient, properties.toSettings(),
+                properties.toQuantizationSettings());
+    }
+
+
+    /**
+     * PgVectorIndexManager bean that creates the pgvector table layout and its ANN index before any store uses them.
+     * why need it: PgVectorStore only knows default index settings, and cannot partition the table by ragTag.
+     * @param embeddingClient EmbeddingClient asked for the vector dimensions when they are not configured
+     * @param jdbcTemplate JdbcTemplate instance for database operations
+     * @param properties layout and index settings
+     * @return PgVectorIndexManager instance
+     */
+    @Bean(initMethod = "initialize")
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "pgvector", matchIfMissing = true)
+    public PgVectorIndexManager pgVectorIndexManager(EmbeddingClient embeddingClient, JdbcTemplate jdbcTemplate,
+                                                     VectorIndexConfigProperties properties) {
+        int dimensions = properties.getDimensions() > 0 ? properties.getDimensions() : embeddingClient.dimensions();
+        return new PgVectorIndexManager(jdbcTemplate, "vector_store", dimensions, properties.toSettings(),
+                properties.isPartitioned());
+    }
 
     /**
      * PgVectorStore bean for managing vector embeddings in a PostgreSQL database.
      * This is useful for larger datasets or when persistence is required.
      * why need it: Store and retrieve vector embeddings for RAG or other AI tasks with persistence.
-     * @param model The embedding model to use, e.g., "nomic-embed-text" or OpenAI's embedding model.
-     * @param ollamaApi OllamaApi instance for API interactions
-     * @param openAiApi OpenAiApi instance for API interactions
+     * In the partitioned layout this is a PartitionedPgVectorStore over the same table instead.
+     * @param embeddingClient EmbeddingClient used to turn documents and queries into vectors
      * @param jdbcTemplate JdbcTemplate instance for database operations
-     * @return PgVectorStore instance
+     * @param pgVectorIndexManager table layout and ANN index, already initialized
+     * Also registered as ragVectorStore, the store uploads, repository ingestion and chat retrieval use.
+     * @return VectorStore instance
      */
-    @Bean
-    public PgVectorStore pgVectorStore(@Value("${spring.ai.rag.embed}") String model, OllamaApi ollamaApi, OpenAiApi openAiApi, JdbcTemplate jdbcTemplate) {
+    @Bean(name = {"pgVectorStore", "ragVectorStore"})
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "pgvector", matchIfMissing = true)
+    public VectorStore pgVectorStore(EmbeddingClient embeddingClient, JdbcTemplate jdbcTemplate, PgVectorIndexManager pgVectorIndexManager) {
         // The transformation of text into vectors — also called embedding — is a core task handled by an AI model.
         // So why does your PgVectorStore require a specific AI embedding API?
         //Because Spring AI’s PgVectorStore is just a wrapper that:
@@ -86,14 +231,14 @@ public class OllamaConfig {
         //    Gets vectors for your input documents
         //    Stores those vectors into pgvector (PostgreSQL)
         //So the AI API is only needed at this level because you're generating the embeddings at runtime, not uploading pre-generated ones.
-        if ("nomic-embed-text".equalsIgnoreCase(model)) {
-            OllamaEmbeddingClient embeddingClient = new OllamaEmbeddingClient(ollamaApi);
-            embeddingClient.withDefaultOptions(OllamaOptions.create().withModel("nomic-embed-text"));
-            return new PgVectorStore(jdbcTemplate, embeddingClient);
-        } else {
-            OpenAiEmbeddingClient embeddingClient = new OpenAiEmbeddingClient(openAiApi);
-            return new PgVectorStore(jdbcTemplate, embeddingClient);
+        // The ingestion pipeline embeds chunks in batches before calling add(), so PgVectorStore must reuse those vectors.
+        EmbeddingClient precomputed = new PrecomputedEmbeddingClient(embeddingClient);
+        if (pgVectorIndexManager.isPartitioned()) {
+            return new PartitionedPgVectorStore(jdbcTemplate, precomputed, pgVectorIndexManager);
         }
+        // the ANN index is owned by PgVectorIndexManager, so PgVectorStore must not create its default one
+        return new PgVectorStore(jdbcTemplate, precomputed, pgVectorIndexManager.getDimensions(),
+                PgVectorStore.PgDistanceType.COSINE_DISTANCE, false, PgVectorStore.PgIndexType.NONE);
     }
 
 }
@@ -0,0 +1,97 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.admission.AdmissionControl;
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import carson.dev.tech.trigger.http.ClientIds;
+import carson.dev.tech.trigger.rag.ContextBuilder;
+import carson.dev.tech.trigger.rag.DocumentRetriever;
+import carson.dev.tech.trigger.rag.HybridRetriever;
+import carson.dev.tech.trigger.rag.RagChatService;
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import carson.dev.tech.trigger.vector.PgVectorSearch;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+@EnableConfigurationProperties({RagChatConfigProperties.class, AdmissionConfigProperties.class})
+public class RagChatConfig {
+
+    /**
+     * RagChatService bean used by every chat controller for generate_stream_rag.
+     * why need it: retrieval is blocking JDBC, so it runs on the bounded elastic scheduler instead of the request thread.
+     */
+    @Bean
+    public RagChatService ragChatService(DocumentRetriever documentRetriever, RetrievalCache retrievalCache,
+                                         SemanticAnswerCache semanticAnswerCache, ContextBuilder contextBuilder,
+                                         RagChatConfigProperties properties) {
+        return new RagChatService(documentRetriever, retrievalCache, semanticAnswerCache, contextBuilder, properties.getTopK(),
+                Schedulers.boundedElastic());
+    }
+
+    /**
+     * DocumentRetriever bean: vector + full-text search fused by rank, or vector search only when hybrid is disabled.
+     * why need it: identifiers and error strings in code repos are found by words, not by embeddings.
+     * The vector side queries pgvector directly so the ANN query settings and the ragTag partition are used.
+     * The full-text side runs on the retriever's own pool, shut down with the context (inferred destroy method).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "pgvector", matchIfMissing = true)
+    public DocumentRetriever documentRetriever(EmbeddingClient embeddingClient, JdbcTemplate jdbcTemplate,
+                                               PgVectorIndexManager pgVectorIndexManager, RagChatConfigProperties properties) {
+        PgVectorSearch vectorSearch = new PgVectorSearch(jdbcTemplate, embeddingClient, pgVectorIndexManager);
+        if (!properties.isHybridEnabled()) {
+            return vectorSearch;
+        }
+        HybridRetriever retriever = new HybridRetriever(vectorSearch, jdbcTemplate, pgVectorIndexManager, properties.getTextSearchConfig(),
+                properties.getRrfK(), properties.getHybridCandidates(), properties.getHybridThreads(), properties.getHybridTimeoutMs());
+        retriever.createIndexes();
+        return retriever;
+    }
+
+    /**
+     * DocumentRetriever bean of spring.ai.rag.store=local: similarity search on the local store, no full-text side.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.ai.rag.store", havingValue = "local")
+    public DocumentRetriever localDocumentRetriever(VectorStore ragVectorStore) {
+        return DocumentRetriever.of(ragVectorStore);
+    }
+
+    /**
+     * ContextBuilder bean that turns retrieved chunks into the DOCUMENTS section of the prompt.
+     * why need it: an unbounded context slows prefill and can overflow the model's context window.
+     */
+    @Bean
+    public ContextBuilder contextBuilder(RagChatConfigProperties properties) {
+        return new ContextBuilder(properties.getContextTokens(), properties.getModelContextTokens(),
+                properties.getDuplicateThreshold(), properties.getMinTruncatedTokens());
+    }
+
+    /**
+     * AdmissionControl bean limiting concurrent generations per model for both chat controllers.
+     * why need it: a local Ollama serves few generations at once, so bursts wait here in a bounded, fair queue or get 429
+     * instead of slowing every answer down.
+     */
+    @Bean
+    public AdmissionControl admissionControl(AdmissionConfigProperties properties) {
+        return new AdmissionControl(properties.toSettings());
+    }
+
+    /**
+     * ClientIds bean telling the chat controllers which client a request belongs to.
+     * why need it: fairness keyed on headers any caller can set lets one client pose as many; only trusted proxies may
+     * name the client.
+     */
+    @Bean
+    public ClientIds clientIds(AdmissionConfigProperties properties) {
+        return new ClientIds(properties.getTrustedProxies());
+    }
+
+}
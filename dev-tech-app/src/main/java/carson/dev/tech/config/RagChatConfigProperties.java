@@ -0,0 +1,39 @@
+package carson.dev.tech.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RAG chat flow shared by the Ollama and OpenAI generate_stream_rag endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.chat", ignoreInvalidFields = true)
+public class RagChatConfigProperties {
+
+    /** chunks retrieved per (ragTag, query), default is 5 */
+    private int topK = 5;
+    /** token budget of the DOCUMENTS section including the prompt template and question, default is 3072 */
+    private int contextTokens = 3072;
+    /** budgets overriding context-tokens, keyed by provider-qualified model prefix, e.g. "ollama:deepseek-r1" */
+    private Map<String, Integer> modelContextTokens = new HashMap<>();
+    /** word-shingle Jaccard similarity above which a chunk counts as a duplicate, default is 0.9 */
+    private double duplicateThreshold = 0.9;
+    /** smallest remaining budget in tokens still filled with a truncated chunk, default is 64 */
+    private int minTruncatedTokens = 64;
+    /** set whether full-text search runs next to vector search and both are fused, default is true */
+    private boolean hybridEnabled = true;
+    /** rows fetched from each side before fusion, default is 20 */
+    private int hybridCandidates = 20;
+    /** full-text searches running at once; as many more may wait, beyond that retrieval is vector-only, default is 8 */
+    private int hybridThreads = 8;
+    /** how long a retrieval waits for its full-text search in milliseconds before using vector results only, default is 2000 */
+    private long hybridTimeoutMs = 2000;
+    /** reciprocal rank fusion constant, default is 60 */
+    private int rrfK = 60;
+    /** PostgreSQL text search configuration of the full-text side, default is english */
+    private String textSearchConfig = "english";
+
+}
@@ -0,0 +1,20 @@
+package carson.dev.tech.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Similarity search result cache used by generate_stream_rag.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.retrieval-cache", ignoreInvalidFields = true)
+public class RetrievalCacheConfigProperties {
+
+    /** set whether retrieval results are cached, default is true */
+    private boolean enabled = true;
+    /** maximum cached (ragTag, query, topK) entries, default is 10000 */
+    private long maxEntries = 10_000;
+    /** how long an entry lives in minutes, default is 30 */
+    private long ttlMinutes = 30;
+
+}
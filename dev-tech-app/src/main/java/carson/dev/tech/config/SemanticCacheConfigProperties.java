@@ -0,0 +1,22 @@
+package carson.dev.tech.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Semantic answer cache used by generate_stream_rag.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.semantic-cache", ignoreInvalidFields = true)
+public class SemanticCacheConfigProperties {
+
+    /** set whether answers are replayed for equivalent questions, default is true */
+    private boolean enabled = true;
+    /** minimum cosine similarity between two questions to reuse an answer, default is 0.95 */
+    private double similarityThreshold = 0.95;
+    /** how long an answer is reused in minutes, default is 60 */
+    private long ttlMinutes = 60;
+    /** answers kept per (ragTag, model), default is 1000 */
+    private int maxEntriesPerTag = 1000;
+
+}
@@ -0,0 +1,53 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.ingest.TikaParseSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Shared Tika parser pool: its size, per-file and per-job limits, and the forked-JVM mode.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.ingest.tika", ignoreInvalidFields = true)
+public class TikaParseConfigProperties {
+
+    /** concurrent Tika parses, default is 4 */
+    private int threads = 4;
+    /** parses waiting for a thread before new ones are rejected, default is 64 */
+    private int queueCapacity = 64;
+    /** a file producing no text for this long is abandoned, 0 disables, default is 5000 */
+    private long idleTimeoutMs = 5_000;
+    /** a file parsing for longer than this is abandoned, 0 disables, default is 60000 */
+    private long fileTimeoutMs = 60_000;
+    /** larger files are not handed to Tika, 0 disables, default is 100 MB */
+    private long maxFileBytes = 100L << 20;
+    /** a file extracting more text than this is cut off, 0 disables, default is 20000000 */
+    private long maxTextChars = 20_000_000;
+    /** Tika time budget of one ingestion run or upload request, 0 disables, default is 30 minutes */
+    private long jobTimeoutMs = 30 * 60_000;
+    /** bytes one ingestion run or upload request may feed to Tika, 0 disables, default is 4 GB */
+    private long jobMaxBytes = 4L << 30;
+    /** set whether documents are parsed in child JVMs that are killed on timeout, default is false */
+    private boolean forked = false;
+    /** child JVMs kept when forked, default is 2 */
+    private int forkPoolSize = 2;
+    /** heap of each child JVM in MB, default is 512 */
+    private int forkHeapMb = 512;
+
+    public TikaParseSettings toSettings() {
+        return TikaParseSettings.builder()
+                .threads(threads)
+                .queueCapacity(queueCapacity)
+                .idleTimeoutMs(idleTimeoutMs)
+                .fileTimeoutMs(fileTimeoutMs)
+                .maxFileBytes(maxFileBytes)
+                .maxTextChars(maxTextChars)
+                .jobTimeoutMs(jobTimeoutMs)
+                .jobMaxBytes(jobMaxBytes)
+                .forked(forked)
+                .forkPoolSize(forkPoolSize)
+                .forkHeapMb(forkHeapMb)
+                .build();
+    }
+
+}
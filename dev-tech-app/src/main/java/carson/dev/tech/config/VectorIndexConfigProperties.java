@@ -0,0 +1,48 @@
+package carson.dev.tech.config;
+
+import carson.dev.tech.trigger.vector.PgVectorIndexSettings;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Layout and ANN index of the pgvector table.
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.ai.rag.vector-index", ignoreInvalidFields = true)
+public class VectorIndexConfigProperties {
+
+    /** set whether the table has one partition per ragTag, default is false */
+    private boolean partitioned = false;
+    /** embedding dimensions, 0 asks the embedding model once at startup, default is 0 */
+    private int dimensions = 0;
+    /** NONE, HNSW or IVFFLAT, default is HNSW */
+    private PgVectorIndexSettings.IndexType type = PgVectorIndexSettings.IndexType.HNSW;
+    /** HNSW links per node, default is 16 */
+    private int m = 16;
+    /** HNSW candidate list size while building, default is 64 */
+    private int efConstruction = 64;
+    /** HNSW candidate list size per query, default is 40 */
+    private int efSearch = 40;
+    /** IVFFlat cluster count, roughly rows / 1000 (sqrt(rows) above 1M rows), default is 100 */
+    private int lists = 100;
+    /** IVFFlat clusters scanned per query, default is 1 */
+    private int probes = 1;
+    /** NONE, HALFVEC or BINARY index expression (pgvector 0.7+), candidates are re-ranked on the full vectors, default is NONE */
+    private PgVectorIndexSettings.Quantization quantization = PgVectorIndexSettings.Quantization.NONE;
+    /** candidates taken from a quantized index per result, default is 4 */
+    private int rerankFactor = 4;
+
+    public PgVectorIndexSettings toSettings() {
+        return PgVectorIndexSettings.builder()
+                .type(type)
+                .m(m)
+                .efConstruction(efConstruction)
+                .efSearch(efSearch)
+                .lists(lists)
+                .probes(probes)
+                .quantization(quantization)
+                .rerankFactor(rerankFactor)
+                .build();
+    }
+
+}
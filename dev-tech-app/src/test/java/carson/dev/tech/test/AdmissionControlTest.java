@@ -0,0 +1,157 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.admission.AdmissionControl;
+import carson.dev.tech.trigger.admission.AdmissionRejectedException;
+import carson.dev.tech.trigger.admission.AdmissionSettings;
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AdmissionControlTest {
+
+    private static final String MODEL = "ollama:deepseek-r1:1.5b";
+
+    @Test
+    public void test_slots_queue_and_fast_rejection() {
+        AdmissionControl admission = new AdmissionControl(AdmissionSettings.builder()
+                .maxInFlight(2).maxQueued(3).maxQueuedPerClient(3).build());
+        List<Sinks.Many<String>> upstreams = new ArrayList<>();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+            upstreams.add(upstream);
+            subscriptions.add(admission.stream(MODEL, "client-" + i, upstream::asFlux).subscribe());
+        }
+        Assert.assertEquals(2, admission.getInFlight(MODEL));
+        Assert.assertEquals(3, admission.getQueued(MODEL));
+
+        // the sixth is turned away before anything is subscribed, with a retry hint
+        AdmissionRejectedException rejected = Assert.assertThrows(AdmissionRejectedException.class,
+                () -> admission.stream(MODEL, "client-5", Flux::empty));
+        Assert.assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        Assert.assertThrows(AdmissionRejectedException.class, () -> admission.checkAdmittable(MODEL, "client-5"));
+        // other models have their own slots
+        Assert.assertEquals(List.of("ok"), admission.stream("openai:gpt-4o", "client-5", () -> Flux.just("ok")).collectList().block());
+
+        // a finished generation hands its slot to the queue
+        upstreams.get(0).tryEmitComplete();
+        Assert.assertEquals(2, admission.getInFlight(MODEL));
+        Assert.assertEquals(2, admission.getQueued(MODEL));
+        // so does a disconnected client, and a waiting one just leaves the queue
+        subscriptions.get(1).dispose();
+        subscriptions.get(4).dispose();
+        Assert.assertEquals(2, admission.getInFlight(MODEL));
+        Assert.assertEquals(0, admission.getQueued(MODEL));
+        subscriptions.forEach(Disposable::dispose);
+        Assert.assertEquals(0, admission.getInFlight(MODEL));
+        Assert.assertEquals(2, admission.getRejected(MODEL));
+    }
+
+    @Test
+    public void test_freed_slots_go_to_clients_in_turn() {
+        AdmissionControl admission = new AdmissionControl(AdmissionSettings.builder()
+                .maxInFlight(1).maxQueued(10).maxQueuedPerClient(3).build());
+        List<String> started = new CopyOnWriteArrayList<>();
+        Sinks.Many<String> blocker = Sinks.many().unicast().onBackpressureBuffer();
+        admission.stream(MODEL, "blocker", blocker::asFlux).subscribe();
+        // a queues three requests before b queues its one
+        for (String request : List.of("a1", "a2", "a3", "b1")) {
+            admission.stream(MODEL, request.substring(0, 1), () -> {
+                started.add(request);
+                return Flux.just(request);
+            }).subscribe();
+        }
+        // a's fourth would exceed its share of the queue, while b can still queue
+        Assert.assertThrows(AdmissionRejectedException.class, () -> admission.checkAdmittable(MODEL, "a"));
+        admission.checkAdmittable(MODEL, "b");
+
+        blocker.tryEmitComplete();
+
+        Assert.assertEquals(List.of("a1", "b1", "a2", "a3"), started);
+        Assert.assertEquals(0, admission.getInFlight(MODEL));
+    }
+
+    @Test
+    public void test_waiting_longer_than_the_queue_timeout_is_rejected() {
+        AdmissionControl admission = new AdmissionControl(AdmissionSettings.builder()
+                .maxInFlight(1).queueTimeoutMs(100).build());
+        Disposable running = admission.stream(MODEL, "a", Flux::never).subscribe();
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        admission.stream(MODEL, "b", () -> Flux.just("late")).subscribe(x -> {
+        }, e -> {
+            error.set(e);
+            done.countDown();
+        });
+        Assert.assertThrows(AdmissionRejectedException.class, () -> admission.call(MODEL, "c", () -> "late"));
+
+        try {
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        Assert.assertTrue(error.get() instanceof AdmissionRejectedException);
+        Assert.assertEquals(0, admission.getQueued(MODEL));
+        running.dispose();
+        Assert.assertEquals("now", admission.call(MODEL, "c", () -> "now"));
+        Assert.assertEquals(0, admission.getInFlight(MODEL));
+    }
+
+    @Test
+    public void test_stalled_consumer_is_cut_off_and_frees_its_slot() throws Exception {
+        AdmissionControl admission = new AdmissionControl(AdmissionSettings.builder()
+                .maxInFlight(1).streamBuffer(64).build());
+        AtomicBoolean generationCancelled = new AtomicBoolean();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        // reads one chunk and then nothing, like an SSE client that stopped reading
+        BaseSubscriber<Integer> consumer = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                error.set(throwable);
+                done.countDown();
+            }
+        };
+        admission.stream(MODEL, "slow", () -> Flux.range(0, 10_000).doOnCancel(() -> generationCancelled.set(true)))
+                .subscribe(consumer);
+
+        // the generation stops and the slot is free while the consumer is still stalled
+        Assert.assertTrue(generationCancelled.get());
+        Assert.assertEquals(0, admission.getInFlight(MODEL));
+        Assert.assertEquals("next", admission.call(MODEL, "other", () -> "next"));
+
+        consumer.request(Long.MAX_VALUE);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(error.get().getMessage().contains("fell more than 64 chunks behind"));
+    }
+
+    @Test
+    public void test_model_prefix_overrides_the_slot_count() {
+        AdmissionSettings settings = AdmissionSettings.builder()
+                .maxInFlight(2)
+                .modelMaxInFlight(Map.of("openai:", 16, "ollama:deepseek-r1", 1))
+                .build();
+        Assert.assertEquals(16, settings.maxInFlight("openai:gpt-4o"));
+        Assert.assertEquals(1, settings.maxInFlight(MODEL));
+        Assert.assertEquals(2, settings.maxInFlight("ollama:llama3"));
+    }
+}
@@ -0,0 +1,69 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.embedding.CachingEmbeddingClient;
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process tier only (no Redis), so it runs offline.
+ */
+public class CachingEmbeddingClientTest {
+
+    @Test
+    public void test_reingest_makes_no_upstream_calls() {
+        StubEmbeddingClient upstream = new StubEmbeddingClient(768, 0, 0);
+        CachingEmbeddingClient client = new CachingEmbeddingClient(upstream, "nomic-embed-text", null, 64L * 1024 * 1024, Duration.ofHours(1));
+
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) chunks.add("chunk " + i);
+        List<List<Double>> first = client.embed(chunks);
+        Assert.assertEquals(1, upstream.getRequests());
+
+        upstream.reset();
+        List<List<Double>> second = client.embed(chunks);
+        Assert.assertEquals(0, upstream.getRequests());
+        Assert.assertEquals(first, second);
+
+        CacheStatsDTO stats = client.stats();
+        Assert.assertEquals(200, stats.getMisses());
+        Assert.assertEquals(200, stats.getLocalHits());
+    }
+
+    @Test
+    public void test_duplicates_in_one_request_are_embedded_once() {
+        StubEmbeddingClient upstream = new StubEmbeddingClient(16, 0, 0);
+        CachingEmbeddingClient client = new CachingEmbeddingClient(upstream, "nomic-embed-text", null, 1024 * 1024, Duration.ofHours(1));
+
+        List<List<Double>> vectors = client.embed(List.of("LICENSE", "README", "LICENSE"));
+
+        Assert.assertEquals(2, upstream.getTexts());
+        Assert.assertEquals(vectors.get(0), vectors.get(2));
+    }
+
+    @Test
+    public void test_local_tier_is_bounded() {
+        StubEmbeddingClient upstream = new StubEmbeddingClient(768, 0, 0);
+        // room for roughly ten 768-d vectors
+        CachingEmbeddingClient client = new CachingEmbeddingClient(upstream, "nomic-embed-text", null, 10 * 768 * 4 + 1024, Duration.ofHours(1));
+
+        for (int i = 0; i < 100; i++) client.embed("text " + i);
+
+        Assert.assertTrue(client.stats().getSize() <= 11);
+        Assert.assertTrue(client.stats().getEvictions() > 0);
+    }
+
+    @Test
+    public void test_float_codec_round_trip() {
+        float[] vector = {0.1f, -2.5f, 3.75f, Float.MIN_VALUE};
+        byte[] bytes = FloatVectorCodec.encode(vector);
+        Assert.assertEquals(vector.length * 4, bytes.length);
+        Assert.assertArrayEquals(vector, FloatVectorCodec.decode(bytes), 0f);
+    }
+}
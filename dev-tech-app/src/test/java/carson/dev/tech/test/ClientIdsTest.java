@@ -0,0 +1,50 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.http.ClientIds;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+public class ClientIdsTest {
+
+    @Test
+    public void test_headers_ignored_without_trusted_proxy() {
+        ClientIds clientIds = new ClientIds(List.of());
+
+        Assert.assertEquals("203.0.113.7", clientIds.of(request("203.0.113.7", "alice", "198.51.100.1")));
+    }
+
+    @Test
+    public void test_headers_ignored_from_untrusted_caller() {
+        ClientIds clientIds = new ClientIds(List.of("10.0.0.0/8"));
+
+        Assert.assertEquals("203.0.113.7", clientIds.of(request("203.0.113.7", "alice", "198.51.100.1")));
+    }
+
+    @Test
+    public void test_trusted_proxy_names_the_client() {
+        ClientIds clientIds = new ClientIds(List.of("10.0.0.0/8", "::1"));
+
+        Assert.assertEquals("alice", clientIds.of(request("10.1.2.3", "alice", "198.51.100.1")));
+        Assert.assertEquals("alice", clientIds.of(request("0:0:0:0:0:0:0:1", "alice", null)));
+        // the left end of X-Forwarded-For is whatever the client sent; the last untrusted hop is the client
+        Assert.assertEquals("198.51.100.1", clientIds.of(request("10.1.2.3", null, "1.2.3.4, 198.51.100.1, 10.9.9.9")));
+        Assert.assertEquals("10.1.2.3", clientIds.of(request("10.1.2.3", null, null)));
+    }
+
+    @Test
+    public void test_trusted_proxies_must_be_addresses() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> new ClientIds(List.of("proxy.example.com")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new ClientIds(List.of("10.0.0.0/33")));
+    }
+
+    private static MockHttpServletRequest request(String remote, String clientId, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remote);
+        if (clientId != null) request.addHeader("X-Client-Id", clientId);
+        if (forwardedFor != null) request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,298 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.ingest.CodeAwareSplitter;
+import carson.dev.tech.trigger.ingest.CodeLanguage;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Boundaries, symbols and line ranges per language, the token fallback, and splitting throughput against the plain
+ * token splitter on a synthetic repository (size with -Dbench.files).
+ */
+@Slf4j
+public class CodeAwareSplitterTest {
+
+    private static final int BENCH_FILES = Integer.getInteger("bench.files", 400);
+
+    private static final String JAVA = """
+            package demo;
+
+            import java.util.List;
+
+            /**
+             * Places and cancels orders.
+             */
+            public class OrderService {
+
+                private final List<String> orders;
+
+                public OrderService(List<String> orders) {
+                    this.orders = orders;
+                }
+
+                /**
+                 * Places an order, rejecting duplicates { even with braces in comments }.
+                 */
+                @Transactional
+                public boolean place(String id) {
+                    if (orders.contains(id)) {
+                        return false;
+                    }
+                    String note = "a } in a string";
+                    return orders.add(id);
+                }
+
+                public void cancel(String id) {
+                    orders.remove(id);
+                }
+
+                static class Audit {
+                    void log(String line) {
+                        System.out.println(line);
+                    }
+                }
+            }
+            """;
+
+    @Test
+    public void test_java_is_cut_at_declarations_with_symbols_and_line_ranges() throws Exception {
+        List<Document> chunks = split(new CodeAwareSplitter(150, 0, 5), CodeLanguage.JAVA, JAVA);
+
+        List<String> lines = JAVA.lines().toList();
+        for (Document chunk : chunks) {
+            log.info("{} {}-{}", chunk.getMetadata().get("symbol"), chunk.getMetadata().get("startLine"), chunk.getMetadata().get("endLine"));
+            int start = (int) chunk.getMetadata().get("startLine");
+            int end = (int) chunk.getMetadata().get("endLine");
+            // the line range points at exactly the chunk's text
+            Assert.assertEquals(String.join("\n", lines.subList(start - 1, end)).strip(), chunk.getContent());
+            Assert.assertEquals("OrderService.java", chunk.getMetadata().get("path"));
+            Assert.assertEquals("java", chunk.getMetadata().get("language"));
+        }
+        Document place = chunkWithSymbol(chunks, "OrderService.place");
+        // javadoc and annotation stay with the method, and the method is not cut by the braces in its comment or string
+        Assert.assertTrue(place.getContent().contains("Places an order"));
+        Assert.assertTrue(place.getContent().contains("@Transactional"));
+        Assert.assertTrue(place.getContent().contains("return orders.add(id);"));
+        chunkWithSymbol(chunks, "OrderService.OrderService");
+        chunkWithSymbol(chunks, "OrderService.Audit");
+        // every line of code ends up in exactly one chunk, in order
+        Assert.assertEquals(JAVA.replaceAll("\\s+", ""),
+                chunks.stream().map(Document::getContent).collect(Collectors.joining()).replaceAll("\\s+", ""));
+    }
+
+    @Test
+    public void test_small_declarations_are_packed_together() throws Exception {
+        List<Document> chunks = split(new CodeAwareSplitter(), CodeLanguage.JAVA, JAVA);
+
+        Assert.assertEquals(1, chunks.size());
+        Assert.assertEquals(1, chunks.get(0).getMetadata().get("startLine"));
+        Assert.assertEquals(JAVA.lines().count(), ((Integer) chunks.get(0).getMetadata().get("endLine")).longValue());
+        Assert.assertTrue(((String) chunks.get(0).getMetadata().get("symbol")).contains("OrderService.cancel"));
+    }
+
+    @Test
+    public void test_python_typescript_yaml_and_markdown_symbols() throws Exception {
+        String python = """
+                import os
+
+                class Cart:
+                    \"\"\"A cart.
+
+                    def not_a_method(self): inside a docstring
+                    \"\"\"
+
+                    @property
+                    def total(self):
+                        def nested():
+                            return 1
+                        return sum(self.items) + nested()
+
+
+                def helper(x):
+                    return x * 2
+
+                if __name__ == "__main__":
+                    helper(1)
+                """;
+        String typescript = """
+                import { http } from './http';
+
+                export class Api {
+                  private readonly base = '/api';
+
+                  async fetchUser(id: string): Promise<User> {
+                    return http.get(`${this.base}/users/${id} }`);
+                  }
+                }
+
+                export function formatDate(d: Date): string {
+                  return d.toISOString();
+                }
+
+                export const toUpper = (s: string) => s.toUpperCase();
+                """;
+        String yaml = """
+                # server settings
+                server:
+                  port: 8090
+                spring:
+                  ai:
+                    ollama:
+                      base-url: http://localhost:11434
+                ---
+                logging:
+                  level: info
+                """;
+        String markdown = """
+                # Guide
+
+                Intro text.
+
+                ## Setup
+
+                ### Docker
+
+                ```bash
+                # not a heading
+                docker compose up
+                ```
+
+                ## Usage
+
+                Call the API.
+                """;
+
+        Assert.assertEquals(Set.of("Cart", "Cart.total", "helper"), symbols(CodeLanguage.PYTHON, python));
+        Assert.assertEquals(Set.of("Api", "Api.fetchUser", "formatDate", "toUpper"), symbols(CodeLanguage.TYPESCRIPT, typescript));
+        Assert.assertEquals(Set.of("server", "spring", "logging"), symbols(CodeLanguage.YAML, yaml));
+        Assert.assertEquals(Set.of("Guide", "Guide > Setup", "Guide > Setup > Docker", "Guide > Usage"),
+                symbols(CodeLanguage.MARKDOWN, markdown));
+    }
+
+    @Test
+    public void test_oversized_method_and_minified_line_fall_back_to_token_cuts() throws Exception {
+        StringBuilder java = new StringBuilder("class Big {\n    void huge() {\n");
+        for (int i = 0; i < 400; i++) {
+            java.append("        total += compute(").append(i).append(", \"value number ").append(i).append("\");\n");
+        }
+        java.append("    }\n}\n");
+        java.append("/* ").append("minified();".repeat(2_000)).append(" */\n");
+
+        List<Document> chunks = split(new CodeAwareSplitter(200, 100, 5), CodeLanguage.JAVA, java.toString());
+
+        long huge = chunks.stream().filter(c -> "Big.huge".equals(c.getMetadata().get("symbol"))).count();
+        Assert.assertTrue(huge > 5);
+        long minified = chunks.stream().filter(c -> c.getContent().contains("minified();minified();")).count();
+        Assert.assertTrue(minified > 5);
+        for (Document chunk : chunks) {
+            Assert.assertTrue(TokenCounter.count(chunk.getContent()) <= 210);
+        }
+    }
+
+    @Test
+    public void test_throughput_against_token_splitting() throws Exception {
+        List<String> files = new ArrayList<>(BENCH_FILES);
+        Random random = new Random(42);
+        long chars = 0;
+        for (int i = 0; i < BENCH_FILES; i++) {
+            String file = syntheticJavaFile(random, i);
+            files.add(file);
+            chars += file.length();
+        }
+        CodeAwareSplitter code = new CodeAwareSplitter();
+        StreamingTextSplitter text = new StreamingTextSplitter();
+
+        // warm up both, then measure
+        runCode(code, files.subList(0, Math.min(50, files.size())));
+        runText(text, files.subList(0, Math.min(50, files.size())));
+        long start = System.nanoTime();
+        List<Document> codeChunks = runCode(code, files);
+        double codeSeconds = (System.nanoTime() - start) / 1e9;
+        start = System.nanoTime();
+        List<Document> textChunks = runText(text, files);
+        double textSeconds = (System.nanoTime() - start) / 1e9;
+
+        double mb = chars / 1e6;
+        log.info("{} files, {} MB: code-aware {} chunks {} MB/s, token {} chunks {} MB/s", BENCH_FILES,
+                String.format("%.1f", mb), codeChunks.size(), String.format("%.1f", mb / codeSeconds),
+                textChunks.size(), String.format("%.1f", mb / textSeconds));
+        Assert.assertTrue(codeChunks.stream().allMatch(c -> c.getMetadata().containsKey("startLine")));
+        // splitting must stay cheap next to the embedding calls it feeds
+        Assert.assertTrue("code-aware splitting is more than 4x slower than token splitting", codeSeconds < textSeconds * 4);
+    }
+
+    private static String syntheticJavaFile(Random random, int index) {
+        StringBuilder sb = new StringBuilder("package bench;\n\nimport java.util.*;\n\npublic class Service")
+                .append(index).append(" {\n\n    private final Map<String, Integer> cache = new HashMap<>();\n\n");
+        int methods = 10 + random.nextInt(30);
+        for (int m = 0; m < methods; m++) {
+            sb.append("    /**\n     * Computes value ").append(m).append(".\n     */\n")
+                    .append("    public int method").append(m).append("(String key, int factor) {\n");
+            int body = 3 + random.nextInt(25);
+            for (int l = 0; l < body; l++) {
+                sb.append("        int v").append(l).append(" = cache.getOrDefault(key + \"").append(l)
+                        .append("\", ").append(random.nextInt(1000)).append(") * factor;\n");
+            }
+            sb.append("        return v0;\n    }\n\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static List<Document> runCode(CodeAwareSplitter splitter, List<String> files) throws Exception {
+        List<Document> chunks = new ArrayList<>();
+        for (String file : files) {
+            try (Writer session = splitter.open(CodeLanguage.JAVA, Map.of(), chunks::add)) {
+                session.write(file);
+            }
+        }
+        return chunks;
+    }
+
+    private static List<Document> runText(StreamingTextSplitter splitter, List<String> files) throws Exception {
+        List<Document> chunks = new ArrayList<>();
+        for (String file : files) {
+            try (Writer session = splitter.open(Map.of(), chunks::add)) {
+                session.write(file);
+            }
+        }
+        return chunks;
+    }
+
+    private static List<Document> split(CodeAwareSplitter splitter, CodeLanguage language, String text) throws Exception {
+        List<Document> chunks = new ArrayList<>();
+        try (Writer session = splitter.open(language, Map.of("path", "OrderService.java"), chunks::add)) {
+            // odd-sized writes, as a Reader would deliver them
+            for (int i = 0; i < text.length(); i += 7) {
+                session.write(text, i, Math.min(7, text.length() - i));
+            }
+        }
+        return chunks;
+    }
+
+    private static Set<String> symbols(CodeLanguage language, String text) throws Exception {
+        return split(new CodeAwareSplitter(12, 0, 0), language, text).stream()
+                .map(c -> (String) c.getMetadata().get("symbol"))
+                .filter(s -> s != null)
+                .flatMap(s -> Set.of(s.split(", ")).stream())
+                .collect(Collectors.toSet());
+    }
+
+    private static Document chunkWithSymbol(List<Document> chunks, String symbol) {
+        return chunks.stream()
+                .filter(c -> c.getMetadata().get("symbol") != null && ((String) c.getMetadata().get("symbol")).contains(symbol))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no chunk for " + symbol));
+    }
+}
@@ -0,0 +1,149 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.git.GitFetchOptions;
+import carson.dev.tech.trigger.git.GitTreeFiles;
+import carson.dev.tech.trigger.ingest.ContentSniffer;
+import carson.dev.tech.trigger.ingest.RepositoryPathFilter;
+import carson.dev.tech.trigger.ingest.SourceFile;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+@Slf4j
+public class ContentSnifferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_text_is_read_directly_and_documents_go_to_tika() throws Exception {
+        assertKind(ContentSniffer.Kind.TEXT, "Main.java", "class Main { /* héllo → 世界 */ }".getBytes(StandardCharsets.UTF_8));
+        assertKind(ContentSniffer.Kind.TEXT, "bom.txt", new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'h', 'i'});
+        assertKind(ContentSniffer.Kind.TEXT, "utf16.txt", "\uFEFFhello".getBytes(StandardCharsets.UTF_16LE));
+        assertKind(ContentSniffer.Kind.DOCUMENT, "report.pdf", "%PDF-1.7\n%âãÏÓ".getBytes(StandardCharsets.ISO_8859_1));
+        assertKind(ContentSniffer.Kind.DOCUMENT, "notes.docx", new byte[]{'P', 'K', 3, 4, 20, 0, 6, 0});
+        // Latin-1 text is not UTF-8 but has text-like entropy: Tika detects the charset
+        assertKind(ContentSniffer.Kind.DOCUMENT, "legacy.txt", "café crème brûlée. ".repeat(50).getBytes(StandardCharsets.ISO_8859_1));
+        assertKind(ContentSniffer.Kind.EMPTY, "empty.txt", new byte[0]);
+        // text that happens to start like an executable or a RIFF container
+        assertKind(ContentSniffer.Kind.TEXT, "mz.md", "MZ-80 notes: the Sharp MZ line of home computers. ".repeat(4).getBytes(StandardCharsets.UTF_8));
+        assertKind(ContentSniffer.Kind.TEXT, "riff.txt", "RIFF is the container format WAV files use.".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_executable_and_riff_signatures() throws Exception {
+        byte[] pe = new byte[0x100];
+        pe[0] = 'M';
+        pe[1] = 'Z';
+        pe[0x3C] = (byte) 0x80;
+        System.arraycopy(new byte[]{'P', 'E', 0, 0}, 0, pe, 0x80, 4);
+        Assert.assertEquals("PE executable", ContentSniffer.sniff(new ByteArrayInputStream(pe), "tool").reason());
+        byte[] wav = {'R', 'I', 'F', 'F', 36, 0, 0, 0, 'W', 'A', 'V', 'E', 'f', 'm', 't', ' '};
+        Assert.assertEquals("RIFF media", ContentSniffer.sniff(new ByteArrayInputStream(wav), "sound").reason());
+    }
+
+    @Test
+    public void test_binaries_are_caught_by_magic_nul_or_entropy() throws Exception {
+        assertKind(ContentSniffer.Kind.BINARY, "logo", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+        assertKind(ContentSniffer.Kind.BINARY, "bundle.zip", new byte[]{'P', 'K', 3, 4, 20, 0, 6, 0});
+        assertKind(ContentSniffer.Kind.BINARY, "data.txt", "text\0with a NUL".getBytes(StandardCharsets.US_ASCII));
+        byte[] random = new byte[ContentSniffer.SAMPLE_BYTES * 4];
+        new Random(42).nextBytes(random);
+        for (int i = 0; i < random.length; i++) {
+            // no NULs or control characters, so only the entropy check can tell
+            random[i] = (byte) (0x20 + (random[i] & 0xFF) % 0xE0);
+        }
+        assertKind(ContentSniffer.Kind.BINARY, "model.weights", random);
+    }
+
+    @Test
+    public void test_utf8_character_cut_by_the_sample_is_still_text() throws Exception {
+        byte[] text = "世".repeat(ContentSniffer.SAMPLE_BYTES).getBytes(StandardCharsets.UTF_8);
+        // 8192 is not a multiple of 3, so the sample ends inside a character
+        assertKind(ContentSniffer.Kind.TEXT, "cjk.md", text);
+    }
+
+    @Test
+    public void test_path_filter_honours_gitignore_vendored_and_generated_rules() throws Exception {
+        Path root = folder.getRoot().toPath();
+        write(root, ".gitignore", "*.log\nbuild/\n");
+        write(root, ".gitattributes", "vendor/ours/** -linguist-vendored\ndocs/api/** linguist-generated\n");
+        write(root, "web/.gitignore", "!keep.log\nlocal.json\n");
+
+        RepositoryPathFilter filter = new RepositoryPathFilter(root);
+
+        Assert.assertFalse(filter.skipFile(write(root, "src/Main.java", "class Main {}")));
+        Assert.assertTrue(filter.skipFile(write(root, "app.log", "x")));
+        Assert.assertTrue(filter.skipFile(write(root, "build/out.txt", "x")));
+        Assert.assertTrue(filter.skipDirectory(root.resolve("build")));
+        // nested .gitignore: deeper rules override and add to the root ones
+        Assert.assertFalse(filter.skipFile(write(root, "web/keep.log", "x")));
+        Assert.assertTrue(filter.skipFile(write(root, "web/local.json", "{}")));
+        // linguist-style defaults
+        Assert.assertTrue(filter.skipFile(write(root, "web/node_modules/react/index.js", "x")));
+        Assert.assertTrue(filter.skipFile(write(root, "web/app.min.js", "x")));
+        Assert.assertTrue(filter.skipFile(write(root, "package-lock.json", "{}")));
+        Assert.assertTrue(filter.skipFile(write(root, "img/logo.PNG", "x")));
+        // .gitattributes overrides in both directions
+        Assert.assertTrue(filter.skipFile(write(root, "docs/api/index.md", "x")));
+        Assert.assertFalse(filter.skipDirectory(root.resolve("vendor")));
+        Assert.assertFalse(filter.skipFile(write(root, "vendor/ours/Lib.java", "x")));
+        Assert.assertTrue(filter.skipFile(write(root, "vendor/theirs/Lib.java", "x")));
+    }
+
+    @Test
+    public void test_git_tree_honours_the_same_rules() throws Exception {
+        Path root = folder.getRoot().toPath();
+        try (Git git = Git.init().setDirectory(root.toFile()).setInitialBranch("master").call()) {
+            for (String path : new String[]{"src/Main.java", "app.log", "build/out.txt", "web/keep.log", "web/local.json",
+                    "web/node_modules/react/index.js", "web/app.min.js", "docs/api/index.md", "docs/guide.md",
+                    "vendor/ours/Lib.java", "vendor/theirs/Lib.java"}) {
+                write(root, path, "x");
+            }
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("files").setSign(false).call();
+            // committed before the rules that ignore them, as force-added or since-ignored files are
+            write(root, ".gitignore", "*.log\nbuild/\n");
+            write(root, ".gitattributes", "vendor/ours/** -linguist-vendored\ndocs/api/** linguist-generated\n");
+            write(root, "web/.gitignore", "!keep.log\nlocal.json\n");
+            git.add().addFilepattern(".").call();
+            RevCommit head = git.commit().setMessage("rules").setSign(false).call();
+
+            GitTreeFiles files = new GitTreeFiles(git.getRepository(), head.getTree(), GitFetchOptions.defaults(), null);
+            Set<String> paths = StreamSupport.stream(files.spliterator(), false).map(SourceFile::getPath).collect(Collectors.toSet());
+
+            Assert.assertEquals(Set.of(".gitignore", ".gitattributes", "web/.gitignore", "src/Main.java", "web/keep.log",
+                    "docs/guide.md", "vendor/ours/Lib.java"), paths);
+            Assert.assertFalse(files.accepts("build/out.txt"));
+            Assert.assertTrue(files.accepts("vendor/ours/Other.java"));
+        }
+    }
+
+    private void assertKind(ContentSniffer.Kind expected, String name, byte[] content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content);
+        ContentSniffer.Result result = ContentSniffer.sniff(file);
+        log.info("{} → {} ({})", name, result.kind(), result.reason());
+        Assert.assertEquals(name, expected, result.kind());
+    }
+
+    private static Path write(Path root, String relative, String content) throws Exception {
+        Path file = root.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file;
+    }
+}
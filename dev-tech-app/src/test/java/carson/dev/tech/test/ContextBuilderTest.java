@@ -0,0 +1,107 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import carson.dev.tech.trigger.rag.ContextBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+@Slf4j
+public class ContextBuilderTest {
+
+    private final ContextBuilder builder = new ContextBuilder(1000, Map.of("ollama:", 500, "ollama:deepseek-r1:1.5b", 300), 0.9, 64);
+
+    @Test
+    public void test_budget_by_longest_model_prefix() {
+        Assert.assertEquals(300, builder.budget("ollama:deepseek-r1:1.5b"));
+        Assert.assertEquals(500, builder.budget("ollama:llama3"));
+        Assert.assertEquals(1000, builder.budget("openai:gpt-4o"));
+    }
+
+    @Test
+    public void test_chunks_ordered_by_distance() {
+        List<Document> documents = List.of(
+                chunk("c", "third chunk about indexing", 0.3f),
+                chunk("a", "first chunk about embeddings", 0.1f),
+                chunk("b", "second chunk about retrieval", 0.2f));
+
+        ContextBuilder.Context context = builder.build("openai:gpt-4o", documents, 0);
+
+        Assert.assertEquals(List.of("a", "b", "c"), context.documents().stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void test_near_duplicates_dropped() {
+        String text = words(200, 1);
+        List<Document> documents = List.of(
+                chunk("a", text, 0.1f),
+                chunk("b", text + " trailing", 0.2f),
+                chunk("c", words(200, 2), 0.3f));
+
+        ContextBuilder.Context context = builder.build("openai:gpt-4o", documents, 0);
+
+        Assert.assertEquals(List.of("a", "c"), context.documents().stream().map(Document::getId).toList());
+        Assert.assertEquals(1, context.duplicates());
+    }
+
+    @Test
+    public void test_stops_at_budget_and_truncates_last_chunk() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(chunk("d" + i, words(150, i), 0.1f * i));
+        }
+
+        ContextBuilder.Context context = builder.build("ollama:deepseek-r1:1.5b", documents, 50);
+
+        Assert.assertTrue(context.tokens() <= 250);
+        Assert.assertEquals(context.tokens(), TokenCounter.count(context.text()));
+        Assert.assertEquals(1, context.truncated());
+        Assert.assertTrue(context.omitted() > 0);
+    }
+
+    /**
+     * Prompt size of the old unbounded join of top-5 whole files against the budgeted context. Prefill time grows
+     * with the prompt, but is not measured here; the cost of assembling the context is in PromptAssemblyBenchmark.
+     */
+    @Test
+    public void test_prompt_token_reduction() {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // unsplit source files as stored by analyzeGithubRepo before chunking; two of them are copies
+            documents.add(chunk("f" + i, words(3000, i % 4), 0.1f * i));
+        }
+        ContextBuilder budgeted = new ContextBuilder(2048, Map.of(), 0.9, 64);
+
+        String unbounded = documents.stream().map(Document::getContent).collect(Collectors.joining());
+        ContextBuilder.Context context = budgeted.build("ollama:deepseek-r1:1.5b", documents, 0);
+        int unboundedTokens = TokenCounter.count(unbounded);
+
+        log.info("prompt: unbounded {} tokens, budgeted {} tokens ({}% fewer), {} duplicates, {} truncated, {} omitted",
+                unboundedTokens, context.tokens(),
+                String.format("%.1f", 100.0 * (unboundedTokens - context.tokens()) / unboundedTokens),
+                context.duplicates(), context.truncated(), context.omitted());
+        Assert.assertEquals(context.tokens(), TokenCounter.count(context.text()));
+        Assert.assertTrue(context.tokens() <= 2048);
+        Assert.assertTrue(context.tokens() < unboundedTokens);
+    }
+
+    private static Document chunk(String id, String text, float distance) {
+        return new Document(id, text, Map.of("distance", distance));
+    }
+
+    private static String words(int n, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append("w").append(random.nextInt(5000)).append(' ');
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,160 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.embedding.BatchingEmbeddingClient;
+import carson.dev.tech.trigger.embedding.EmbeddingBatchSettings;
+import carson.dev.tech.trigger.embedding.EmbeddingLane;
+import carson.dev.tech.trigger.embedding.OllamaBatchEmbeddingClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching across callers against a local stand-in for Ollama's {@code /api/embed}, which records every request and
+ * takes {@link #LATENCY_MS} per request whatever its size, like a GPU that is not saturated.
+ */
+@Slf4j
+public class EmbeddingBatchingTest {
+
+    private static final long LATENCY_MS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<List<String>> received = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstRequest = new CountDownLatch(1);
+    private HttpServer server;
+
+    @Before
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/embed", this::embed);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    public void test_concurrent_callers_share_upstream_requests() throws Exception {
+        int callers = 32;
+        try (BatchingEmbeddingClient client = client(EmbeddingBatchSettings.builder().interactiveWindowMs(20).build())) {
+            CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(callers);
+            try {
+                List<Future<List<Double>>> results = new ArrayList<>();
+                for (int i = 0; i < callers; i++) {
+                    String question = "question " + (i % 16);
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return client.embed(question);
+                    }));
+                }
+                start.countDown();
+                for (int i = 0; i < callers; i++) {
+                    Assert.assertEquals(vector("question " + (i % 16)), results.get(i).get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            log.info("{} callers, {} upstream requests, {} texts embedded", callers, received.size(), client.getTexts());
+            Assert.assertEquals(callers, client.getRequests());
+            Assert.assertEquals(received.size(), client.getBatches());
+            Assert.assertTrue(received.size() < callers);
+        }
+    }
+
+    @Test
+    public void test_identical_texts_are_embedded_once() {
+        try (BatchingEmbeddingClient client = client(EmbeddingBatchSettings.builder().build())) {
+            List<List<Double>> vectors = client.embed(List.of("LICENSE", "README", "LICENSE"));
+
+            Assert.assertEquals(List.of(List.of("LICENSE", "README")), received);
+            Assert.assertEquals(List.of(vector("LICENSE"), vector("README"), vector("LICENSE")), vectors);
+        }
+    }
+
+    @Test
+    public void test_query_overtakes_queued_ingestion_batches() throws Exception {
+        // one request upstream at a time, so the query can only win by being batched first
+        try (BatchingEmbeddingClient client = client(EmbeddingBatchSettings.builder()
+                .maxBatchTexts(4).maxConcurrentBatches(1).windowMs(0).build())) {
+            List<String> chunks = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                chunks.add("chunk " + i);
+            }
+            CompletableFuture<List<List<Double>>> ingestion = CompletableFuture.supplyAsync(
+                    () -> EmbeddingLane.BULK.run(() -> client.embed(chunks)));
+            Assert.assertTrue(firstRequest.await(5, TimeUnit.SECONDS));
+
+            long start = System.nanoTime();
+            Assert.assertEquals(vector("what is rag?"), client.embed("what is rag?"));
+            long queryMs = (System.nanoTime() - start) / 1_000_000;
+
+            Assert.assertEquals(40, ingestion.get(10, TimeUnit.SECONDS).size());
+            Assert.assertEquals(11, received.size());
+            Assert.assertEquals(List.of("what is rag?"), received.get(1));
+            log.info("query answered in {} ms while 10 ingestion batches of {} ms each were queued", queryMs, LATENCY_MS);
+            Assert.assertTrue(queryMs < 4 * LATENCY_MS);
+        }
+    }
+
+    @Test
+    public void test_upstream_failure_reaches_the_callers_of_that_batch_only() {
+        try (BatchingEmbeddingClient client = client(EmbeddingBatchSettings.builder().build())) {
+            Assert.assertThrows(IllegalStateException.class, () -> client.embed(List.of("boom", "fine")));
+
+            Assert.assertEquals(vector("fine"), client.embed("fine"));
+            Assert.assertEquals(2, received.size());
+        }
+    }
+
+    private BatchingEmbeddingClient client(EmbeddingBatchSettings settings) {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new BatchingEmbeddingClient(new OllamaBatchEmbeddingClient(baseUrl, "nomic-embed-text", 512), settings);
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            @SuppressWarnings("unchecked")
+            List<String> inputs = (List<String>) objectMapper.readValue(exchange.getRequestBody(), Map.class).get("input");
+            received.add(inputs);
+            firstRequest.countDown();
+            TimeUnit.MILLISECONDS.sleep(LATENCY_MS);
+            if (inputs.contains("boom")) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            List<List<Double>> embeddings = inputs.stream().map(EmbeddingBatchingTest::vector).toList();
+            byte[] body = objectMapper.writeValueAsBytes(Map.of("model", "nomic-embed-text", "embeddings", embeddings));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Tells texts apart, so a vector handed to the wrong caller fails the assertions. */
+    private static List<Double> vector(String text) {
+        return List.of((double) text.length(), (double) text.hashCode());
+    }
+}
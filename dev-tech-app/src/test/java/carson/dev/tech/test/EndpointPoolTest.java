@@ -0,0 +1,243 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.embedding.OllamaBatchEmbeddingClient;
+import carson.dev.tech.trigger.endpoint.EndpointClients;
+import carson.dev.tech.trigger.endpoint.EndpointPool;
+import carson.dev.tech.trigger.endpoint.EndpointPoolSettings;
+import carson.dev.tech.trigger.endpoint.OllamaEndpointProbe;
+import carson.dev.tech.trigger.endpoint.PooledEmbeddingClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Routing, pinning, ejection and recovery against local stand-ins for Ollama servers ({@code /api/tags},
+ * {@code /api/ps}, {@code /api/embed}), driven through the pooled embedding client.
+ */
+@Slf4j
+public class EndpointPoolTest {
+
+    private static final String MODEL = "nomic-embed-text";
+
+    private final List<StubOllama> servers = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void stopStubs() {
+        executor.shutdownNow();
+        servers.forEach(StubOllama::stop);
+    }
+
+    @Test
+    public void test_model_is_pinned_to_the_servers_that_have_it_loaded() throws Exception {
+        StubOllama loaded = stub(Set.of(MODEL + ":latest"), Set.of(MODEL + ":latest"));
+        StubOllama pulled = stub(Set.of(MODEL + ":latest"), Set.of());
+        StubOllama other = stub(Set.of("llama3:latest"), Set.of("llama3:latest"));
+        EndpointPool pool = pool(EndpointPoolSettings.builder().healthCheckIntervalMs(0).pinSpillOutstanding(2).build());
+        pool.checkHealth();
+        PooledEmbeddingClient client = new PooledEmbeddingClient(pool, MODEL);
+
+        for (int i = 0; i < 10; i++) {
+            client.embed("chunk " + i);
+        }
+        Assert.assertEquals(10, loaded.embeds.get());
+
+        // two requests keep the loaded server busy, the third goes to the one that has the model, never to the other
+        loaded.hold = new CountDownLatch(1);
+        List<Future<List<Double>>> pending = new ArrayList<>();
+        pending.add(submit(client, "a", () -> loaded.embeds.get(), 11));
+        pending.add(submit(client, "b", () -> loaded.embeds.get(), 12));
+        pending.add(submit(client, "c", () -> pulled.embeds.get(), 1));
+        loaded.hold.countDown();
+        for (Future<List<Double>> result : pending) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(0, other.embeds.get());
+    }
+
+    @Test
+    public void test_least_outstanding_spreads_requests() throws Exception {
+        List<StubOllama> stubs = List.of(stub(Set.of(), Set.of()), stub(Set.of(), Set.of()), stub(Set.of(), Set.of()));
+        CountDownLatch hold = new CountDownLatch(1);
+        stubs.forEach(stub -> stub.hold = hold);
+        PooledEmbeddingClient client = new PooledEmbeddingClient(pool(EndpointPoolSettings.builder().healthCheckIntervalMs(0).build()), MODEL);
+
+        // each request is sent once the previous one is in flight, so every choice sees the exact counts
+        List<Future<List<Double>>> pending = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            pending.add(submit(client, "chunk " + i, () -> stubs.stream().mapToInt(stub -> stub.embeds.get()).sum(), i + 1));
+        }
+        hold.countDown();
+        for (Future<List<Double>> result : pending) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        for (StubOllama stub : stubs) {
+            Assert.assertEquals(2, stub.embeds.get());
+        }
+    }
+
+    @Test
+    public void test_ewma_latency_prefers_the_faster_server() {
+        StubOllama fast = stub(Set.of(), Set.of());
+        StubOllama slow = stub(Set.of(), Set.of());
+        fast.latencyMs = 5;
+        slow.latencyMs = 60;
+        PooledEmbeddingClient client = new PooledEmbeddingClient(pool(EndpointPoolSettings.builder()
+                .healthCheckIntervalMs(0).routing(EndpointPoolSettings.Routing.EWMA_LATENCY).build()), MODEL);
+
+        for (int i = 0; i < 20; i++) {
+            client.embed("chunk " + i);
+        }
+        log.info("fast server got {} requests, slow server {}", fast.embeds.get(), slow.embeds.get());
+        Assert.assertTrue(fast.embeds.get() >= 18);
+    }
+
+    @Test
+    public void test_failing_servers_are_ejected_and_taken_back_after_a_health_check() throws Exception {
+        StubOllama failing = stub(Set.of(), Set.of());
+        StubOllama healthy = stub(Set.of(), Set.of());
+        StubOllama down = stub(Set.of(), Set.of());
+        failing.failing = true;
+        down.stop();
+        EndpointPool pool = pool(EndpointPoolSettings.builder()
+                .healthCheckIntervalMs(0).ejectAfterFailures(2).ejectionMs(1_000).build());
+        PooledEmbeddingClient client = new PooledEmbeddingClient(pool, MODEL);
+
+        // the unreachable server fails its health check, the failing one answers it but not the requests
+        pool.checkHealth();
+        Assert.assertTrue(endpoint(pool, down).isEjected());
+        Assert.assertFalse(endpoint(pool, failing).isEjected());
+        // every request succeeds through failover until the failing server is ejected after its second failure
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(List.of(1.0, (double) ("chunk " + i).length()), client.embed("chunk " + i));
+        }
+        Assert.assertEquals(2, failing.embeds.get());
+        Assert.assertEquals(0, down.embeds.get());
+        Assert.assertTrue(endpoint(pool, failing).isEjected());
+
+        failing.failing = false;
+        pool.checkHealth();
+        Assert.assertTrue("still ejected until the ejection is up", endpoint(pool, failing).isEjected());
+        TimeUnit.MILLISECONDS.sleep(1_050);
+        pool.checkHealth();
+        Assert.assertFalse(endpoint(pool, failing).isEjected());
+        for (int i = 0; i < 20; i++) {
+            client.embed("again " + i);
+        }
+        Assert.assertTrue(failing.embeds.get() > 2);
+    }
+
+    private Future<List<Double>> submit(PooledEmbeddingClient client, String text, IntSupplier received, int expected)
+            throws InterruptedException {
+        Future<List<Double>> result = executor.submit(() -> client.embed(text));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (received.getAsInt() < expected) {
+            Assert.assertTrue("request " + text + " never arrived", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        return result;
+    }
+
+    private EndpointPool pool(EndpointPoolSettings settings) {
+        Map<String, EndpointClients> clients = new LinkedHashMap<>();
+        for (StubOllama server : servers) {
+            clients.put(server.baseUrl, EndpointClients.builder()
+                    .embeddingClient(new OllamaBatchEmbeddingClient(server.baseUrl, MODEL, 0))
+                    .build());
+        }
+        return new EndpointPool("ollama", clients, new OllamaEndpointProbe(500), settings);
+    }
+
+    private static EndpointPool.Endpoint endpoint(EndpointPool pool, StubOllama server) {
+        return pool.getEndpoints().stream().filter(e -> e.getBaseUrl().equals(server.baseUrl)).findFirst().orElseThrow();
+    }
+
+    private StubOllama stub(Set<String> available, Set<String> loaded) {
+        try {
+            StubOllama stub = new StubOllama(available, loaded);
+            servers.add(stub);
+            return stub;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** An Ollama server with the given models; every embedding is [1, text length]. */
+    private static final class StubOllama {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final HttpServer server;
+        private final String baseUrl;
+        private final Set<String> available;
+        private final Set<String> loaded;
+        private final AtomicInteger embeds = new AtomicInteger();
+        private volatile CountDownLatch hold = new CountDownLatch(0);
+        private volatile long latencyMs;
+        private volatile boolean failing;
+
+        private StubOllama(Set<String> available, Set<String> loaded) throws IOException {
+            this.available = available;
+            this.loaded = loaded;
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/tags", exchange -> models(exchange, available));
+            server.createContext("/api/ps", exchange -> models(exchange, loaded));
+            server.createContext("/api/embed", this::embed);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+            baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        private void models(HttpExchange exchange, Set<String> names) throws IOException {
+            List<Map<String, String>> models = names.stream().map(name -> Map.of("name", name)).toList();
+            respond(exchange, 200, objectMapper.writeValueAsBytes(Map.of("models", models)));
+        }
+
+        private void embed(HttpExchange exchange) throws IOException {
+            @SuppressWarnings("unchecked")
+            List<String> inputs = (List<String>) objectMapper.readValue(exchange.getRequestBody(), Map.class).get("input");
+            embeds.incrementAndGet();
+            try {
+                hold.await();
+                TimeUnit.MILLISECONDS.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing) {
+                respond(exchange, 500, "{\"error\":\"out of memory\"}".getBytes());
+                return;
+            }
+            List<List<Double>> embeddings = inputs.stream().map(text -> List.of(1.0, (double) text.length())).toList();
+            respond(exchange, 200, objectMapper.writeValueAsBytes(Map.of("model", MODEL, "embeddings", embeddings)));
+        }
+
+        private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+            try (exchange) {
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.test.stub.StubVectorStore;
+import carson.dev.tech.trigger.embedding.PrecomputedEmbeddingClient;
+import carson.dev.tech.trigger.git.BareRepositoryCache;
+import carson.dev.tech.trigger.git.GitRepositoryIndexer;
+import carson.dev.tech.trigger.git.ShallowGitFetcher;
+import carson.dev.tech.trigger.ingest.IngestionPipeline;
+import carson.dev.tech.trigger.ingest.IngestionStats;
+import carson.dev.tech.trigger.ingest.VectorStoreMaintenance;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Full and incremental runs against a local origin fetched over file://, with a stub embedding client that counts
+ * texts and can be made to fail, and Redis maps kept in memory.
+ */
+public class GitRepositoryIndexerTest {
+
+    private static final String RAG_TAG = "indexer-test";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, Map<String, String>> redis = new ConcurrentHashMap<>();
+    private FailingEmbeddingClient embeddingClient;
+    private StubVectorStore store;
+    private GitRepositoryIndexer indexer;
+    private Path origin;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        RLock lock = Mockito.mock(RLock.class);
+        Mockito.when(lock.isHeldByCurrentThread()).thenReturn(true);
+        Mockito.when(redissonClient.getLock(Mockito.anyString())).thenReturn(lock);
+        Mockito.doAnswer(invocation -> {
+            Map<String, String> values = redis.computeIfAbsent(invocation.getArgument(0), k -> new ConcurrentHashMap<>());
+            RMap<String, String> map = Mockito.mock(RMap.class);
+            Mockito.when(map.get(Mockito.any())).thenAnswer(i -> values.get(i.getArgument(0)));
+            Mockito.when(map.getOrDefault(Mockito.any(), Mockito.any()))
+                    .thenAnswer(i -> values.getOrDefault(i.getArgument(0), i.getArgument(1)));
+            Mockito.when(map.put(Mockito.anyString(), Mockito.anyString()))
+                    .thenAnswer(i -> values.put(i.getArgument(0), i.getArgument(1)));
+            return map;
+        }).when(redissonClient).getMap(Mockito.anyString());
+
+        embeddingClient = new FailingEmbeddingClient();
+        store = new StubVectorStore(new PrecomputedEmbeddingClient(embeddingClient), 0);
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingClient(embeddingClient)
+                .vectorStore(store)
+                .parseThreads(2)
+                .embedThreads(2)
+                .writeThreads(1)
+                .queueCapacity(64)
+                .embedBatchTokens(512)
+                .writeBatchTokens(2048)
+                .build();
+        BareRepositoryCache cache = new BareRepositoryCache(folder.newFolder("cache").toPath(), 0, new ShallowGitFetcher(1));
+        indexer = new GitRepositoryIndexer(pipeline, new StoreMaintenance(store), redissonClient, cache);
+        origin = folder.newFolder("origin").toPath();
+    }
+
+    @Test
+    public void test_one_file_change_embeds_only_that_file() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            commit("docs/file" + i + ".md", text(i, 1));
+        }
+        GitRepositoryIndexer.IndexResult full = index();
+        Assert.assertEquals(GitRepositoryIndexer.Mode.FULL, full.mode());
+        Assert.assertEquals(10, paths().size());
+
+        RevCommit head = commit("docs/file3.md", text(3, 2));
+        embeddingClient.reset();
+        GitRepositoryIndexer.IndexResult incremental = index();
+
+        Assert.assertEquals(GitRepositoryIndexer.Mode.INCREMENTAL, incremental.mode());
+        Assert.assertEquals(head.name(), incremental.commit());
+        Assert.assertEquals(1, incremental.changedFiles());
+        List<Document> changed = store.getRows().stream().filter(d -> "docs/file3.md".equals(d.getMetadata().get("path"))).toList();
+        Assert.assertFalse(changed.isEmpty());
+        Assert.assertEquals("only the chunks of the changed file are embedded", changed.size(), embeddingClient.getTexts());
+        changed.forEach(d -> Assert.assertTrue(d.getContent().contains("revision 2")));
+        Assert.assertEquals(10, paths().size());
+
+        embeddingClient.reset();
+        Assert.assertEquals(GitRepositoryIndexer.Mode.UP_TO_DATE, index().mode());
+        Assert.assertEquals(0, embeddingClient.getTexts());
+    }
+
+    @Test
+    public void test_failed_run_keeps_the_stored_commit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            commit("docs/file" + i + ".md", text(i, 1));
+        }
+        String indexed = index().commit();
+
+        RevCommit head = commit("docs/file1.md", text(1, 2));
+        embeddingClient.failing = true;
+        Assert.assertThrows(IllegalStateException.class, this::index);
+        Assert.assertEquals(indexed, redis.get("ragTagCommit").get(RAG_TAG));
+        Assert.assertFalse(paths().contains("docs/file1.md"));
+
+        // the next run diffs from the same base and restores the file
+        embeddingClient.failing = false;
+        GitRepositoryIndexer.IndexResult retry = index();
+        Assert.assertEquals(GitRepositoryIndexer.Mode.INCREMENTAL, retry.mode());
+        Assert.assertEquals(1, retry.changedFiles());
+        Assert.assertEquals(head.name(), redis.get("ragTagCommit").get(RAG_TAG));
+        Assert.assertTrue(paths().contains("docs/file1.md"));
+    }
+
+    private GitRepositoryIndexer.IndexResult index() throws Exception {
+        return indexer.index(origin.toUri().toString(), "", "", RAG_TAG, new IngestionStats());
+    }
+
+    private Set<Object> paths() {
+        return store.getRows().stream().map(d -> d.getMetadata().get("path")).collect(Collectors.toSet());
+    }
+
+    private static String text(int file, int revision) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("Paragraph ").append(i).append(" of file ").append(file).append(", revision ").append(revision)
+                    .append(", explains how the indexer keeps the vector store in sync.\n");
+        }
+        return sb.toString();
+    }
+
+    private RevCommit commit(String file, String content) throws Exception {
+        try (Git git = Files.isDirectory(origin.resolve(".git")) ? Git.open(origin.toFile())
+                : Git.init().setDirectory(origin.toFile()).setInitialBranch("master").call()) {
+            Path path = origin.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, content);
+            git.add().addFilepattern(".").call();
+            return git.commit().setMessage(file).setSign(false).call();
+        }
+    }
+
+    /** Fails every request while {@code failing} is set, as an Ollama that is down would. */
+    private static class FailingEmbeddingClient extends StubEmbeddingClient {
+        private volatile boolean failing;
+
+        FailingEmbeddingClient() {
+            super(64, 0, 0);
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            if (failing) {
+                throw new IllegalStateException("embedding endpoint unavailable");
+            }
+            return super.call(request);
+        }
+    }
+
+    /** Deletes by metadata, as PgVectorStoreMaintenance does with SQL. */
+    private record StoreMaintenance(StubVectorStore store) implements VectorStoreMaintenance {
+
+        @Override
+        public int deleteByRagTag(String ragTag) {
+            return delete(store.getRows().stream().filter(d -> ragTag.equals(d.getMetadata().get("knowledge"))).toList());
+        }
+
+        @Override
+        public int deleteByPaths(String ragTag, Collection<String> paths) {
+            return delete(store.getRows().stream()
+                    .filter(d -> ragTag.equals(d.getMetadata().get("knowledge")) && paths.contains(d.getMetadata().get("path")))
+                    .toList());
+        }
+
+        private int delete(List<Document> documents) {
+            store.delete(documents.stream().map(Document::getId).toList());
+            return documents.size();
+        }
+    }
+}
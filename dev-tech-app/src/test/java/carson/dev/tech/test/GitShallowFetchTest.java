@@ -0,0 +1,157 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.git.GitFetchOptions;
+import carson.dev.tech.trigger.git.GitTreeFiles;
+import carson.dev.tech.trigger.git.ShallowGitFetcher;
+import carson.dev.tech.trigger.ingest.SourceFile;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Fetches a local repository over file:// the way analyze_git_repository fetches GitHub: only the tip commit of the
+ * chosen ref arrives, and files are read from the bare repository's object database.
+ */
+@Slf4j
+public class GitShallowFetchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path origin;
+    private String url;
+    private RevCommit first;
+    private RevCommit second;
+    private RevCommit third;
+    private RevCommit feature;
+
+    @Before
+    public void createOrigin() throws Exception {
+        origin = folder.newFolder("origin").toPath();
+        url = origin.toUri().toString();
+        try (Git git = Git.init().setDirectory(origin.toFile()).setInitialBranch("main").call()) {
+            write("README.md", "# Demo\n");
+            write("src/Main.java", "class Main { int v = 1; }\n");
+            write("docs/guide.md", "Guide\n");
+            first = commit(git, "first");
+            git.tag().setName("v1").setAnnotated(true).setMessage("release 1").call();
+
+            git.branchCreate().setName("feature").call();
+            git.checkout().setName("feature").call();
+            write("src/Feature.java", "class Feature {}\n");
+            feature = commit(git, "feature");
+            git.checkout().setName("main").call();
+
+            write("src/Main.java", "class Main { int v = 2; }\n");
+            write("node_modules/lib/index.js", "module.exports = 1;\n");
+            write("web/app.min.js", "var a=1;\n");
+            second = commit(git, "second");
+            write("src/Util.java", "class Util {}\n");
+            third = commit(git, "third");
+        }
+    }
+
+    @Test
+    public void test_default_branch_is_fetched_one_commit_deep() throws Exception {
+        try (Repository repository = new ShallowGitFetcher(1).open(folder.getRoot().toPath().resolve("work.git"))) {
+            RevCommit head = new ShallowGitFetcher(1).fetch(repository, url, null, null);
+
+            Assert.assertEquals(third, head);
+            Assert.assertTrue(repository.isBare());
+            // the parents of the tip were not transferred
+            Assert.assertFalse(repository.getObjectDatabase().has(second));
+            Assert.assertFalse(repository.getObjectDatabase().has(first));
+
+            Map<String, String> files = read(new GitTreeFiles(repository, head.getTree(), GitFetchOptions.defaults(), null));
+            // vendored and minified files are not listed
+            Assert.assertEquals(Set.of("README.md", "docs/guide.md", "src/Main.java", "src/Util.java"), files.keySet());
+            Assert.assertEquals("class Main { int v = 2; }\n", files.get("src/Main.java"));
+        }
+    }
+
+    @Test
+    public void test_branch_and_annotated_tag_are_selectable() throws Exception {
+        ShallowGitFetcher fetcher = new ShallowGitFetcher(1);
+        try (Repository repository = fetcher.open(folder.getRoot().toPath().resolve("work.git"))) {
+            Assert.assertEquals(feature, fetcher.fetch(repository, url, null, "feature"));
+            // the tag object is peeled to its commit
+            Assert.assertEquals(first, fetcher.fetch(repository, url, null, "v1"));
+            Assert.assertEquals(third, fetcher.fetch(repository, url, null, "refs/heads/main"));
+            Assert.assertThrows(IllegalArgumentException.class,
+                    () -> fetcher.fetch(repository, url, null, "no-such-branch"));
+        }
+    }
+
+    @Test
+    public void test_include_and_exclude_globs() throws Exception {
+        ShallowGitFetcher fetcher = new ShallowGitFetcher(1);
+        try (Repository repository = fetcher.open(folder.getRoot().toPath().resolve("work.git"))) {
+            RevCommit head = fetcher.fetch(repository, url, null, null);
+            GitFetchOptions options = GitFetchOptions.builder()
+                    .includes(List.of("**/*.java", "*.md"))
+                    .excludes(List.of("src/Util.java"))
+                    .build();
+
+            GitTreeFiles files = new GitTreeFiles(repository, head.getTree(), options, null);
+
+            Assert.assertEquals(Set.of("README.md", "src/Main.java"), read(files).keySet());
+            Assert.assertFalse(files.accepts("docs/guide.md"));
+            // the only-set of an incremental run narrows the listing further
+            Assert.assertEquals(Set.of("src/Main.java"),
+                    read(new GitTreeFiles(repository, head.getTree(), options, Set.of("src/Main.java", "docs/guide.md"))).keySet());
+        }
+    }
+
+    @Test
+    public void test_refetch_transfers_only_the_new_tip() throws Exception {
+        ShallowGitFetcher fetcher = new ShallowGitFetcher(1);
+        try (Repository repository = fetcher.open(folder.getRoot().toPath().resolve("work.git"))) {
+            Assert.assertEquals(first, fetcher.fetch(repository, url, null, "v1"));
+            Assert.assertEquals(third, fetcher.fetch(repository, url, null, "main"));
+            // objects of the earlier fetch stay, so the two trees can be diffed locally
+            Assert.assertTrue(repository.getObjectDatabase().has(first));
+            Assert.assertFalse(repository.getObjectDatabase().has(second));
+            // each ref is kept under its own name
+            Assert.assertEquals(first, repository.resolve(ShallowGitFetcher.FETCHED_REFS + "tags/v1^{commit}"));
+            Assert.assertEquals(third, repository.resolve(ShallowGitFetcher.FETCHED_REFS + "heads/main"));
+        }
+    }
+
+    private void write(String path, String content) throws Exception {
+        Path file = origin.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static RevCommit commit(Git git, String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).setSign(false).call();
+    }
+
+    private static Map<String, String> read(Iterable<SourceFile> files) throws Exception {
+        Map<String, String> contents = new TreeMap<>();
+        for (SourceFile file : files) {
+            try (InputStream in = file.getInputStream()) {
+                contents.put(file.getPath(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals(contents.get(file.getPath()).length(), file.getSize());
+        }
+        log.info("files: {}", contents.keySet());
+        return contents;
+    }
+}
@@ -0,0 +1,83 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.rag.HybridRetriever;
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class HybridRetrieverTest {
+
+    @Test
+    public void test_chunks_found_by_both_sides_rank_first() {
+        List<Document> vector = List.of(doc("a"), doc("b"), doc("c"));
+        List<Document> lexical = List.of(doc("d"), doc("c"), doc("e"));
+
+        List<Document> fused = HybridRetriever.fuse(List.of(vector, lexical), 60, 4);
+
+        Assert.assertEquals(List.of("c", "a", "d", "b"), fused.stream().map(Document::getId).toList());
+        Assert.assertEquals(1.0 / 63 + 1.0 / 62, (Double) fused.get(0).getMetadata().get("score"), 1e-12);
+    }
+
+    @Test
+    public void test_fuse_keeps_original_metadata() {
+        Document chunk = new Document("a", "content", Map.of("knowledge", "AI-RAG", "path", "src/Main.java"));
+
+        Document fused = HybridRetriever.fuse(List.of(List.of(chunk)), 60, 5).get(0);
+
+        Assert.assertEquals("src/Main.java", fused.getMetadata().get("path"));
+        Assert.assertTrue(fused.getMetadata().containsKey("score"));
+    }
+
+    @Test
+    public void test_ts_query_is_sanitized() {
+        Assert.assertEquals("why | does | ragcontroller | throw | nullpointerexception | user_id",
+                HybridRetriever.toTsQuery("Why does RAGController throw NullPointerException? (user_id)"));
+        Assert.assertEquals("a_b | c1", HybridRetriever.toTsQuery("a_b & c1 ! ' :* |"));
+        Assert.assertEquals("", HybridRetriever.toTsQuery("? ! &"));
+    }
+
+    @Test
+    public void test_late_full_text_search_falls_back_to_vector_results() {
+        JdbcTemplate slowJdbc = new JdbcTemplate() {
+            @Override
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                try {
+                    TimeUnit.SECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of();
+            }
+        };
+        PgVectorIndexManager indexManager = Mockito.mock(PgVectorIndexManager.class);
+        Mockito.when(indexManager.getTable()).thenReturn("vector_store");
+        Mockito.when(indexManager.ragTagPredicate()).thenReturn("knowledge = ?");
+        HybridRetriever retriever = new HybridRetriever((ragTag, query, topK) -> List.of(doc("a"), doc("b")), slowJdbc,
+                indexManager, "english", 60, 20, 1, 100);
+        try {
+            long start = System.nanoTime();
+            List<Document> documents = retriever.retrieve("tag", "why does the build fail", 5);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(List.of("a", "b"), documents.stream().map(Document::getId).toList());
+            Assert.assertTrue("waited " + millis + " ms", millis < 5_000);
+            // the one full-text thread was interrupted, so the next retrieval gets it again
+            Assert.assertEquals(List.of("a", "b"),
+                    retriever.retrieve("tag", "why", 5).stream().map(Document::getId).toList());
+        } finally {
+            retriever.shutdown();
+        }
+    }
+
+    private static Document doc(String id) {
+        return new Document(id, "content " + id, Map.of());
+    }
+}
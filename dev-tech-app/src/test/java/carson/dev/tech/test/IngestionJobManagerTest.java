@@ -0,0 +1,107 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.api.dto.IngestionJobDTO;
+import carson.dev.tech.api.dto.IngestionJobStatus;
+import carson.dev.tech.trigger.ingest.IngestionJobManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cancel requests against queued and running jobs, on one job thread and with Redis buckets kept in a map.
+ */
+public class IngestionJobManagerTest {
+
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private IngestionJobManager manager;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getBucket(Mockito.anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            RBucket<Object> bucket = Mockito.mock(RBucket.class);
+            Mockito.when(bucket.get()).thenAnswer(i -> redis.get(key));
+            Mockito.doAnswer(i -> redis.put(key, i.getArgument(0))).when(bucket).set(Mockito.any(), Mockito.any(Duration.class));
+            Mockito.when(bucket.delete()).thenAnswer(i -> redis.remove(key) != null);
+            return bucket;
+        });
+        manager = new IngestionJobManager(redissonClient, 1, 4, 50, Duration.ofHours(1));
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    public void test_cancel_of_queued_job_reaches_cancelled_and_runs_hook() throws Exception {
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+        AtomicInteger hooks = new AtomicInteger();
+        String first = manager.submit("upload", "tag", stats -> {
+            started.countDown();
+            blocking.await();
+        }, hooks::incrementAndGet);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        String queued = manager.submit("upload", "tag", stats -> ran.incrementAndGet(), hooks::incrementAndGet);
+
+        Assert.assertTrue(manager.cancel(queued));
+        Assert.assertEquals(IngestionJobStatus.PENDING, manager.get(queued).getStatus());
+        blocking.countDown();
+
+        Assert.assertEquals(IngestionJobStatus.CANCELLED, awaitTerminal(queued).getStatus());
+        Assert.assertEquals(IngestionJobStatus.SUCCEEDED, awaitTerminal(first).getStatus());
+        Assert.assertEquals("cancelled job must not run", 0, ran.get());
+        Assert.assertEquals("hook of every job runs once", 2, awaitCount(hooks, 2));
+        Assert.assertFalse(manager.cancel(queued));
+    }
+
+    @Test
+    public void test_cancel_interrupts_running_job() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger hooks = new AtomicInteger();
+        String jobId = manager.submit("upload", "tag", stats -> {
+            started.countDown();
+            Thread.sleep(60_000);
+        }, hooks::incrementAndGet);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        while (manager.get(jobId).getStatus() != IngestionJobStatus.RUNNING) Thread.sleep(5);
+
+        Assert.assertTrue(manager.cancel(jobId));
+
+        Assert.assertEquals(IngestionJobStatus.CANCELLED, awaitTerminal(jobId).getStatus());
+        Assert.assertEquals(1, awaitCount(hooks, 1));
+    }
+
+    /** The hook runs right after the terminal state is published. */
+    private static int awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (count.get() < expected && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        Thread.sleep(50);
+        return count.get();
+    }
+
+    private IngestionJobDTO awaitTerminal(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        IngestionJobDTO job = manager.get(jobId);
+        while (!job.isTerminal() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = manager.get(jobId);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,147 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.test.stub.StubVectorStore;
+import carson.dev.tech.trigger.embedding.PrecomputedEmbeddingClient;
+import carson.dev.tech.trigger.ingest.DocumentFileParser;
+import carson.dev.tech.trigger.ingest.IngestionPipeline;
+import carson.dev.tech.trigger.ingest.IngestionStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs offline: a synthetic repository, a stub embedding client with a fixed round-trip cost and a stub store
+ * that charges one simulated JDBC round trip per add(). Compares the old per-file ingestion with the pipeline.
+ */
+@Slf4j
+public class IngestionPipelineTest {
+
+    private static final int FILES = 800;
+    private static final String[] WORDS = {"vector", "store", "embedding", "token", "chunk", "repository",
+            "controller", "service", "pipeline", "batch", "query", "document", "metadata", "knowledge"};
+
+    private Path repo;
+
+    @Before
+    public void createRepo() throws Exception {
+        repo = Files.createTempDirectory("synthetic-repo");
+        Random random = new Random(42);
+        for (int i = 0; i < FILES; i++) {
+            Path dir = repo.resolve("module-" + (i % 20)).resolve("src");
+            Files.createDirectories(dir);
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 3_000) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(10) == 0 ? ".\n" : " ");
+            }
+            Files.writeString(dir.resolve("File" + i + ".java"), sb.toString());
+        }
+        Files.createDirectories(repo.resolve(".git"));
+        Files.writeString(repo.resolve(".git").resolve("HEAD"), "ref: refs/heads/main");
+    }
+
+    @After
+    public void deleteRepo() throws Exception {
+        FileUtils.deleteDirectory(repo.toFile());
+    }
+
+    @Test
+    public void test_pipeline_writes_every_chunk_once() throws Exception {
+        StubEmbeddingClient embeddingClient = new StubEmbeddingClient(64, 0, 0);
+        StubVectorStore store = new StubVectorStore(new PrecomputedEmbeddingClient(embeddingClient), 0);
+
+        IngestionStats stats = pipeline(embeddingClient, store).run(repo, "synthetic");
+
+        Assert.assertEquals(FILES, stats.getFilesScanned());
+        Assert.assertEquals(0, stats.getErrors());
+        Assert.assertEquals(stats.getChunksEmbedded(), stats.getRowsWritten());
+        Assert.assertEquals(stats.getRowsWritten(), store.getRows().size());
+        // every chunk was embedded by the pipeline, none again by the store
+        Assert.assertEquals(stats.getChunksEmbedded(), embeddingClient.getTexts());
+        Assert.assertTrue(embeddingClient.getRequests() < stats.getChunksEmbedded());
+        store.getRows().forEach(d -> Assert.assertEquals("synthetic", d.getMetadata().get("knowledge")));
+    }
+
+    @Test
+    public void test_pipeline_vs_per_file_ingest() throws Exception {
+        // 8ms per embedding round trip + 0.2ms per text, 5ms per insert round trip
+        StubEmbeddingClient embeddingClient = new StubEmbeddingClient(64, 8_000, 200);
+
+        StubVectorStore baselineStore = new StubVectorStore(embeddingClient, 5_000);
+        long start = System.nanoTime();
+        perFileIngest(baselineStore);
+        double baselineSeconds = (System.nanoTime() - start) / 1e9;
+        long baselineRequests = embeddingClient.getRequests();
+        embeddingClient.reset();
+
+        StubVectorStore pipelineStore = new StubVectorStore(new PrecomputedEmbeddingClient(embeddingClient), 5_000);
+        start = System.nanoTime();
+        IngestionStats stats = pipeline(embeddingClient, pipelineStore).run(repo, "synthetic");
+        double pipelineSeconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("per-file: {} files/s, pipeline: {} files/s ({}x)\n{}",
+                String.format("%.1f", FILES / baselineSeconds), String.format("%.1f", FILES / pipelineSeconds),
+                String.format("%.1f", baselineSeconds / pipelineSeconds), stats.summary());
+        // wall-clock ratios depend on the machine; the round trips saved do not
+        Assert.assertEquals(FILES, baselineStore.getInserts());
+        Assert.assertTrue("one insert per write batch, not per file", pipelineStore.getInserts() * 10 < FILES);
+        Assert.assertEquals(stats.getRowsWritten(), pipelineStore.getRows().size());
+        // the store embeds every row on its own, the pipeline sends batches
+        Assert.assertEquals(baselineStore.getRows().size(), baselineRequests);
+        Assert.assertTrue(embeddingClient.getRequests() * 5 < baselineRequests);
+    }
+
+    private IngestionPipeline pipeline(StubEmbeddingClient embeddingClient, StubVectorStore store) {
+        return IngestionPipeline.builder()
+                .embeddingClient(embeddingClient)
+                .vectorStore(store)
+                .parseThreads(4)
+                .embedThreads(4)
+                .writeThreads(2)
+                .queueCapacity(256)
+                .embedBatchTokens(8192)
+                .writeBatchTokens(65536)
+                .build();
+    }
+
+    /** The previous analyze_git_repository loop: one accept() per file from an 8-thread pool. */
+    private void perFileIngest(StubVectorStore store) throws Exception {
+        DocumentFileParser parser = new DocumentFileParser();
+        List<Path> allFiles;
+        try (Stream<Path> walk = Files.walk(repo)) {
+            allFiles = walk.filter(Files::isRegularFile)
+                    .filter(p -> !p.startsWith(repo.resolve(".git")))
+                    .collect(Collectors.toList());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (Path file : allFiles) {
+            pool.submit(() -> {
+                try {
+                    List<Document> docs = new ArrayList<>();
+                    parser.parse(file, Map.of("knowledge", "synthetic"), docs::add);
+                    store.accept(docs);
+                } catch (Exception e) {
+                    log.warn("Skipped {} → {}", file, e.getMessage());
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+    }
+}
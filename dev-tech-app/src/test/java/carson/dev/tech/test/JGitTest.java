@@ -1,6 +1,7 @@
 package carson.dev.tech.test;
 
 import carson.dev.tech.Application;
+import carson.dev.tech.trigger.endpoint.PooledChatClient;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -9,11 +10,9 @@ import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.ollama.OllamaChatClient;
 import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.PgVectorStore;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.PathResource;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -31,13 +30,13 @@ import java.util.stream.Collectors;
 @SpringBootTest(classes = Application.class)
 public class JGitTest {
   @Resource
-  private OllamaChatClient ollamaChatClient;
+  private PooledChatClient ollamaChatClient;
   @Resource
   private TokenTextSplitter tokenTextSplitter;
   @Resource
-  private SimpleVectorStore simpleVectorStore;
+  private VectorStore vectorStore;
   @Resource
-  private PgVectorStore pgVectorStore;
+  private VectorStore pgVectorStore;
   private static final String LOCAL_PATH   = "./cloned-repo";
   private static final String REPO_URL   = "https://github.com/Carson-NNY/AI-RAG.git";
   private static final String REPO_NAME  =
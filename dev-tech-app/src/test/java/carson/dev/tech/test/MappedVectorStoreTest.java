@@ -0,0 +1,257 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.vector.HnswSettings;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import carson.dev.tech.trigger.vector.QuantizationSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class MappedVectorStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final StubEmbeddingClient embeddingClient = new StubEmbeddingClient(64, 0, 0);
+    private Path directory;
+    private MappedVectorStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("store").toPath();
+        store = new MappedVectorStore(directory, embeddingClient);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    public void test_search_returns_closest_chunk_first() {
+        store.add(List.of(doc("1", "alpha", "A", "a.md"), doc("2", "beta", "A", "b.md"), doc("3", "gamma", "A", "c.md")));
+
+        List<Document> found = store.similaritySearch(SearchRequest.query("beta").withTopK(2));
+
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals("2", found.get(0).getId());
+        Assert.assertEquals("beta", found.get(0).getContent());
+        Assert.assertEquals("b.md", found.get(0).getMetadata().get("path"));
+        Assert.assertEquals(0.0, ((Number) found.get(0).getMetadata().get("distance")).doubleValue(), 1e-5);
+    }
+
+    @Test
+    public void test_knowledge_filter_only_returns_that_rag_tag() {
+        store.add(List.of(doc("1", "alpha", "A", "a.md"), doc("2", "alpha", "B", "a.md"), doc("3", "beta", "B", "b.md")));
+
+        List<Document> found = store.similaritySearch(SearchRequest.query("alpha").withTopK(5)
+                .withFilterExpression("knowledge == 'B'"));
+
+        Assert.assertEquals(List.of("2", "3"), found.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void test_other_filters_are_evaluated_on_metadata() {
+        store.add(List.of(doc("1", "alpha", "A", "a.md"), doc("2", "beta", "A", "b.md"), doc("3", "gamma", "B", "b.md")));
+
+        List<Document> found = store.similaritySearch(SearchRequest.query("alpha").withTopK(5)
+                .withFilterExpression("knowledge == 'A' && path == 'b.md'"));
+
+        Assert.assertEquals(List.of("2"), found.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    public void test_reopen_keeps_chunks() throws Exception {
+        store.add(List.of(doc("1", "alpha", "A", "a.md"), doc("2", "beta", "A", "b.md")));
+        store.delete(List.of("1"));
+        store.close();
+
+        store = new MappedVectorStore(directory, embeddingClient);
+
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(64, store.getDimensions());
+        List<Document> found = store.similaritySearch(SearchRequest.query("alpha").withTopK(5));
+        Assert.assertEquals(List.of("2"), found.stream().map(Document::getId).toList());
+        store.add(List.of(doc("3", "gamma", "A", "c.md")));
+        Assert.assertEquals("gamma", store.similaritySearch(SearchRequest.query("gamma").withTopK(1)).get(0).getContent());
+    }
+
+    @Test
+    public void test_re_adding_an_id_replaces_the_chunk() {
+        store.add(List.of(doc("1", "alpha", "A", "a.md")));
+        store.add(List.of(doc("1", "alpha v2", "A", "a.md")));
+
+        Assert.assertEquals(1, store.size());
+        List<Document> found = store.similaritySearch(SearchRequest.query("alpha").withTopK(5));
+        Assert.assertEquals(1, found.size());
+        Assert.assertEquals("alpha v2", found.get(0).getContent());
+    }
+
+    @Test
+    public void test_delete_where_matches_rag_tag_and_metadata() {
+        store.add(List.of(doc("1", "alpha", "A", "a.md"), doc("2", "beta", "A", "b.md"), doc("3", "alpha", "B", "a.md")));
+
+        int deleted = store.deleteWhere("A", metadata -> "a.md".equals(metadata.get("path")));
+
+        Assert.assertEquals(1, deleted);
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(Set.of("2", "3"), Set.copyOf(store.similaritySearch(SearchRequest.query("alpha").withTopK(5))
+                .stream().map(Document::getId).toList()));
+    }
+
+    @Test
+    public void test_concurrent_adds_while_searching_through_the_graph() throws Exception {
+        store.close();
+        store = new MappedVectorStore(directory, embeddingClient, HnswSettings.builder().exactSearchThreshold(0).build());
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger searches = new AtomicInteger();
+        Future<?> reader = Executors.newSingleThreadExecutor().submit(() -> {
+            while (writing.get()) {
+                store.similaritySearch(SearchRequest.query("chunk 1").withTopK(5));
+                searches.incrementAndGet();
+            }
+        });
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < 4000; from += 100) {
+            List<Document> batch = new ArrayList<>();
+            for (int i = from; i < from + 100; i++) {
+                batch.add(doc(String.valueOf(i), "chunk " + i, "tag-" + (i % 2), "f" + i));
+            }
+            batches.add(writers.submit(() -> store.add(batch)));
+        }
+        for (Future<?> batch : batches) {
+            batch.get();
+        }
+        writing.set(false);
+        reader.get();
+        writers.shutdown();
+
+        Assert.assertEquals(4000, store.size());
+        Assert.assertTrue(searches.get() > 0);
+        int found = 0;
+        for (int i = 0; i < 4000; i += 40) {
+            List<Document> hits = store.similaritySearch(SearchRequest.query("chunk " + i).withTopK(1)
+                    .withFilterExpression("knowledge == 'tag-" + (i % 2) + "'"));
+            if (!hits.isEmpty() && hits.get(0).getId().equals(String.valueOf(i))) found++;
+        }
+        Assert.assertTrue("found " + found + " of 100", found >= 98);
+    }
+
+    @Test
+    public void test_graph_snapshot_is_reloaded() throws Exception {
+        HnswSettings settings = HnswSettings.builder().exactSearchThreshold(0).build();
+        store.close();
+        store = new MappedVectorStore(directory, embeddingClient, settings);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            documents.add(doc(String.valueOf(i), "chunk " + i, "A", "f" + i));
+        }
+        store.add(documents);
+        List<String> before = store.similaritySearch(SearchRequest.query("chunk 7").withTopK(5)).stream().map(Document::getId).toList();
+        store.close();
+
+        Assert.assertTrue(Files.exists(directory.resolve("hnsw.graph")));
+        store = new MappedVectorStore(directory, embeddingClient, settings);
+
+        Assert.assertEquals(before, store.similaritySearch(SearchRequest.query("chunk 7").withTopK(5)).stream().map(Document::getId).toList());
+        Assert.assertEquals("7", before.get(0));
+    }
+
+    @Test
+    public void test_quantized_candidates_are_reranked_exactly() throws Exception {
+        for (QuantizationSettings.Type type : new QuantizationSettings.Type[]{QuantizationSettings.Type.INT8, QuantizationSettings.Type.PQ}) {
+            Path dir = folder.newFolder(type.name()).toPath();
+            QuantizationSettings quantization = QuantizationSettings.builder().type(type).trainingRows(1000).build();
+            MappedVectorStore quantized = new MappedVectorStore(dir, embeddingClient,
+                    HnswSettings.builder().exactSearchThreshold(0).build(), quantization);
+            for (int from = 0; from < 3000; from += 100) {
+                List<Document> batch = new ArrayList<>();
+                for (int i = from; i < from + 100; i++) {
+                    batch.add(doc(String.valueOf(i), "chunk " + i, "tag-" + (i % 2), "f" + i));
+                }
+                quantized.add(batch);
+            }
+            Assert.assertEquals(type == QuantizationSettings.Type.INT8 ? 64 : 8, quantized.getCodeBytes());
+            assertFindsEachChunk(quantized);
+            quantized.close();
+
+            Assert.assertTrue(Files.exists(dir.resolve("vectors.codes")));
+            quantized = new MappedVectorStore(dir, embeddingClient, HnswSettings.builder().enabled(false).build(), quantization);
+            Assert.assertTrue(quantized.getCodeBytes() > 0);
+            assertFindsEachChunk(quantized);
+            quantized.close();
+        }
+    }
+
+    private static void assertFindsEachChunk(MappedVectorStore quantized) {
+        for (int i = 0; i < 3000; i += 30) {
+            List<Document> hits = quantized.similaritySearch(SearchRequest.query("chunk " + i).withTopK(1)
+                    .withFilterExpression("knowledge == 'tag-" + (i % 2) + "'"));
+            Assert.assertEquals(String.valueOf(i), hits.get(0).getId());
+            // the distance comes from the float32 row, not from the code
+            Assert.assertEquals(0.0, ((Number) hits.get(0).getMetadata().get("distance")).doubleValue(), 1e-5);
+        }
+    }
+
+    /**
+     * Reopening a store of 10k chunks against SimpleVectorStore.load of the same chunks from JSON.
+     */
+    @Test
+    public void test_reopen_is_faster_than_simple_vector_store_load() throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            documents.add(doc(String.valueOf(i), "chunk " + i, "A", "f" + (i % 100) + ".java"));
+        }
+        for (int from = 0; from < documents.size(); from += 1000) {
+            store.add(documents.subList(from, from + 1000));
+        }
+        store.close();
+        SimpleVectorStore simple = new SimpleVectorStore(embeddingClient);
+        simple.add(documents);
+        File json = folder.newFile("simple.json");
+        simple.save(json);
+
+        long start = System.nanoTime();
+        store = new MappedVectorStore(directory, embeddingClient);
+        store.similaritySearch(SearchRequest.query("chunk 42").withTopK(5));
+        long mappedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        SimpleVectorStore reloaded = new SimpleVectorStore(embeddingClient);
+        reloaded.load(json);
+        reloaded.similaritySearch(SearchRequest.query("chunk 42").withTopK(5));
+        long simpleNanos = System.nanoTime() - start;
+
+        log.info("open + first search of 10k chunks: mapped {}ms, SimpleVectorStore {}ms ({} KB JSON)",
+                mappedNanos / 1_000_000, simpleNanos / 1_000_000, json.length() / 1024);
+        Assert.assertEquals("42", store.similaritySearch(SearchRequest.query("chunk 42").withTopK(1)).get(0).getId());
+        Assert.assertTrue(mappedNanos < simpleNanos);
+    }
+
+    private static Document doc(String id, String content, String ragTag, String path) {
+        return new Document(id, content, Map.of("knowledge", ragTag, "path", path));
+    }
+}
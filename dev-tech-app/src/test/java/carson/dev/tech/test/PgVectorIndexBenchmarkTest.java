@@ -0,0 +1,186 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import carson.dev.tech.trigger.vector.PgVectorIndexSettings;
+import carson.dev.tech.trigger.vector.PgVectorSearch;
+import com.pgvector.PGvector;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Recall@10 against query latency for HNSW / IVFFlat settings (and HNSW on halfvec / binary-quantized expressions
+ * with exact re-ranking), single table vs one partition per ragTag, on a
+ * synthetic clustered corpus. Needs the pgvector database of docker-compose-environment.yml; skipped when it is not
+ * reachable. Sizes can be raised with -Dbench.tags / -Dbench.rowsPerTag / -Dbench.dims.
+ */
+@Slf4j
+public class PgVectorIndexBenchmarkTest {
+
+    private static final int TAGS = Integer.getInteger("bench.tags", 10);
+    private static final int ROWS_PER_TAG = Integer.getInteger("bench.rowsPerTag", 5000);
+    private static final int DIMS = Integer.getInteger("bench.dims", 64);
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+
+    private final Random random = new Random(42);
+    private JdbcTemplate jdbcTemplate;
+    private List<float[][]> corpus;
+    private List<String[]> ids;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/postgres"), "postgres", "postgres");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            jdbcTemplate.execute("SELECT 1");
+        } catch (Exception e) {
+            Assume.assumeNoException("pgvector not reachable", e);
+        }
+        corpus = new ArrayList<>();
+        ids = new ArrayList<>();
+        for (int t = 0; t < TAGS; t++) {
+            float[][] centers = new float[20][];
+            for (int c = 0; c < centers.length; c++) centers[c] = gaussian(1f);
+            float[][] rows = new float[ROWS_PER_TAG][];
+            String[] rowIds = new String[ROWS_PER_TAG];
+            for (int i = 0; i < ROWS_PER_TAG; i++) {
+                rows[i] = normalize(add(centers[random.nextInt(centers.length)], gaussian(0.3f)));
+                rowIds[i] = UUID.randomUUID().toString();
+            }
+            corpus.add(rows);
+            ids.add(rowIds);
+        }
+        dropTables();
+    }
+
+    @After
+    public void tearDown() {
+        if (jdbcTemplate != null) dropTables();
+    }
+
+    @Test
+    public void test_recall_vs_latency() {
+        for (boolean partitioned : new boolean[]{false, true}) {
+            String table = partitioned ? "rag_bench_partitioned" : "rag_bench_single";
+            load(table, partitioned);
+            run(table, partitioned, PgVectorIndexSettings.builder().type(PgVectorIndexSettings.IndexType.NONE).build(), "exact");
+            for (int ef : new int[]{10, 20, 40, 80, 160}) {
+                run(table, partitioned, PgVectorIndexSettings.builder().efSearch(ef).build(), "hnsw ef_search=" + ef);
+            }
+            for (PgVectorIndexSettings.Quantization quantization : new PgVectorIndexSettings.Quantization[]{
+                    PgVectorIndexSettings.Quantization.HALFVEC, PgVectorIndexSettings.Quantization.BINARY}) {
+                run(table, partitioned, PgVectorIndexSettings.builder().efSearch(80).quantization(quantization).build(),
+                        "hnsw ef_search=80 " + quantization + " rerank x4");
+            }
+            int lists = (int) Math.max(10, Math.sqrt((double) TAGS * ROWS_PER_TAG));
+            for (int probes : new int[]{1, 4, 16, 64}) {
+                run(table, partitioned, PgVectorIndexSettings.builder().type(PgVectorIndexSettings.IndexType.IVFFLAT)
+                        .lists(lists).probes(probes).build(), "ivfflat lists=" + lists + " probes=" + probes);
+            }
+        }
+    }
+
+    private void load(String table, boolean partitioned) {
+        PgVectorIndexManager manager = new PgVectorIndexManager(jdbcTemplate, table, DIMS,
+                PgVectorIndexSettings.builder().type(PgVectorIndexSettings.IndexType.NONE).build(), partitioned);
+        manager.initialize();
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < TAGS; t++) {
+            String tag = "tag-" + t;
+            manager.ensurePartition(tag);
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < ROWS_PER_TAG; i++) {
+                String metadata = "{\"knowledge\":\"" + tag + "\"}";
+                rows.add(partitioned
+                        ? new Object[]{UUID.fromString(ids.get(t)[i]), "chunk " + i, metadata, new PGvector(corpus.get(t)[i]), tag}
+                        : new Object[]{UUID.fromString(ids.get(t)[i]), "chunk " + i, metadata, new PGvector(corpus.get(t)[i])});
+            }
+            jdbcTemplate.batchUpdate(partitioned
+                    ? "INSERT INTO " + table + " (id, content, metadata, embedding, knowledge) VALUES (?, ?, ?::json, ?, ?)"
+                    : "INSERT INTO " + table + " (id, content, metadata, embedding) VALUES (?, ?, ?::json, ?)", rows);
+        }
+        jdbcTemplate.execute("ANALYZE " + table);
+        log.info("{}: loaded {} rows in {}ms", table, TAGS * ROWS_PER_TAG, System.currentTimeMillis() - start);
+    }
+
+    private void run(String table, boolean partitioned, PgVectorIndexSettings settings, String label) {
+        PgVectorIndexManager manager = new PgVectorIndexManager(jdbcTemplate, table, DIMS, settings, partitioned);
+        long buildStart = System.currentTimeMillis();
+        manager.rebuildIndex(false);
+        long buildMillis = System.currentTimeMillis() - buildStart;
+        PgVectorSearch search = new PgVectorSearch(jdbcTemplate, null, manager);
+
+        Random queries = new Random(7);
+        long[] latencies = new long[QUERIES];
+        double recall = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            int t = queries.nextInt(TAGS);
+            float[] query = normalize(add(corpus.get(t)[queries.nextInt(ROWS_PER_TAG)], gaussian(0.1f)));
+            long start = System.nanoTime();
+            List<Document> found = search.search("tag-" + t, query, K);
+            latencies[q] = System.nanoTime() - start;
+            Set<String> expected = exact(t, query);
+            recall += found.stream().filter(d -> expected.contains(d.getId())).count() / (double) K;
+        }
+        Arrays.sort(latencies);
+        log.info("{} {} | recall@{} {} | p50 {}ms | p99 {}ms | build {}ms",
+                partitioned ? "partitioned" : "single     ", String.format("%-32s", label), K,
+                String.format("%.3f", recall / QUERIES),
+                String.format("%.2f", latencies[QUERIES / 2] / 1e6),
+                String.format("%.2f", latencies[QUERIES * 99 / 100] / 1e6), buildMillis);
+    }
+
+    private Set<String> exact(int tag, float[] query) {
+        float[][] rows = corpus.get(tag);
+        Integer[] order = IntStream.range(0, rows.length).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble(i -> -dot(query, rows[i])));
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < K; i++) expected.add(ids.get(tag)[order[i]]);
+        return expected;
+    }
+
+    private void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS rag_bench_single, rag_bench_partitioned CASCADE");
+    }
+
+    private float[] gaussian(float sigma) {
+        float[] v = new float[DIMS];
+        for (int i = 0; i < DIMS; i++) v[i] = (float) random.nextGaussian() * sigma;
+        return v;
+    }
+
+    private static float[] add(float[] a, float[] b) {
+        float[] v = new float[a.length];
+        for (int i = 0; i < a.length; i++) v[i] = a[i] + b[i];
+        return v;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = Math.sqrt(dot(v, v));
+        for (int i = 0; i < v.length; i++) v[i] /= (float) norm;
+        return v;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+}
@@ -1,6 +1,7 @@
 package carson.dev.tech.test;
 
 import carson.dev.tech.Application;
+import carson.dev.tech.trigger.endpoint.PooledChatClient;
 import com.alibaba.fastjson.JSON;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -12,13 +13,11 @@ import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.SystemPromptTemplate;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.ollama.OllamaChatClient;
 import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.PgVectorStore;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -33,13 +32,13 @@ import java.util.stream.Collectors;
 public class RAGTest {
 
     @Resource
-    private OllamaChatClient ollamaChatClient;
+    private PooledChatClient ollamaChatClient;
     @Resource
     private TokenTextSplitter tokenTextSplitter;
     @Resource
-    private SimpleVectorStore simpleVectorStore;
+    private VectorStore vectorStore;
     @Resource
-    private PgVectorStore pgVectorStore;
+    private VectorStore pgVectorStore;
 
     @Test
     public void upload() {
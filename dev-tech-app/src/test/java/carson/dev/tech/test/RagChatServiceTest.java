@@ -0,0 +1,132 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import carson.dev.tech.trigger.rag.ContextBuilder;
+import carson.dev.tech.trigger.rag.DocumentRetriever;
+import carson.dev.tech.trigger.rag.RagChatService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RagChatServiceTest {
+
+    private static final long SEARCH_MILLIS = 200;
+
+    private final SlowVectorStore vectorStore = new SlowVectorStore();
+    private final AtomicReference<Prompt> lastPrompt = new AtomicReference<>();
+    private final StreamingChatClient chatClient = prompt -> {
+        lastPrompt.set(prompt);
+        return Flux.just(new ChatResponse(List.of(new Generation("ok"))));
+    };
+    private RagChatService service;
+
+    @Before
+    public void setUp() {
+        RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any(Codec.class))).thenReturn(Mockito.mock(RTopic.class));
+        RagTagChangeNotifier notifier = new RagTagChangeNotifier(redissonClient);
+        service = new RagChatService(DocumentRetriever.of(vectorStore),
+                new RetrievalCache(100, Duration.ofMinutes(5), notifier),
+                new SemanticAnswerCache(new StubEmbeddingClient(64, 0, 0), true, 0.95, Duration.ofMinutes(5), 100, notifier),
+                new ContextBuilder(3072, Map.of(), 0.9, 64), 5, Schedulers.boundedElastic());
+    }
+
+    @Test
+    public void test_nothing_blocks_the_calling_thread() {
+        long start = System.nanoTime();
+        Flux<ChatResponse> answer = service.stream(chatClient, OpenAiChatOptions.builder().withModel("gpt-4o").build(),
+                "openai:gpt-4o", "AI-RAG", "hello");
+        long assemblyMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(0, vectorStore.searches.get());
+        Assert.assertTrue("returned after " + assemblyMillis + "ms", assemblyMillis < SEARCH_MILLIS);
+
+        answer.collectList().block();
+        Assert.assertEquals(1, vectorStore.searches.get());
+        Assert.assertFalse(vectorStore.threads.contains(Thread.currentThread().getName()));
+        // the provider's own options reach the chat client
+        Assert.assertTrue(lastPrompt.get().getOptions() instanceof OpenAiChatOptions);
+    }
+
+    @Test
+    public void test_multi_tag_searches_run_concurrently() {
+        long start = System.nanoTime();
+        service.stream(chatClient, OpenAiChatOptions.builder().build(), "openai:gpt-4o", "AI-RAG, Knowledge Base,docs", "hello")
+                .collectList().block();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        Assert.assertEquals(3, vectorStore.searches.get());
+        Assert.assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2 * SEARCH_MILLIS);
+        Assert.assertTrue(vectorStore.maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void test_fused_results_keep_rank_order_and_drop_duplicates() {
+        List<Document> documents = service.retrieve(List.of("a", "b"), List.of("q1", "q2")).block();
+
+        // every search returns the shared chunk first, then one chunk of its own
+        Assert.assertEquals("shared", documents.get(0).getId());
+        Assert.assertEquals(5, documents.size());
+        Assert.assertEquals(5, documents.stream().map(Document::getId).distinct().count());
+    }
+
+    /** Returns a shared chunk plus one chunk per (tag, query) after a fixed delay, tracking concurrency. */
+    private static class SlowVectorStore implements VectorStore {
+
+        private final AtomicInteger searches = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void add(List<Document> documents) {
+        }
+
+        @Override
+        public Optional<Boolean> delete(List<String> idList) {
+            return Optional.of(true);
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            searches.incrementAndGet();
+            threads.add(Thread.currentThread().getName());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(SEARCH_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            String own = request.getFilterExpression() + "/" + request.getQuery();
+            return List.of(new Document("shared", "shared chunk", Map.of()), new Document(own, own, Map.of()));
+        }
+    }
+}
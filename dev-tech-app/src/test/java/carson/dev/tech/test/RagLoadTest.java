@@ -0,0 +1,336 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.Application;
+import carson.dev.tech.test.stub.StubModelServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load on the real controllers: {@code load.uploaders} users upload {@code load.docs} text files through
+ * {@code /api/v1/rag/file/upload}, then {@code load.users} users each stream {@code load.requests} answers from
+ * {@code generate_stream_rag}. Ollama and OpenAI are replaced by a {@link StubModelServer} with a configurable time to
+ * first token, token rate and embedding latency, and Postgres by the local memory-mapped store; caches are off, so
+ * every question is embedded, retrieved and generated. Reports ingestion docs/s, time to first token, tokens/s and
+ * p50 / p99 latencies.
+ * <p>
+ * Needs the Redis of docker-compose-environment.yml; skipped when it is not reachable. For example
+ * {@code mvn -pl dev-tech-app test -Dtest=RagLoadTest -Dload.users=1000 -Dload.tokensPerSecond=30}; a few hundred
+ * users and more need a higher {@code ulimit -n}.
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RagLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 100);
+    private static final int REQUESTS_PER_USER = Integer.getInteger("load.requests", 5);
+    private static final int UPLOADERS = Integer.getInteger("load.uploaders", 16);
+    private static final int DOCS = Integer.getInteger("load.docs", 200);
+    private static final int DOC_CHARS = Integer.getInteger("load.docChars", 8_000);
+    // admitted generations per model; beyond it requests queue, beyond max-queued they get 429
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("load.maxInFlight", 64);
+    // ollama or openai, for the controller, the chat API of the stub and the embedding model
+    private static final String PROVIDER = System.getProperty("load.provider", "ollama");
+    private static final int ANSWER_TOKENS = Integer.getInteger("load.tokens", 200);
+    private static final double TOKENS_PER_SECOND = Double.parseDouble(System.getProperty("load.tokensPerSecond", "50"));
+    private static final long FIRST_TOKEN_MS = Long.getLong("load.ttftMs", 300);
+    private static final long EMBED_MS = Long.getLong("load.embedMs", 20);
+    private static final long EMBED_PER_TEXT_MICROS = Long.getLong("load.embedPerTextMicros", 500);
+    private static final String REDIS_HOST = System.getProperty("load.redisHost", "localhost");
+    private static final int REDIS_PORT = Integer.getInteger("load.redisPort", 16379);
+
+    private static final String RAG_TAG = "load-test";
+    private static final String CHAT_MODEL = "openai".equals(PROVIDER) ? "gpt-4o-mini" : "deepseek-r1:1.5b";
+    private static final String EMBED_MODEL = "openai".equals(PROVIDER) ? "text-embedding-ada-002" : "nomic-embed-text";
+    private static final String[] WORDS = {"vector", "store", "embedding", "chunk", "token", "query", "answer",
+            "model", "context", "document", "retrieval", "index", "graph", "the", "a", "of", "to", "and", "in", "is",
+            "redis", "ollama", "repository", "commit", "parser", "splitter", "returns", "keeps", "reads", "writes"};
+
+    private static final StubModelServer MODELS = StubModelServer.builder()
+            .models(List.of("deepseek-r1:1.5b", "nomic-embed-text:latest", "gpt-4o-mini", "text-embedding-ada-002"))
+            .dimensions("openai".equals(PROVIDER) ? 1536 : 768)
+            .answerTokens(ANSWER_TOKENS)
+            .firstTokenMillis(FIRST_TOKEN_MS)
+            .tokensPerSecond(TOKENS_PER_SECOND)
+            .embedRequestMillis(EMBED_MS)
+            .embedPerTextMicros(EMBED_PER_TEXT_MICROS)
+            .build();
+    private static final Path STORE = tempDirectory();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newCachedThreadPool())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void stubs(DynamicPropertyRegistry registry) {
+        registry.add("spring.ai.ollama.base-url", MODELS::getBaseUrl);
+        registry.add("spring.ai.openai.base-url", MODELS::getBaseUrl);
+        registry.add("spring.ai.openai.api-key", () -> "load-test");
+        registry.add("spring.ai.rag.embed", () -> EMBED_MODEL);
+        registry.add("spring.ai.rag.store", () -> "local");
+        registry.add("spring.ai.rag.local-store.directory", STORE::toString);
+        registry.add("spring.ai.rag.retrieval-cache.enabled", () -> false);
+        registry.add("spring.ai.rag.semantic-cache.enabled", () -> false);
+        registry.add("spring.ai.rag.admission.max-in-flight", () -> MAX_IN_FLIGHT);
+        registry.add("spring.ai.rag.admission.model-max-in-flight.[openai:]", () -> MAX_IN_FLIGHT);
+        registry.add("spring.ai.rag.admission.max-queued", () -> USERS);
+        // every simulated user connects from loopback and names itself in X-Client-Id
+        registry.add("spring.ai.rag.admission.trusted-proxies", () -> "127.0.0.1,::1");
+        registry.add("redis.sdk.config.host", () -> REDIS_HOST);
+        registry.add("redis.sdk.config.port", () -> REDIS_PORT);
+    }
+
+    @BeforeClass
+    public static void requireRedis() {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(REDIS_HOST, REDIS_PORT), 1_000);
+        } catch (IOException e) {
+            Assume.assumeNoException("redis not reachable", e);
+        }
+    }
+
+    @AfterClass
+    public static void stopStubs() {
+        MODELS.close();
+        FileSystemUtils.deleteRecursively(STORE.toFile());
+    }
+
+    @Test
+    public void test_upload_then_generate_stream_rag() throws Exception {
+        upload();
+        generateStreamRag();
+    }
+
+    private void upload() throws InterruptedException {
+        Samples latency = new Samples();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long embedRequests = MODELS.getEmbedRequests();
+        long embeddedTexts = MODELS.getEmbeddedTexts();
+        ExecutorService users = Executors.newFixedThreadPool(UPLOADERS);
+        long start = System.nanoTime();
+        for (int u = 0; u < UPLOADERS; u++) {
+            users.execute(() -> {
+                for (int doc; (doc = next.getAndIncrement()) < DOCS; ) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = http.send(uploadRequest(doc), HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 200) {
+                            latency.add((System.nanoTime() - sent) / 1e6);
+                        } else {
+                            log.warn("upload {} → HTTP {} {}", doc, response.statusCode(), response.body());
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        log.warn("upload {} → {}", doc, e.toString());
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        users.shutdown();
+        Assert.assertTrue(users.awaitTermination(1, TimeUnit.HOURS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("upload | {} docs of {} chars by {} users in {}s | {} docs/s | latency p50 {}ms p99 {}ms | {} failed | {} embedding requests for {} texts",
+                DOCS, DOC_CHARS, UPLOADERS, String.format("%.1f", seconds), String.format("%.1f", latency.size() / seconds),
+                latency.format(50), latency.format(99), failed.get(),
+                MODELS.getEmbedRequests() - embedRequests, MODELS.getEmbeddedTexts() - embeddedTexts);
+        Assert.assertEquals("failed uploads", 0, failed.get());
+    }
+
+    private void generateStreamRag() throws InterruptedException {
+        Samples firstToken = new Samples();
+        Samples latency = new Samples();
+        Samples streamRate = new Samples();
+        AtomicInteger tokens = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        long start = System.nanoTime();
+        for (int u = 0; u < USERS; u++) {
+            int user = u;
+            users.execute(() -> {
+                for (int r = 0; r < REQUESTS_PER_USER && !Thread.currentThread().isInterrupted(); r++) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Stream<String>> response = http.send(chatRequest(user, r), HttpResponse.BodyHandlers.ofLines());
+                        try (Stream<String> lines = response.body()) {
+                            if (response.statusCode() == 429) {
+                                rejected.incrementAndGet();
+                                continue;
+                            }
+                            if (response.statusCode() != 200) {
+                                log.warn("user {} → HTTP {}", user, response.statusCode());
+                                failed.incrementAndGet();
+                                continue;
+                            }
+                            long first = 0;
+                            int received = 0;
+                            for (Iterator<String> it = lines.iterator(); it.hasNext(); ) {
+                                String line = it.next();
+                                if (!line.startsWith("data:") || content(line.substring(5)).isEmpty()) continue;
+                                if (received++ == 0) first = System.nanoTime();
+                                tokens.incrementAndGet();
+                            }
+                            long end = System.nanoTime();
+                            if (received == 0) {
+                                log.warn("user {} → no tokens", user);
+                                failed.incrementAndGet();
+                                continue;
+                            }
+                            firstToken.add((first - sent) / 1e6);
+                            latency.add((end - sent) / 1e6);
+                            if (received > 1) streamRate.add((received - 1) / ((end - first) / 1e9));
+                        }
+                    } catch (IOException | UncheckedIOException e) {
+                        log.warn("user {} → {}", user, e.toString());
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        users.shutdown();
+        Assert.assertTrue(users.awaitTermination(1, TimeUnit.HOURS));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("generate_stream_rag | {} users x {} requests to {} in {}s | {} answered, {} rejected (429), {} failed",
+                USERS, REQUESTS_PER_USER, PROVIDER + ":" + CHAT_MODEL, String.format("%.1f", seconds), latency.size(),
+                rejected.get(), failed.get());
+        log.info("generate_stream_rag | time to first token p50 {}ms p99 {}ms | latency p50 {}ms p99 {}ms",
+                firstToken.format(50), firstToken.format(99), latency.format(50), latency.format(99));
+        log.info("generate_stream_rag | {} tokens/s overall | per stream p50 {} p1 {} tokens/s (stub sends {})",
+                String.format("%.0f", tokens.get() / seconds), streamRate.format(50), streamRate.format(1),
+                String.format("%.0f", TOKENS_PER_SECOND));
+        Assert.assertEquals("failed streams", 0, failed.get());
+        Assert.assertTrue("no stream answered", latency.size() > 0);
+    }
+
+    private HttpRequest uploadRequest(int doc) {
+        String boundary = "load-test-" + doc;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String head = "--" + boundary + "\r\nContent-Disposition: form-data; name=\"ragTag\"\r\n\r\n" + RAG_TAG + "\r\n"
+                + "--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"doc-" + doc + ".txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n";
+        body.writeBytes(head.getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(text(new Random(doc), DOC_CHARS).getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/rag/file/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private HttpRequest chatRequest(int user, int request) {
+        // a different question each time, so the embedding cache cannot answer it
+        String question = "How does user " + user + " find the " + WORDS[request % WORDS.length] + " of question " + request + "?";
+        String query = "model=" + encode(CHAT_MODEL) + "&ragTag=" + encode(RAG_TAG) + "&message=" + encode(question);
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/" + PROVIDER + "/generate_stream_rag?" + query))
+                .header("Accept", "text/event-stream")
+                .header("X-Client-Id", "user-" + user)
+                .timeout(Duration.ofMinutes(10))
+                .GET()
+                .build();
+    }
+
+    /** Text of the first generation of one SSE event, a serialized ChatResponse. */
+    private String content(String data) {
+        try {
+            return objectMapper.readTree(data).path("result").path("output").path("content").asText("");
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static String text(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 128);
+        while (text.length() < chars) {
+            int words = 6 + random.nextInt(13);
+            for (int w = 0; w < words; w++) text.append(WORDS[random.nextInt(WORDS.length)]).append(w == words - 1 ? ". " : " ");
+            if (random.nextInt(5) == 0) text.append("\n\n");
+        }
+        return text.toString();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("rag-load-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Values recorded by many threads, read once they are done. */
+    private static final class Samples {
+
+        private final List<Double> values = new ArrayList<>();
+
+        synchronized void add(double value) {
+            values.add(value);
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+
+        synchronized String format(double percentile) {
+            if (values.isEmpty()) return "-";
+            List<Double> sorted = new ArrayList<>(values);
+            sorted.sort(null);
+            int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+            return String.format("%.1f", sorted.get(Math.max(0, Math.min(sorted.size() - 1, index))));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.ai.document.Document;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetrievalCacheTest {
+
+    private RagTagChangeNotifier notifier;
+    private RetrievalCache cache;
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any(Codec.class))).thenReturn(Mockito.mock(RTopic.class));
+        notifier = new RagTagChangeNotifier(redissonClient);
+        cache = new RetrievalCache(100, Duration.ofMinutes(5), notifier);
+    }
+
+    @Test
+    public void test_normalized_queries_share_an_entry() {
+        cache.get("AI-RAG", "Which year was Hedy born?", 5, this::search);
+        cache.get("AI-RAG", "  which year   was hedy born ", 5, this::search);
+
+        Assert.assertEquals(1, searches.get());
+        Assert.assertEquals(1, cache.stats().getLocalHits());
+    }
+
+    @Test
+    public void test_top_k_and_tag_are_part_of_the_key() {
+        cache.get("AI-RAG", "hello", 5, this::search);
+        cache.get("AI-RAG", "hello", 8, this::search);
+        cache.get("Knowledge Base", "hello", 5, this::search);
+
+        Assert.assertEquals(3, searches.get());
+    }
+
+    @Test
+    public void test_change_of_tag_invalidates_only_that_tag() {
+        cache.get("AI-RAG", "hello", 5, this::search);
+        cache.get("Knowledge Base", "hello", 5, this::search);
+
+        notifier.notifyChanged("AI-RAG");
+        cache.get("AI-RAG", "hello", 5, this::search);
+        cache.get("Knowledge Base", "hello", 5, this::search);
+
+        Assert.assertEquals(3, searches.get());
+    }
+
+    private List<Document> search() {
+        searches.incrementAndGet();
+        return List.of(new Document("chunk"));
+    }
+}
@@ -0,0 +1,103 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.test.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class SemanticAnswerCacheTest {
+
+    private RagTagChangeNotifier notifier;
+    private SemanticAnswerCache cache;
+    private final AtomicInteger generations = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any(Codec.class))).thenReturn(Mockito.mock(RTopic.class));
+        notifier = new RagTagChangeNotifier(redissonClient);
+        cache = new SemanticAnswerCache(new StubEmbeddingClient(64, 0, 0), true, 0.95, Duration.ofMinutes(5), 100, notifier);
+    }
+
+    @Test
+    public void test_equivalent_question_replays_the_answer() {
+        String first = ask("AI-RAG", "deepseek-r1:1.5b", "Which year was Hedy born?");
+        String second = ask("AI-RAG", "deepseek-r1:1.5b", "Which year was Hedy born?");
+
+        Assert.assertEquals(1, generations.get());
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, cache.stats().getLocalHits());
+    }
+
+    @Test
+    public void test_scope_is_tag_and_model() {
+        ask("AI-RAG", "deepseek-r1:1.5b", "hello");
+        ask("AI-RAG", "gpt-4o", "hello");
+        ask("Knowledge Base", "deepseek-r1:1.5b", "hello");
+        ask("AI-RAG", "deepseek-r1:1.5b", "something else entirely");
+
+        Assert.assertEquals(4, generations.get());
+    }
+
+    @Test
+    public void test_ingestion_invalidates_the_tag() {
+        ask("AI-RAG", "deepseek-r1:1.5b", "hello");
+        notifier.notifyChanged("AI-RAG");
+        ask("AI-RAG", "deepseek-r1:1.5b", "hello");
+
+        Assert.assertEquals(2, generations.get());
+    }
+
+    @Test
+    public void test_failed_stream_is_not_stored() {
+        Flux<ChatResponse> failing = cache.getOrGenerate("AI-RAG", "m", "hello", () -> Flux.concat(
+                Flux.just(response("partial ")), Flux.error(new IllegalStateException("model went away"))));
+        try {
+            failing.collectList().block();
+        } catch (IllegalStateException expected) {
+        }
+        ask("AI-RAG", "m", "hello");
+
+        Assert.assertEquals(1, generations.get());
+        Assert.assertEquals(0, cache.stats().getLocalHits());
+    }
+
+    @Test
+    public void test_disabled_cache_neither_embeds_nor_stores() {
+        StubEmbeddingClient embeddingClient = new StubEmbeddingClient(64, 0, 0);
+        cache = new SemanticAnswerCache(embeddingClient, false, 0.95, Duration.ofMinutes(5), 100, notifier);
+
+        ask("AI-RAG", "deepseek-r1:1.5b", "hello");
+        ask("AI-RAG", "deepseek-r1:1.5b", "hello");
+
+        Assert.assertEquals(2, generations.get());
+        Assert.assertEquals(0, embeddingClient.getRequests());
+        Assert.assertEquals(0, cache.stats().getSize());
+    }
+
+    private String ask(String ragTag, String model, String question) {
+        List<ChatResponse> responses = cache.getOrGenerate(ragTag, model, question, () -> {
+            int n = generations.incrementAndGet();
+            return Flux.just(response("answer "), response("number "), response(String.valueOf(n)));
+        }).collectList().block();
+        return responses.stream().map(r -> r.getResult().getOutput().getContent()).collect(Collectors.joining());
+    }
+
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(text)));
+    }
+}
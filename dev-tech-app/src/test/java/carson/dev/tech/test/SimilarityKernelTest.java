@@ -0,0 +1,90 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.vector.SimilarityKernel;
+import carson.dev.tech.trigger.vector.SimilarityKernels;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * The Vector API kernel against the scalar loops, on dimensions with and without a scalar tail; the Vector API cases
+ * are skipped when the JVM runs without {@code --add-modules jdk.incubator.vector}.
+ */
+public class SimilarityKernelTest {
+
+    private static final int[] DIMENSIONS = {1, 7, 8, 17, 768, 1536, 1537};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void test_scalar_kernel_on_known_vectors() {
+        SimilarityKernel kernel = SimilarityKernels.scalar();
+
+        Assert.assertEquals(11f, kernel.dot(new float[]{1, 2, 3}, new float[]{3, 1, 2}), 0f);
+        Assert.assertEquals(1f, kernel.cosine(new float[]{1, 2, 3}, new float[]{2, 4, 6}), 1e-6f);
+        Assert.assertEquals(0f, kernel.cosine(new float[]{1, 0}, new float[]{0, 5}), 1e-6f);
+        Assert.assertEquals(0f, kernel.cosine(new float[]{0, 0}, new float[]{1, 1}), 0f);
+        Assert.assertEquals(25f, kernel.squaredDistance(new float[]{0, 0}, new float[]{3, 4}), 0f);
+        Assert.assertThrows(IllegalArgumentException.class, () -> kernel.dot(new float[3], new float[4]));
+    }
+
+    @Test
+    public void test_vector_api_kernel_matches_scalar_loops() {
+        Assume.assumeTrue(SimilarityKernels.vectorModuleResolved());
+        SimilarityKernel scalar = SimilarityKernels.scalar();
+        SimilarityKernel simd = SimilarityKernels.vectorized();
+
+        for (int dimensions : DIMENSIONS) {
+            float[] a = randomVector(dimensions);
+            float[] b = randomVector(dimensions);
+            // sums are added in another order, so they agree to float precision only
+            float tolerance = 1e-5f * dimensions;
+            Assert.assertEquals(scalar.dot(a, b), simd.dot(a, b), tolerance);
+            Assert.assertEquals(scalar.cosine(a, b), simd.cosine(a, b), 1e-5f);
+            Assert.assertEquals(scalar.squaredDistance(a, b), simd.squaredDistance(a, b), tolerance);
+            Assert.assertThrows(IllegalArgumentException.class, () -> simd.cosine(a, new float[dimensions + 1]));
+        }
+    }
+
+    @Test
+    public void test_vector_api_kernel_scores_rows_of_a_buffer() {
+        Assume.assumeTrue(SimilarityKernels.vectorModuleResolved());
+        SimilarityKernel scalar = SimilarityKernels.scalar();
+        SimilarityKernel simd = SimilarityKernels.vectorized();
+
+        for (int dimensions : DIMENSIONS) {
+            // 11 rows in reverse order: two blocks of four and a remainder of three
+            int rows = 11;
+            ByteBuffer vectors = ByteBuffer.allocateDirect(rows * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            int[] offsets = new int[rows];
+            for (int r = 0; r < rows; r++) {
+                offsets[r] = (rows - 1 - r) * dimensions * Float.BYTES;
+                for (float v : randomVector(dimensions)) {
+                    vectors.putFloat(v);
+                }
+            }
+            float[] query = randomVector(dimensions);
+            float[] expected = new float[rows];
+            float[] actual = new float[rows];
+            scalar.dot(query, vectors, offsets, rows, expected);
+            simd.dot(query, vectors, offsets, rows, actual);
+
+            for (int r = 0; r < rows; r++) {
+                Assert.assertEquals(expected[r], actual[r], 1e-5f * dimensions);
+                Assert.assertEquals(expected[r], simd.dot(query, vectors, offsets[r]), 1e-5f * dimensions);
+            }
+        }
+    }
+
+    private float[] randomVector(int dimensions) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = random.nextFloat() * 2 - 1;
+        }
+        return vector;
+    }
+}
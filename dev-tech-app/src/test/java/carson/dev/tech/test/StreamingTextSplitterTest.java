@@ -0,0 +1,108 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.trigger.ingest.DocumentFileParser;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The streaming splitter against TokenTextSplitter on the same text, and its buffer on inputs far larger than a chunk.
+ */
+@Slf4j
+public class StreamingTextSplitterTest {
+
+    private static final String[] WORDS = {"vector", "store", "embedding", "token", "chunk", "repository",
+            "controller", "service", "pipeline", "batch", "query", "document", "metadata", "knowledge", "检索", "向量"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void test_chunks_follow_token_text_splitter() throws Exception {
+        String text = text(200_000);
+        List<Document> expected = new TokenTextSplitter().apply(List.of(new Document(text)));
+
+        List<Document> chunks = new ArrayList<>();
+        StreamingTextSplitter.Session session = new StreamingTextSplitter().open(Map.of("knowledge", "A"), chunks::add);
+        // uneven pieces, the way SAX characters() delivers text
+        for (int from = 0; from < text.length(); ) {
+            int to = Math.min(text.length(), from + 1 + random.nextInt(500));
+            session.write(text, from, to - from);
+            from = to;
+        }
+        session.close();
+
+        log.info("TokenTextSplitter {} chunks, streaming {} chunks", expected.size(), chunks.size());
+        Assert.assertEquals(expected.size(), chunks.size(), expected.size() * 0.02 + 1);
+        StringBuilder joined = new StringBuilder();
+        for (Document chunk : chunks) {
+            Assert.assertEquals("A", chunk.getMetadata().get("knowledge"));
+            Assert.assertTrue(TokenCounter.count(chunk.getContent()) <= 800);
+            joined.append(chunk.getContent());
+        }
+        // nothing lost or repeated between chunks, only whitespace trimmed at the cuts
+        Assert.assertEquals(text.replaceAll("\\s+", ""), joined.toString().replaceAll("\\s+", ""));
+    }
+
+    @Test
+    public void test_buffer_stays_bounded_on_a_large_document() throws Exception {
+        AtomicInteger chunks = new AtomicInteger();
+        StreamingTextSplitter.Session session = new StreamingTextSplitter().open(Map.of(), chunk -> chunks.incrementAndGet());
+        long written = 0;
+        while (written < 32L << 20) {
+            String piece = text(8192);
+            session.write(piece);
+            written += piece.length();
+        }
+        session.close();
+
+        log.info("{} MB of text → {} chunks, at most {} chars pending", written >> 20, chunks.get(), session.getPeakPendingChars());
+        Assert.assertTrue(chunks.get() > 10_000);
+        Assert.assertTrue("peak " + session.getPeakPendingChars(), session.getPeakPendingChars() < 64 * 1024);
+    }
+
+    @Test
+    public void test_file_is_streamed_into_the_sink() throws Exception {
+        Path file = folder.newFile("service.log").toPath();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int line = 0; line < 100_000; line++) {
+                writer.write("2024-03-01 12:00:00 INFO request " + line + " " + text(60).replace('\n', ' ') + "\n");
+            }
+        }
+        List<Document> chunks = new ArrayList<>();
+
+        int emitted = new DocumentFileParser().parse(file, Map.of("knowledge", "logs", "path", "service.log"), chunks::add);
+
+        log.info("{} KB file → {} chunks", Files.size(file) >> 10, emitted);
+        Assert.assertEquals(chunks.size(), emitted);
+        Assert.assertTrue(emitted > 100);
+        Assert.assertTrue(chunks.get(0).getContent().startsWith("2024-03-01 12:00:00 INFO request 0 "));
+        Assert.assertEquals("service.log", chunks.get(emitted - 1).getMetadata().get("path"));
+    }
+
+    private String text(int length) {
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            int r = random.nextInt(20);
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(r == 0 ? ".\n" : r == 1 ? "? " : " ");
+        }
+        return sb.toString();
+    }
+}
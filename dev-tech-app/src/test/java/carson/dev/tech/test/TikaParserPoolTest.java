@@ -0,0 +1,158 @@
+package carson.dev.tech.test;
+
+import carson.dev.tech.api.dto.ParseStatsDTO;
+import carson.dev.tech.trigger.ingest.ParseJob;
+import carson.dev.tech.trigger.ingest.ParseLimitException;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import carson.dev.tech.trigger.ingest.TikaParseSettings;
+import carson.dev.tech.trigger.ingest.TikaParserPool;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.ai.document.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+@Slf4j
+public class TikaParserPoolTest {
+
+    private final StreamingTextSplitter splitter = new StreamingTextSplitter();
+    private TikaParserPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new TikaParserPool(TikaParseSettings.builder()
+                .threads(1)
+                .queueCapacity(1)
+                .idleTimeoutMs(300)
+                .maxFileBytes(1 << 20)
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void test_text_is_parsed_into_chunks_and_counted_per_mime_type() throws Exception {
+        byte[] text = "hello world sentence. ".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+        List<Document> chunks = new ArrayList<>();
+
+        int emitted = parse("notes.txt", text, pool.newJob(), chunks);
+
+        Assert.assertEquals(chunks.size(), emitted);
+        Assert.assertTrue(emitted > 10);
+        Assert.assertEquals("notes.txt", chunks.get(0).getMetadata().get("name"));
+        ParseStatsDTO.MimeType textPlain = mimeType("text/plain");
+        Assert.assertEquals(1, textPlain.getParses());
+        Assert.assertEquals(text.length, textPlain.getBytes());
+    }
+
+    @Test
+    public void test_a_parse_without_progress_times_out_and_frees_its_thread() throws Exception {
+        long start = System.currentTimeMillis();
+        ParseLimitException e = Assert.assertThrows(ParseLimitException.class, () -> pool.parse("stuck.pdf",
+                TikaParserPoolTest::blockingStream, -1, pool.newJob(), sink -> splitter.open(Map.of(), sink), chunk -> {
+                }));
+
+        Assert.assertEquals(ParseLimitException.Limit.TIME, e.getLimit());
+        Assert.assertTrue(System.currentTimeMillis() - start < 5_000);
+        Assert.assertEquals(1, mimeType("application/pdf").getTimeouts());
+        // the interrupted read returned, so the single thread is usable again
+        Thread.sleep(200);
+        Assert.assertEquals(0, pool.stats().getStuck());
+        Assert.assertTrue(parse("after.txt", "text after a timeout.".getBytes(StandardCharsets.UTF_8), pool.newJob(), new ArrayList<>()) > 0);
+    }
+
+    @Test
+    public void test_size_limits_stop_the_parse() {
+        byte[] large = "a".repeat(2 << 20).getBytes(StandardCharsets.UTF_8);
+
+        // size known up front: refused before reaching Tika
+        ParseLimitException known = Assert.assertThrows(ParseLimitException.class, () -> parse("known.txt", large, pool.newJob(), new ArrayList<>()));
+        // size unknown: stopped while reading
+        ParseLimitException streamed = Assert.assertThrows(ParseLimitException.class, () -> pool.parse("streamed.txt",
+                () -> new ByteArrayInputStream(large), -1, pool.newJob(), sink -> splitter.open(Map.of(), sink), chunk -> {
+                }));
+
+        Assert.assertEquals(ParseLimitException.Limit.SIZE, known.getLimit());
+        Assert.assertEquals(ParseLimitException.Limit.SIZE, streamed.getLimit());
+        Assert.assertEquals(2, mimeType("text/plain").getOversized());
+    }
+
+    @Test
+    public void test_cancelled_job_refuses_new_parses() {
+        ParseJob job = pool.newJob();
+        job.cancel();
+
+        ParseLimitException e = Assert.assertThrows(ParseLimitException.class,
+                () -> parse("late.txt", "too late.".getBytes(StandardCharsets.UTF_8), job, new ArrayList<>()));
+
+        Assert.assertEquals(ParseLimitException.Limit.CANCELLED, e.getLimit());
+    }
+
+    @Test
+    public void test_full_pool_rejects_instead_of_queueing_without_bound() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            // one on the only thread, one in the queue of one
+            running.add(callers.submit(() -> pool.parse("slow.pdf", TikaParserPoolTest::blockingStream, -1, pool.newJob(),
+                    sink -> splitter.open(Map.of(), sink), chunk -> {
+                    })));
+        }
+        Thread.sleep(100);
+
+        Assert.assertThrows(RejectedExecutionException.class,
+                () -> parse("third.txt", "rejected.".getBytes(StandardCharsets.UTF_8), pool.newJob(), new ArrayList<>()));
+        Assert.assertEquals(1, pool.stats().getRejected());
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                log.info("blocked parse ended → {}", e.getCause().getMessage());
+            }
+        }
+        callers.shutdown();
+    }
+
+    private int parse(String name, byte[] content, ParseJob job, List<Document> chunks) throws Exception {
+        return pool.parse(name, () -> new ByteArrayInputStream(content), content.length, job,
+                sink -> splitter.open(Map.of("name", name), sink), chunks::add);
+    }
+
+    private ParseStatsDTO.MimeType mimeType(String mimeType) {
+        return pool.stats().getMimeTypes().stream()
+                .filter(m -> m.getMimeType().equals(mimeType))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no stats for " + mimeType));
+    }
+
+    /** Never returns data; an interrupt ends the read, like a socket read cancelled by the pool. */
+    private static InputStream blockingStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws InterruptedIOException {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+    }
+}
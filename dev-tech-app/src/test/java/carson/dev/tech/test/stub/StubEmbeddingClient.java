@@ -0,0 +1,91 @@
+package carson.dev.tech.test.stub;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline stand-in for Ollama/OpenAI embeddings: deterministic unit vectors derived from the text hash,
+ * with a fixed per-request round trip plus a per-text cost so batching effects are visible.
+ */
+public class StubEmbeddingClient implements EmbeddingClient {
+
+    private final int dimensions;
+    private final long requestLatencyMicros;
+    private final long perTextLatencyMicros;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong texts = new AtomicLong();
+
+    public StubEmbeddingClient(int dimensions, long requestLatencyMicros, long perTextLatencyMicros) {
+        this.dimensions = dimensions;
+        this.requestLatencyMicros = requestLatencyMicros;
+        this.perTextLatencyMicros = perTextLatencyMicros;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        requests.incrementAndGet();
+        texts.addAndGet(inputs.size());
+        sleepMicros(requestLatencyMicros + perTextLatencyMicros * inputs.size());
+        List<Embedding> embeddings = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(vector(inputs.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+        return embed(document.getContent());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getTexts() {
+        return texts.get();
+    }
+
+    public void reset() {
+        requests.set(0);
+        texts.set(0);
+    }
+
+    public List<Double> vector(String text) {
+        Random random = new Random(text.hashCode());
+        double[] values = new double[dimensions];
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            values[i] = random.nextGaussian();
+            norm += values[i] * values[i];
+        }
+        norm = Math.sqrt(norm);
+        List<Double> vector = new ArrayList<>(dimensions);
+        for (double v : values) vector.add(v / norm);
+        return vector;
+    }
+
+    private static void sleepMicros(long micros) {
+        if (micros <= 0) return;
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package carson.dev.tech.test.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for an Ollama and an OpenAI-compatible server on one port: chat answers of {@code answerTokens}
+ * tokens, the first after {@code firstTokenMillis} and the others at {@code tokensPerSecond}; embeddings after a
+ * fixed round trip plus a per-text cost, with the vectors of {@link StubEmbeddingClient}; and the model lists the
+ * endpoint probes read. Every request gets its own thread, so the server never queues.
+ * <ul>
+ *   <li>Ollama: {@code POST /api/chat}, {@code POST /api/embed}, {@code POST /api/embeddings}, {@code GET /api/tags},
+ *   {@code GET /api/ps}</li>
+ *   <li>OpenAI: {@code POST /v1/chat/completions}, {@code POST /v1/embeddings}, {@code GET /v1/models}</li>
+ * </ul>
+ */
+public class StubModelServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] WORDS = {"the", "store", "keeps", "each", "chunk", "with", "its", "ragTag", "and",
+            "returns", "five", "closest", "vectors", "to", "the", "question"};
+
+    private final List<String> models;
+    private final int answerTokens;
+    private final long firstTokenNanos;
+    private final long tokenIntervalNanos;
+    private final long embedRequestMicros;
+    private final long embedPerTextMicros;
+    private final StubEmbeddingClient vectors;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong embedRequests = new AtomicLong();
+    private final AtomicLong embeddedTexts = new AtomicLong();
+
+    @Builder
+    private StubModelServer(List<String> models, int dimensions, int answerTokens, long firstTokenMillis,
+                            double tokensPerSecond, long embedRequestMillis, long embedPerTextMicros) {
+        this.models = List.copyOf(models);
+        this.answerTokens = answerTokens;
+        this.firstTokenNanos = TimeUnit.MILLISECONDS.toNanos(firstTokenMillis);
+        this.tokenIntervalNanos = tokensPerSecond > 0 ? (long) (1e9 / tokensPerSecond) : 0;
+        this.embedRequestMicros = TimeUnit.MILLISECONDS.toMicros(embedRequestMillis);
+        this.embedPerTextMicros = embedPerTextMicros;
+        this.vectors = new StubEmbeddingClient(dimensions, 0, 0);
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.setExecutor(executor);
+        server.createContext("/api/chat", exchange -> handle(exchange, this::ollamaChat));
+        server.createContext("/api/embed", exchange -> handle(exchange, this::ollamaEmbed));
+        server.createContext("/api/embeddings", exchange -> handle(exchange, this::ollamaEmbeddings));
+        server.createContext("/api/tags", exchange -> handle(exchange, this::ollamaModels));
+        server.createContext("/api/ps", exchange -> handle(exchange, this::ollamaModels));
+        server.createContext("/v1/chat/completions", exchange -> handle(exchange, this::openAiChat));
+        server.createContext("/v1/embeddings", exchange -> handle(exchange, this::openAiEmbeddings));
+        server.createContext("/v1/models", exchange -> handle(exchange, this::openAiModels));
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long getChatRequests() {
+        return chatRequests.get();
+    }
+
+    public long getEmbedRequests() {
+        return embedRequests.get();
+    }
+
+    public long getEmbeddedTexts() {
+        return embeddedTexts.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void ollamaChat(HttpExchange exchange, JsonNode request) throws IOException {
+        chatRequests.incrementAndGet();
+        String model = request.path("model").asText();
+        long start = System.nanoTime();
+        if (!request.path("stream").asBoolean(true)) {
+            awaitToken(start, answerTokens - 1);
+            send(exchange, "application/json", ollamaMessage(model, answer(), true));
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < answerTokens; i++) {
+            awaitToken(start, i);
+            writeLine(out, ollamaMessage(model, token(i), false), "");
+        }
+        writeLine(out, ollamaMessage(model, "", true), "");
+    }
+
+    private void ollamaEmbed(HttpExchange exchange, JsonNode request) throws IOException {
+        List<String> inputs = inputs(request.path("input"));
+        awaitEmbedding(inputs.size());
+        ObjectNode response = MAPPER.createObjectNode().put("model", request.path("model").asText());
+        ArrayNode embeddings = response.putArray("embeddings");
+        inputs.forEach(input -> vector(embeddings.addArray(), input));
+        send(exchange, "application/json", response);
+    }
+
+    private void ollamaEmbeddings(HttpExchange exchange, JsonNode request) throws IOException {
+        awaitEmbedding(1);
+        ObjectNode response = MAPPER.createObjectNode();
+        vector(response.putArray("embedding"), request.path("prompt").asText());
+        send(exchange, "application/json", response);
+    }
+
+    private void ollamaModels(HttpExchange exchange, JsonNode request) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode list = response.putArray("models");
+        models.forEach(model -> list.addObject().put("name", model).put("model", model));
+        send(exchange, "application/json", response);
+    }
+
+    private void openAiChat(HttpExchange exchange, JsonNode request) throws IOException {
+        long id = chatRequests.incrementAndGet();
+        String model = request.path("model").asText();
+        long start = System.nanoTime();
+        if (!request.path("stream").asBoolean(false)) {
+            awaitToken(start, answerTokens - 1);
+            ObjectNode response = openAiHeader(id, model, "chat.completion");
+            ObjectNode choice = response.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop");
+            choice.putObject("message").put("role", "assistant").put("content", answer());
+            response.putObject("usage").put("prompt_tokens", 0).put("completion_tokens", answerTokens)
+                    .put("total_tokens", answerTokens);
+            send(exchange, "application/json", response);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int i = 0; i < answerTokens; i++) {
+            awaitToken(start, i);
+            ObjectNode chunk = openAiHeader(id, model, "chat.completion.chunk");
+            ObjectNode choice = chunk.putArray("choices").addObject().put("index", 0).putNull("finish_reason");
+            choice.putObject("delta").put("role", "assistant").put("content", token(i));
+            writeLine(out, chunk, "data: ");
+        }
+        ObjectNode last = openAiHeader(id, model, "chat.completion.chunk");
+        last.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop").putObject("delta");
+        writeLine(out, last, "data: ");
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void openAiEmbeddings(HttpExchange exchange, JsonNode request) throws IOException {
+        List<String> inputs = inputs(request.path("input"));
+        awaitEmbedding(inputs.size());
+        ObjectNode response = MAPPER.createObjectNode().put("object", "list").put("model", request.path("model").asText());
+        ArrayNode data = response.putArray("data");
+        for (int i = 0; i < inputs.size(); i++) {
+            vector(data.addObject().put("object", "embedding").put("index", i).putArray("embedding"), inputs.get(i));
+        }
+        response.putObject("usage").put("prompt_tokens", 0).put("total_tokens", 0);
+        send(exchange, "application/json", response);
+    }
+
+    private void openAiModels(HttpExchange exchange, JsonNode request) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode().put("object", "list");
+        ArrayNode data = response.putArray("data");
+        models.forEach(model -> data.addObject().put("id", model).put("object", "model"));
+        send(exchange, "application/json", response);
+    }
+
+    private ObjectNode ollamaMessage(String model, String content, boolean done) {
+        ObjectNode message = MAPPER.createObjectNode().put("model", model).put("created_at", Instant.now().toString());
+        message.putObject("message").put("role", "assistant").put("content", content);
+        return message.put("done", done);
+    }
+
+    private static ObjectNode openAiHeader(long id, String model, String object) {
+        return MAPPER.createObjectNode()
+                .put("id", "chatcmpl-stub-" + id)
+                .put("object", object)
+                .put("created", Instant.now().getEpochSecond())
+                .put("model", model);
+    }
+
+    private String answer() {
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < answerTokens; i++) answer.append(token(i));
+        return answer.toString();
+    }
+
+    private static String token(int i) {
+        return WORDS[i % WORDS.length] + " ";
+    }
+
+    private void vector(ArrayNode array, String text) {
+        vectors.vector(text).forEach(array::add);
+    }
+
+    private static List<String> inputs(JsonNode input) {
+        List<String> inputs = new ArrayList<>();
+        if (input.isArray()) {
+            input.forEach(node -> inputs.add(node.asText()));
+        } else {
+            inputs.add(input.asText());
+        }
+        return inputs;
+    }
+
+    /** Sleeps until token {@code i} of an answer started at {@code start} is due, so the rate does not drift. */
+    private void awaitToken(long start, int i) {
+        long due = start + firstTokenNanos + Math.max(0, i) * tokenIntervalNanos;
+        for (long wait; (wait = due - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+    }
+
+    private void awaitEmbedding(int texts) {
+        embedRequests.incrementAndGet();
+        embeddedTexts.addAndGet(texts);
+        long due = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(embedRequestMicros + embedPerTextMicros * texts);
+        for (long wait; (wait = due - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+    }
+
+    private static void writeLine(OutputStream out, JsonNode json, String prefix) throws IOException {
+        out.write((prefix + MAPPER.writeValueAsString(json) + (prefix.isEmpty() ? "\n" : "\n\n")).getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void send(HttpExchange exchange, String contentType, JsonNode json) throws IOException {
+        byte[] body = MAPPER.writeValueAsBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) {
+        try {
+            JsonNode request = "POST".equals(exchange.getRequestMethod())
+                    ? MAPPER.readTree(exchange.getRequestBody()) : MAPPER.missingNode();
+            handler.handle(exchange, request == null ? MAPPER.missingNode() : request);
+        } catch (IOException e) {
+            // the client went away mid-stream, nothing left to answer
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange, JsonNode request) throws IOException;
+    }
+}
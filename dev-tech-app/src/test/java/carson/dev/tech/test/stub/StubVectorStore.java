@@ -0,0 +1,75 @@
+package carson.dev.tech.test.stub;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory VectorStore that behaves like PgVectorStore on the write path: one simulated JDBC round trip per add()
+ * and one {@code embeddingClient.embed(document)} per row.
+ */
+public class StubVectorStore implements VectorStore {
+
+    private final EmbeddingClient embeddingClient;
+    private final long insertLatencyMicros;
+    private final Map<String, Document> rows = new ConcurrentHashMap<>();
+    private final AtomicLong inserts = new AtomicLong();
+
+    public StubVectorStore(EmbeddingClient embeddingClient, long insertLatencyMicros) {
+        this.embeddingClient = embeddingClient;
+        this.insertLatencyMicros = insertLatencyMicros;
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        inserts.incrementAndGet();
+        for (Document document : documents) {
+            document.setEmbedding(embeddingClient.embed(document));
+            rows.put(document.getId(), document);
+        }
+        try {
+            TimeUnit.MICROSECONDS.sleep(insertLatencyMicros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> idList) {
+        idList.forEach(rows::remove);
+        return Optional.of(true);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        List<Double> query = embeddingClient.embed(request.getQuery());
+        return rows.values().stream()
+                .sorted(Comparator.comparingDouble((Document d) -> -dot(query, d.getEmbedding())))
+                .limit(request.getTopK())
+                .toList();
+    }
+
+    public List<Document> getRows() {
+        return new ArrayList<>(rows.values());
+    }
+
+    public long getInserts() {
+        return inserts.get();
+    }
+
+    private static double dot(List<Double> a, List<Double> b) {
+        double sum = 0;
+        for (int i = 0; i < a.size(); i++) sum += a.get(i) * b.get(i);
+        return sum;
+    }
+}
@@ -0,0 +1,115 @@
+package carson.dev.tech.benchmark;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.ai.document.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Synthetic, seeded inputs, so every run of a benchmark sees the same data and none of it needs a network. */
+final class Corpus {
+
+  private static final String[] WORDS = {
+      "vector", "store", "embedding", "chunk", "token", "query", "answer", "model", "context", "document",
+      "retrieval", "index", "graph", "search", "score", "prompt", "stream", "latency", "batch", "cache",
+      "the", "a", "of", "to", "and", "in", "is", "for", "with", "on", "that", "by", "from", "each", "every",
+      "postgres", "redis", "ollama", "repository", "commit", "file", "parser", "splitter", "budget", "window",
+      "returns", "keeps", "reads", "writes", "builds", "skips", "merges", "sends", "waits", "fails"
+  };
+
+  private Corpus() {
+  }
+
+  /** Components uniform in [-1, 1). */
+  static float[] randomVector(Random random, int dimensions) {
+    float[] vector = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      vector[i] = random.nextFloat() * 2 - 1;
+    }
+    return vector;
+  }
+
+  /** Prose of about {@code chars} characters: sentences of 6 to 18 words, paragraphs of 3 to 6 sentences. */
+  static String text(Random random, int chars) {
+    StringBuilder text = new StringBuilder(chars + 256);
+    while (text.length() < chars) {
+      int sentences = 3 + random.nextInt(4);
+      for (int s = 0; s < sentences; s++) {
+        int words = 6 + random.nextInt(13);
+        for (int w = 0; w < words; w++) {
+          String word = WORDS[random.nextInt(WORDS.length)];
+          text.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+          text.append(w == words - 1 ? ". " : " ");
+        }
+      }
+      text.append("\n\n");
+    }
+    return text.toString();
+  }
+
+  /** Java source of about {@code chars} characters: classes of documented methods. */
+  static String javaSource(Random random, int chars) {
+    StringBuilder source = new StringBuilder(chars + 1024).append("package carson.dev.tech.bench;\n\n");
+    int classes = 0;
+    while (source.length() < chars) {
+      source.append("/** ").append(text(random, 120).trim()).append(" */\n");
+      source.append("public class Generated").append(classes++).append(" {\n\n");
+      int methods = 4 + random.nextInt(8);
+      for (int m = 0; m < methods; m++) {
+        String name = WORDS[random.nextInt(WORDS.length)] + m;
+        source.append("  /** ").append(text(random, 80).trim()).append(" */\n");
+        source.append("  public int ").append(name).append("(int value) {\n");
+        int lines = 3 + random.nextInt(10);
+        for (int l = 0; l < lines; l++) {
+          source.append("    value = value * ").append(31 + l).append(" + ").append(random.nextInt(1000)).append(";\n");
+        }
+        source.append("    return value;\n  }\n\n");
+      }
+      source.append("}\n\n");
+    }
+    return source.toString();
+  }
+
+  /** {@code text} as an HTML page, one {@code <p>} per paragraph. */
+  static String html(String text) {
+    StringBuilder html = new StringBuilder(text.length() + 1024)
+        .append("<!DOCTYPE html>\n<html><head><title>corpus</title></head><body>\n");
+    for (String paragraph : text.split("\n\n")) {
+      html.append("<p>").append(paragraph).append("</p>\n");
+    }
+    return html.append("</body></html>\n").toString();
+  }
+
+  /** {@code text} as a Word document, one paragraph per paragraph. */
+  static byte[] docx(String text) throws IOException {
+    try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+      for (String paragraph : text.split("\n\n")) {
+        document.createParagraph().createRun().setText(paragraph);
+      }
+      document.write(out);
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * Retrieved chunks of {@code chars} characters each, with a {@code distance} like PgVectorStore writes; every
+   * fifth one repeats an earlier chunk, as overlapping files and rewritten queries do.
+   */
+  static List<Document> chunks(Random random, int count, int chars, String ragTag) {
+    List<Document> chunks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String content = i % 5 == 4 ? chunks.get(random.nextInt(i)).getContent() : text(random, chars).trim();
+      Map<String, Object> metadata = new HashMap<>();
+      metadata.put("knowledge", ragTag);
+      metadata.put("path", "docs/file-" + i + ".md");
+      metadata.put("distance", 0.1 + 0.5 * random.nextDouble());
+      chunks.add(new Document("chunk-" + i, content, metadata));
+    }
+    return chunks;
+  }
+}
@@ -0,0 +1,76 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.trigger.vector.MetadataFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.vectorstore.PgVectorFilterExpressionConverter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-query cost of the ragTag filter before any search runs: parsing the text expression that
+ * {@code DocumentRetriever.of} builds (an ANTLR parse per query) against building the same expression directly,
+ * then turning it into the pgvector jsonpath or the in-memory predicate of the local store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterExpressionBenchmark {
+
+  private static final String RAG_TAG = "ai-rag-knowledge";
+  private static final String QUERY = "How are embeddings batched during ingestion?";
+
+  private final PgVectorFilterExpressionConverter converter = new PgVectorFilterExpressionConverter();
+  private final Filter.Expression expression = new FilterExpressionBuilder().eq("knowledge", RAG_TAG).build();
+  private final Filter.Expression tagsExpression = new FilterExpressionBuilder()
+      .and(new FilterExpressionBuilder().in("knowledge", "ai-rag-knowledge", "big-market", "group-buy-market"),
+          new FilterExpressionBuilder().ne("path", "README.md"))
+      .build();
+  private final Map<String, Object> metadata = Map.of("knowledge", RAG_TAG, "path", "docs/dev-ops/README.md");
+
+  @Benchmark
+  public SearchRequest parseTagFilter() {
+    return SearchRequest.query(QUERY).withTopK(5).withFilterExpression("knowledge == '" + RAG_TAG + "'");
+  }
+
+  @Benchmark
+  public SearchRequest buildTagFilter() {
+    return SearchRequest.query(QUERY).withTopK(5)
+        .withFilterExpression(new FilterExpressionBuilder().eq("knowledge", RAG_TAG).build());
+  }
+
+  @Benchmark
+  public SearchRequest parseTagsFilter() {
+    return SearchRequest.query(QUERY).withTopK(5)
+        .withFilterExpression("knowledge in ['ai-rag-knowledge', 'big-market', 'group-buy-market'] && path != 'README.md'");
+  }
+
+  @Benchmark
+  public String pgVectorJsonPath() {
+    return converter.convertExpression(tagsExpression);
+  }
+
+  @Benchmark
+  public boolean metadataPredicate() {
+    return MetadataFilter.of(tagsExpression).test(metadata);
+  }
+
+  @Benchmark
+  public String ragTagOf() {
+    return MetadataFilter.ragTagOf(expression);
+  }
+}
@@ -0,0 +1,236 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.trigger.vector.HnswSettings;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import carson.dev.tech.trigger.vector.QuantizationSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-5 queries per second of the local {@link MappedVectorStore} (exact scan, HNSW graph, INT8 and PQ codes with an
+ * exact re-rank) against Spring AI's {@link SimpleVectorStore}. Recall@5 against a brute-force top 5 is printed once
+ * per trial, so each row of the JMH table can be read next to the recall it buys. The corpus has a low intrinsic
+ * dimension (clusters plus 32 latent factors), like text embeddings; on isotropic noise PQ recall is far lower.
+ * Compare ef_search values with {@code -p search=hnsw -p efSearch=16,32,64,128}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+public class LocalVectorStoreBenchmark {
+
+  private static final int QUERIES = 200;
+  private static final int BATCH = 1_000;
+  private static final int K = 5;
+
+  @Param({"simple", "exact", "hnsw", "int8", "pq"})
+  private String search;
+
+  @Param({"20000"})
+  private int rows;
+
+  @Param({"128"})
+  private int dimensions;
+
+  @Param({"64"})
+  private int efSearch;
+
+  private final Map<String, List<Double>> vectors = new HashMap<>();
+  private Path directory;
+  private VectorStore store;
+  private List<String> queries;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(42);
+    float[][] centers = new float[64][];
+    for (int c = 0; c < centers.length; c++) {
+      centers[c] = gaussian(random, 0.5f);
+    }
+    float[][] factors = new float[32][];
+    for (int f = 0; f < factors.length; f++) {
+      factors[f] = gaussian(random, (float) (1 / Math.sqrt(factors.length)));
+    }
+    List<Document> documents = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      Document document = new Document("chunk-" + i, "chunk " + i, Map.of("knowledge", "tag-" + i % 4));
+      document.setEmbedding(toDoubles(latent(random, centers, factors)));
+      documents.add(document);
+    }
+    queries = new ArrayList<>(QUERIES);
+    for (int q = 0; q < QUERIES; q++) {
+      vectors.put("query-" + q, toDoubles(latent(random, centers, factors)));
+      queries.add("query-" + q);
+    }
+
+    EmbeddingClient embeddingClient = new LookupEmbeddingClient(vectors);
+    if ("simple".equals(search)) {
+      store = new SimpleVectorStore(embeddingClient);
+      store.add(documents);
+    } else {
+      directory = Files.createTempDirectory("local-vector-store-benchmark");
+      HnswSettings hnsw = HnswSettings.builder()
+          .enabled("hnsw".equals(search))
+          .exactSearchThreshold(0)
+          .efSearch(efSearch)
+          .build();
+      QuantizationSettings quantization = QuantizationSettings.builder()
+          .type(switch (search) {
+            case "int8" -> QuantizationSettings.Type.INT8;
+            case "pq" -> QuantizationSettings.Type.PQ;
+            default -> QuantizationSettings.Type.NONE;
+          })
+          .trainingRows(Math.min(rows, 10_000))
+          .build();
+      MappedVectorStore mapped = new MappedVectorStore(directory, embeddingClient, hnsw, quantization);
+      for (int from = 0; from < rows; from += BATCH) {
+        mapped.add(documents.subList(from, Math.min(rows, from + BATCH)));
+      }
+      store = mapped;
+    }
+
+    double recall = 0;
+    for (String query : queries) {
+      Set<String> found = ids(store.similaritySearch(SearchRequest.query(query).withTopK(K)));
+      found.retainAll(exactTopK(vectors.get(query), documents));
+      recall += found.size() / (double) K;
+    }
+    System.out.printf("%n%s recall@%d: %.3f%n", search, K, recall / QUERIES);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    if (store instanceof MappedVectorStore mapped) {
+      mapped.close();
+      FileSystemUtils.deleteRecursively(directory);
+    }
+  }
+
+  @Benchmark
+  public List<Document> similaritySearch() {
+    String query = queries.get(next++ % QUERIES);
+    return store.similaritySearch(SearchRequest.query(query).withTopK(K));
+  }
+
+  private static Set<String> exactTopK(List<Double> query, List<Document> documents) {
+    PriorityQueue<Map.Entry<String, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+    for (Document document : documents) {
+      top.add(Map.entry(document.getId(), cosine(query, document.getEmbedding())));
+      if (top.size() > K) {
+        top.poll();
+      }
+    }
+    Set<String> ids = new HashSet<>();
+    top.forEach(e -> ids.add(e.getKey()));
+    return ids;
+  }
+
+  private static double cosine(List<Double> a, List<Double> b) {
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < a.size(); i++) {
+      dot += a.get(i) * b.get(i);
+      normA += a.get(i) * a.get(i);
+      normB += b.get(i) * b.get(i);
+    }
+    return dot / Math.sqrt(normA * normB);
+  }
+
+  private static Set<String> ids(List<Document> documents) {
+    Set<String> ids = new HashSet<>();
+    documents.forEach(d -> ids.add(d.getId()));
+    return ids;
+  }
+
+  /** A cluster center plus a mix of the shared latent factors plus a little isotropic noise. */
+  private float[] latent(Random random, float[][] centers, float[][] factors) {
+    float[] v = gaussian(random, 0.05f);
+    float[] center = centers[random.nextInt(centers.length)];
+    for (int i = 0; i < dimensions; i++) {
+      v[i] += center[i];
+    }
+    for (float[] factor : factors) {
+      float weight = (float) random.nextGaussian();
+      for (int i = 0; i < dimensions; i++) {
+        v[i] += weight * factor[i];
+      }
+    }
+    return v;
+  }
+
+  private float[] gaussian(Random random, float sigma) {
+    float[] v = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      v[i] = (float) random.nextGaussian() * sigma;
+    }
+    return v;
+  }
+
+  private static List<Double> toDoubles(float[] v) {
+    List<Double> doubles = new ArrayList<>(v.length);
+    for (float f : v) {
+      doubles.add((double) f);
+    }
+    return doubles;
+  }
+
+  /** Query embeddings looked up by text; documents carry their own. */
+  private static class LookupEmbeddingClient implements EmbeddingClient {
+
+    private final Map<String, List<Double>> vectors;
+
+    LookupEmbeddingClient(Map<String, List<Double>> vectors) {
+      this.vectors = vectors;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+      List<Embedding> embeddings = new ArrayList<>();
+      for (String text : request.getInstructions()) {
+        embeddings.add(new Embedding(vectors.get(text), embeddings.size()));
+      }
+      return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public List<Double> embed(Document document) {
+      return document.getEmbedding();
+    }
+  }
+}
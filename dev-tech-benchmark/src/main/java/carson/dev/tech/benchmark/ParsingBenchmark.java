@@ -0,0 +1,105 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.trigger.ingest.CodeAwareSplitter;
+import carson.dev.tech.trigger.ingest.DocumentFileParser;
+import carson.dev.tech.trigger.ingest.ParseJob;
+import carson.dev.tech.trigger.ingest.SourceFile;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import carson.dev.tech.trigger.ingest.TikaParseSettings;
+import carson.dev.tech.trigger.ingest.TikaParserPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One file from bytes to chunks through {@link DocumentFileParser}: plain text straight through the decoder, and the
+ * same prose as HTML and as a Word document through the Tika pool. Chunks go to a sink that only consumes them, so
+ * the scores are parse plus split, without embedding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParsingBenchmark {
+
+  private static final Map<String, Object> METADATA = Map.of("knowledge", "bench");
+
+  @Param({"262144"})
+  private int chars;
+
+  private TikaParserPool tikaParserPool;
+  private DocumentFileParser parser;
+  private byte[] text;
+  private byte[] html;
+  private byte[] docx;
+
+  @Setup
+  public void setUp() throws Exception {
+    tikaParserPool = new TikaParserPool(TikaParseSettings.builder().build());
+    parser = new DocumentFileParser(new StreamingTextSplitter(), new CodeAwareSplitter(), tikaParserPool);
+    String prose = Corpus.text(new Random(42), chars);
+    text = prose.getBytes(StandardCharsets.UTF_8);
+    html = Corpus.html(prose).getBytes(StandardCharsets.UTF_8);
+    docx = Corpus.docx(prose);
+  }
+
+  @TearDown
+  public void tearDown() {
+    tikaParserPool.close();
+  }
+
+  @Benchmark
+  public int plainText(Blackhole blackhole) throws Exception {
+    SourceFile file = new BytesSourceFile("docs/corpus.txt", text);
+    return parser.parse(file, parser.sniff(file), METADATA, blackhole::consume, ParseJob.unbounded());
+  }
+
+  @Benchmark
+  public int tikaHtml(Blackhole blackhole) throws Exception {
+    return parser.parse(() -> new ByteArrayInputStream(html), "corpus.html", html.length, METADATA, blackhole::consume,
+        ParseJob.unbounded());
+  }
+
+  @Benchmark
+  public int tikaDocx(Blackhole blackhole) throws Exception {
+    return parser.parse(() -> new ByteArrayInputStream(docx), "corpus.docx", docx.length, METADATA, blackhole::consume,
+        ParseJob.unbounded());
+  }
+
+  private record BytesSourceFile(String path, byte[] bytes) implements SourceFile {
+
+    @Override
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public long getSize() {
+      return bytes.length;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(bytes);
+    }
+  }
+}
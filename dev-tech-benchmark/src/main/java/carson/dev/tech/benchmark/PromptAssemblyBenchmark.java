@@ -0,0 +1,81 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.benchmark.stub.StubChatClient;
+import carson.dev.tech.benchmark.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import carson.dev.tech.trigger.rag.ContextBuilder;
+import carson.dev.tech.trigger.rag.RagChatService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.document.Document;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieved chunks to prompt: {@link ContextBuilder} alone (ordering, shingle dedup, token counting, truncation),
+ * then a whole RAG answer through {@link RagChatService} with a stub retriever and a stub model that streams 256
+ * words at once. Both caches are off, as with {@code enabled: false}, so every call assembles and streams.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class PromptAssemblyBenchmark {
+
+  private static final String RAG_TAG = "ai-rag-knowledge";
+  private static final String MODEL = "ollama:deepseek-r1:1.5b";
+  private static final String QUESTION = "How does the ingestion pipeline batch embeddings?";
+
+  @Param({"5", "20"})
+  private int chunks;
+
+  private final ContextBuilder contextBuilder = new ContextBuilder(3072, Map.of(), 0.9, 64);
+  private final StubChatClient chatClient = new StubChatClient(256);
+  private List<Document> documents;
+  private RagChatService ragChatService;
+
+  @Setup
+  public void setUp() {
+    documents = Corpus.chunks(new Random(42), chunks, 1600, RAG_TAG);
+    RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+    Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any(Codec.class))).thenReturn(Mockito.mock(RTopic.class));
+    RagTagChangeNotifier notifier = new RagTagChangeNotifier(redissonClient);
+    ragChatService = new RagChatService((ragTag, query, topK) -> documents,
+        new RetrievalCache(0, Duration.ofMinutes(10), notifier),
+        new SemanticAnswerCache(new StubEmbeddingClient(768), false, 0.95, Duration.ofMinutes(10), 100, notifier),
+        contextBuilder, chunks, Schedulers.immediate());
+  }
+
+  @Benchmark
+  public ContextBuilder.Context buildContext() {
+    return contextBuilder.build(MODEL, documents, 64);
+  }
+
+  @Benchmark
+  public ChatResponse ragAnswer() {
+    return ragChatService.stream(chatClient, null, MODEL, RAG_TAG, QUESTION).blockLast();
+  }
+}
@@ -0,0 +1,122 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.api.dto.IngestionJobDTO;
+import carson.dev.tech.api.dto.IngestionJobStatus;
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.JsonJacksonCodec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the Redisson codecs cost per payload: the ingestion job snapshot through the default JsonJacksonCodec (with
+ * its type information), and a cached embedding as JSON doubles against the float32 bytes the embedding cache stores
+ * through ByteArrayCodec. No Redis involved, only encoding to and decoding from a Netty buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisCodecBenchmark {
+
+  @Param({"768", "1536"})
+  private int dimensions;
+
+  private final Codec json = JsonJacksonCodec.INSTANCE;
+  private IngestionJobDTO job;
+  private float[] vector;
+  private List<Double> embedding;
+  private byte[] jobJson;
+  private byte[] embeddingJson;
+  private byte[] embeddingFloat32;
+
+  @Setup
+  public void setUp() throws IOException {
+    job = IngestionJobDTO.builder()
+        .jobId("3f1c9a0e-6a47-4d8e-9a55-2b1f8c7d4e21")
+        .type("git")
+        .ragTag("ai-rag-knowledge")
+        .status(IngestionJobStatus.RUNNING)
+        .filesScanned(1_284)
+        .chunksEmbedded(9_731)
+        .rowsWritten(9_216)
+        .errors(3)
+        .message("indexing https://github.com/Carson-NNY/AI-RAG")
+        .submittedAt(1_760_000_000_000L)
+        .updatedAt(1_760_000_042_000L)
+        .build();
+    vector = Corpus.randomVector(new Random(42), dimensions);
+    embedding = FloatVectorCodec.toDoubles(vector);
+    jobJson = encode(json, job);
+    embeddingJson = encode(json, embedding);
+    embeddingFloat32 = encode(ByteArrayCodec.INSTANCE, FloatVectorCodec.encode(vector));
+  }
+
+  @Benchmark
+  public byte[] encodeJobJson() throws IOException {
+    return encode(json, job);
+  }
+
+  @Benchmark
+  public Object decodeJobJson() throws IOException {
+    return decode(json, jobJson);
+  }
+
+  @Benchmark
+  public byte[] encodeEmbeddingJson() throws IOException {
+    return encode(json, embedding);
+  }
+
+  @Benchmark
+  public Object decodeEmbeddingJson() throws IOException {
+    return decode(json, embeddingJson);
+  }
+
+  @Benchmark
+  public byte[] encodeEmbeddingFloat32() throws IOException {
+    return encode(ByteArrayCodec.INSTANCE, FloatVectorCodec.encode(vector));
+  }
+
+  @Benchmark
+  public float[] decodeEmbeddingFloat32() throws IOException {
+    return FloatVectorCodec.decode((byte[]) decode(ByteArrayCodec.INSTANCE, embeddingFloat32));
+  }
+
+  private static byte[] encode(Codec codec, Object value) throws IOException {
+    ByteBuf buffer = codec.getValueEncoder().encode(value);
+    try {
+      return ByteBufUtil.getBytes(buffer);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static Object decode(Codec codec, byte[] bytes) throws IOException {
+    ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
+    try {
+      return codec.getValueDecoder().decode(buffer, null);
+    } finally {
+      buffer.release();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.benchmark.stub.StubEmbeddingClient;
+import carson.dev.tech.trigger.vector.HnswSettings;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import carson.dev.tech.trigger.vector.QuantizationSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-5 retrieval from a {@link MappedVectorStore} of stub embeddings spread over four ragTags, searched exactly, on
+ * the HNSW graph and on INT8 codes with an exact re-rank. The query embedding is part of the measured time, as in
+ * {@code DocumentRetriever.of}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+public class RetrievalBenchmark {
+
+  private static final int QUERIES = 64;
+  private static final int BATCH = 1_000;
+
+  @Param({"exact", "hnsw", "int8"})
+  private String search;
+
+  @Param({"20000"})
+  private int rows;
+
+  @Param({"768"})
+  private int dimensions;
+
+  private final Filter.Expression filter = new FilterExpressionBuilder().eq("knowledge", "tag-1").build();
+  private Path directory;
+  private MappedVectorStore store;
+  private List<String> queries;
+  private int next;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("retrieval-benchmark");
+    HnswSettings hnsw = HnswSettings.builder()
+        .enabled("hnsw".equals(search))
+        .exactSearchThreshold(0)
+        .build();
+    QuantizationSettings quantization = QuantizationSettings.builder()
+        .type("int8".equals(search) ? QuantizationSettings.Type.INT8 : QuantizationSettings.Type.NONE)
+        .trainingRows(Math.min(rows, 10_000))
+        .build();
+    store = new MappedVectorStore(directory, new StubEmbeddingClient(dimensions), hnsw, quantization);
+    List<Document> batch = new ArrayList<>(BATCH);
+    for (int i = 0; i < rows; i++) {
+      batch.add(new Document("chunk-" + i, "chunk " + i, Map.of("knowledge", "tag-" + i % 4, "path", "docs/file-" + i + ".md")));
+      if (batch.size() == BATCH) {
+        store.add(batch);
+        batch = new ArrayList<>(BATCH);
+      }
+    }
+    if (!batch.isEmpty()) {
+      store.add(batch);
+    }
+    queries = new ArrayList<>(QUERIES);
+    for (int i = 0; i < QUERIES; i++) {
+      queries.add("question " + i);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    store.close();
+    FileSystemUtils.deleteRecursively(directory);
+  }
+
+  @Benchmark
+  public List<Document> similaritySearch() {
+    String query = queries.get(next++ % QUERIES);
+    return store.similaritySearch(SearchRequest.query(query).withTopK(5).withFilterExpression(filter));
+  }
+}
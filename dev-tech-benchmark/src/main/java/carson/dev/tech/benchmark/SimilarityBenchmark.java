@@ -0,0 +1,138 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.trigger.vector.SimilarityKernel;
+import carson.dev.tech.trigger.vector.SimilarityKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One query scored against every row of a store: the boxed {@code List<Double>} cosine of Spring AI's
+ * SimpleVectorStore, the scalar loops and the Vector API kernel, at the sizes of nomic-embed-text (768) and
+ * text-embedding-ada-002 (1536). The {@code *Rows} benchmarks read little-endian rows from a direct buffer the way
+ * the exact scan of MappedVectorStore reads its mapped file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx2g"})
+public class SimilarityBenchmark {
+
+  @Param({"768", "1536"})
+  private int dimensions;
+
+  @Param({"4096"})
+  private int rows;
+
+  private final SimilarityKernel scalar = SimilarityKernels.scalar();
+  private final SimilarityKernel vectorized = SimilarityKernels.vectorized();
+
+  private float[] query;
+  private float[][] vectors;
+  private List<Double> boxedQuery;
+  private List<List<Double>> boxedVectors;
+  private ByteBuffer mapped;
+  private int[] offsets;
+  private float[] scores;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    query = Corpus.randomVector(random, dimensions);
+    boxedQuery = boxed(query);
+    vectors = new float[rows][];
+    boxedVectors = new ArrayList<>(rows);
+    mapped = ByteBuffer.allocateDirect(rows * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    offsets = new int[rows];
+    scores = new float[rows];
+    for (int r = 0; r < rows; r++) {
+      vectors[r] = Corpus.randomVector(random, dimensions);
+      boxedVectors.add(boxed(vectors[r]));
+      offsets[r] = r * dimensions * Float.BYTES;
+      for (int i = 0; i < dimensions; i++) {
+        mapped.putFloat(offsets[r] + i * Float.BYTES, vectors[r][i]);
+      }
+    }
+  }
+
+  @Benchmark
+  public void boxedCosine(Blackhole blackhole) {
+    for (List<Double> vector : boxedVectors) {
+      blackhole.consume(SimpleVectorStore.EmbeddingMath.cosineSimilarity(boxedQuery, vector));
+    }
+  }
+
+  @Benchmark
+  public void scalarCosine(Blackhole blackhole) {
+    for (float[] vector : vectors) {
+      blackhole.consume(scalar.cosine(query, vector));
+    }
+  }
+
+  @Benchmark
+  public void vectorizedCosine(Blackhole blackhole) {
+    for (float[] vector : vectors) {
+      blackhole.consume(vectorized.cosine(query, vector));
+    }
+  }
+
+  @Benchmark
+  public void scalarDot(Blackhole blackhole) {
+    for (float[] vector : vectors) {
+      blackhole.consume(scalar.dot(query, vector));
+    }
+  }
+
+  @Benchmark
+  public void vectorizedDot(Blackhole blackhole) {
+    for (float[] vector : vectors) {
+      blackhole.consume(vectorized.dot(query, vector));
+    }
+  }
+
+  @Benchmark
+  public void vectorizedSquaredDistance(Blackhole blackhole) {
+    for (float[] vector : vectors) {
+      blackhole.consume(vectorized.squaredDistance(query, vector));
+    }
+  }
+
+  @Benchmark
+  public float[] scalarDotRows() {
+    scalar.dot(query, mapped, offsets, rows, scores);
+    return scores;
+  }
+
+  @Benchmark
+  public float[] vectorizedDotRows() {
+    vectorized.dot(query, mapped, offsets, rows, scores);
+    return scores;
+  }
+
+  private static List<Double> boxed(float[] vector) {
+    List<Double> boxed = new ArrayList<>(vector.length);
+    for (float v : vector) {
+      boxed.add((double) v);
+    }
+    return boxed;
+  }
+}
@@ -0,0 +1,86 @@
+package carson.dev.tech.benchmark;
+
+import carson.dev.tech.trigger.ingest.CodeAwareSplitter;
+import carson.dev.tech.trigger.ingest.CodeLanguage;
+import carson.dev.tech.trigger.ingest.StreamingTextSplitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunking throughput on text already in memory: Spring AI's TokenTextSplitter on the whole document, the
+ * {@link StreamingTextSplitter} that applies the same rules to text written in 8 KB pieces, and the
+ * {@link CodeAwareSplitter} on Java source of the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitterBenchmark {
+
+  private static final Map<String, Object> METADATA = Map.of("knowledge", "bench");
+  private static final int PIECE_CHARS = 8192;
+
+  @Param({"65536", "1048576"})
+  private int chars;
+
+  private final StreamingTextSplitter streamingSplitter = new StreamingTextSplitter();
+  private final CodeAwareSplitter codeSplitter = new CodeAwareSplitter();
+  private String text;
+  private String source;
+
+  @Setup
+  public void setUp() {
+    text = Corpus.text(new Random(42), chars);
+    source = Corpus.javaSource(new Random(42), chars);
+  }
+
+  @Benchmark
+  public List<Document> tokenTextSplitter() {
+    return new TokenTextSplitter().apply(List.of(new Document(text, new HashMap<>(METADATA))));
+  }
+
+  @Benchmark
+  public int streamingTextSplitter(Blackhole blackhole) throws IOException {
+    StreamingTextSplitter.Session session = streamingSplitter.open(METADATA, blackhole::consume);
+    write(session, text);
+    session.close();
+    return session.getChunks();
+  }
+
+  @Benchmark
+  public int codeAwareSplitter(Blackhole blackhole) throws IOException {
+    CodeAwareSplitter.Session session = codeSplitter.open(CodeLanguage.JAVA, METADATA, blackhole::consume);
+    write(session, source);
+    session.close();
+    return session.getChunks();
+  }
+
+  /** In the pieces a Reader hands over, not as one String. */
+  private static void write(Writer session, String content) throws IOException {
+    for (int from = 0; from < content.length(); from += PIECE_CHARS) {
+      session.write(content, from, Math.min(PIECE_CHARS, content.length() - from));
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package carson.dev.tech.benchmark.stub;
+
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline chat model: answers every prompt with the same {@code tokens} words, streamed one word per chunk, without
+ * any delay, so a benchmark measures only what happens around the model.
+ */
+public class StubChatClient implements ChatClient, StreamingChatClient {
+
+  private final List<String> words;
+
+  public StubChatClient(int tokens) {
+    List<String> words = new ArrayList<>(tokens);
+    for (int i = 0; i < tokens; i++) {
+      words.add("word" + i % 100 + " ");
+    }
+    this.words = List.copyOf(words);
+  }
+
+  @Override
+  public ChatResponse call(Prompt prompt) {
+    return new ChatResponse(List.of(new Generation(String.join("", words))));
+  }
+
+  @Override
+  public Flux<ChatResponse> stream(Prompt prompt) {
+    return Flux.fromIterable(words).map(word -> new ChatResponse(List.of(new Generation(word))));
+  }
+}
@@ -0,0 +1,57 @@
+package carson.dev.tech.benchmark.stub;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Offline embeddings: a unit vector seeded by the hash of the text, so the same text always gets the same vector. */
+public class StubEmbeddingClient implements EmbeddingClient {
+
+  private final int dimensions;
+
+  public StubEmbeddingClient(int dimensions) {
+    this.dimensions = dimensions;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<String> inputs = request.getInstructions();
+    List<Embedding> embeddings = new ArrayList<>(inputs.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      embeddings.add(new Embedding(vector(inputs.get(i)), i));
+    }
+    return new EmbeddingResponse(embeddings);
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    return embed(document.getContent());
+  }
+
+  @Override
+  public int dimensions() {
+    return dimensions;
+  }
+
+  public List<Double> vector(String text) {
+    Random random = new Random(text.hashCode());
+    double[] values = new double[dimensions];
+    double norm = 0;
+    for (int i = 0; i < dimensions; i++) {
+      values[i] = random.nextGaussian();
+      norm += values[i] * values[i];
+    }
+    norm = Math.sqrt(norm);
+    List<Double> vector = new ArrayList<>(dimensions);
+    for (double v : values) {
+      vector.add(v / norm);
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,282 @@
+package carson.dev.tech.trigger.admission;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.StreamingChatClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the chat models, so a burst of requests queues here, within limits, instead of piling
+ * up in the single Ollama instance and slowing every answer down.
+ * <p>
+ * Each model has {@link AdmissionSettings#maxInFlight(String)} generation slots and a bounded wait queue. A request
+ * that finds the queue full, or its client's share of it full, is rejected at once with an
+ * {@link AdmissionRejectedException} whose retry hint is the expected wait, estimated from recent generation times.
+ * Waiting requests are kept per client and a freed slot goes to the clients in turn, so one client sending many
+ * requests does not delay another client's single one behind all of them.
+ * <p>
+ * A slot is held from admission until the generation completes, fails or is cancelled (the client disconnected).
+ */
+@Slf4j
+public class AdmissionControl {
+
+  /** generation time assumed before a model has finished one */
+  private static final long INITIAL_ESTIMATE_MS = 5_000;
+  private static final long MAX_RETRY_AFTER_SECONDS = 300;
+
+  private final AdmissionSettings settings;
+  private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+  public AdmissionControl(AdmissionSettings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * Rejects right away if a generation of {@code model} for {@code client} could not even be queued, so the caller
+   * can answer 429 before starting a response.
+   */
+  public void checkAdmittable(String model, String client) {
+    limiter(model).check(client);
+  }
+
+  /** Runs a blocking generation once a slot is free, waiting on the caller's thread for at most the queue timeout. */
+  public <T> T call(String model, String client, Supplier<T> generation) {
+    Limiter limiter = limiter(model);
+    Waiter waiter = limiter.enqueue(client);
+    Permit permit;
+    try {
+      permit = waiter.future.get(settings.getQueueTimeoutMs(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      limiter.cancel(waiter);
+      throw limiter.timedOut();
+    } catch (InterruptedException e) {
+      limiter.cancel(waiter);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for " + model, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    try {
+      return generation.get();
+    } finally {
+      permit.release();
+    }
+  }
+
+  /**
+   * Subscribes to the generation once a slot is free. Rejects at assembly when the queue is full; a request that waits
+   * longer than the queue timeout fails with an {@link AdmissionRejectedException} too.
+   */
+  public <T> Flux<T> stream(String model, String client, Supplier<Flux<T>> generation) {
+    Limiter limiter = limiter(model);
+    limiter.check(client);
+    return Flux.usingWhen(
+        limiter.acquire(client),
+        // on overflow the generation is cancelled and its slot freed at once; the consumer gets the error after
+        // the chunks still buffered for it
+        permit -> generation.get()
+            .onBackpressureBuffer(settings.getStreamBuffer(), dropped -> permit.release(), BufferOverflowStrategy.ERROR)
+            .onErrorMap(Exceptions::isOverflow, e -> new IllegalStateException(
+                "Consumer of " + model + " fell more than " + settings.getStreamBuffer() + " chunks behind", e)),
+        permit -> Mono.fromRunnable(permit::release));
+  }
+
+  /** {@code delegate} with every {@code stream} call admitted as a generation of {@code model} for {@code client}. */
+  public StreamingChatClient streaming(StreamingChatClient delegate, String model, String client) {
+    return prompt -> stream(model, client, () -> delegate.stream(prompt));
+  }
+
+  /** Generations of {@code model} running now. */
+  public int getInFlight(String model) {
+    return limiter(model).inFlight();
+  }
+
+  /** Generations of {@code model} waiting for a slot. */
+  public int getQueued(String model) {
+    return limiter(model).queued();
+  }
+
+  /** Requests of {@code model} rejected so far, because the queue was full or the wait too long. */
+  public long getRejected(String model) {
+    return limiter(model).rejected.get();
+  }
+
+  private Limiter limiter(String model) {
+    return limiters.computeIfAbsent(model, m -> new Limiter(m, settings.maxInFlight(m)));
+  }
+
+  /** A generation slot; released once, however many paths try. */
+  private static final class Permit {
+    private final Limiter limiter;
+    private final long grantedNanos = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Limiter limiter) {
+      this.limiter = limiter;
+    }
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        limiter.release(System.nanoTime() - grantedNanos);
+      }
+    }
+  }
+
+  private static final class Waiter {
+    private final String client;
+    private final CompletableFuture<Permit> future = new CompletableFuture<>();
+    // guarded by the limiter
+    private Permit permit;
+
+    private Waiter(String client) {
+      this.client = client;
+    }
+  }
+
+  private final class Limiter {
+    private final String model;
+    private final int maxInFlight;
+    /** waiting requests per client; a client is in {@link #turns} as long as it has some */
+    private final Map<String, ArrayDeque<Waiter>> waiting = new HashMap<>();
+    private final ArrayDeque<String> turns = new ArrayDeque<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private int inFlight;
+    private int queued;
+    private volatile double averageMs = INITIAL_ESTIMATE_MS;
+
+    private Limiter(String model, int maxInFlight) {
+      this.model = model;
+      this.maxInFlight = maxInFlight;
+    }
+
+    synchronized int inFlight() {
+      return inFlight;
+    }
+
+    synchronized int queued() {
+      return queued;
+    }
+
+    synchronized void check(String client) {
+      if (inFlight < maxInFlight && queued == 0) {
+        return;
+      }
+      if (queued >= settings.getMaxQueued()) {
+        throw reject("wait queue is full");
+      }
+      ArrayDeque<Waiter> mine = waiting.get(client);
+      if (mine != null && mine.size() >= settings.getMaxQueuedPerClient()) {
+        throw reject("too many requests of this client are waiting");
+      }
+    }
+
+    synchronized Waiter enqueue(String client) {
+      Waiter waiter = new Waiter(client);
+      if (inFlight < maxInFlight && queued == 0) {
+        inFlight++;
+        waiter.permit = new Permit(this);
+        waiter.future.complete(waiter.permit);
+        return waiter;
+      }
+      check(client);
+      ArrayDeque<Waiter> mine = waiting.computeIfAbsent(client, c -> new ArrayDeque<>());
+      if (mine.isEmpty()) {
+        turns.addLast(client);
+      }
+      mine.addLast(waiter);
+      queued++;
+      return waiter;
+    }
+
+    /** Completes with a permit when a slot is free; cancelling it gives up the place in the queue, or the slot. */
+    Mono<Permit> acquire(String client) {
+      Mono<Permit> permit = Mono.create(sink -> {
+        Waiter waiter;
+        try {
+          waiter = enqueue(client);
+        } catch (AdmissionRejectedException e) {
+          sink.error(e);
+          return;
+        }
+        sink.onCancel(() -> cancel(waiter));
+        waiter.future.whenComplete((granted, error) -> sink.success(granted));
+      });
+      return permit.timeout(Duration.ofMillis(settings.getQueueTimeoutMs()), Mono.error(this::timedOut));
+    }
+
+    void cancel(Waiter waiter) {
+      Permit granted;
+      synchronized (this) {
+        granted = waiter.permit;
+        if (granted == null) {
+          ArrayDeque<Waiter> mine = waiting.get(waiter.client);
+          if (mine != null && mine.remove(waiter)) {
+            queued--;
+            if (mine.isEmpty()) {
+              waiting.remove(waiter.client);
+              turns.remove(waiter.client);
+            }
+          }
+        }
+      }
+      // the slot was granted while the request gave up: pass it on
+      if (granted != null) {
+        granted.release();
+      }
+    }
+
+    /** Hands the slot to the next client in turn, or frees it. */
+    void release(long heldNanos) {
+      averageMs = 0.8 * averageMs + 0.2 * (heldNanos / 1e6);
+      Waiter next = null;
+      synchronized (this) {
+        String client = turns.pollFirst();
+        if (client == null) {
+          inFlight--;
+        } else {
+          ArrayDeque<Waiter> theirs = waiting.get(client);
+          next = theirs.pollFirst();
+          queued--;
+          if (theirs.isEmpty()) {
+            waiting.remove(client);
+          } else {
+            turns.addLast(client);
+          }
+          next.permit = new Permit(this);
+        }
+      }
+      // completed outside the lock: the waiter's subscriber starts the generation right here
+      if (next != null) {
+        next.future.complete(next.permit);
+      }
+    }
+
+    AdmissionRejectedException timedOut() {
+      return reject("waited longer than " + settings.getQueueTimeoutMs() + " ms");
+    }
+
+    /** The expected wait: the queue ahead drains {@code maxInFlight} generations at a time. */
+    private AdmissionRejectedException reject(String reason) {
+      rejected.incrementAndGet();
+      long waitMs = (long) (averageMs * (queued + 1) / maxInFlight);
+      long retryAfter = Math.min(MAX_RETRY_AFTER_SECONDS, Math.max(1, (waitMs + 999) / 1000));
+      log.debug("Rejected a generation of {}: {} ({} running, {} waiting)", model, reason, inFlight, queued);
+      return new AdmissionRejectedException(model, reason, retryAfter);
+    }
+  }
+}
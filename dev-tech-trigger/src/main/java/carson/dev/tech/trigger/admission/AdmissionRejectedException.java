@@ -0,0 +1,20 @@
+package carson.dev.tech.trigger.admission;
+
+import lombok.Getter;
+
+/**
+ * A generation was not admitted: the model's wait queue, or the client's share of it, is full, or the request waited
+ * longer than the queue timeout. Answered with 429 and a Retry-After of {@link #getRetryAfterSeconds()}.
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+  private final String model;
+  private final long retryAfterSeconds;
+
+  public AdmissionRejectedException(String model, String reason, long retryAfterSeconds) {
+    super(model + " is busy: " + reason);
+    this.model = model;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -0,0 +1,44 @@
+package carson.dev.tech.trigger.admission;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Limits of the {@link AdmissionControl}, applied per provider-qualified model ({@code ollama:deepseek-r1:1.5b}).
+ * <p>
+ * At most {@code maxInFlight} generations of a model run at once; up to {@code maxQueued} more wait, of which at most
+ * {@code maxQueuedPerClient} from one client, for at most {@code queueTimeoutMs}. Anything beyond is rejected at
+ * once. A streamed answer buffers at most {@code streamBuffer} chunks its consumer has not read yet; a consumer that
+ * falls further behind is cut off, so it neither pins the chunks in memory nor keeps a generation slot.
+ */
+@Value
+@Builder
+public class AdmissionSettings {
+
+  @Builder.Default
+  int maxInFlight = 2;
+  /** limits overriding maxInFlight, keyed by model prefix, e.g. "openai:" or "ollama:deepseek-r1" */
+  @Builder.Default
+  Map<String, Integer> modelMaxInFlight = Map.of();
+  @Builder.Default
+  int maxQueued = 32;
+  @Builder.Default
+  int maxQueuedPerClient = 4;
+  @Builder.Default
+  long queueTimeoutMs = 30_000;
+  @Builder.Default
+  int streamBuffer = 512;
+
+  /** The limit of the longest matching prefix in {@link #modelMaxInFlight}, else {@link #maxInFlight}. */
+  public int maxInFlight(String model) {
+    String best = null;
+    for (String key : modelMaxInFlight.keySet()) {
+      if (model.startsWith(key) && (best == null || key.length() > best.length())) {
+        best = key;
+      }
+    }
+    return Math.max(1, best == null ? maxInFlight : modelMaxInFlight.get(best));
+  }
+}
@@ -0,0 +1,11 @@
+package carson.dev.tech.trigger.cache;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+
+/**
+ * Implemented by every cache bean so /api/v1/rag/cache_stats can list them all.
+ */
+public interface MeteredCache {
+
+  CacheStatsDTO stats();
+}
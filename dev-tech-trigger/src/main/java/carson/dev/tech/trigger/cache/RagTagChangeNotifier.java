@@ -0,0 +1,48 @@
+package carson.dev.tech.trigger.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Tells every cache on every instance that the chunks of a ragTag changed.
+ * Local listeners are called right away; the Redis topic carries the change to the other instances
+ * (and back to this one, which is harmless because invalidation is idempotent).
+ */
+@Slf4j
+public class RagTagChangeNotifier {
+
+  private static final String TOPIC = "ragTagChanged";
+
+  private final RTopic topic;
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+  public RagTagChangeNotifier(RedissonClient redissonClient) {
+    this.topic = redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+    this.topic.addListener(String.class, (channel, ragTag) -> fireLocal(ragTag));
+  }
+
+  public void addListener(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  public void notifyChanged(String ragTag) {
+    fireLocal(ragTag);
+    try {
+      topic.publish(ragTag);
+    } catch (Exception e) {
+      log.warn("Failed to broadcast change of {} → {}", ragTag, e.getMessage());
+    }
+  }
+
+  private void fireLocal(String ragTag) {
+    for (Consumer<String> listener : listeners) {
+      listener.accept(ragTag);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package carson.dev.tech.trigger.cache;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.ai.document.Document;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Caches similarity search results per (ragTag, normalized query, topK), so a repeated question skips both the
+ * query embedding and the pgvector scan before the first token streams.
+ * <p>
+ * Each ragTag has a generation number that is part of the key; a change to the ragTag bumps the generation, which
+ * makes every older entry of that tag unreachable at once (they age out through size/TTL eviction).
+ * Concurrent misses on the same key share one search.
+ */
+public class RetrievalCache implements MeteredCache {
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[?？!！.。\\s]+$");
+
+  private final Cache<String, List<Document>> cache;
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public RetrievalCache(long maxEntries, Duration ttl, RagTagChangeNotifier notifier) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    notifier.addListener(this::invalidate);
+  }
+
+  public List<Document> get(String ragTag, String query, int topK, Supplier<List<Document>> search) {
+    String key = ragTag + '\u0000' + generation(ragTag).get() + '\u0000' + topK + '\u0000' + normalize(query);
+    try {
+      return cache.get(key, search::get);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  public void invalidate(String ragTag) {
+    generation(ragTag).incrementAndGet();
+  }
+
+  @Override
+  public CacheStatsDTO stats() {
+    com.google.common.cache.CacheStats stats = cache.stats();
+    return CacheStatsDTO.builder()
+        .name("retrieval")
+        .localHits(stats.hitCount())
+        .misses(stats.missCount())
+        .size(cache.size())
+        .evictions(stats.evictionCount())
+        .build();
+  }
+
+  /** Case, Unicode form, inner whitespace and a trailing ?/!/. do not change what is retrieved. */
+  public static String normalize(String query) {
+    String text = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    text = WHITESPACE.matcher(text.trim()).replaceAll(" ");
+    return TRAILING_PUNCTUATION.matcher(text).replaceAll("");
+  }
+
+  private AtomicLong generation(String ragTag) {
+    return generations.computeIfAbsent(ragTag, tag -> new AtomicLong());
+  }
+}
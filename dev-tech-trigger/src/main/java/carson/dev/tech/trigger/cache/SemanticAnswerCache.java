@@ -0,0 +1,177 @@
+package carson.dev.tech.trigger.cache;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import carson.dev.tech.trigger.vector.SimilarityKernel;
+import carson.dev.tech.trigger.vector.SimilarityKernels;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.embedding.EmbeddingClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Skips generation when a question is semantically equivalent to one already answered for the same ragTag and model.
+ * <p>
+ * Questions are embedded (the embedding client is itself cached, so the retrieval that follows a miss reuses the
+ * vector) and compared by cosine similarity against earlier questions of the same (ragTag, model). Above the threshold
+ * the stored answer is replayed word by word as a {@code Flux<ChatResponse>}, so clients consume it exactly like a
+ * live stream. Answers are only stored when the stream completes, and only if the ragTag did not change meanwhile.
+ * A disabled cache passes every question straight to generation, without embedding it or keeping its answer.
+ */
+public class SemanticAnswerCache implements MeteredCache {
+
+  private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+
+  private final EmbeddingClient embeddingClient;
+  private final boolean enabled;
+  private final double similarityThreshold;
+  private final long ttlMillis;
+  private final int maxEntriesPerScope;
+  /** ragTag → model → answered questions, newest first */
+  private final Map<String, Map<String, Deque<Entry>>> entries = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private record Entry(float[] vector, String answer, long expiresAt) {
+  }
+
+  public SemanticAnswerCache(EmbeddingClient embeddingClient, boolean enabled, double similarityThreshold, Duration ttl,
+                             int maxEntriesPerScope, RagTagChangeNotifier notifier) {
+    this.embeddingClient = embeddingClient;
+    this.enabled = enabled;
+    this.similarityThreshold = similarityThreshold;
+    this.ttlMillis = ttl.toMillis();
+    this.maxEntriesPerScope = maxEntriesPerScope;
+    notifier.addListener(this::invalidate);
+  }
+
+  /**
+   * Replays a cached answer when one is close enough, otherwise subscribes to {@code generate} and remembers
+   * the answer once it has streamed completely.
+   */
+  public Flux<ChatResponse> getOrGenerate(String ragTag, String model, String question, Supplier<Flux<ChatResponse>> generate) {
+    if (!enabled) {
+      return Flux.defer(generate);
+    }
+    return Flux.defer(() -> {
+      long generation = generation(ragTag).get();
+      float[] vector = normalize(FloatVectorCodec.toFloats(embeddingClient.embed(question)));
+      String answer = lookup(ragTag, model, vector);
+      if (answer != null) {
+        hits.increment();
+        return replay(answer);
+      }
+      misses.increment();
+      StringBuilder streamed = new StringBuilder();
+      return generate.get()
+          .doOnNext(response -> streamed.append(contentOf(response)))
+          .doOnComplete(() -> {
+            if (generation(ragTag).get() == generation && !streamed.isEmpty()) {
+              store(ragTag, model, vector, streamed.toString());
+            }
+          });
+    });
+  }
+
+  public void invalidate(String ragTag) {
+    generation(ragTag).incrementAndGet();
+    entries.remove(ragTag);
+  }
+
+  @Override
+  public CacheStatsDTO stats() {
+    long size = entries.values().stream()
+        .flatMap(models -> models.values().stream())
+        .mapToLong(Deque::size)
+        .sum();
+    return CacheStatsDTO.builder()
+        .name("semantic-answer")
+        .localHits(hits.sum())
+        .misses(misses.sum())
+        .size(size)
+        .build();
+  }
+
+  private String lookup(String ragTag, String model, float[] vector) {
+    Deque<Entry> scope = entries.getOrDefault(ragTag, Map.of()).get(model);
+    if (scope == null) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    Entry best = null;
+    double bestScore = similarityThreshold;
+    synchronized (scope) {
+      Iterator<Entry> it = scope.iterator();
+      while (it.hasNext()) {
+        Entry entry = it.next();
+        if (entry.expiresAt() < now) {
+          it.remove();
+          continue;
+        }
+        double score = dot(vector, entry.vector());
+        if (score >= bestScore) {
+          bestScore = score;
+          best = entry;
+        }
+      }
+    }
+    return best == null ? null : best.answer();
+  }
+
+  private void store(String ragTag, String model, float[] vector, String answer) {
+    Deque<Entry> scope = entries
+        .computeIfAbsent(ragTag, tag -> new ConcurrentHashMap<>())
+        .computeIfAbsent(model, m -> new ArrayDeque<>());
+    synchronized (scope) {
+      scope.addFirst(new Entry(vector, answer, System.currentTimeMillis() + ttlMillis));
+      while (scope.size() > maxEntriesPerScope) {
+        scope.removeLast();
+      }
+    }
+  }
+
+  /** Emits the answer in word-sized pieces, whitespace kept, the way the model would have streamed it. */
+  private static Flux<ChatResponse> replay(String answer) {
+    List<String> pieces = Arrays.asList(answer.split("(?<=\\s)"));
+    return Flux.fromIterable(pieces).map(piece -> new ChatResponse(List.of(new Generation(piece))));
+  }
+
+  private static String contentOf(ChatResponse response) {
+    if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+      return "";
+    }
+    String content = response.getResult().getOutput().getContent();
+    return content == null ? "" : content;
+  }
+
+  private static float[] normalize(float[] vector) {
+    double norm = Math.sqrt(dot(vector, vector));
+    if (norm == 0) return vector;
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] /= (float) norm;
+    }
+    return vector;
+  }
+
+  private static double dot(float[] a, float[] b) {
+    if (a.length != b.length) return -1;
+    return KERNEL.dot(a, b);
+  }
+
+  private AtomicLong generation(String ragTag) {
+    return generations.computeIfAbsent(ragTag, tag -> new AtomicLong());
+  }
+}
@@ -0,0 +1,309 @@
+package carson.dev.tech.trigger.embedding;
+
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Micro-batching in front of the embedding model. Texts from every calling thread, ingestion workers and chat queries
+ * alike, are queued, grouped into batches of up to {@link EmbeddingBatchSettings#getMaxBatchTexts()} texts within a
+ * short window, and sent upstream in one call per batch; each caller blocks until its own vectors are back.
+ * Identical texts queued together are embedded once.
+ * <p>
+ * Texts wait in the lane of {@link EmbeddingLane#current()}. Interactive texts are batched first, with a shorter
+ * window, and bulk batches never take the last upstream slot, so a query is not stuck behind a backlog of ingestion
+ * batches. Sits under the {@link CachingEmbeddingClient}, so only cache misses are queued.
+ */
+@Slf4j
+public class BatchingEmbeddingClient implements EmbeddingClient, AutoCloseable {
+
+  private final EmbeddingClient delegate;
+  private final EmbeddingBatchSettings settings;
+  private final Map<EmbeddingLane, ArrayDeque<Slot>> queues = new EnumMap<>(EmbeddingLane.class);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final ExecutorService upstream;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder texts = new LongAdder();
+  // guarded by lock
+  private int running;
+  private boolean closed;
+
+  public BatchingEmbeddingClient(EmbeddingClient delegate, EmbeddingBatchSettings settings) {
+    this.delegate = delegate;
+    this.settings = settings;
+    for (EmbeddingLane lane : EmbeddingLane.values()) {
+      queues.put(lane, new ArrayDeque<>());
+    }
+    AtomicInteger seq = new AtomicInteger();
+    this.upstream = Executors.newFixedThreadPool(Math.max(1, settings.getMaxConcurrentBatches()), r -> {
+      Thread t = new Thread(r, "embedding-batch-" + seq.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    Thread dispatcher = new Thread(this::dispatch, "embedding-dispatcher");
+    dispatcher.setDaemon(true);
+    dispatcher.start();
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<List<Double>> vectors = embed(request.getInstructions());
+    List<Embedding> embeddings = new ArrayList<>(vectors.size());
+    for (int i = 0; i < vectors.size(); i++) {
+      embeddings.add(new Embedding(vectors.get(i), i));
+    }
+    return new EmbeddingResponse(embeddings);
+  }
+
+  @Override
+  public List<Double> embed(String text) {
+    return embed(List.of(text)).get(0);
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    return embed(document.getContent());
+  }
+
+  @Override
+  public List<List<Double>> embed(List<String> texts) {
+    return submit(texts, EmbeddingLane.current());
+  }
+
+  @Override
+  public EmbeddingResponse embedForResponse(List<String> texts) {
+    return call(new EmbeddingRequest(texts, EmbeddingOptions.EMPTY));
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+
+  /** Embedding requests received, however many texts each. */
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  /** Batches sent upstream. */
+  public long getBatches() {
+    return batches.sum();
+  }
+
+  /** Texts sent upstream, after identical ones were merged. */
+  public long getTexts() {
+    return texts.sum();
+  }
+
+  /** Fails whatever is still queued and stops accepting requests. */
+  @Override
+  public void close() {
+    List<Slot> abandoned = new ArrayList<>();
+    lock.lock();
+    try {
+      closed = true;
+      queues.values().forEach(queue -> {
+        abandoned.addAll(queue);
+        queue.clear();
+      });
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    IllegalStateException error = new IllegalStateException("Embedding dispatcher is closed");
+    abandoned.forEach(slot -> slot.request().future.completeExceptionally(error));
+    upstream.shutdown();
+  }
+
+  private List<List<Double>> submit(List<String> inputs, EmbeddingLane lane) {
+    if (inputs.isEmpty()) {
+      return List.of();
+    }
+    Request request = new Request(inputs.size());
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Embedding dispatcher is closed");
+      }
+      ArrayDeque<Slot> queue = queues.get(lane);
+      long now = System.nanoTime();
+      for (int i = 0; i < inputs.size(); i++) {
+        String text = inputs.get(i);
+        queue.addLast(new Slot(request, i, text, TokenCounter.count(text), now));
+      }
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    requests.increment();
+    try {
+      return request.future.get();
+    } catch (InterruptedException e) {
+      // the texts still queued are skipped when their batch is formed
+      request.future.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for embeddings", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Embedding failed: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /** Forms batches and hands them to the upstream workers; the only thread that takes from the queues. */
+  private void dispatch() {
+    lock.lock();
+    try {
+      while (!closed) {
+        ArrayDeque<Slot> interactive = queues.get(EmbeddingLane.INTERACTIVE);
+        dropCancelled(interactive);
+        dropCancelled(queues.get(EmbeddingLane.BULK));
+        // bulk texts are batched only while no query waits
+        EmbeddingLane lane = !interactive.isEmpty() ? EmbeddingLane.INTERACTIVE
+            : !queues.get(EmbeddingLane.BULK).isEmpty() ? EmbeddingLane.BULK : null;
+        if (lane == null || running >= limit(lane)) {
+          changed.await();
+          continue;
+        }
+        ArrayDeque<Slot> queue = queues.get(lane);
+        if (!full(queue)) {
+          long windowNanos = (lane == EmbeddingLane.INTERACTIVE ? settings.getInteractiveWindowMs() : settings.getWindowMs()) * 1_000_000;
+          long remaining = queue.peekFirst().queuedNanos() + windowNanos - System.nanoTime();
+          if (remaining > 0) {
+            changed.awaitNanos(remaining);
+            continue;
+          }
+        }
+        List<Slot> batch = take(queue);
+        if (!batch.isEmpty()) {
+          running++;
+          upstream.execute(() -> send(batch));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Batches of {@code lane} allowed upstream at once: bulk leaves the last slot to queries. */
+  private int limit(EmbeddingLane lane) {
+    int max = Math.max(1, settings.getMaxConcurrentBatches());
+    return lane == EmbeddingLane.BULK && max > 1 ? max - 1 : max;
+  }
+
+  /** Whether the head of {@code queue} already fills a batch, so there is nothing to wait for. */
+  private boolean full(ArrayDeque<Slot> queue) {
+    int count = 0;
+    int tokens = 0;
+    for (Slot slot : queue) {
+      if (count == settings.getMaxBatchTexts() || (count > 0 && tokens + slot.tokens() > settings.getMaxBatchTokens())) {
+        return true;
+      }
+      count++;
+      tokens += slot.tokens();
+    }
+    return count >= settings.getMaxBatchTexts();
+  }
+
+  private List<Slot> take(ArrayDeque<Slot> queue) {
+    List<Slot> batch = new ArrayList<>();
+    int tokens = 0;
+    while (!queue.isEmpty() && batch.size() < settings.getMaxBatchTexts()) {
+      Slot slot = queue.peekFirst();
+      if (slot.request().future.isDone()) {
+        queue.pollFirst();
+        continue;
+      }
+      // a text longer than the token budget goes alone
+      if (!batch.isEmpty() && tokens + slot.tokens() > settings.getMaxBatchTokens()) {
+        break;
+      }
+      batch.add(queue.pollFirst());
+      tokens += slot.tokens();
+    }
+    return batch;
+  }
+
+  private static void dropCancelled(ArrayDeque<Slot> queue) {
+    while (!queue.isEmpty() && queue.peekFirst().request().future.isDone()) {
+      queue.pollFirst();
+    }
+  }
+
+  private void send(List<Slot> batch) {
+    try {
+      // identical texts queued together are embedded once
+      Map<String, Integer> distinct = new LinkedHashMap<>();
+      for (Slot slot : batch) {
+        distinct.putIfAbsent(slot.text(), distinct.size());
+      }
+      List<List<Double>> vectors = delegate.embed(new ArrayList<>(distinct.keySet()));
+      if (vectors.size() != distinct.size()) {
+        throw new IllegalStateException("Expected " + distinct.size() + " embeddings, got " + vectors.size());
+      }
+      batches.increment();
+      texts.add(distinct.size());
+      for (Slot slot : batch) {
+        slot.request().fill(slot.index(), vectors.get(distinct.get(slot.text())));
+      }
+    } catch (Throwable e) {
+      log.warn("Embedding batch of {} texts failed → {}", batch.size(), e.getMessage());
+      for (Slot slot : batch) {
+        slot.request().future.completeExceptionally(e);
+      }
+    } finally {
+      lock.lock();
+      try {
+        running--;
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /** One caller's texts; complete once every text has its vector, whichever batches they went in. */
+  private static final class Request {
+    private final List<List<Double>> vectors;
+    private final AtomicInteger remaining;
+    private final CompletableFuture<List<List<Double>>> future = new CompletableFuture<>();
+
+    private Request(int size) {
+      this.vectors = new ArrayList<>(Collections.nCopies(size, null));
+      this.remaining = new AtomicInteger(size);
+    }
+
+    void fill(int index, List<Double> vector) {
+      vectors.set(index, vector);
+      if (remaining.decrementAndGet() == 0) {
+        future.complete(Collections.unmodifiableList(vectors));
+      }
+    }
+  }
+
+  private record Slot(Request request, int index, String text, int tokens, long queuedNanos) {
+  }
+}
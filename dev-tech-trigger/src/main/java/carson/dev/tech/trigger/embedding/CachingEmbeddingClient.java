@@ -0,0 +1,203 @@
+package carson.dev.tech.trigger.embedding;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.trigger.cache.MeteredCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Content-addressed embedding cache in front of the real EmbeddingClient, keyed by (model, SHA-256 of the text).
+ * <p>
+ * Lookups go local tier (Guava, bounded by bytes) → Redis tier (float32 bytes via {@link ByteArrayCodec}, not the
+ * default JsonJacksonCodec) → upstream. Only the texts missing from both tiers are sent upstream, in one call and
+ * de-duplicated, so re-ingesting an unchanged repository or repeating a query costs no embedding calls.
+ * Redis failures degrade to local-only instead of failing the embedding.
+ */
+@Slf4j
+public class CachingEmbeddingClient implements EmbeddingClient, MeteredCache {
+
+  private static final String KEY_PREFIX = "embedding:";
+
+  private final EmbeddingClient delegate;
+  private final String model;
+  private final RedissonClient redissonClient;
+  private final Duration ttl;
+  private final Cache<String, float[]> local;
+  private final LongAdder localHits = new LongAdder();
+  private final LongAdder remoteHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param redissonClient shared tier, or {@code null} for an in-process cache only
+   * @param localMaxBytes  upper bound of vector bytes held in the in-process tier
+   */
+  public CachingEmbeddingClient(EmbeddingClient delegate, String model, RedissonClient redissonClient, long localMaxBytes, Duration ttl) {
+    this.delegate = delegate;
+    this.model = model;
+    this.redissonClient = redissonClient;
+    this.ttl = ttl;
+    this.local = CacheBuilder.newBuilder()
+        .maximumWeight(localMaxBytes)
+        .weigher((String key, float[] vector) -> key.length() + vector.length * Float.BYTES)
+        .recordStats()
+        .build();
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<float[]> vectors = resolve(request.getInstructions());
+    List<Embedding> embeddings = new ArrayList<>(vectors.size());
+    for (int i = 0; i < vectors.size(); i++) {
+      embeddings.add(new Embedding(FloatVectorCodec.toDoubles(vectors.get(i)), i));
+    }
+    return new EmbeddingResponse(embeddings);
+  }
+
+  @Override
+  public List<Double> embed(String text) {
+    return FloatVectorCodec.toDoubles(resolve(List.of(text)).get(0));
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    return embed(document.getContent());
+  }
+
+  @Override
+  public List<List<Double>> embed(List<String> texts) {
+    return resolve(texts).stream().map(FloatVectorCodec::toDoubles).toList();
+  }
+
+  @Override
+  public EmbeddingResponse embedForResponse(List<String> texts) {
+    return call(new EmbeddingRequest(texts, EmbeddingOptions.EMPTY));
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+
+  @Override
+  public CacheStatsDTO stats() {
+    return CacheStatsDTO.builder()
+        .name("embedding")
+        .localHits(localHits.sum())
+        .remoteHits(remoteHits.sum())
+        .misses(misses.sum())
+        .size(local.size())
+        .evictions(local.stats().evictionCount())
+        .build();
+  }
+
+  private List<float[]> resolve(List<String> texts) {
+    int n = texts.size();
+    String[] keys = new String[n];
+    float[][] vectors = new float[n][];
+    List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      keys[i] = key(texts.get(i));
+      vectors[i] = local.getIfPresent(keys[i]);
+      if (vectors[i] != null) {
+        localHits.increment();
+      } else {
+        pending.add(i);
+      }
+    }
+
+    if (!pending.isEmpty() && redissonClient != null) {
+      pending = lookupRemote(keys, vectors, pending);
+    }
+
+    if (!pending.isEmpty()) {
+      // identical texts inside one request are embedded once
+      Map<String, String> missing = new LinkedHashMap<>();
+      for (int i : pending) {
+        missing.putIfAbsent(keys[i], texts.get(i));
+      }
+      misses.add(missing.size());
+      List<List<Double>> embedded = delegate.embed(new ArrayList<>(missing.values()));
+      Map<String, float[]> fresh = new LinkedHashMap<>();
+      int j = 0;
+      for (String key : missing.keySet()) {
+        float[] vector = FloatVectorCodec.toFloats(embedded.get(j++));
+        fresh.put(key, vector);
+        local.put(key, vector);
+      }
+      for (int i : pending) {
+        vectors[i] = fresh.get(keys[i]);
+      }
+      storeRemote(fresh);
+    }
+    return List.of(vectors);
+  }
+
+  private List<Integer> lookupRemote(String[] keys, float[][] vectors, List<Integer> pending) {
+    try {
+      String[] pendingKeys = pending.stream().map(i -> keys[i]).distinct().toArray(String[]::new);
+      Map<String, byte[]> found = redissonClient.getBuckets(ByteArrayCodec.INSTANCE).get(pendingKeys);
+      if (found.isEmpty()) {
+        return pending;
+      }
+      List<Integer> stillPending = new ArrayList<>();
+      for (int i : pending) {
+        byte[] bytes = found.get(keys[i]);
+        if (bytes == null) {
+          stillPending.add(i);
+          continue;
+        }
+        vectors[i] = FloatVectorCodec.decode(bytes);
+        local.put(keys[i], vectors[i]);
+        remoteHits.increment();
+      }
+      return stillPending;
+    } catch (Exception e) {
+      log.warn("Embedding cache lookup in Redis failed → {}", e.getMessage());
+      return pending;
+    }
+  }
+
+  private void storeRemote(Map<String, float[]> fresh) {
+    if (redissonClient == null || fresh.isEmpty()) {
+      return;
+    }
+    try {
+      RBatch batch = redissonClient.createBatch();
+      fresh.forEach((key, vector) -> batch.getBucket(key, ByteArrayCodec.INSTANCE).setAsync(FloatVectorCodec.encode(vector), ttl));
+      batch.executeAsync();
+    } catch (Exception e) {
+      log.warn("Embedding cache write to Redis failed → {}", e.getMessage());
+    }
+  }
+
+  private String key(String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+      return KEY_PREFIX + model + ":" + HexFormat.of().formatHex(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package carson.dev.tech.trigger.embedding;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Limits of the {@link BatchingEmbeddingClient}.
+ * <p>
+ * A batch holds at most {@code maxBatchTexts} texts and {@code maxBatchTokens} tokens (a longer text goes alone). It
+ * is sent when full, or once its oldest text has waited {@code windowMs}, {@code interactiveWindowMs} for queries.
+ * At most {@code maxConcurrentBatches} are upstream at once, and while more than one is allowed the last slot is kept
+ * for interactive batches.
+ */
+@Value
+@Builder
+public class EmbeddingBatchSettings {
+
+  @Builder.Default
+  int maxBatchTexts = 64;
+  @Builder.Default
+  int maxBatchTokens = 8192;
+  @Builder.Default
+  long windowMs = 10;
+  @Builder.Default
+  long interactiveWindowMs = 2;
+  @Builder.Default
+  int maxConcurrentBatches = 2;
+}
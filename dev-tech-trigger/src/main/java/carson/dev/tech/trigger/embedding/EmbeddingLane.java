@@ -0,0 +1,33 @@
+package carson.dev.tech.trigger.embedding;
+
+import java.util.function.Supplier;
+
+/**
+ * Which queue of the {@link BatchingEmbeddingClient} an embedding request waits in. Requests are interactive unless
+ * the calling thread runs them through {@link #run(Supplier)} of another lane.
+ */
+public enum EmbeddingLane {
+
+  /** someone is waiting for the answer: chat queries, semantic cache lookups */
+  INTERACTIVE,
+  /** throughput matters more than latency: ingestion */
+  BULK;
+
+  private static final ThreadLocal<EmbeddingLane> CURRENT = ThreadLocal.withInitial(() -> INTERACTIVE);
+
+  /** The lane of embedding requests made on this thread now. */
+  public static EmbeddingLane current() {
+    return CURRENT.get();
+  }
+
+  /** Runs {@code work} with the embedding requests it makes on this thread sent through this lane. */
+  public <T> T run(Supplier<T> work) {
+    EmbeddingLane previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return work.get();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+}
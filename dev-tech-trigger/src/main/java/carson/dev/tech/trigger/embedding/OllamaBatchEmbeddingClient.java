@@ -0,0 +1,84 @@
+package carson.dev.tech.trigger.embedding;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ollama embeddings through {@code POST /api/embed}, which takes a list of inputs. The OllamaEmbeddingClient of
+ * Spring AI 0.8.1 still uses {@code /api/embeddings}, one text per request, so a batch of 64 chunks cost 64 round
+ * trips; here it is one, and {@code num_batch} decides how many tokens the model evaluates at once.
+ */
+public class OllamaBatchEmbeddingClient implements EmbeddingClient {
+
+  private final RestClient restClient;
+  private final String model;
+  private final Map<String, Object> options;
+
+  public OllamaBatchEmbeddingClient(String baseUrl, String model, int numBatch) {
+    this.restClient = RestClient.builder().baseUrl(baseUrl).build();
+    this.model = model;
+    this.options = numBatch > 0 ? Map.of("num_batch", numBatch) : Map.of();
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<String> inputs = request.getInstructions();
+    EmbedResponse response = restClient.post()
+        .uri("/api/embed")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(new EmbedRequest(model, inputs, options))
+        .retrieve()
+        .body(EmbedResponse.class);
+    if (response == null || response.embeddings() == null || response.embeddings().size() != inputs.size()) {
+      throw new IllegalStateException("Ollama returned no embedding for some of " + inputs.size() + " inputs of " + model);
+    }
+    List<Embedding> embeddings = new ArrayList<>(inputs.size());
+    for (int i = 0; i < inputs.size(); i++) {
+      embeddings.add(new Embedding(response.embeddings().get(i), i));
+    }
+    return new EmbeddingResponse(embeddings);
+  }
+
+  @Override
+  public List<Double> embed(String text) {
+    return embed(List.of(text)).get(0);
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    return embed(document.getContent());
+  }
+
+  @Override
+  public List<List<Double>> embed(List<String> texts) {
+    if (texts.isEmpty()) {
+      return List.of();
+    }
+    return call(new EmbeddingRequest(texts, EmbeddingOptions.EMPTY)).getResults().stream()
+        .map(Embedding::getOutput)
+        .toList();
+  }
+
+  @Override
+  public EmbeddingResponse embedForResponse(List<String> texts) {
+    return call(new EmbeddingRequest(texts, EmbeddingOptions.EMPTY));
+  }
+
+  record EmbedRequest(String model, List<String> input, Map<String, Object> options) {
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record EmbedResponse(List<List<Double>> embeddings) {
+  }
+}
@@ -0,0 +1,55 @@
+package carson.dev.tech.trigger.embedding;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * PgVectorStore.add() calls {@code embed(document)} for every row it inserts. When the ingestion pipeline has already
+ * embedded the document in a batch, this decorator hands that vector back instead of paying for a second round trip.
+ */
+public class PrecomputedEmbeddingClient implements EmbeddingClient {
+
+  private final EmbeddingClient delegate;
+
+  public PrecomputedEmbeddingClient(EmbeddingClient delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    return delegate.call(request);
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    List<Double> embedding = document.getEmbedding();
+    if (embedding != null && !embedding.isEmpty()) {
+      return embedding;
+    }
+    return delegate.embed(document);
+  }
+
+  @Override
+  public List<Double> embed(String text) {
+    return delegate.embed(text);
+  }
+
+  @Override
+  public List<List<Double>> embed(List<String> texts) {
+    return delegate.embed(texts);
+  }
+
+  @Override
+  public EmbeddingResponse embedForResponse(List<String> texts) {
+    return delegate.embedForResponse(texts);
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+}
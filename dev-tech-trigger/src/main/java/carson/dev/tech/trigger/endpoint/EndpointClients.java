@@ -0,0 +1,19 @@
+package carson.dev.tech.trigger.endpoint;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.embedding.EmbeddingClient;
+
+/**
+ * The clients of one endpoint of an {@link EndpointPool}, all talking to the same base URL.
+ */
+@Value
+@Builder
+public class EndpointClients {
+
+  ChatClient chatClient;
+  StreamingChatClient streamingChatClient;
+  EmbeddingClient embeddingClient;
+}
@@ -0,0 +1,19 @@
+package carson.dev.tech.trigger.endpoint;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * What a passing health check found on an endpoint: the models it can serve and those already loaded in memory.
+ */
+@Value
+@Builder
+public class EndpointHealth {
+
+  @Builder.Default
+  Set<String> availableModels = Set.of();
+  @Builder.Default
+  Set<String> loadedModels = Set.of();
+}
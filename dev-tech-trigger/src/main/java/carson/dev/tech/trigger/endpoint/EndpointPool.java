@@ -0,0 +1,360 @@
+package carson.dev.tech.trigger.endpoint;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Several servers of one kind (Ollama boxes, OpenAI-compatible gateways) behind one client, routed per request as
+ * {@link EndpointPoolSettings} describes.
+ * <p>
+ * A request is pinned to the endpoints that have its model loaded, as the last health check saw them, so a model is
+ * not loaded on every box in turn; once all of those are busy it spills over to the endpoints that have the model
+ * at all. A failed request is retried on another endpoint; a stream only until its first element, since a partial
+ * answer cannot be taken back. Answers that say the request itself was wrong (4xx) neither retry nor count against
+ * the endpoint. When every endpoint is ejected the ejected ones are tried anyway rather than failing outright.
+ */
+@Slf4j
+public class EndpointPool implements AutoCloseable {
+
+  /** OllamaApi reports HTTP errors of blocking calls as a RuntimeException whose message starts with "[status]". */
+  private static final Pattern CLIENT_ERROR_MESSAGE = Pattern.compile("^\\[4(?!29)\\d\\d]");
+  private static final double EWMA_WEIGHT = 0.2;
+
+  private final String name;
+  private final List<Endpoint> endpoints = new ArrayList<>();
+  private final EndpointProbe probe;
+  private final EndpointPoolSettings settings;
+  private final ScheduledExecutorService healthChecks;
+
+  /**
+   * @param clients clients per base URL
+   * @param probe   health check, or {@code null} to eject and recover on request outcomes alone
+   */
+  public EndpointPool(String name, Map<String, EndpointClients> clients, EndpointProbe probe, EndpointPoolSettings settings) {
+    if (clients.isEmpty()) {
+      throw new IllegalArgumentException("No endpoints for " + name);
+    }
+    this.name = name;
+    this.probe = probe;
+    this.settings = settings;
+    clients.forEach((baseUrl, endpointClients) -> endpoints.add(new Endpoint(baseUrl, endpointClients)));
+    if (probe != null && settings.getHealthCheckIntervalMs() > 0) {
+      healthChecks = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "endpoint-health-" + name);
+        t.setDaemon(true);
+        return t;
+      });
+      healthChecks.scheduleWithFixedDelay(this::checkHealth, 0, settings.getHealthCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    } else {
+      healthChecks = null;
+    }
+  }
+
+  /** Runs {@code request} on an endpoint for {@code model} ({@code null} when any will do), failing over if it fails. */
+  public <T> T call(String model, Function<EndpointClients, T> request) {
+    Set<Endpoint> tried = new HashSet<>();
+    while (true) {
+      Endpoint endpoint = choose(model, tried);
+      tried.add(endpoint);
+      Lease lease = endpoint.lease();
+      try {
+        T result = request.apply(endpoint.clients);
+        lease.succeeded();
+        return result;
+      } catch (RuntimeException e) {
+        lease.failed(e);
+        if (!isEndpointFailure(e) || tried.size() >= attempts()) {
+          throw e;
+        }
+        log.warn("{} request for {} failed on {}, trying another endpoint → {}", name, model, endpoint.baseUrl, e.getMessage());
+      }
+    }
+  }
+
+  /** Subscribes to {@code request} on an endpoint for {@code model}, failing over while nothing has been emitted yet. */
+  public <T> Flux<T> stream(String model, Function<EndpointClients, Flux<T>> request) {
+    return Flux.defer(() -> stream(model, request, new HashSet<>()));
+  }
+
+  private <T> Flux<T> stream(String model, Function<EndpointClients, Flux<T>> request, Set<Endpoint> tried) {
+    return Flux.defer(() -> {
+      Endpoint endpoint = choose(model, tried);
+      tried.add(endpoint);
+      Lease lease = endpoint.lease();
+      return request.apply(endpoint.clients)
+          .doOnNext(element -> lease.responded())
+          .doOnComplete(lease::succeeded)
+          .doOnError(lease::failed)
+          .doFinally(signal -> lease.released())
+          .onErrorResume(e -> !lease.hasResponded() && isEndpointFailure(e) && tried.size() < attempts(), e -> {
+            log.warn("{} stream for {} failed on {}, trying another endpoint → {}", name, model, endpoint.baseUrl, e.getMessage());
+            return stream(model, request, tried);
+          });
+    });
+  }
+
+  /** Probes every endpoint now; runs every {@code healthCheckIntervalMs} on its own as well. */
+  public void checkHealth() {
+    if (probe == null) {
+      return;
+    }
+    for (Endpoint endpoint : endpoints) {
+      try {
+        endpoint.probed(probe.probe(endpoint.baseUrl));
+      } catch (Exception e) {
+        endpoint.probeFailed(e);
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<Endpoint> getEndpoints() {
+    return List.copyOf(endpoints);
+  }
+
+  @Override
+  public void close() {
+    if (healthChecks != null) {
+      healthChecks.shutdownNow();
+    }
+  }
+
+  private int attempts() {
+    return Math.max(1, Math.min(settings.getMaxAttempts(), endpoints.size()));
+  }
+
+  private Endpoint choose(String model, Set<Endpoint> tried) {
+    long now = System.currentTimeMillis();
+    List<Endpoint> eligible = endpoints.stream().filter(e -> !tried.contains(e) && e.isAvailable(now)).toList();
+    if (eligible.isEmpty()) {
+      // better a request that may fail than none at all
+      eligible = endpoints.stream().filter(e -> !tried.contains(e)).toList();
+      if (eligible.isEmpty()) {
+        eligible = endpoints;
+      }
+    }
+    return pick(pinned(model, eligible));
+  }
+
+  /** The endpoints with {@code model} loaded, widened to those that have it once every loaded one is busy. */
+  private List<Endpoint> pinned(String model, List<Endpoint> eligible) {
+    if (model == null) {
+      return eligible;
+    }
+    List<Endpoint> loaded = eligible.stream().filter(e -> e.loadedModels.contains(model)).toList();
+    if (loaded.stream().anyMatch(e -> e.outstanding.get() < settings.getPinSpillOutstanding())) {
+      return loaded;
+    }
+    List<Endpoint> available = eligible.stream()
+        .filter(e -> e.availableModels.contains(model) || e.loadedModels.contains(model))
+        .toList();
+    // no endpoint reports the model: let one of them answer for it
+    return available.isEmpty() ? eligible : available;
+  }
+
+  private Endpoint pick(List<Endpoint> candidates) {
+    Endpoint best = null;
+    double bestScore = Double.MAX_VALUE;
+    int ties = 0;
+    for (Endpoint endpoint : candidates) {
+      int outstanding = endpoint.outstanding.get();
+      double score = settings.getRouting() == EndpointPoolSettings.Routing.EWMA_LATENCY
+          ? endpoint.latencyMs * (outstanding + 1)
+          : outstanding;
+      if (best == null || score < bestScore) {
+        best = endpoint;
+        bestScore = score;
+        ties = 1;
+      } else if (score == bestScore && ThreadLocalRandom.current().nextInt(++ties) == 0) {
+        // equal endpoints share the load instead of the first one taking it all
+        best = endpoint;
+      }
+    }
+    return best;
+  }
+
+  private static boolean isEndpointFailure(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof RestClientResponseException e) {
+        return !e.getStatusCode().is4xxClientError() || e.getStatusCode().value() == 429;
+      }
+      if (t instanceof WebClientResponseException e) {
+        return !e.getStatusCode().is4xxClientError() || e.getStatusCode().value() == 429;
+      }
+      if (t.getMessage() != null && CLIENT_ERROR_MESSAGE.matcher(t.getMessage()).find()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** One server of the pool, with what routing and ejection know about it. */
+  public final class Endpoint {
+    private final String baseUrl;
+    private final EndpointClients clients;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile double latencyMs;
+    private volatile Set<String> availableModels = Set.of();
+    private volatile Set<String> loadedModels = Set.of();
+    // guarded by this
+    private int consecutiveFailures;
+    private int ejections;
+    private long ejectedUntil;
+
+    private Endpoint(String baseUrl, EndpointClients clients) {
+      this.baseUrl = baseUrl;
+      this.clients = clients;
+    }
+
+    public String getBaseUrl() {
+      return baseUrl;
+    }
+
+    /** Requests in flight on this endpoint. */
+    public int getOutstanding() {
+      return outstanding.get();
+    }
+
+    /** Moving average of the time to the first response, in milliseconds; 0 before the first one. */
+    public double getLatencyMs() {
+      return latencyMs;
+    }
+
+    public Set<String> getLoadedModels() {
+      return loadedModels;
+    }
+
+    public synchronized boolean isEjected() {
+      return ejectedUntil != 0;
+    }
+
+    private Lease lease() {
+      outstanding.incrementAndGet();
+      return new Lease(this);
+    }
+
+    private synchronized boolean isAvailable(long now) {
+      if (ejectedUntil == 0) {
+        return true;
+      }
+      if (probe != null || now < ejectedUntil) {
+        return false;
+      }
+      // without health checks the next request is the check: one more failure ejects it again
+      recover("ejection elapsed");
+      return true;
+    }
+
+    private void responded(long nanos) {
+      double ms = nanos / 1e6;
+      latencyMs = latencyMs == 0 ? ms : (1 - EWMA_WEIGHT) * latencyMs + EWMA_WEIGHT * ms;
+    }
+
+    private synchronized void succeeded() {
+      consecutiveFailures = 0;
+      ejections = 0;
+    }
+
+    private synchronized void failed(Throwable error) {
+      consecutiveFailures++;
+      if (ejectedUntil == 0 && consecutiveFailures >= settings.getEjectAfterFailures()) {
+        eject(consecutiveFailures + " failed requests in a row, the last → " + error.getMessage());
+      }
+    }
+
+    private void probed(EndpointHealth health) {
+      availableModels = health.getAvailableModels();
+      loadedModels = health.getLoadedModels();
+      synchronized (this) {
+        if (ejectedUntil != 0 && System.currentTimeMillis() >= ejectedUntil) {
+          recover("health check passed");
+        }
+      }
+    }
+
+    private synchronized void probeFailed(Exception error) {
+      if (ejectedUntil == 0 || System.currentTimeMillis() >= ejectedUntil) {
+        eject("health check failed → " + error.getMessage());
+      }
+    }
+
+    private void eject(String reason) {
+      ejections++;
+      long ms = Math.min(settings.getMaxEjectionMs(), settings.getEjectionMs() << Math.min(ejections - 1, 20));
+      ejectedUntil = System.currentTimeMillis() + ms;
+      log.warn("{} endpoint {} ejected for {} ms: {}", name, baseUrl, ms, reason);
+    }
+
+    private void recover(String reason) {
+      ejectedUntil = 0;
+      consecutiveFailures = Math.max(0, settings.getEjectAfterFailures() - 1);
+      log.info("{} endpoint {} takes traffic again: {}", name, baseUrl, reason);
+    }
+  }
+
+  /** One request on an endpoint; whichever way it ends, it is counted once. */
+  private static final class Lease {
+    private final Endpoint endpoint;
+    private final long startNanos = System.nanoTime();
+    private final AtomicBoolean responded = new AtomicBoolean();
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private Lease(Endpoint endpoint) {
+      this.endpoint = endpoint;
+    }
+
+    boolean hasResponded() {
+      return responded.get();
+    }
+
+    void responded() {
+      if (responded.compareAndSet(false, true)) {
+        endpoint.responded(System.nanoTime() - startNanos);
+      }
+    }
+
+    void succeeded() {
+      responded();
+      if (end()) {
+        endpoint.succeeded();
+      }
+    }
+
+    void failed(Throwable error) {
+      if (end() && isEndpointFailure(error)) {
+        endpoint.failed(error);
+      }
+    }
+
+    void released() {
+      end();
+    }
+
+    private boolean end() {
+      if (ended.compareAndSet(false, true)) {
+        endpoint.outstanding.decrementAndGet();
+        return true;
+      }
+      return false;
+    }
+  }
+}
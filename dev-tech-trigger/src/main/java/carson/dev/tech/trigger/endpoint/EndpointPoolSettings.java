@@ -0,0 +1,37 @@
+package carson.dev.tech.trigger.endpoint;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Routing and ejection of an {@link EndpointPool}.
+ * <p>
+ * A request goes to the endpoint with the fewest requests in flight ({@code LEAST_OUTSTANDING}), or with the lowest
+ * recent response time weighted by its requests in flight ({@code EWMA_LATENCY}), among those that have the model
+ * loaded, until each of them has {@code pinSpillOutstanding} requests in flight. It is tried on up to
+ * {@code maxAttempts} endpoints. {@code ejectAfterFailures} failures in a row, or a failed health check, eject an
+ * endpoint for {@code ejectionMs}, doubling up to {@code maxEjectionMs} while it keeps failing; it takes traffic
+ * again after the next health check that passes once that time is up.
+ */
+@Value
+@Builder
+public class EndpointPoolSettings {
+
+  public enum Routing { LEAST_OUTSTANDING, EWMA_LATENCY }
+
+  @Builder.Default
+  Routing routing = Routing.LEAST_OUTSTANDING;
+  /** 0 turns the scheduled checks off; {@link EndpointPool#checkHealth()} still works. */
+  @Builder.Default
+  long healthCheckIntervalMs = 5_000;
+  @Builder.Default
+  int ejectAfterFailures = 3;
+  @Builder.Default
+  long ejectionMs = 10_000;
+  @Builder.Default
+  long maxEjectionMs = 300_000;
+  @Builder.Default
+  int maxAttempts = 2;
+  @Builder.Default
+  int pinSpillOutstanding = 4;
+}
@@ -0,0 +1,11 @@
+package carson.dev.tech.trigger.endpoint;
+
+/**
+ * Health check of one endpoint of an {@link EndpointPool}.
+ */
+@FunctionalInterface
+public interface EndpointProbe {
+
+  /** Throws when the endpoint is unreachable or unhealthy. */
+  EndpointHealth probe(String baseUrl) throws Exception;
+}
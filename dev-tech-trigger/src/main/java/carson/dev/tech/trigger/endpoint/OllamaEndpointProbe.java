@@ -0,0 +1,66 @@
+package carson.dev.tech.trigger.endpoint;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Health check of an Ollama server: {@code /api/tags} lists the models it has pulled, {@code /api/ps} those loaded in
+ * memory. Servers older than {@code /api/ps} are taken as having nothing loaded.
+ */
+public class OllamaEndpointProbe implements EndpointProbe {
+
+  private static final String LATEST = ":latest";
+
+  private final RestClient restClient;
+
+  public OllamaEndpointProbe(int timeoutMs) {
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(timeoutMs);
+    requestFactory.setReadTimeout(timeoutMs);
+    this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+  }
+
+  @Override
+  public EndpointHealth probe(String baseUrl) {
+    Set<String> available = names(restClient.get().uri(baseUrl + "/api/tags").retrieve().body(Models.class));
+    Set<String> loaded;
+    try {
+      loaded = names(restClient.get().uri(baseUrl + "/api/ps").retrieve().body(Models.class));
+    } catch (RestClientResponseException e) {
+      if (e.getStatusCode().value() != 404) {
+        throw e;
+      }
+      loaded = Set.of();
+    }
+    return EndpointHealth.builder().availableModels(available).loadedModels(loaded).build();
+  }
+
+  /** Model names as they are asked for: "llama3:latest" is also "llama3". */
+  private static Set<String> names(Models models) {
+    Set<String> names = new HashSet<>();
+    if (models == null || models.models() == null) {
+      return names;
+    }
+    for (Model model : models.models()) {
+      names.add(model.name());
+      if (model.name().endsWith(LATEST)) {
+        names.add(model.name().substring(0, model.name().length() - LATEST.length()));
+      }
+    }
+    return names;
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record Models(List<Model> models) {
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record Model(String name) {
+  }
+}
@@ -0,0 +1,58 @@
+package carson.dev.tech.trigger.endpoint;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Health check of an OpenAI-compatible server through {@code /v1/models}. Hosted models are always loaded, so every
+ * listed model counts as loaded. A server that answers but refuses the listing (401, 403, 404) is up, with its
+ * models unknown, so requests to it are not pinned.
+ */
+public class OpenAiEndpointProbe implements EndpointProbe {
+
+  private final RestClient restClient;
+  private final String apiKey;
+
+  public OpenAiEndpointProbe(String apiKey, int timeoutMs) {
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    requestFactory.setConnectTimeout(timeoutMs);
+    requestFactory.setReadTimeout(timeoutMs);
+    this.restClient = RestClient.builder().requestFactory(requestFactory).build();
+    this.apiKey = apiKey;
+  }
+
+  @Override
+  public EndpointHealth probe(String baseUrl) {
+    ModelList list;
+    try {
+      list = restClient.get()
+          .uri(baseUrl + "/v1/models")
+          .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+          .retrieve()
+          .body(ModelList.class);
+    } catch (RestClientResponseException e) {
+      if (!e.getStatusCode().is4xxClientError() || e.getStatusCode().value() == 429) {
+        throw e;
+      }
+      return EndpointHealth.builder().build();
+    }
+    Set<String> models = list == null || list.data() == null ? Set.of()
+        : list.data().stream().map(Model::id).collect(Collectors.toSet());
+    return EndpointHealth.builder().availableModels(models).loadedModels(models).build();
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record ModelList(List<Model> data) {
+  }
+
+  @JsonIgnoreProperties(ignoreUnknown = true)
+  record Model(String id) {
+  }
+}
@@ -0,0 +1,36 @@
+package carson.dev.tech.trigger.endpoint;
+
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Function;
+
+/**
+ * Chat client that sends each prompt to an endpoint of an {@link EndpointPool}, pinned by the model of the prompt.
+ */
+public class PooledChatClient implements ChatClient, StreamingChatClient {
+
+  private final EndpointPool pool;
+  private final Function<Prompt, String> modelOf;
+
+  /**
+   * @param modelOf the model a prompt asks for, read from its provider-specific options; {@code null} when unknown
+   */
+  public PooledChatClient(EndpointPool pool, Function<Prompt, String> modelOf) {
+    this.pool = pool;
+    this.modelOf = modelOf;
+  }
+
+  @Override
+  public ChatResponse call(Prompt prompt) {
+    return pool.call(modelOf.apply(prompt), clients -> clients.getChatClient().call(prompt));
+  }
+
+  @Override
+  public Flux<ChatResponse> stream(Prompt prompt) {
+    return pool.stream(modelOf.apply(prompt), clients -> clients.getStreamingChatClient().stream(prompt));
+  }
+}
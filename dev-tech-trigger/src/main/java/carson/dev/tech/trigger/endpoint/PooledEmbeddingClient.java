@@ -0,0 +1,55 @@
+package carson.dev.tech.trigger.endpoint;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * Embedding client that sends each request to an endpoint of an {@link EndpointPool}, pinned to the embedding model.
+ */
+public class PooledEmbeddingClient implements EmbeddingClient {
+
+  private final EndpointPool pool;
+  private final String model;
+
+  /**
+   * @param model the embedding model the endpoints serve, or {@code null} to route without pinning
+   */
+  public PooledEmbeddingClient(EndpointPool pool, String model) {
+    this.pool = pool;
+    this.model = model;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    return pool.call(model, clients -> clients.getEmbeddingClient().call(request));
+  }
+
+  @Override
+  public List<Double> embed(String text) {
+    return pool.call(model, clients -> clients.getEmbeddingClient().embed(text));
+  }
+
+  @Override
+  public List<Double> embed(Document document) {
+    return embed(document.getContent());
+  }
+
+  @Override
+  public List<List<Double>> embed(List<String> texts) {
+    return pool.call(model, clients -> clients.getEmbeddingClient().embed(texts));
+  }
+
+  @Override
+  public EmbeddingResponse embedForResponse(List<String> texts) {
+    return pool.call(model, clients -> clients.getEmbeddingClient().embedForResponse(texts));
+  }
+
+  @Override
+  public int dimensions() {
+    return pool.call(model, clients -> clients.getEmbeddingClient().dimensions());
+  }
+}
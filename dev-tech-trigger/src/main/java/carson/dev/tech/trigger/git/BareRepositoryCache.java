@@ -0,0 +1,357 @@
+package carson.dev.tech.trigger.git;
+
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.trigger.cache.MeteredCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of bare repositories, one per repository however its URL is spelled: {@code https://github.com/a/b},
+ * {@code https://github.com/a/b.git/} and {@code git@github.com:a/b.git} share one entry, so every ragTag and every
+ * analysis of a repository reuses the objects already fetched and a repeat analysis is an incremental fetch.
+ * <p>
+ * Every {@link Lease#fetch} still goes to the remote: that is what makes the cache return the current tip, and it also
+ * checks the caller's credentials, so a private repository cached for one user is not served to another. Fetches into
+ * one repository run one at a time; a caller asking for the same ref with the same credentials while such a fetch is
+ * running waits for it and shares its result instead of fetching again.
+ * <p>
+ * When the repositories on disk exceed {@code maxBytes}, the least recently used ones that nobody holds a lease on are
+ * deleted. Entries found on disk at startup are adopted, with their modification time as last use.
+ */
+@Slf4j
+public class BareRepositoryCache implements MeteredCache {
+
+  private final Path root;
+  private final long maxBytes;
+  private final ShallowGitFetcher fetcher;
+  /** by directory name, in access order so iteration starts at the least recently used; guarded by {@code this} */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong sharedFetches = new AtomicLong();
+
+  /**
+   * @param maxBytes disk space the repositories may take before the least recently used are evicted, 0 for no limit
+   */
+  public BareRepositoryCache(Path root, long maxBytes, ShallowGitFetcher fetcher) {
+    this.root = root;
+    this.maxBytes = maxBytes;
+    this.fetcher = fetcher;
+    adopt();
+  }
+
+  /**
+   * Opens the cached repository of {@code repoUrl}, creating it if missing. The entry cannot be evicted until the
+   * lease is closed.
+   */
+  public Lease acquire(String repoUrl) throws Exception {
+    String name = directoryName(key(repoUrl));
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(name);
+      if (entry == null) {
+        misses.incrementAndGet();
+        entry = new Entry(name, root.resolve(name), System.currentTimeMillis(), 0);
+        entries.put(name, entry);
+      } else {
+        hits.incrementAndGet();
+      }
+      entry.leases++;
+      entry.lastUsed = System.currentTimeMillis();
+    }
+    try {
+      entry.open();
+    } catch (Exception e) {
+      release(entry);
+      throw e;
+    }
+    return new Lease(entry, repoUrl);
+  }
+
+  @Override
+  public CacheStatsDTO stats() {
+    synchronized (this) {
+      return CacheStatsDTO.builder()
+          .name("git-repositories")
+          .localHits(hits.get())
+          .misses(misses.get())
+          .size(entries.size())
+          .evictions(evictions.get())
+          .build();
+    }
+  }
+
+  /** Fetches answered by joining a fetch another caller had already started. */
+  public long getSharedFetches() {
+    return sharedFetches.get();
+  }
+
+  /** Bytes taken by the cached repositories, as of their last fetch. */
+  public synchronized long getSizeBytes() {
+    return entries.values().stream().mapToLong(e -> e.sizeBytes).sum();
+  }
+
+  /**
+   * Identity of a repository: host in lower case without user info or port, path without a trailing {@code /} or
+   * {@code .git}. GitHub, GitLab and Bitbucket paths are case-insensitive and are lower-cased too.
+   */
+  public static String key(String repoUrl) {
+    URIish uri;
+    try {
+      uri = new URIish(repoUrl.strip());
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Not a Git URL: " + repoUrl, e);
+    }
+    String path = uri.getPath() == null ? "" : uri.getPath().replace('\\', '/');
+    while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+    if (path.endsWith(".git")) path = path.substring(0, path.length() - 4);
+    while (path.endsWith("/")) path = path.substring(0, path.length() - 1);
+    if (!path.startsWith("/")) path = "/" + path;
+    String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+    if (host.equals("github.com") || host.equals("gitlab.com") || host.equals("bitbucket.org")) {
+      path = path.toLowerCase(Locale.ROOT);
+    }
+    return host + path;
+  }
+
+  /** Readable and collision-free: {@code github.com_a_b-1f2e3d4c.git}. */
+  static String directoryName(String key) {
+    String readable = key.replaceAll("[^A-Za-z0-9._-]", "_");
+    if (readable.length() > 80) readable = readable.substring(readable.length() - 80);
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      return readable + "-" + HexFormat.of().formatHex(digest, 0, 4) + ".git";
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void release(Entry entry) {
+    synchronized (this) {
+      entry.leases--;
+      entry.lastUsed = System.currentTimeMillis();
+      // read back as the last use by adopt() after a restart
+      entry.dir.toFile().setLastModified(entry.lastUsed);
+      if (entry.leases == 0) {
+        entry.close();
+      }
+      evict();
+    }
+  }
+
+  /** Deletes idle entries, least recently used first, until the cache fits in {@code maxBytes}. */
+  private void evict() {
+    if (maxBytes <= 0) {
+      return;
+    }
+    long total = entries.values().stream().mapToLong(e -> e.sizeBytes).sum();
+    List<Entry> victims = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (total <= maxBytes) break;
+      if (entry.leases == 0) {
+        victims.add(entry);
+        total -= entry.sizeBytes;
+      }
+    }
+    for (Entry entry : victims) {
+      entries.remove(entry.name);
+      try {
+        FileUtils.deleteDirectory(entry.dir.toFile());
+        evictions.incrementAndGet();
+        log.info("Evicted cached repository {} ({} bytes)", entry.name, entry.sizeBytes);
+      } catch (IOException e) {
+        log.warn("Cannot delete cached repository {}: {}", entry.dir, e.getMessage());
+      }
+    }
+  }
+
+  /** Picks up the repositories of a previous run, oldest first so they are evicted first. */
+  private void adopt() {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    List<Entry> found = new ArrayList<>();
+    try (Stream<Path> dirs = Files.list(root)) {
+      for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+        if (Files.isDirectory(dir.resolve(".git"))) {
+          // working copy cloned per ragTag by earlier versions
+          FileUtils.deleteDirectory(dir.toFile());
+        } else if (dir.getFileName().toString().endsWith(".git")) {
+          found.add(new Entry(dir.getFileName().toString(), dir,
+              Files.readAttributes(dir, BasicFileAttributes.class).lastModifiedTime().toMillis(), sizeOf(dir)));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot list " + root, e);
+    }
+    found.sort(Comparator.comparingLong(e -> e.lastUsed));
+    synchronized (this) {
+      for (Entry entry : found) {
+        entries.put(entry.name, entry);
+      }
+      evict();
+    }
+    log.info("Adopted {} cached repositories from {}", found.size(), root);
+  }
+
+  private static long sizeOf(Path dir) {
+    try (Stream<Path> files = Files.walk(dir)) {
+      return files.filter(Files::isRegularFile).mapToLong(f -> f.toFile().length()).sum();
+    } catch (IOException | UncheckedIOException e) {
+      return 0;
+    }
+  }
+
+  private final class Entry {
+    private final String name;
+    private final Path dir;
+    /** serializes fetches into the repository */
+    private final ReentrantLock fetchLock = new ReentrantLock();
+    /** fetches running now, by ref and credentials */
+    private final Map<String, CompletableFuture<ObjectId>> fetching = new ConcurrentHashMap<>();
+    // guarded by the cache
+    private int leases;
+    private long lastUsed;
+    private volatile long sizeBytes;
+    private Repository repository;
+
+    private Entry(String name, Path dir, long lastUsed, long sizeBytes) {
+      this.name = name;
+      this.dir = dir;
+      this.lastUsed = lastUsed;
+      this.sizeBytes = sizeBytes;
+    }
+
+    private void open() throws Exception {
+      synchronized (BareRepositoryCache.this) {
+        if (repository == null) {
+          repository = fetcher.open(dir);
+        }
+      }
+    }
+
+    private void close() {
+      if (repository != null) {
+        repository.close();
+        repository = null;
+      }
+    }
+  }
+
+  /** A repository of the cache in use; close it when done reading. Not thread-safe. */
+  public final class Lease implements AutoCloseable {
+
+    private final Entry entry;
+    private final String repoUrl;
+    private final Repository repository;
+    private boolean closed;
+
+    private Lease(Entry entry, String repoUrl) {
+      this.entry = entry;
+      this.repoUrl = repoUrl;
+      synchronized (BareRepositoryCache.this) {
+        this.repository = entry.repository;
+      }
+    }
+
+    public Repository getRepository() {
+      return repository;
+    }
+
+    /** Brings {@code ref} up to date from the remote, or waits for an identical fetch already in progress. */
+    public RevCommit fetch(String userName, String token, String ref) throws Exception {
+      String key = (ref == null ? "" : ref.strip()) + "\n" + credentialsId(userName, token);
+      CompletableFuture<ObjectId> mine = new CompletableFuture<>();
+      CompletableFuture<ObjectId> running = entry.fetching.putIfAbsent(key, mine);
+      if (running != null) {
+        sharedFetches.incrementAndGet();
+        return parse(await(running));
+      }
+      try {
+        RevCommit commit;
+        entry.fetchLock.lockInterruptibly();
+        try {
+          commit = fetcher.fetch(repository, repoUrl, new UsernamePasswordCredentialsProvider(userName, token), ref);
+        } finally {
+          entry.fetchLock.unlock();
+        }
+        entry.sizeBytes = sizeOf(entry.dir);
+        mine.complete(commit.copy());
+        return commit;
+      } catch (Throwable t) {
+        mine.completeExceptionally(t);
+        throw t;
+      } finally {
+        entry.fetching.remove(key, mine);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (!closed) {
+        closed = true;
+        release(entry);
+      }
+    }
+
+    private RevCommit parse(ObjectId id) throws IOException {
+      try (RevWalk walk = new RevWalk(repository)) {
+        return walk.parseCommit(id);
+      }
+    }
+  }
+
+  private static ObjectId await(CompletableFuture<ObjectId> fetch) throws Exception {
+    try {
+      return fetch.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception cause) {
+        // a TransportException carries the remote's answer (auth failure, missing repository) unchanged
+        throw cause instanceof TransportException ? cause : new IOException("Shared fetch failed", cause);
+      }
+      throw e;
+    }
+  }
+
+  /** Fetches with different credentials are never shared: each caller must prove access on its own. */
+  private static String credentialsId(String userName, String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest((userName + "\0" + token).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package carson.dev.tech.trigger.git;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * What to index of a repository: which ref, and which paths of its tree.
+ */
+@Value
+@Builder
+public class GitFetchOptions {
+
+  /** branch, tag or full ref name ({@code main}, {@code v1.2.0}, {@code refs/pull/7/head}); null for the remote HEAD */
+  String ref;
+
+  /** globs a path must match one of, e.g. {@code src/**} or {@code **}{@code /*.java}; empty to take every path */
+  @Builder.Default
+  List<String> includes = List.of();
+
+  /** globs of paths to leave out, applied after {@link #includes} */
+  @Builder.Default
+  List<String> excludes = List.of();
+
+  public static GitFetchOptions defaults() {
+    return GitFetchOptions.builder().build();
+  }
+
+  /** Changes when a different set of paths would be indexed, so the next run cannot be an incremental one. */
+  public String pathsKey() {
+    return String.join(",", includes) + "|" + String.join(",", excludes);
+  }
+}
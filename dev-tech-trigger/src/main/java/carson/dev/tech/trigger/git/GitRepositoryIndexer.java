@@ -0,0 +1,161 @@
+package carson.dev.tech.trigger.git;
+
+import carson.dev.tech.trigger.ingest.IngestionPipeline;
+import carson.dev.tech.trigger.ingest.IngestionStats;
+import carson.dev.tech.trigger.ingest.VectorStoreMaintenance;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a ragTag in sync with a Git repository without re-embedding files that did not change.
+ * <p>
+ * The requested ref is fetched, by default one commit deep, into the bare repository {@link BareRepositoryCache} keeps
+ * for the URL, shared with every other ragTag of that repository; files are read from the object database by
+ * {@link GitTreeFiles}, so nothing is checked out. The last indexed commit is stored per ragTag in Redis and kept in the
+ * repository under {@link #INDEXED_REFS}{@code <ragTag>}.
+ * The first run (or a run whose stored commit is gone, or whose include / exclude globs changed) drops every chunk of
+ * the ragTag and indexes the whole tree. Later runs diff the stored commit against the new tip, delete the chunks of
+ * changed/removed paths by metadata and feed only the added/modified files to the ingestion pipeline.
+ * The stored commit only advances when no chunk of the run was lost to a failed embed or write batch; otherwise the
+ * run fails and the next one diffs from the same base again.
+ */
+@Slf4j
+public class GitRepositoryIndexer {
+
+  private static final String COMMIT_KEY = "ragTagCommit";
+  private static final String PATHS_KEY = "ragTagPaths";
+  private static final String LOCK_KEY = "ragTagIndexLock:";
+  /** keep the last indexed commit of each ragTag, the base of its next diff, while other refs move on */
+  private static final String INDEXED_REFS = "refs/rag/indexed/";
+
+  private final IngestionPipeline ingestionPipeline;
+  private final VectorStoreMaintenance vectorStoreMaintenance;
+  private final RedissonClient redissonClient;
+  private final BareRepositoryCache repositoryCache;
+
+  public enum Mode { FULL, INCREMENTAL, UP_TO_DATE }
+
+  public record IndexResult(Mode mode, String commit, int changedFiles, int removedPaths, long fetchMillis) {
+  }
+
+  public GitRepositoryIndexer(IngestionPipeline ingestionPipeline, VectorStoreMaintenance vectorStoreMaintenance,
+                              RedissonClient redissonClient, BareRepositoryCache repositoryCache) {
+    this.ingestionPipeline = ingestionPipeline;
+    this.vectorStoreMaintenance = vectorStoreMaintenance;
+    this.redissonClient = redissonClient;
+    this.repositoryCache = repositoryCache;
+  }
+
+  public IndexResult index(String repoUrl, String userName, String token, String ragTag, IngestionStats stats) throws Exception {
+    return index(repoUrl, userName, token, ragTag, GitFetchOptions.defaults(), stats);
+  }
+
+  public IndexResult index(String repoUrl, String userName, String token, String ragTag, GitFetchOptions options,
+                           IngestionStats stats) throws Exception {
+    // one indexer per ragTag across all instances, otherwise deletes and inserts of two runs interleave
+    RLock lock = redissonClient.getLock(LOCK_KEY + ragTag);
+    lock.lockInterruptibly();
+    try {
+      try (BareRepositoryCache.Lease lease = repositoryCache.acquire(repoUrl)) {
+        Repository repository = lease.getRepository();
+        long fetchStart = System.nanoTime();
+        RevCommit head = lease.fetch(userName, token, options.getRef());
+        long fetchMillis = (System.nanoTime() - fetchStart) / 1_000_000;
+
+        RMap<String, String> commits = redissonClient.getMap(COMMIT_KEY);
+        RMap<String, String> paths = redissonClient.getMap(PATHS_KEY);
+        String last = commits.get(ragTag);
+        boolean samePaths = options.pathsKey().equals(paths.getOrDefault(ragTag, GitFetchOptions.defaults().pathsKey()));
+
+        long lostBefore = stats.getChunksLost();
+        IndexResult result;
+        if (last != null && last.equals(head.name()) && samePaths) {
+          result = new IndexResult(Mode.UP_TO_DATE, head.name(), 0, 0, fetchMillis);
+        } else if (last == null || !samePaths || !repository.getObjectDatabase().has(ObjectId.fromString(last))) {
+          vectorStoreMaintenance.deleteByRagTag(ragTag);
+          ingestionPipeline.run(new GitTreeFiles(repository, head.getTree(), options, null), ragTag, stats);
+          result = new IndexResult(Mode.FULL, head.name(), (int) stats.getFilesScanned(), 0, fetchMillis);
+        } else {
+          result = indexDiff(repository, ObjectId.fromString(last), head, options, ragTag, stats, fetchMillis);
+        }
+        // the pipeline only counts failed embed / write batches; their paths were already deleted, so advancing
+        // would leave them out of the index until they change again. Keep the base so the next run redoes them.
+        long lost = stats.getChunksLost() - lostBefore;
+        if (lost > 0) {
+          throw new IllegalStateException("Indexing " + ragTag + " at " + head.name() + " lost " + lost
+              + " chunks, keeping " + (last == null ? "no indexed commit" : last) + " as the base of the next run");
+        }
+        markIndexed(repository, ragTag, head);
+        commits.put(ragTag, head.name());
+        paths.put(ragTag, options.pathsKey());
+        log.info("Indexed {} at {} ({}): fetched in {} ms, {} files embedded, {} paths removed",
+            ragTag, head.name(), result.mode(), fetchMillis, result.changedFiles(), result.removedPaths());
+        return result;
+      }
+    } finally {
+      if (lock.isHeldByCurrentThread()) lock.unlock();
+    }
+  }
+
+  private IndexResult indexDiff(Repository repository, ObjectId from, RevCommit to, GitFetchOptions options,
+                                String ragTag, IngestionStats stats, long fetchMillis) throws Exception {
+    GitTreeFiles files = new GitTreeFiles(repository, to.getTree(), options, null);
+    Set<String> stale = new LinkedHashSet<>();
+    Set<String> changed = new LinkedHashSet<>();
+    try (RevWalk revWalk = new RevWalk(repository);
+         DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+      RevCommit oldCommit = revWalk.parseCommit(from);
+      diffFormatter.setRepository(repository);
+      diffFormatter.setDetectRenames(true);
+      List<DiffEntry> entries = diffFormatter.scan(oldCommit.getTree(), to.getTree());
+      for (DiffEntry entry : entries) {
+        switch (entry.getChangeType()) {
+          case ADD, COPY -> changed.add(entry.getNewPath());
+          case MODIFY, RENAME -> {
+            stale.add(entry.getOldPath());
+            changed.add(entry.getNewPath());
+          }
+          case DELETE -> stale.add(entry.getOldPath());
+        }
+      }
+    }
+    // paths the globs leave out were never indexed
+    changed.removeIf(path -> !files.accepts(path));
+    // also clear new paths, in case an earlier failed run already wrote some of their chunks
+    Set<String> toDelete = new LinkedHashSet<>(stale);
+    toDelete.addAll(changed);
+    if (!toDelete.isEmpty()) {
+      vectorStoreMaintenance.deleteByPaths(ragTag, toDelete);
+    }
+    if (!changed.isEmpty()) {
+      ingestionPipeline.run(new GitTreeFiles(repository, to.getTree(), options, changed), ragTag, stats);
+    }
+    return new IndexResult(Mode.INCREMENTAL, to.name(), changed.size(), stale.size(), fetchMillis);
+  }
+
+  private static void markIndexed(Repository repository, String ragTag, ObjectId commit) throws IOException {
+    String ref = INDEXED_REFS + ragTag.replaceAll("[^A-Za-z0-9._-]", "_");
+    RefUpdate update = repository.updateRef(ref);
+    update.setNewObjectId(commit);
+    update.setForceUpdate(true);
+    RefUpdate.Result result = update.update();
+    if (result == RefUpdate.Result.LOCK_FAILURE || result == RefUpdate.Result.IO_FAILURE) {
+      throw new IOException("Cannot update " + ref + ": " + result);
+    }
+  }
+}
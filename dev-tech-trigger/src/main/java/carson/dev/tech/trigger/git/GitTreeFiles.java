@@ -0,0 +1,173 @@
+package carson.dev.tech.trigger.git;
+
+import carson.dev.tech.trigger.ingest.RepositoryPathFilter;
+import carson.dev.tech.trigger.ingest.SourceFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The regular files of a Git tree, read straight from the object database: no working tree is checked out, so a
+ * repository costs its packed size on disk instead of packed plus unpacked.
+ * <p>
+ * The tree is listed once, on the first {@link #iterator()}, which is cheap next to parsing; blobs are only inflated
+ * when a parse worker opens them. Paths are filtered by the same {@link RepositoryPathFilter} rules as a working tree
+ * on disk, with the .gitattributes and .gitignore files read from the tree's own blobs: ignored and vendored
+ * directories are not entered, ignored, vendored, generated and binary files are left out, and so are paths outside
+ * the include / exclude globs.
+ */
+public class GitTreeFiles implements Iterable<SourceFile> {
+
+  private final Repository repository;
+  private final RevTree tree;
+  private final List<PathMatcher> includes;
+  private final List<PathMatcher> excludes;
+  private final Collection<String> only;
+  private final RepositoryPathFilter filter;
+  private List<SourceFile> files;
+
+  /**
+   * @param only paths to list, e.g. those a diff reported as changed; null for every path
+   */
+  public GitTreeFiles(Repository repository, RevTree tree, GitFetchOptions options, Collection<String> only) {
+    this.repository = repository;
+    this.tree = tree;
+    this.includes = matchers(options.getIncludes());
+    this.excludes = matchers(options.getExcludes());
+    this.only = only;
+    this.filter = new RepositoryPathFilter(this::openRuleFile);
+  }
+
+  @Override
+  public Iterator<SourceFile> iterator() {
+    if (files == null) {
+      try {
+        files = list();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read tree " + tree.name(), e);
+      }
+    }
+    return files.iterator();
+  }
+
+  /** Whether {@code path} passes the include / exclude globs and the built-in rules. */
+  public boolean accepts(String path) {
+    if (filter.skipFile(path)) {
+      return false;
+    }
+    Path p = Path.of(path);
+    if (!includes.isEmpty() && includes.stream().noneMatch(m -> m.matches(p))) {
+      return false;
+    }
+    return excludes.stream().noneMatch(m -> m.matches(p));
+  }
+
+  private List<SourceFile> list() throws IOException {
+    List<SourceFile> list = new ArrayList<>();
+    try (TreeWalk walk = new TreeWalk(repository)) {
+      walk.addTree(tree);
+      walk.setRecursive(false);
+      while (walk.next()) {
+        if (walk.isSubtree()) {
+          if (!filter.skipDirectory(walk.getPathString())) {
+            walk.enterSubtree();
+          }
+          continue;
+        }
+        FileMode mode = walk.getFileMode(0);
+        // symlinks and submodules have no content of their own
+        if (mode != FileMode.REGULAR_FILE && mode != FileMode.EXECUTABLE_FILE) continue;
+        String path = walk.getPathString();
+        if ((only == null || only.contains(path)) && accepts(path)) {
+          list.add(new Blob(repository, path, walk.getObjectId(0)));
+        }
+      }
+    }
+    return list;
+  }
+
+  /** A .gitattributes or .gitignore of the tree, looked up by path; null when the tree has none. */
+  private InputStream openRuleFile(String path) throws IOException {
+    try (TreeWalk walk = TreeWalk.forPath(repository, path, tree)) {
+      if (walk == null || walk.getFileMode(0) != FileMode.REGULAR_FILE) {
+        return null;
+      }
+      return repository.open(walk.getObjectId(0), Constants.OBJ_BLOB).openStream();
+    }
+  }
+
+  /**
+   * Java globs need a directory before {@code **}{@code /}, so {@code **}{@code /*.java} would miss {@code Main.java}
+   * at the root; such patterns also match without that prefix, as in .gitignore.
+   */
+  private static List<PathMatcher> matchers(List<String> globs) {
+    List<PathMatcher> matchers = new ArrayList<>();
+    for (String glob : globs) {
+      if (glob == null || glob.isBlank()) continue;
+      String pattern = glob.strip();
+      matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+      if (pattern.startsWith("**/")) {
+        matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(3)));
+      }
+    }
+    return matchers;
+  }
+
+  /**
+   * Opened on the first read and kept, so sniffing and parsing one file inflate it once. Only the parse worker that
+   * owns the file touches it.
+   */
+  private static final class Blob implements SourceFile {
+    private final Repository repository;
+    private final String path;
+    private final ObjectId id;
+    private ObjectLoader loader;
+
+    private Blob(Repository repository, String path, ObjectId id) {
+      this.repository = repository;
+      this.path = path;
+      this.id = id;
+    }
+
+    @Override
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public long getSize() {
+      try {
+        return loader().getSize();
+      } catch (IOException e) {
+        return -1;
+      }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      return loader().openStream();
+    }
+
+    private ObjectLoader loader() throws IOException {
+      if (loader == null) {
+        loader = repository.open(id, Constants.OBJ_BLOB);
+      }
+      return loader;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package carson.dev.tech.trigger.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Fetches one ref of a remote into a bare repository, {@code depth} commits deep.
+ * <p>
+ * Nothing is checked out: {@link GitTreeFiles} reads the fetched tree from the object database. With the default depth
+ * of 1 a fetch transfers the objects of a single tree, not the history, and a later fetch into the same repository
+ * only transfers what the new tip adds.
+ */
+public class ShallowGitFetcher {
+
+  /** where fetched commits are kept, one ref per source ref */
+  public static final String FETCHED_REFS = "refs/rag/fetched/";
+
+  private final int depth;
+
+  /**
+   * @param depth commits to fetch from the tip, 0 for the full history
+   */
+  public ShallowGitFetcher(int depth) {
+    this.depth = Math.max(0, depth);
+  }
+
+  /** Opens the bare repository in {@code dir}, creating it if missing. */
+  public Repository open(Path dir) throws IOException, GitAPIException {
+    if (Files.isDirectory(dir)) {
+      Repository repository = new FileRepositoryBuilder().setGitDir(dir.toFile()).setBare().build();
+      if (repository.getObjectDatabase().exists()) {
+        return repository;
+      }
+      // not a repository, e.g. left half-created by a crash
+      repository.close();
+      FileUtils.deleteDirectory(dir.toFile());
+    }
+    Files.createDirectories(dir.getParent());
+    return Git.init().setBare(true).setGitDir(dir.toFile()).call().getRepository();
+  }
+
+  /**
+   * Fetches {@code ref} (see {@link GitFetchOptions#getRef()}) of {@code repoUrl} and returns its commit; an annotated
+   * tag is peeled to the commit it points at. The commit is kept under {@link #fetchedRef(String)}, so fetches of
+   * other refs into the same repository do not drop it.
+   */
+  public RevCommit fetch(Repository repository, String repoUrl, CredentialsProvider credentials, String ref)
+      throws IOException, GitAPIException {
+    String target;
+    try (Git git = new Git(repository)) {
+      String source = resolve(git, repoUrl, credentials, ref);
+      target = fetchedRef(source);
+      FetchCommand fetch = git.fetch()
+          .setRemote(repoUrl)
+          .setCredentialsProvider(credentials)
+          .setRefSpecs(new RefSpec("+" + source + ":" + target))
+          .setTagOpt(TagOpt.NO_TAGS);
+      if (depth > 0) {
+        fetch.setDepth(depth);
+      }
+      fetch.call();
+    }
+    ObjectId fetched = repository.resolve(target);
+    if (fetched == null) {
+      throw new IOException("Fetching " + source(ref) + " did not produce a commit");
+    }
+    try (RevWalk walk = new RevWalk(repository)) {
+      return walk.parseCommit(fetched);
+    }
+  }
+
+  /** {@code refs/heads/main} is kept as {@code refs/rag/fetched/heads/main}, HEAD as {@code refs/rag/fetched/HEAD}. */
+  static String fetchedRef(String source) {
+    String name = source.startsWith(Constants.R_REFS) ? source.substring(Constants.R_REFS.length()) : source;
+    return FETCHED_REFS + name;
+  }
+
+  /**
+   * Turns a short name into the remote ref it stands for, preferring a branch over a tag of the same name as
+   * {@code git clone --branch} does. Full ref names and commit ids are fetched as given.
+   */
+  private static String resolve(Git git, String repoUrl, CredentialsProvider credentials, String ref) throws GitAPIException {
+    if (ref == null || ref.isBlank()) {
+      return Constants.HEAD;
+    }
+    String name = ref.strip();
+    if (name.startsWith(Constants.R_REFS) || ObjectId.isId(name)) {
+      return name;
+    }
+    Map<String, Ref> remote = git.lsRemote().setRemote(repoUrl).setCredentialsProvider(credentials).callAsMap();
+    for (String candidate : new String[]{Constants.R_HEADS + name, Constants.R_TAGS + name}) {
+      if (remote.containsKey(candidate)) {
+        return candidate;
+      }
+    }
+    throw new IllegalArgumentException("No branch or tag named " + name);
+  }
+
+  private static String source(String ref) {
+    return ref == null || ref.isBlank() ? Constants.HEAD : ref;
+  }
+}
@@ -0,0 +1,31 @@
+package carson.dev.tech.trigger.http;
+
+import carson.dev.tech.api.response.Response;
+import carson.dev.tech.trigger.admission.AdmissionRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers a generation the chat models cannot take right now with 429, a Retry-After header in seconds and the same
+ * hint as data, so clients back off instead of retrying in a tight loop.
+ */
+@RestControllerAdvice
+public class AdmissionExceptionHandler {
+
+  @ExceptionHandler(AdmissionRejectedException.class)
+  public ResponseEntity<Response<Long>> rejected(AdmissionRejectedException e) {
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+        // also for SSE requests, which would otherwise find no converter for the body
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(Response.<Long>builder()
+            .code("0003")
+            .info(e.getMessage() + ", retry later")
+            .data(e.getRetryAfterSeconds())
+            .build());
+  }
+}
@@ -0,0 +1,129 @@
+package carson.dev.tech.trigger.http;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Who is calling, for per-client fairness of the chat models: the remote address of the connection.
+ * <p>
+ * Both headers a client could pick freely are only believed when the connection comes from a trusted proxy
+ * ({@code 10.0.0.5} or a range like {@code 10.0.0.0/8}): {@code X-Client-Id}, set by a proxy that authenticated the
+ * caller, and otherwise the last address of {@code X-Forwarded-For} that is not a trusted proxy itself. Without trusted
+ * proxies every caller is its remote address, whatever headers it sends.
+ */
+public class ClientIds {
+
+  private static final String HEADER = "X-Client-Id";
+  private static final String FORWARDED_FOR = "X-Forwarded-For";
+  private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+  private static final Pattern IPV6 = Pattern.compile("[0-9A-Fa-f:.]*:[0-9A-Fa-f:.]*");
+
+  private final List<Range> trustedProxies = new ArrayList<>();
+
+  public ClientIds(Collection<String> trustedProxies) {
+    trustedProxies.forEach(proxy -> this.trustedProxies.add(Range.parse(proxy.strip())));
+  }
+
+  /** The client of the request bound to this thread; read it before handing work to another thread. */
+  public String current() {
+    if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+      return "anonymous";
+    }
+    return of(attributes.getRequest());
+  }
+
+  public String of(HttpServletRequest request) {
+    String remote = request.getRemoteAddr();
+    if (!isTrusted(remote)) {
+      return remote;
+    }
+    String id = request.getHeader(HEADER);
+    if (id != null && !id.isBlank()) {
+      return id.strip();
+    }
+    String forwarded = request.getHeader(FORWARDED_FOR);
+    if (forwarded == null || forwarded.isBlank()) {
+      return remote;
+    }
+    // each proxy appends the address it got the request from, so only the right end was written by trusted hops
+    String[] hops = forwarded.split(",");
+    for (int i = hops.length - 1; i >= 0; i--) {
+      String hop = hops[i].strip();
+      if (!hop.isEmpty() && !isTrusted(hop)) {
+        return hop;
+      }
+    }
+    return remote;
+  }
+
+  private boolean isTrusted(String address) {
+    if (trustedProxies.isEmpty() || address == null || !isLiteral(address)) {
+      return false;
+    }
+    byte[] bytes;
+    try {
+      bytes = InetAddress.getByName(address).getAddress();
+    } catch (UnknownHostException e) {
+      return false;
+    }
+    for (Range range : trustedProxies) {
+      if (range.contains(bytes)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Only IP literals, so neither a configured proxy nor a forwarded hop ever triggers a DNS lookup. */
+  private static boolean isLiteral(String address) {
+    return IPV4.matcher(address).matches() || IPV6.matcher(address).matches();
+  }
+
+  private record Range(byte[] network, int prefix) {
+
+    static Range parse(String cidr) {
+      int slash = cidr.indexOf('/');
+      String address = slash < 0 ? cidr : cidr.substring(0, slash);
+      if (!isLiteral(address)) {
+        throw new IllegalArgumentException("Trusted proxy must be an IP address or range: " + cidr);
+      }
+      byte[] network;
+      try {
+        network = InetAddress.getByName(address).getAddress();
+      } catch (UnknownHostException e) {
+        throw new IllegalArgumentException("Trusted proxy must be an IP address or range: " + cidr, e);
+      }
+      int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+      if (prefix < 0 || prefix > network.length * 8) {
+        throw new IllegalArgumentException("Prefix length out of range: " + cidr);
+      }
+      return new Range(network, prefix);
+    }
+
+    boolean contains(byte[] address) {
+      if (address.length != network.length) {
+        return false;
+      }
+      int full = prefix / 8;
+      for (int i = 0; i < full; i++) {
+        if (address[i] != network[i]) {
+          return false;
+        }
+      }
+      int rest = prefix % 8;
+      if (rest == 0) {
+        return true;
+      }
+      int mask = 0xff << (8 - rest) & 0xff;
+      return (address[full] & mask) == (network[full] & mask);
+    }
+  }
+}
@@ -1,29 +1,36 @@
 package carson.dev.tech.trigger.http;
 
 import carson.dev.tech.api.IRAGService;
+import carson.dev.tech.api.dto.CacheStatsDTO;
+import carson.dev.tech.api.dto.IngestionJobDTO;
+import carson.dev.tech.api.dto.ParseStatsDTO;
 import carson.dev.tech.api.response.Response;
+import carson.dev.tech.trigger.cache.MeteredCache;
+import carson.dev.tech.trigger.git.GitFetchOptions;
+import carson.dev.tech.trigger.git.GitRepositoryIndexer;
+import carson.dev.tech.trigger.ingest.IngestionJobManager;
+import carson.dev.tech.trigger.ingest.IngestionPipeline;
+import carson.dev.tech.trigger.ingest.IngestionStats;
+import carson.dev.tech.trigger.ingest.TikaParserPool;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.redisson.api.RList;
 import org.redisson.api.RedissonClient;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.PgVectorStore;
-import org.springframework.core.io.PathResource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -31,14 +38,23 @@ import java.util.stream.Stream;
 @RequestMapping("/api/v1/rag")
 public class RAGController implements IRAGService {
 
-  private static final long TIKA_TIMEOUT_MS    = 5_000;
-  private static final int  MAX_INGEST_THREADS = 8;
+  private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(1);
 
   @Resource
-  private TokenTextSplitter tokenTextSplitter;
+  private IngestionPipeline ingestionPipeline;
 
   @Resource
-  private PgVectorStore pgVectorStore;
+  private IngestionJobManager ingestionJobManager;
+
+  @Resource
+  private GitRepositoryIndexer gitRepositoryIndexer;
+
+  @Resource
+  private TikaParserPool tikaParserPool;
+
+  // resolved per call: cache beans are declared by their client interfaces, so the type is only known once created
+  @Resource
+  private ObjectProvider<MeteredCache> meteredCaches;
 
   @Resource
   private RedissonClient redissonClient;
@@ -59,18 +75,14 @@ public class RAGController implements IRAGService {
   public Response<String> uploadFile(
       @RequestParam String ragTag,
       @RequestParam("file") List<MultipartFile> files
-  ) {
+  ) throws Exception {
     log.info("Start uploading knowledge base {}", ragTag);
-    files.forEach(file -> {
-      List<Document> docs = new TikaDocumentReader(file.getResource()).get();
-      List<Document> split = tokenTextSplitter.apply(docs);
-      docs.forEach(d -> d.getMetadata().put("knowledge", ragTag));
-      split.forEach(d -> d.getMetadata().put("knowledge", ragTag));
-      pgVectorStore.accept(split);
-
-      RList<String> tags = redissonClient.getList("ragTag");
-      if (!tags.contains(ragTag)) tags.add(ragTag);
-    });
+    for (MultipartFile file : files) {
+      // chunks are embedded and written while Tika is still reading, the file is never one String in memory
+      IngestionStats stats = ingestionPipeline.ingest(file, file.getOriginalFilename(), file.getSize(), ragTag);
+      log.info("Uploaded {}: {}", file.getOriginalFilename(), stats.summary());
+      addRagTag(ragTag);
+    }
     log.info("Finished uploading knowledge base {}", ragTag);
     return Response.<String>builder().code("0000").info("Upload successful").build();
   }
@@ -80,98 +92,152 @@ public class RAGController implements IRAGService {
   public Response<String> analyzeGithubRepo(
       @RequestParam String repoUrl,
       @RequestParam String userName,
-      @RequestParam String token
+      @RequestParam String token,
+      @RequestParam(required = false) String ref,
+      @RequestParam(required = false) List<String> include,
+      @RequestParam(required = false) List<String> exclude
   ) throws Exception {
-    Path localPath = Paths.get("./git-cloned-repo");
     String project = extractProjectName(repoUrl);
-    FileUtils.deleteDirectory(localPath.toFile());
-
-    try (Git git = Git.cloneRepository()
-        .setURI(repoUrl)
-        .setDirectory(localPath.toFile())
-        .setCredentialsProvider(new UsernamePasswordCredentialsProvider(userName, token))
-        .call()) {
-
-      // 1) collect all files, skipping .git
-      List<Path> allFiles;
-      try (Stream<Path> walk = Files.walk(localPath)) {
-        allFiles = walk
-            .filter(Files::isRegularFile)
-            .filter(p -> !p.toString().contains(File.separator + ".git" + File.separator))
-            .collect(Collectors.toList());
-      }
+    ingestRepository(repoUrl, userName, token, project, fetchOptions(ref, include, exclude), new IngestionStats());
+    log.info("Finished analyzing repository: {}", project);
+    return Response.<String>builder().code("0000").info("Repository analysis successful").build();
+  }
 
-      // 2) ingest with bounded thread pool
-      int threads = Math.min(MAX_INGEST_THREADS, allFiles.size());
-      ExecutorService pool = Executors.newFixedThreadPool(threads);
-      for (Path file : allFiles) {
-        pool.submit(() -> {
-          try {
-            List<Document> docs = parseFileSafely(file);
-            docs.forEach(d -> d.getMetadata().put("knowledge", project));
-            pgVectorStore.accept(docs);
-            log.info("Processed: {}", file.getFileName());
-          } catch (Exception e) {
-            log.warn("Skipped {} → {}", file, e.getMessage());
-          }
-        });
+  @Override
+  @PostMapping(value = "job/file/upload", headers = "content-type=multipart/form-data")
+  public Response<String> submitUploadJob(
+      @RequestParam String ragTag,
+      @RequestParam("file") List<MultipartFile> files
+  ) throws IOException {
+    // multipart temp files are removed once the request ends, so copy them out before handing off; each under a
+    // name of its own, since two uploads may share a file name
+    Path dir = Files.createTempDirectory("rag-upload-");
+    List<Upload> uploads = new ArrayList<>(files.size());
+    try {
+      for (MultipartFile file : files) {
+        Path copy = Files.createTempFile(dir, "upload-", ".tmp");
+        file.transferTo(copy);
+        uploads.add(new Upload(copy, file.getOriginalFilename(), file.getSize()));
       }
-      pool.shutdown();
-      pool.awaitTermination(15, TimeUnit.MINUTES);
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(dir.toFile());
+      throw e;
     }
+    // same per-file path as file/upload, not the repository walk and its vendored / generated file rules;
+    // the directory goes on every terminal path, also when the job is cancelled before it starts
+    return submit("upload", ragTag, stats -> {
+      for (Upload upload : uploads) {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        ingestionPipeline.ingest(() -> Files.newInputStream(upload.path()), upload.name(), upload.size(), ragTag, stats);
+        log.info("Uploaded {} to {}", upload.name(), ragTag);
+      }
+      addRagTag(ragTag);
+    }, () -> FileUtils.deleteQuietly(dir.toFile()));
+  }
 
-    log.info("Finished analyzing repository: {}", project);
+  @Override
+  @PostMapping("job/analyze_git_repository")
+  public Response<String> submitGithubRepoJob(
+      @RequestParam String repoUrl,
+      @RequestParam String userName,
+      @RequestParam String token,
+      @RequestParam(required = false) String ref,
+      @RequestParam(required = false) List<String> include,
+      @RequestParam(required = false) List<String> exclude
+  ) {
+    String project = extractProjectName(repoUrl);
+    GitFetchOptions options = fetchOptions(ref, include, exclude);
+    return submit("git", project, stats -> ingestRepository(repoUrl, userName, token, project, options, stats), () -> {});
+  }
 
-    FileUtils.deleteDirectory(localPath.toFile());
+  @Override
+  @GetMapping("job/{jobId}")
+  public Response<IngestionJobDTO> queryJob(@PathVariable String jobId) {
+    IngestionJobDTO job = ingestionJobManager.get(jobId);
+    if (job == null) {
+      return Response.<IngestionJobDTO>builder().code("0001").info("Job not found").build();
+    }
+    return Response.<IngestionJobDTO>builder().code("0000").info("Query successful").data(job).build();
+  }
 
-    RList<String> tags = redissonClient.getList("ragTag");
-    if (!tags.contains(project)) tags.add(project);
+  @Override
+  @GetMapping(value = "job/{jobId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<IngestionJobDTO> streamJobProgress(@PathVariable String jobId) {
+    // read state from Redis on every tick, so the job may be running on any instance
+    return Flux.interval(Duration.ZERO, PROGRESS_INTERVAL)
+        .concatMap(tick -> Mono.fromCompletionStage(ingestionJobManager.getAsync(jobId))
+            .switchIfEmpty(Mono.error(new IllegalArgumentException("Job not found: " + jobId))))
+        .takeUntil(IngestionJobDTO::isTerminal)
+        .onErrorResume(IllegalArgumentException.class, e -> Flux.empty());
+  }
 
-    return Response.<String>builder().code("0000").info("Repository analysis successful").build();
+  @Override
+  @PostMapping("job/{jobId}/cancel")
+  public Response<Boolean> cancelJob(@PathVariable String jobId) {
+    boolean cancelled = ingestionJobManager.cancel(jobId);
+    return Response.<Boolean>builder()
+        .code("0000")
+        .info(cancelled ? "Cancel requested" : "Job not found or already finished")
+        .data(cancelled)
+        .build();
   }
 
-  /** Skip useless binary or media files */
-  private boolean shouldSkip(Path file) {
-    String name = file.getFileName().toString().toLowerCase();
-    return name.matches(
-        ".*\\.(png|jpe?g|gif|bmp|ico"
-            + "|class|jar|exe|dll|so"
-            + "|zip|tar\\.gz|rar|7z)$"
-    );
+  @Override
+  @GetMapping("cache_stats")
+  public Response<List<CacheStatsDTO>> queryCacheStats() {
+    List<CacheStatsDTO> stats = meteredCaches.stream().map(MeteredCache::stats).toList();
+    return Response.<List<CacheStatsDTO>>builder()
+        .code("0000")
+        .info("Query successful")
+        .data(stats)
+        .build();
   }
 
-  /** Try plain-text parsing first; fallback to Tika if needed; skip null content. */
-  private List<Document> parseFileSafely(Path file) throws Exception {
-    if (shouldSkip(file)) {
-      return List.of();
-    }
-    try {
-      String txt = Files.readString(file);
-      if (!txt.isBlank()) {
-        return List.of(new Document(txt));
-      }
-    } catch (IOException ignored) {}
-    return tikaParseWithTimeout(file).stream()
-        .filter(d -> d.getContent() != null)
-        .collect(Collectors.toList());
+  @Override
+  @GetMapping("parse_stats")
+  public Response<ParseStatsDTO> queryParseStats() {
+    return Response.<ParseStatsDTO>builder()
+        .code("0000")
+        .info("Query successful")
+        .data(tikaParserPool.stats())
+        .build();
   }
 
-  /** Parse using Tika with a timeout to prevent long-running operations. */
-  private List<Document> tikaParseWithTimeout(Path file) throws Exception {
-    ExecutorService single = Executors.newSingleThreadExecutor();
+  private Response<String> submit(String type, String ragTag, IngestionJobManager.IngestionTask task, Runnable onDone) {
     try {
-      Future<List<Document>> future = single.submit(() ->
-          new TikaDocumentReader(new PathResource(file)).get()
-      );
-      return future.get(TIKA_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-    } catch (TimeoutException te) {
-      log.warn("Tika timed out on {}", file);
-      return List.of();
-    } finally {
-      single.shutdownNow();
+      String jobId = ingestionJobManager.submit(type, ragTag, task, onDone);
+      return Response.<String>builder().code("0000").info("Job submitted").data(jobId).build();
+    } catch (RejectedExecutionException e) {
+      // onDone has already run
+      return Response.<String>builder().code("0002").info("Ingestion queue is full, retry later").build();
     }
   }
 
+  /** Fetches the repository and re-embeds only what changed since the last indexed commit. */
+  private void ingestRepository(String repoUrl, String userName, String token, String project, GitFetchOptions options,
+                                IngestionStats stats) throws Exception {
+    GitRepositoryIndexer.IndexResult result = gitRepositoryIndexer.index(repoUrl, userName, token, project, options, stats);
+    log.info("Repository {} indexed ({}) at {}, fetched in {} ms", project, result.mode(), result.commit(), result.fetchMillis());
+    addRagTag(project);
+  }
+
+  private static GitFetchOptions fetchOptions(String ref, List<String> include, List<String> exclude) {
+    return GitFetchOptions.builder()
+        .ref(ref)
+        .includes(include == null ? List.of() : include)
+        .excludes(exclude == null ? List.of() : exclude)
+        .build();
+  }
+
+  private void addRagTag(String ragTag) {
+    RList<String> tags = redissonClient.getList("ragTag");
+    if (!tags.contains(ragTag)) tags.add(ragTag);
+  }
+
+  /** An uploaded file copied out of the request, under its original name. */
+  private record Upload(Path path, String name, long size) {
+  }
+
   /** Extracts the last portion of a Git URL to use as a project name. */
   private String extractProjectName(String repoUrl) {
     String[] parts = repoUrl.split("/");
@@ -0,0 +1,271 @@
+package carson.dev.tech.trigger.ingest;
+
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits source files at declaration boundaries instead of every {@code chunkSize} tokens, so a chunk is one or a
+ * few whole methods, functions, YAML blocks or Markdown sections rather than the end of one and the start of the next.
+ * <p>
+ * Text is read line by line and classified by a {@link CodeOutline}. Consecutive declarations are packed into one
+ * chunk while they fit in {@code chunkSize} tokens; a declaration that alone is larger is cut at line boundaries, and
+ * a single line larger than that (minified code) falls back to {@link StreamingTextSplitter}. Comments, annotations and
+ * decorators stay with the declaration they precede. Every chunk carries {@code language}, {@code startLine},
+ * {@code endLine} (1-based, inclusive) and, when it holds named declarations, {@code symbol}
+ * (e.g. {@code UserService.findById, UserService.save}), on top of the caller's metadata such as {@code path}.
+ * Like a {@link StreamingTextSplitter.Session}, a session keeps at most about one chunk of text in memory.
+ */
+public class CodeAwareSplitter {
+
+  private final int chunkSize;
+  private final int minChunkLengthToEmbed;
+  private final StreamingTextSplitter fallback;
+
+  /** Same defaults as {@code new TokenTextSplitter()}. */
+  public CodeAwareSplitter() {
+    this(800, 350, 5);
+  }
+
+  public CodeAwareSplitter(int chunkSize, int minChunkSizeChars, int minChunkLengthToEmbed) {
+    this.chunkSize = Math.max(1, chunkSize);
+    this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+    this.fallback = new StreamingTextSplitter(chunkSize, minChunkSizeChars, minChunkLengthToEmbed);
+  }
+
+  /**
+   * Starts a document in {@code language}. Text written to the session is emitted to {@code sink} chunk by chunk,
+   * each with a copy of {@code metadata} plus the line range and symbols; closing the session emits the rest.
+   */
+  public Session open(CodeLanguage language, Map<String, Object> metadata, DocumentSink sink) {
+    return new Session(language, metadata, sink);
+  }
+
+  /** Lines collected for one chunk, with their token count and the range of their non-blank lines. */
+  private static final class Lines {
+    private final StringBuilder text = new StringBuilder();
+    private final Set<String> symbols = new LinkedHashSet<>();
+    private int tokens;
+    private int startLine;
+    private int endLine;
+
+    boolean isEmpty() {
+      return text.isEmpty();
+    }
+
+    void add(String line, int tokens, int number) {
+      text.append(line);
+      this.tokens += tokens;
+      if (!line.isBlank()) {
+        if (startLine == 0) startLine = number;
+        endLine = number;
+      }
+    }
+
+    void addAll(Lines other) {
+      text.append(other.text);
+      tokens += other.tokens;
+      symbols.addAll(other.symbols);
+      if (startLine == 0) startLine = other.startLine;
+      if (other.endLine != 0) endLine = other.endLine;
+    }
+
+    void clear() {
+      text.setLength(0);
+      symbols.clear();
+      tokens = 0;
+      startLine = 0;
+      endLine = 0;
+    }
+  }
+
+  /** Not thread-safe: one writer per document. */
+  public final class Session extends Writer {
+
+    private final CodeLanguage language;
+    private final CodeOutline outline;
+    private final Map<String, Object> metadata;
+    private final DocumentSink sink;
+    private final StringBuilder line = new StringBuilder();
+    // longer lines are handed on in pieces, so one huge line cannot pin the heap
+    private final int maxLineChars = chunkSize * 16;
+    /** whole declarations waiting to be emitted together */
+    private final Lines chunk = new Lines();
+    /** the declaration being read */
+    private final Lines section = new Lines();
+    /** comment and blank lines that go to the next declaration, or to this one if none follows */
+    private final Lines preamble = new Lines();
+    private String symbol;
+    private int lineNumber = 1;
+    private int chunks;
+    private boolean closed;
+
+    private Session(CodeLanguage language, Map<String, Object> metadata, DocumentSink sink) {
+      this.language = language;
+      this.outline = CodeOutline.of(language);
+      this.metadata = metadata;
+      this.sink = sink;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+      ensureOpen();
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        char c = buffer[i];
+        line.append(c);
+        if (c == '\n') {
+          endLine(true);
+        } else if (line.length() >= maxLineChars) {
+          endLine(false);
+        }
+      }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+      write(text.toCharArray(), offset, length);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /** Emits the lines still pending as the last chunks. */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (!line.isEmpty()) {
+        endLine(true);
+      }
+      section.addAll(preamble);
+      endSection();
+      emit(chunk);
+    }
+
+    /** Chunks emitted so far. */
+    public int getChunks() {
+      return chunks;
+    }
+
+    private void endLine(boolean complete) throws IOException {
+      String text = line.toString();
+      line.setLength(0);
+      int number = lineNumber;
+      if (complete) {
+        lineNumber++;
+      }
+      CodeOutline.Kind kind = complete ? outline.next(stripTerminator(text)) : CodeOutline.Kind.BODY;
+      int tokens = TokenCounter.count(text);
+      // a comment block longer than a chunk is cut like any other text
+      if (kind == CodeOutline.Kind.PREAMBLE && preamble.tokens + tokens <= chunkSize) {
+        preamble.add(text, tokens, number);
+        return;
+      }
+      if (kind == CodeOutline.Kind.DECLARATION) {
+        endSection();
+        symbol = outline.symbol();
+      }
+      if (!preamble.isEmpty()) {
+        if (section.tokens + preamble.tokens > chunkSize) {
+          overflow();
+        }
+        section.addAll(preamble);
+        preamble.clear();
+      }
+      if (section.tokens + tokens > chunkSize) {
+        overflow();
+      }
+      if (tokens > chunkSize) {
+        split(text, number);
+        return;
+      }
+      section.add(text, tokens, number);
+      if (symbol != null) section.symbols.add(symbol);
+    }
+
+    /** The declaration outgrew a chunk: emit what is packed, then the declaration so far, and go on from the next line. */
+    private void overflow() throws IOException {
+      emit(chunk);
+      emit(section);
+    }
+
+    /** Packs the finished declaration with the previous ones while they fit. */
+    private void endSection() throws IOException {
+      if (section.isEmpty()) {
+        return;
+      }
+      if (chunk.tokens + section.tokens > chunkSize) {
+        emit(chunk);
+      }
+      chunk.addAll(section);
+      section.clear();
+    }
+
+    /** One line bigger than a chunk, e.g. minified code: cut by tokens. */
+    private void split(String text, int number) throws IOException {
+      Map<String, Object> lineMetadata = metadata(number, number, symbol == null ? Set.of() : Set.of(symbol));
+      StreamingTextSplitter.Session session = fallback.open(lineMetadata, sink);
+      session.write(text);
+      session.close();
+      chunks += session.getChunks();
+    }
+
+    private void emit(Lines lines) throws IOException {
+      if (lines.isEmpty()) {
+        return;
+      }
+      if (lines.startLine == 0) {
+        // blank lines only
+        lines.clear();
+        return;
+      }
+      String text = lines.text.toString().strip();
+      Map<String, Object> chunkMetadata = metadata(lines.startLine, lines.endLine, lines.symbols);
+      lines.clear();
+      if (text.length() <= minChunkLengthToEmbed) {
+        return;
+      }
+      try {
+        sink.accept(new Document(text, chunkMetadata));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while emitting a chunk");
+      }
+      chunks++;
+    }
+
+    private Map<String, Object> metadata(int startLine, int endLine, Set<String> symbols) {
+      Map<String, Object> chunkMetadata = new HashMap<>(metadata);
+      chunkMetadata.put("language", language.getId());
+      chunkMetadata.put("startLine", startLine);
+      chunkMetadata.put("endLine", endLine);
+      if (!symbols.isEmpty()) {
+        chunkMetadata.put("symbol", String.join(", ", symbols));
+      }
+      return chunkMetadata;
+    }
+
+    private void ensureOpen() throws IOException {
+      if (closed) {
+        throw new IOException("Session is closed");
+      }
+    }
+  }
+
+  private static String stripTerminator(String line) {
+    int end = line.length();
+    if (end > 0 && line.charAt(end - 1) == '\n') end--;
+    if (end > 0 && line.charAt(end - 1) == '\r') end--;
+    return line.substring(0, end);
+  }
+}
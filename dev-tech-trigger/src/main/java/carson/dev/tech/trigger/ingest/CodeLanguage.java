@@ -0,0 +1,38 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.util.Locale;
+
+/**
+ * Languages {@link CodeAwareSplitter} knows the declaration boundaries of, by file extension.
+ */
+public enum CodeLanguage {
+
+  JAVA("java"),
+  TYPESCRIPT("typescript"),
+  PYTHON("python"),
+  YAML("yaml"),
+  MARKDOWN("markdown");
+
+  private final String id;
+
+  CodeLanguage(String id) {
+    this.id = id;
+  }
+
+  /** Value of the {@code language} metadata of the chunks. */
+  public String getId() {
+    return id;
+  }
+
+  /** The language of {@code fileName}, or null when it is split as plain text. */
+  public static CodeLanguage of(String fileName) {
+    return switch (ContentSniffer.extension(fileName.toLowerCase(Locale.ROOT))) {
+      case "java" -> JAVA;
+      case "ts", "tsx", "mts", "cts", "js", "jsx", "mjs", "cjs" -> TYPESCRIPT;
+      case "py", "pyi" -> PYTHON;
+      case "yml", "yaml" -> YAML;
+      case "md", "markdown", "mdx" -> MARKDOWN;
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,333 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the lines where a declaration starts, one line at a time and without a parser: brace depth for Java and
+ * TypeScript, indentation for Python, top-level keys for YAML and headings for Markdown. Good enough to cut chunks at
+ * class, method and function boundaries; a wrong guess only moves a cut, never loses text.
+ * Not thread-safe: one instance per file.
+ */
+abstract class CodeOutline {
+
+  enum Kind {
+    /** first line of a declaration; {@link #symbol()} names it */
+    DECLARATION,
+    /** blank, comment, annotation or decorator line that belongs to the next declaration if one follows */
+    PREAMBLE,
+    BODY
+  }
+
+  private String symbol;
+
+  static CodeOutline of(CodeLanguage language) {
+    return switch (language) {
+      case JAVA -> new BraceOutline(BraceOutline.JAVA_TYPE, BraceOutline.JAVA_FUNCTION, BraceOutline.JAVA_MEMBER, true);
+      case TYPESCRIPT -> new BraceOutline(BraceOutline.TS_TYPE, BraceOutline.TS_FUNCTION, BraceOutline.TS_MEMBER, false);
+      case PYTHON -> new PythonOutline();
+      case YAML -> new YamlOutline();
+      case MARKDOWN -> new MarkdownOutline();
+    };
+  }
+
+  /** Classifies {@code line}, given without its line terminator. */
+  abstract Kind next(String line);
+
+  /** Name of the last declaration, e.g. {@code UserService.findById}; null for an anonymous section. */
+  String symbol() {
+    return symbol;
+  }
+
+  Kind declaration(String symbol) {
+    this.symbol = symbol;
+    return Kind.DECLARATION;
+  }
+
+  private static int indent(String line) {
+    int indent = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == ' ') indent++;
+      else if (c == '\t') indent += 4;
+      else break;
+    }
+    return indent;
+  }
+
+  /**
+   * Java and TypeScript: declarations at brace depth 0 (types, functions) and 1 (members of a type). Braces inside
+   * strings, comments, Java text blocks and template literals are not counted.
+   */
+  static final class BraceOutline extends CodeOutline {
+
+    private static final Set<String> KEYWORDS = Set.of("if", "for", "while", "switch", "catch", "return", "new",
+        "throw", "else", "do", "try", "case", "yield", "synchronized", "function", "await", "typeof", "super", "this");
+
+    private static final Pattern ANNOTATIONS = Pattern.compile("^(?:@[\\w$.]+(?:\\([^)]*\\))?\\s*)+");
+
+    static final Pattern JAVA_TYPE = Pattern.compile(
+        "^(?:(?:public|protected|private|static|final|abstract|sealed|non-sealed|strictfp)\\s+)*"
+            + "(?:class|interface|enum|record|@interface)\\s+([\\w$]+)");
+    static final Pattern JAVA_FUNCTION = Pattern.compile("(?!)");
+    static final Pattern JAVA_MEMBER = Pattern.compile(
+        "^(?:(?:public|protected|private|static|final|abstract|synchronized|native|default|strictfp)\\s+)*"
+            + "(?:<[^>]*>\\s*)?(?:[\\w$][\\w$.<>\\[\\],?\\s]*?\\s+)?([\\w$]+)\\s*\\(");
+    static final Pattern TS_TYPE = Pattern.compile(
+        "^(?:export\\s+)?(?:default\\s+)?(?:declare\\s+)?(?:abstract\\s+)?"
+            + "(?:class|interface|enum|namespace|module)\\s+([\\w$]+)");
+    static final Pattern TS_FUNCTION = Pattern.compile(
+        "^(?:export\\s+)?(?:default\\s+)?(?:declare\\s+)?(?:async\\s+)?function\\s*\\*?\\s*([\\w$]+)"
+            + "|^(?:export\\s+)?(?:declare\\s+)?type\\s+([\\w$]+)"
+            + "|^(?:export\\s+)?(?:const|let|var)\\s+([\\w$]+)\\s*(?::[^=]+)?=\\s*(?:async\\s+)?(?:function\\b|\\(|<|[\\w$]+\\s*=>)");
+    static final Pattern TS_MEMBER = Pattern.compile(
+        "^(?:(?:public|private|protected|static|readonly|abstract|async|override|declare|get|set)\\s+)*"
+            + "\\*?\\s*(#?[\\w$]+)\\s*\\??\\s*(?:<[^>]*>)?\\s*\\(");
+
+    private final Pattern type;
+    private final Pattern function;
+    private final Pattern member;
+    /** a Java member without a return type is only a constructor when it is named after the type */
+    private final boolean java;
+
+    private int depth;
+    private boolean inBlockComment;
+    private boolean inTextBlock;
+    private boolean inTemplate;
+    private String typeName;
+
+    BraceOutline(Pattern type, Pattern function, Pattern member, boolean java) {
+      this.type = type;
+      this.function = function;
+      this.member = member;
+      this.java = java;
+    }
+
+    @Override
+    Kind next(String line) {
+      Kind kind = classify(line.strip());
+      scan(line);
+      return kind;
+    }
+
+    private Kind classify(String trimmed) {
+      if (inTextBlock || inTemplate || depth > 1) {
+        return Kind.BODY;
+      }
+      if (inBlockComment || trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("/*")
+          || trimmed.startsWith("*")) {
+        return Kind.PREAMBLE;
+      }
+      if (trimmed.startsWith("@") && !trimmed.startsWith("@interface")) {
+        // "@Override public String toString() {" declares on the annotation line
+        String declared = ANNOTATIONS.matcher(trimmed).replaceFirst("");
+        if (declared.isEmpty()) {
+          return Kind.PREAMBLE;
+        }
+        trimmed = declared;
+      }
+      Matcher m = type.matcher(trimmed);
+      if (m.find()) {
+        String name = m.group(1);
+        if (depth == 0) {
+          typeName = name;
+          return declaration(name);
+        }
+        return declaration(qualify(name));
+      }
+      if (depth == 0) {
+        m = function.matcher(trimmed);
+        if (m.find()) {
+          typeName = null;
+          return declaration(firstGroup(m));
+        }
+        return Kind.BODY;
+      }
+      m = member.matcher(trimmed);
+      if (m.find() && !KEYWORDS.contains(m.group(1)) && isMember(trimmed, m)) {
+        return declaration(qualify(m.group(1)));
+      }
+      return Kind.BODY;
+    }
+
+    private boolean isMember(String trimmed, Matcher m) {
+      if (!java) {
+        return true;
+      }
+      // "foo(...)" alone is a call or an enum constant unless it is the constructor
+      String beforeName = trimmed.substring(0, m.start(1)).strip();
+      boolean hasReturnType = !beforeName.isEmpty() && !beforeName.matches(
+          "(?:(?:public|protected|private|static|final|abstract|synchronized|native|default|strictfp)\\s*)+");
+      return hasReturnType || m.group(1).equals(typeName);
+    }
+
+    private String qualify(String name) {
+      return typeName == null ? name : typeName + "." + name;
+    }
+
+    private static String firstGroup(Matcher m) {
+      for (int g = 1; g <= m.groupCount(); g++) {
+        if (m.group(g) != null) return m.group(g);
+      }
+      return null;
+    }
+
+    private void scan(String line) {
+      char quote = 0;
+      for (int i = 0; i < line.length(); i++) {
+        char c = line.charAt(i);
+        char n = i + 1 < line.length() ? line.charAt(i + 1) : 0;
+        if (inBlockComment) {
+          if (c == '*' && n == '/') {
+            inBlockComment = false;
+            i++;
+          }
+        } else if (inTextBlock) {
+          if (line.startsWith("\"\"\"", i)) {
+            inTextBlock = false;
+            i += 2;
+          } else if (c == '\\') {
+            i++;
+          }
+        } else if (inTemplate) {
+          if (c == '`') inTemplate = false;
+          else if (c == '\\') i++;
+        } else if (quote != 0) {
+          if (c == quote) quote = 0;
+          else if (c == '\\') i++;
+        } else if (c == '/' && n == '/') {
+          return;
+        } else if (c == '/' && n == '*') {
+          inBlockComment = true;
+          i++;
+        } else if (java && line.startsWith("\"\"\"", i)) {
+          inTextBlock = true;
+          i += 2;
+        } else if (!java && c == '`') {
+          inTemplate = true;
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+        } else if (c == '{') {
+          depth++;
+        } else if (c == '}') {
+          depth = Math.max(0, depth - 1);
+        }
+      }
+    }
+  }
+
+  /** Python: {@code def} and {@code class} at module level or directly in a class; functions nested in functions are not cut. */
+  static final class PythonOutline extends CodeOutline {
+
+    private static final Pattern DEF = Pattern.compile("^\\s*(?:async\\s+)?(def|class)\\s+(\\w+)");
+
+    /** enclosing def / class lines: indentation, name, whether a class */
+    private final Deque<Object[]> scopes = new ArrayDeque<>();
+    private String tripleQuote;
+
+    @Override
+    Kind next(String line) {
+      if (tripleQuote != null) {
+        if (count(line, tripleQuote) % 2 == 1) tripleQuote = null;
+        return Kind.BODY;
+      }
+      String trimmed = line.strip();
+      if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("@")) {
+        return Kind.PREAMBLE;
+      }
+      trackTripleQuotes(line);
+      int indent = indent(line);
+      while (!scopes.isEmpty() && (int) scopes.peek()[0] >= indent) {
+        scopes.pop();
+      }
+      Matcher m = DEF.matcher(line);
+      if (m.find()) {
+        boolean inFunction = scopes.stream().anyMatch(s -> !(boolean) s[2]);
+        StringBuilder symbol = new StringBuilder();
+        scopes.descendingIterator().forEachRemaining(s -> symbol.append(s[1]).append('.'));
+        symbol.append(m.group(2));
+        scopes.push(new Object[]{indent, m.group(2), "class".equals(m.group(1))});
+        return inFunction ? Kind.BODY : declaration(symbol.toString());
+      }
+      if (indent == 0 && symbol() != null) {
+        // module-level statement after a def or class: a section of its own
+        return declaration(null);
+      }
+      return Kind.BODY;
+    }
+
+    private void trackTripleQuotes(String line) {
+      for (String quote : new String[]{"\"\"\"", "'''"}) {
+        if (count(line, quote) % 2 == 1) {
+          tripleQuote = quote;
+          return;
+        }
+      }
+    }
+
+    private static int count(String line, String token) {
+      int count = 0;
+      for (int i = line.indexOf(token); i >= 0; i = line.indexOf(token, i + token.length())) count++;
+      return count;
+    }
+  }
+
+  /** YAML: every top-level key and every {@code ---} document separator. */
+  static final class YamlOutline extends CodeOutline {
+
+    private static final Pattern KEY = Pattern.compile("^([^\\s#\\-][^:#]*?)\\s*:(?:\\s|$)");
+
+    @Override
+    Kind next(String line) {
+      if (line.isBlank() || line.stripLeading().startsWith("#")) {
+        return Kind.PREAMBLE;
+      }
+      if (line.startsWith("---")) {
+        return declaration(null);
+      }
+      Matcher m = KEY.matcher(line);
+      return m.find() ? declaration(m.group(1).replaceAll("^[\"']|[\"']$", "")) : Kind.BODY;
+    }
+  }
+
+  /** Markdown: ATX headings outside fenced code, named by their heading path, e.g. {@code Setup > Docker}. */
+  static final class MarkdownOutline extends CodeOutline {
+
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}(#{1,6})\\s+(.*?)\\s*#*\\s*$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(```|~~~)");
+
+    private final String[] headings = new String[6];
+    private String fence;
+
+    @Override
+    Kind next(String line) {
+      Matcher f = FENCE.matcher(line);
+      if (f.find()) {
+        if (fence == null) fence = f.group(1);
+        else if (fence.equals(f.group(1))) fence = null;
+        return Kind.BODY;
+      }
+      if (fence != null) {
+        return Kind.BODY;
+      }
+      if (line.isBlank()) {
+        return Kind.PREAMBLE;
+      }
+      Matcher m = HEADING.matcher(line);
+      if (!m.find()) {
+        return Kind.BODY;
+      }
+      int level = m.group(1).length();
+      headings[level - 1] = m.group(2);
+      StringBuilder path = new StringBuilder();
+      for (int i = 0; i < 6; i++) {
+        if (i >= level) headings[i] = null;
+        else if (headings[i] != null) path.append(path.length() > 0 ? " > " : "").append(headings[i]);
+      }
+      return declaration(path.toString());
+    }
+  }
+}
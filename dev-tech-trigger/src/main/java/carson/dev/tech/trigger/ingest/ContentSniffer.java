@@ -0,0 +1,217 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Classifies a file from its first {@value #SAMPLE_BYTES} bytes, so each file is read once by the reader that suits
+ * it instead of being decoded in full and then handed to Tika when decoding fails.
+ * <p>
+ * In order: a byte-order mark means text in that encoding; magic numbers pick out documents Tika extracts text from
+ * (PDF, OLE2, RTF, Office Open XML / OpenDocument zips) and binaries that have none (images, archives, executables,
+ * media, databases); a NUL byte or more than 10% control characters means binary; a sample that decodes as UTF-8 is
+ * text; anything else is binary when its byte entropy is near random (compressed or encrypted) and otherwise left to
+ * Tika, which detects legacy encodings.
+ */
+public final class ContentSniffer {
+
+  public static final int SAMPLE_BYTES = 8192;
+
+  private static final double MAX_CONTROL_RATIO = 0.10;
+  /** Bits per byte; UTF-8 prose and code stay well below, compressed data is close to 8. */
+  private static final double MAX_TEXT_ENTROPY = 7.0;
+  private static final Set<String> OFFICE_ZIPS = Set.of("docx", "xlsx", "pptx", "odt", "ods", "odp", "epub");
+  private static final Set<String> RIFF_MEDIA_FORMS = Set.of("WAVE", "AVI ", "WEBP");
+
+  public enum Kind {
+    /** read directly with {@link Result#charset()} */
+    TEXT,
+    /** extracted by Tika */
+    DOCUMENT,
+    /** nothing to index */
+    BINARY,
+    EMPTY
+  }
+
+  public record Result(Kind kind, Charset charset, String reason) {
+
+    public boolean isReadable() {
+      return kind == Kind.TEXT || kind == Kind.DOCUMENT;
+    }
+  }
+
+  private ContentSniffer() {
+  }
+
+  public static Result sniff(Path file) throws IOException {
+    ByteBuffer sample = ByteBuffer.allocate(SAMPLE_BYTES);
+    boolean complete;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      int read = 0;
+      while (sample.hasRemaining() && (read = channel.read(sample)) >= 0) {
+        // keep reading until the sample is full or the file ends
+      }
+      complete = read < 0;
+    }
+    return sniff(sample.array(), sample.position(), complete, file.getFileName().toString());
+  }
+
+  /** Classifies a stream by its first bytes; {@code name} tells office zips from other zips. Does not close {@code in}. */
+  public static Result sniff(InputStream in, String name) throws IOException {
+    byte[] sample = in.readNBytes(SAMPLE_BYTES);
+    // a full sample only proves the file is complete when nothing follows it
+    boolean complete = sample.length < SAMPLE_BYTES || in.read() < 0;
+    return sniff(sample, sample.length, complete, name);
+  }
+
+  /**
+   * @param complete whether {@code sample} is the whole file, so a multi-byte character cut at its end is an error
+   */
+  static Result sniff(byte[] sample, int length, boolean complete, String name) {
+    if (length == 0) {
+      return new Result(Kind.EMPTY, null, "empty");
+    }
+    if (startsWith(sample, length, 0xEF, 0xBB, 0xBF)) {
+      return new Result(Kind.TEXT, StandardCharsets.UTF_8, "UTF-8 BOM");
+    }
+    if (startsWith(sample, length, 0xFE, 0xFF) || startsWith(sample, length, 0xFF, 0xFE)) {
+      // the UTF-16 decoder reads the byte order from the BOM
+      return new Result(Kind.TEXT, StandardCharsets.UTF_16, "UTF-16 BOM");
+    }
+    String magic = magic(sample, length, name);
+    if (magic != null) {
+      return magic.startsWith("document:")
+          ? new Result(Kind.DOCUMENT, null, magic.substring("document:".length()))
+          : new Result(Kind.BINARY, null, magic);
+    }
+    int control = 0;
+    for (int i = 0; i < length; i++) {
+      int b = sample[i] & 0xFF;
+      if (b == 0) {
+        return new Result(Kind.BINARY, null, "NUL byte");
+      }
+      if ((b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != '\b' && b != 0x1B) || b == 0x7F) {
+        control++;
+      }
+    }
+    if (control > length * MAX_CONTROL_RATIO) {
+      return new Result(Kind.BINARY, null, "control characters");
+    }
+    if (isUtf8(sample, length, complete)) {
+      return new Result(Kind.TEXT, StandardCharsets.UTF_8, "UTF-8");
+    }
+    if (entropy(sample, length) > MAX_TEXT_ENTROPY) {
+      return new Result(Kind.BINARY, null, "high entropy");
+    }
+    return new Result(Kind.DOCUMENT, null, "legacy encoding");
+  }
+
+  /** "document:..." for formats Tika extracts text from, the format name for binaries, null for neither. */
+  private static String magic(byte[] s, int n, String name) {
+    if (startsWith(s, n, '%', 'P', 'D', 'F')) return "document:PDF";
+    if (startsWith(s, n, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) return "document:OLE2";
+    if (startsWith(s, n, '{', '\\', 'r', 't', 'f')) return "document:RTF";
+    if (startsWith(s, n, 'P', 'K', 0x03, 0x04)) {
+      return OFFICE_ZIPS.contains(extension(name)) ? "document:office zip" : "zip";
+    }
+    if (startsWith(s, n, 0x89, 'P', 'N', 'G')) return "PNG";
+    if (startsWith(s, n, 0xFF, 0xD8, 0xFF)) return "JPEG";
+    if (startsWith(s, n, 'G', 'I', 'F', '8')) return "GIF";
+    if (isRiffMedia(s, n)) return "RIFF media";
+    if (n > 8 && s[4] == 'f' && s[5] == 't' && s[6] == 'y' && s[7] == 'p') return "MP4 / QuickTime";
+    if (startsWith(s, n, 'I', 'D', '3') || startsWith(s, n, 'O', 'g', 'g', 'S')) return "audio";
+    if (startsWith(s, n, 0x7F, 'E', 'L', 'F')) return "ELF";
+    if (isPortableExecutable(s, n)) return "PE executable";
+    if (startsWith(s, n, 0xCA, 0xFE, 0xBA, 0xBE)) return "class / Mach-O fat";
+    if (startsWith(s, n, 0xCF, 0xFA, 0xED, 0xFE) || startsWith(s, n, 0xCE, 0xFA, 0xED, 0xFE)) return "Mach-O";
+    if (startsWith(s, n, 0x00, 'a', 's', 'm')) return "wasm";
+    if (startsWith(s, n, 0x1F, 0x8B)) return "gzip";
+    if (startsWith(s, n, 'B', 'Z', 'h')) return "bzip2";
+    if (startsWith(s, n, 0xFD, '7', 'z', 'X', 'Z')) return "xz";
+    if (startsWith(s, n, '7', 'z', 0xBC, 0xAF)) return "7z";
+    if (startsWith(s, n, 'R', 'a', 'r', '!')) return "rar";
+    if (startsWith(s, n, 0x28, 0xB5, 0x2F, 0xFD)) return "zstd";
+    if (startsWith(s, n, 'S', 'Q', 'L', 'i', 't', 'e', ' ')) return "SQLite";
+    if (startsWith(s, n, 'P', 'A', 'R', '1')) return "Parquet";
+    if (startsWith(s, n, 'w', 'O', 'F', 'F')) return "font";
+    return null;
+  }
+
+  /**
+   * "MZ" alone also starts text; a PE file's DOS header points at offset 0x3C to its "PE\0\0" signature. A header
+   * pointing past the sample is left to the NUL check, which a real executable fails anyway.
+   */
+  private static boolean isPortableExecutable(byte[] s, int n) {
+    if (!startsWith(s, n, 'M', 'Z') || n < 0x40) {
+      return false;
+    }
+    long offset = littleEndianInt(s, 0x3C);
+    return offset >= 0x40 && offset + 4 <= n
+        && s[(int) offset] == 'P' && s[(int) offset + 1] == 'E' && s[(int) offset + 2] == 0 && s[(int) offset + 3] == 0;
+  }
+
+  /** "RIFF", a chunk size that holds at least the form type, and a form type of a media format. */
+  private static boolean isRiffMedia(byte[] s, int n) {
+    if (!startsWith(s, n, 'R', 'I', 'F', 'F') || n < 12 || littleEndianInt(s, 4) < 4) {
+      return false;
+    }
+    String form = new String(s, 8, 4, StandardCharsets.ISO_8859_1);
+    return RIFF_MEDIA_FORMS.contains(form);
+  }
+
+  private static long littleEndianInt(byte[] s, int at) {
+    return (s[at] & 0xFFL) | (s[at + 1] & 0xFFL) << 8 | (s[at + 2] & 0xFFL) << 16 | (s[at + 3] & 0xFFL) << 24;
+  }
+
+  private static boolean isUtf8(byte[] sample, int length, boolean complete) {
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    CharBuffer out = CharBuffer.allocate(length);
+    // when the sample is cut, a character split at its end is left undecoded rather than reported
+    return !decoder.decode(ByteBuffer.wrap(sample, 0, length), out, complete).isError();
+  }
+
+  private static double entropy(byte[] sample, int length) {
+    int[] counts = new int[256];
+    for (int i = 0; i < length; i++) {
+      counts[sample[i] & 0xFF]++;
+    }
+    double entropy = 0;
+    for (int count : counts) {
+      if (count > 0) {
+        double p = (double) count / length;
+        entropy -= p * Math.log(p) / Math.log(2);
+      }
+    }
+    return entropy;
+  }
+
+  private static boolean startsWith(byte[] sample, int length, int... prefix) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if ((sample[i] & 0xFF) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static String extension(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,160 @@
+package carson.dev.tech.trigger.ingest;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Turns a file on disk into documents, reading it once with the reader its {@link ContentSniffer} class calls for:
+ * text straight through a decoder, PDFs, Office files and legacy encodings through Tika, binaries not at all.
+ * Text in a {@link CodeLanguage} is cut at declaration boundaries by the {@link CodeAwareSplitter}.
+ * <p>
+ * The {@code parse} methods never hold a whole document: text is read through a Reader and Tika's SAX text
+ * output is written straight into a {@link StreamingTextSplitter} session, so chunks reach the sink while the file
+ * is still being read. Tika runs on the shared {@link TikaParserPool} under its limits.
+ */
+public class DocumentFileParser {
+
+  private final StreamingTextSplitter textSplitter;
+  private final CodeAwareSplitter codeSplitter;
+  private final TikaParserPool tikaParserPool;
+
+  public DocumentFileParser() {
+    this(new StreamingTextSplitter(), new CodeAwareSplitter(), new TikaParserPool(TikaParseSettings.builder().build()));
+  }
+
+  public DocumentFileParser(StreamingTextSplitter textSplitter, CodeAwareSplitter codeSplitter,
+                            TikaParserPool tikaParserPool) {
+    this.textSplitter = textSplitter;
+    this.codeSplitter = codeSplitter;
+    this.tikaParserPool = tikaParserPool;
+  }
+
+  /** Skip useless binary or media files, judged by extension; see {@link RepositoryPathFilter} for the full rules */
+  public boolean shouldSkip(Path file) {
+    return RepositoryPathFilter.hasSkippedExtension(file.getFileName().toString());
+  }
+
+  /** Classifies {@code file} from its first bytes; unreadable results mean there is nothing to index. */
+  public ContentSniffer.Result sniff(Path file) throws IOException {
+    return ContentSniffer.sniff(file);
+  }
+
+  /** {@link #sniff(Path)} for a file that is not on disk. */
+  public ContentSniffer.Result sniff(SourceFile file) throws IOException {
+    try (InputStream in = file.getInputStream()) {
+      return ContentSniffer.sniff(in, file.getPath());
+    }
+  }
+
+  /** Starts the parse budget shared by the files of one ingestion run or upload request. */
+  public ParseJob newJob() {
+    return tikaParserPool.newJob();
+  }
+
+  /** {@link #parse(Path, Map, DocumentSink, ParseJob)} without a job budget. */
+  public int parse(Path file, Map<String, Object> metadata, DocumentSink sink) throws Exception {
+    return parse(file, metadata, sink, ParseJob.unbounded());
+  }
+
+  /** Sniffs {@code file} and streams it into chunks; binaries and empty files give none. */
+  public int parse(Path file, Map<String, Object> metadata, DocumentSink sink, ParseJob job) throws Exception {
+    if (shouldSkip(file)) {
+      return 0;
+    }
+    return parse(file, sniff(file), metadata, sink, job);
+  }
+
+  /**
+   * Streams {@code file} into chunks carrying {@code metadata}, read the way {@code sniff} says. Returns the number
+   * of chunks emitted.
+   * @throws ParseLimitException when a Tika or job limit stopped the parse; earlier chunks were already emitted
+   */
+  public int parse(Path file, ContentSniffer.Result sniff, Map<String, Object> metadata, DocumentSink sink,
+                   ParseJob job) throws Exception {
+    return parse(file.toString(), () -> Files.newInputStream(file), Files.size(file), sniff, metadata, sink, job);
+  }
+
+  /** {@link #parse(Path, ContentSniffer.Result, Map, DocumentSink, ParseJob)} for a file that is not on disk. */
+  public int parse(SourceFile file, ContentSniffer.Result sniff, Map<String, Object> metadata, DocumentSink sink,
+                   ParseJob job) throws Exception {
+    return parse(file.getPath(), file, file.getSize(), sniff, metadata, sink, job);
+  }
+
+  /**
+   * Streams an upload through Tika into chunks carrying {@code metadata}; {@code name} helps type detection.
+   * @param bytes size of the upload, or -1 when unknown
+   */
+  public int parse(InputStreamSource source, String name, long bytes, Map<String, Object> metadata, DocumentSink sink,
+                   ParseJob job) throws Exception {
+    return tikaParserPool.parse(name, source, bytes, job, s -> textSplitter.open(metadata, s), sink);
+  }
+
+  private int parse(String name, InputStreamSource source, long size, ContentSniffer.Result sniff,
+                    Map<String, Object> metadata, DocumentSink sink, ParseJob job) throws Exception {
+    switch (sniff.kind()) {
+      case DOCUMENT:
+        return tikaParserPool.parse(name, source, size, job, s -> textSplitter.open(metadata, s), sink);
+      case TEXT:
+        job.charge(Math.max(size, 0));
+        return readText(name, source, sniff.charset(), metadata, sink);
+      default:
+        return 0;
+    }
+  }
+
+  private int readText(String name, InputStreamSource source, Charset charset, Map<String, Object> metadata,
+                       DocumentSink sink) throws Exception {
+    CodeLanguage language = CodeLanguage.of(name);
+    if (language != null) {
+      CodeAwareSplitter.Session session = codeSplitter.open(language, metadata, sink);
+      transfer(source, charset, session);
+      return session.getChunks();
+    }
+    StreamingTextSplitter.Session session = textSplitter.open(metadata, sink);
+    transfer(source, charset, session);
+    return session.getChunks();
+  }
+
+  /**
+   * Invalid sequences further into the file than the sniffed sample become U+FFFD instead of failing the file, so
+   * it is still read only once.
+   */
+  private static void transfer(InputStreamSource source, Charset charset, Writer session) throws Exception {
+    CharsetDecoder decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    try (InputStream in = new BufferedInputStream(source.getInputStream());
+         Reader reader = new InputStreamReader(in, decoder)) {
+      if (charset == StandardCharsets.UTF_8) {
+        skipUtf8Bom(in);
+      }
+      reader.transferTo(session);
+      session.close();
+    } catch (InterruptedIOException e) {
+      throw new InterruptedException(e.getMessage());
+    }
+  }
+
+  /** The UTF-8 decoder would keep the BOM as a U+FEFF at the start of the first chunk. */
+  private static void skipUtf8Bom(InputStream in) throws IOException {
+    in.mark(3);
+    byte[] bom = in.readNBytes(3);
+    if (bom.length < 3 || (bom[0] & 0xFF) != 0xEF || (bom[1] & 0xFF) != 0xBB || (bom[2] & 0xFF) != 0xBF) {
+      in.reset();
+    }
+  }
+}
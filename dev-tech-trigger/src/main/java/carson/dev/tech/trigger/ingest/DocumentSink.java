@@ -0,0 +1,12 @@
+package carson.dev.tech.trigger.ingest;
+
+import org.springframework.ai.document.Document;
+
+/**
+ * Receives chunks as soon as the parser has produced them. May block, which throttles the parser.
+ */
+@FunctionalInterface
+public interface DocumentSink {
+
+  void accept(Document chunk) throws InterruptedException;
+}
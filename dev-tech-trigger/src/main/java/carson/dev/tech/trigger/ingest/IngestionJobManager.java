@@ -0,0 +1,235 @@
+package carson.dev.tech.trigger.ingest;
+
+import carson.dev.tech.api.dto.IngestionJobDTO;
+import carson.dev.tech.api.dto.IngestionJobStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs ingestion off the request threads and keeps job state in Redis, so any instance can report progress
+ * or accept a cancel request for a job that is running somewhere else.
+ * <p>
+ * Jobs run on a fixed-size pool with a bounded queue; when both are full {@link #submit} fails fast instead
+ * of piling work up. A reporter thread periodically copies each local job's {@link IngestionStats} into Redis
+ * and checks the cancel flag, which is how a cancel issued on another instance reaches the running job.
+ * <p>
+ * A job that is still queued is never cancelled through its future: it runs, sees the flag and publishes CANCELLED,
+ * so every job reaches a terminal state and its {@code onDone} hook runs exactly once.
+ */
+@Slf4j
+public class IngestionJobManager {
+
+  private static final String JOB_KEY = "ingestJob:";
+  private static final String CANCEL_SUFFIX = ":cancel";
+
+  private final RedissonClient redissonClient;
+  private final ThreadPoolExecutor executor;
+  private final ScheduledExecutorService reporter;
+  private final Duration ttl;
+  private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+
+  /** The body of a job; report progress through the given stats. */
+  @FunctionalInterface
+  public interface IngestionTask {
+    void run(IngestionStats stats) throws Exception;
+  }
+
+  public IngestionJobManager(RedissonClient redissonClient, int threads, int queueCapacity, long progressIntervalMs, Duration ttl) {
+    this.redissonClient = redissonClient;
+    this.ttl = ttl;
+    AtomicInteger seq = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueCapacity),
+        r -> new Thread(r, "ingest-job-" + seq.incrementAndGet()),
+        new ThreadPoolExecutor.AbortPolicy());
+    this.reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "ingest-job-reporter");
+      t.setDaemon(true);
+      return t;
+    });
+    this.reporter.scheduleWithFixedDelay(this::report, progressIntervalMs, progressIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues a job and returns its id immediately.
+   * @throws RejectedExecutionException when the job queue is full
+   */
+  public String submit(String type, String ragTag, IngestionTask task) {
+    return submit(type, ragTag, task, () -> {});
+  }
+
+  /**
+   * Queues a job and returns its id immediately.
+   * @param onDone runs once the job is finished, failed or cancelled, also when it is cancelled before it starts,
+   *               rejected, or dropped from the queue on shutdown; releases what the task owns, such as temp files
+   * @throws RejectedExecutionException when the job queue is full
+   */
+  public String submit(String type, String ragTag, IngestionTask task, Runnable onDone) {
+    String jobId = UUID.randomUUID().toString();
+    long now = System.currentTimeMillis();
+    IngestionJobDTO job = IngestionJobDTO.builder()
+        .jobId(jobId)
+        .type(type)
+        .ragTag(ragTag)
+        .status(IngestionJobStatus.PENDING)
+        .submittedAt(now)
+        .updatedAt(now)
+        .build();
+    bucket(jobId).set(job, ttl);
+
+    RunningJob runningJob = new RunningJob(job, new IngestionStats(), onDone);
+    running.put(jobId, runningJob);
+    try {
+      runningJob.future = executor.submit(() -> execute(runningJob, task));
+    } catch (RejectedExecutionException e) {
+      running.remove(jobId);
+      bucket(jobId).delete();
+      runningJob.done();
+      throw e;
+    }
+    log.info("Submitted {} ingestion job {} for {}", type, jobId, ragTag);
+    return jobId;
+  }
+
+  public IngestionJobDTO get(String jobId) {
+    return bucket(jobId).get();
+  }
+
+  public CompletionStage<IngestionJobDTO> getAsync(String jobId) {
+    return bucket(jobId).getAsync();
+  }
+
+  /** Requests cancellation; returns false when the job is unknown or already finished. */
+  public boolean cancel(String jobId) {
+    IngestionJobDTO job = get(jobId);
+    if (job == null || job.isTerminal()) {
+      return false;
+    }
+    redissonClient.<Boolean>getBucket(JOB_KEY + jobId + CANCEL_SUFFIX).set(Boolean.TRUE, ttl);
+    // a queued job checks the flag when it starts; cancelling its future would skip execute() and leave it PENDING.
+    // A job that turns RUNNING right after this check is interrupted by the next report()
+    RunningJob local = running.get(jobId);
+    if (local != null && local.future != null && local.snapshot.getStatus() == IngestionJobStatus.RUNNING) {
+      local.future.cancel(true);
+    }
+    return true;
+  }
+
+  public void shutdown() {
+    reporter.shutdownNow();
+    executor.shutdownNow();
+    // jobs still in the queue never run execute()
+    for (RunningJob job : running.values()) {
+      if (job.snapshot.getStatus() == IngestionJobStatus.PENDING) {
+        try {
+          publish(job, IngestionJobStatus.CANCELLED, "shutdown");
+        } catch (Exception e) {
+          log.warn("Failed to publish shutdown of job {} → {}", job.snapshot.getJobId(), e.getMessage());
+        } finally {
+          job.done();
+        }
+      }
+    }
+  }
+
+  private void execute(RunningJob job, IngestionTask task) {
+    String jobId = job.snapshot.getJobId();
+    try {
+      if (isCancelRequested(jobId)) {
+        throw new CancellationException();
+      }
+      publish(job, IngestionJobStatus.RUNNING, null);
+      task.run(job.stats);
+      job.stats.finish();
+      publish(job, IngestionJobStatus.SUCCEEDED, job.stats.getElapsedMillis() + "ms");
+    } catch (InterruptedException | CancellationException e) {
+      publish(job, IngestionJobStatus.CANCELLED, "cancelled");
+      log.info("Ingestion job {} cancelled", jobId);
+    } catch (Exception e) {
+      boolean cancelled = Thread.currentThread().isInterrupted() || isCancelRequested(jobId);
+      publish(job, cancelled ? IngestionJobStatus.CANCELLED : IngestionJobStatus.FAILED, e.getMessage());
+      log.warn("Ingestion job {} {} → {}", jobId, cancelled ? "cancelled" : "failed", e.getMessage());
+    } finally {
+      running.remove(jobId);
+      Thread.interrupted();
+      job.done();
+    }
+  }
+
+  /** Copies local progress into Redis and forwards cancel requests made on other instances. */
+  private void report() {
+    for (RunningJob job : running.values()) {
+      try {
+        if (job.snapshot.getStatus() != IngestionJobStatus.RUNNING) continue;
+        if (job.future != null && isCancelRequested(job.snapshot.getJobId())) {
+          job.future.cancel(true);
+        }
+        publish(job, IngestionJobStatus.RUNNING, null);
+      } catch (Exception e) {
+        log.warn("Failed to report progress of job {} → {}", job.snapshot.getJobId(), e.getMessage());
+      }
+    }
+  }
+
+  private synchronized void publish(RunningJob job, IngestionJobStatus status, String message) {
+    IngestionJobDTO snapshot = job.snapshot;
+    // a late progress tick must not overwrite the final state
+    if (snapshot.isTerminal()) return;
+    snapshot.setStatus(status);
+    snapshot.setFilesScanned(job.stats.getFilesScanned());
+    snapshot.setChunksEmbedded(job.stats.getChunksEmbedded());
+    snapshot.setRowsWritten(job.stats.getRowsWritten());
+    snapshot.setErrors(job.stats.getErrors());
+    if (message != null) snapshot.setMessage(message);
+    snapshot.setUpdatedAt(System.currentTimeMillis());
+    bucket(snapshot.getJobId()).set(snapshot, ttl);
+  }
+
+  private boolean isCancelRequested(String jobId) {
+    return Boolean.TRUE.equals(redissonClient.<Boolean>getBucket(JOB_KEY + jobId + CANCEL_SUFFIX).get());
+  }
+
+  private RBucket<IngestionJobDTO> bucket(String jobId) {
+    return redissonClient.getBucket(JOB_KEY + jobId);
+  }
+
+  private static final class RunningJob {
+    private final IngestionJobDTO snapshot;
+    private final IngestionStats stats;
+    private final Runnable onDone;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private volatile Future<?> future;
+
+    private RunningJob(IngestionJobDTO snapshot, IngestionStats stats, Runnable onDone) {
+      this.snapshot = snapshot;
+      this.stats = stats;
+      this.onDone = onDone;
+    }
+
+    private void done() {
+      if (!done.compareAndSet(false, true)) return;
+      try {
+        onDone.run();
+      } catch (RuntimeException e) {
+        log.warn("Completion hook of job {} failed → {}", snapshot.getJobId(), e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,465 @@
+package carson.dev.tech.trigger.ingest;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.embedding.EmbeddingLane;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Staged ingestion: walk → parse → embed → write, joined by bounded queues.
+ * <p>
+ * The walk prunes ignored, vendored and generated paths before they are opened ({@link RepositoryPathFilter}), and
+ * the parse stage sniffs each file's first bytes ({@link ContentSniffer}) so binaries are dropped after one small
+ * read. It streams the rest through {@link DocumentFileParser} and emits chunks as they are cut, so a large
+ * file never sits in memory whole: what is in flight is bounded by the queue capacities and batch sizes.
+ * Every stage has its own worker count, so slow Tika parses do not starve the embedding calls and vice versa.
+ * The embed stage groups chunks until {@code embedBatchTokens} is reached and sends them upstream in one call;
+ * the write stage does the same with {@code writeBatchTokens} so PgVectorStore gets one JDBC batch per flush
+ * instead of one per file (same idea as the BATCH_SIZE flush loop in JGitTest.test_file, but sized by tokens).
+ * Chunks reach the vector store with their embedding already set, so the store must be built on a
+ * {@link carson.dev.tech.trigger.embedding.PrecomputedEmbeddingClient} to avoid embedding them twice.
+ */
+@Slf4j
+public class IngestionPipeline {
+
+  /** Marks the end of a queue; one is enqueued per downstream worker. */
+  private static final Object EOF = new Object();
+
+  private final EmbeddingClient embeddingClient;
+  private final VectorStore vectorStore;
+  private final DocumentFileParser documentFileParser;
+  private final RagTagChangeNotifier ragTagChangeNotifier;
+  private final int parseThreads;
+  private final int embedThreads;
+  private final int writeThreads;
+  private final int queueCapacity;
+  private final int embedBatchTokens;
+  private final int writeBatchTokens;
+
+  @Builder
+  public IngestionPipeline(EmbeddingClient embeddingClient, VectorStore vectorStore, DocumentFileParser documentFileParser,
+                           RagTagChangeNotifier ragTagChangeNotifier, int parseThreads, int embedThreads,
+                           int writeThreads, int queueCapacity, int embedBatchTokens, int writeBatchTokens) {
+    this.embeddingClient = embeddingClient;
+    this.vectorStore = vectorStore;
+    this.documentFileParser = documentFileParser != null ? documentFileParser : new DocumentFileParser();
+    this.ragTagChangeNotifier = ragTagChangeNotifier;
+    this.parseThreads = Math.max(1, parseThreads);
+    this.embedThreads = Math.max(1, embedThreads);
+    this.writeThreads = Math.max(1, writeThreads);
+    this.queueCapacity = Math.max(1, queueCapacity);
+    this.embedBatchTokens = Math.max(1, embedBatchTokens);
+    this.writeBatchTokens = Math.max(1, writeBatchTokens);
+  }
+
+  /**
+   * Ingests every regular file below {@code root} that {@link RepositoryPathFilter} keeps into the vector store under the given ragTag.
+   * Blocks until the last batch is written.
+   */
+  public IngestionStats run(Path root, String ragTag) throws InterruptedException {
+    return run(root, ragTag, new IngestionStats());
+  }
+
+  /**
+   * Same as {@link #run(Path, String)}, recording into the caller's stats so progress can be observed while running.
+   * Interrupting the calling thread stops every stage.
+   */
+  public IngestionStats run(Path root, String ragTag, IngestionStats stats) throws InterruptedException {
+    return run(root, null, ragTag, stats);
+  }
+
+  /**
+   * Ingests only the given files (absolute paths below {@code root}), e.g. the files a Git diff reported as changed.
+   * A {@code null} list means "walk the whole tree".
+   */
+  public IngestionStats run(Path root, Collection<Path> only, String ragTag, IngestionStats stats) throws InterruptedException {
+    return run(ragTag, stats, (files, stage) -> walk(root, only, files, stage, stats), file -> {
+      Path path = (Path) file;
+      // repo-relative path, used to delete a file's chunks when it changes
+      return root.relativize(path).toString().replace(File.separatorChar, '/');
+    });
+  }
+
+  /**
+   * Ingests files that are not on disk, e.g. blobs read straight from a Git object database, in the order
+   * {@code source} yields them. The source is iterated on the walk thread and should apply its own path filters.
+   */
+  public IngestionStats run(Iterable<? extends SourceFile> source, String ragTag, IngestionStats stats) throws InterruptedException {
+    return run(ragTag, stats, (files, stage) -> {
+      try {
+        for (SourceFile file : source) {
+          stage.received(0);
+          files.put(file);
+          stage.emitted();
+        }
+      } finally {
+        if (!Thread.currentThread().isInterrupted()) {
+          for (int i = 0; i < parseThreads; i++) files.put(EOF);
+        }
+      }
+    }, file -> ((SourceFile) file).getPath());
+  }
+
+  private IngestionStats run(String ragTag, IngestionStats stats, Walker walker, Function<Object, String> pathOf)
+      throws InterruptedException {
+    IngestionStats.Stage walk = stats.stage("walk", 1);
+    IngestionStats.Stage parse = stats.stage("parse", parseThreads);
+    IngestionStats.Stage embed = stats.stage("embed", embedThreads);
+    IngestionStats.Stage write = stats.stage("write", writeThreads);
+
+    BlockingQueue<Object> files = new ArrayBlockingQueue<>(queueCapacity);
+    BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(queueCapacity);
+    BlockingQueue<Object> batches = new ArrayBlockingQueue<>(queueCapacity);
+
+    // one Tika budget for the whole run; cancelled with the run so queued parses do not start
+    ParseJob parseJob = documentFileParser.newJob();
+    int total = 1 + parseThreads + embedThreads + writeThreads;
+    ExecutorService pool = Executors.newFixedThreadPool(total, threadFactory(ragTag));
+    List<Future<?>> futures = new ArrayList<>(total);
+    try {
+      futures.add(pool.submit(() -> {
+        walker.walk(files, walk);
+        return null;
+      }));
+      futures.addAll(startStage(pool, parse, parseThreads, files, chunks, embedThreads, stats,
+          () -> (item, out) -> {
+            String path = pathOf.apply(item);
+            ContentSniffer.Result sniff = item instanceof SourceFile file
+                ? documentFileParser.sniff(file)
+                : documentFileParser.sniff((Path) item);
+            if (!sniff.isReadable()) {
+              log.debug("Skipping {} → {}", path, sniff.reason());
+              stats.fileSkipped();
+              return;
+            }
+            Map<String, Object> metadata = Map.of("knowledge", ragTag, "path", path);
+            if (item instanceof SourceFile file) {
+              documentFileParser.parse(file, sniff, metadata, out::emit, parseJob);
+            } else {
+              documentFileParser.parse((Path) item, sniff, metadata, out::emit, parseJob);
+            }
+            stats.fileScanned();
+          }));
+      futures.addAll(startStage(pool, embed, embedThreads, chunks, batches, writeThreads, stats,
+          () -> new EmbedWorker(stats)));
+      futures.addAll(startStage(pool, write, writeThreads, batches, null, 0, stats,
+          () -> new WriteWorker(ragTag, stats)));
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Ingestion pipeline failed for " + ragTag, e.getCause());
+    } finally {
+      parseJob.cancel();
+      pool.shutdownNow();
+      stats.finish();
+    }
+    log.info("Ingestion of {} finished: {}", ragTag, stats.summary());
+    return stats;
+  }
+
+  /**
+   * Streams one uploaded document into the vector store under {@code ragTag} on the calling thread. Chunks are
+   * embedded every {@code embedBatchTokens} and written every {@code writeBatchTokens} as Tika produces them, so the
+   * upload is never held whole in memory.
+   * @param bytes size of the upload, or -1 when unknown
+   */
+  public IngestionStats ingest(InputStreamSource source, String name, long bytes, String ragTag) throws Exception {
+    IngestionStats stats = new IngestionStats();
+    try {
+      ingest(source, name, bytes, ragTag, stats);
+    } finally {
+      stats.finish();
+    }
+    return stats;
+  }
+
+  /**
+   * Same as {@link #ingest(InputStreamSource, String, long, String)}, counting into {@code stats}, so several uploads
+   * of one job report as one; the caller finishes the stats.
+   */
+  public void ingest(InputStreamSource source, String name, long bytes, String ragTag, IngestionStats stats) throws Exception {
+    EmbedWorker embed = new EmbedWorker(stats);
+    WriteWorker write = new WriteWorker(ragTag, stats);
+    Emitter toWrite = batch -> write.accept(batch, null);
+    documentFileParser.parse(source, name, bytes, Map.of("knowledge", ragTag), chunk -> embed.accept(chunk, toWrite),
+        documentFileParser.newJob());
+    embed.finish(toWrite);
+    write.finish(null);
+    stats.fileScanned();
+  }
+
+  private void walk(Path root, Collection<Path> only, BlockingQueue<Object> files, IngestionStats.Stage stage,
+                    IngestionStats stats) throws Exception {
+    RepositoryPathFilter filter = new RepositoryPathFilter(root);
+    try {
+      if (only != null) {
+        for (Path file : only) {
+          if (!Files.isRegularFile(file)) continue;
+          if (filter.skipFile(file)) {
+            stats.fileSkipped();
+            continue;
+          }
+          stage.received(0);
+          files.put(file);
+          stage.emitted();
+        }
+        return;
+      }
+      Files.walkFileTree(root, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+          return filter.skipDirectory(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (!attrs.isRegularFile()) {
+            return FileVisitResult.CONTINUE;
+          }
+          // its directories were decided in preVisitDirectory, so only the file's own rules cost anything here
+          if (filter.skipFile(file)) {
+            stats.fileSkipped();
+            return FileVisitResult.CONTINUE;
+          }
+          try {
+            stage.received(0);
+            files.put(file);
+            stage.emitted();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FileVisitResult.TERMINATE;
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+          log.warn("Cannot read {} → {}", file, exc.getMessage());
+          stats.error();
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } finally {
+      if (!Thread.currentThread().isInterrupted()) {
+        for (int i = 0; i < parseThreads; i++) files.put(EOF);
+      }
+    }
+  }
+
+  /**
+   * Starts {@code workers} consumers of {@code in}. The last worker to see EOF forwards one EOF per downstream worker,
+   * so stages shut down in order once the walk is exhausted. Per-item failures are logged and counted, not fatal; the
+   * chunks of a failed embed or write batch are counted as {@link IngestionStats#getChunksLost() lost}.
+   */
+  private List<Future<?>> startStage(ExecutorService pool, IngestionStats.Stage stage, int workers,
+                                     BlockingQueue<Object> in, BlockingQueue<Object> out, int downstreamWorkers,
+                                     IngestionStats stats, Supplier<StageWorker> factory) {
+    AtomicInteger running = new AtomicInteger(workers);
+    List<Future<?>> futures = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      futures.add(pool.submit(() -> {
+        StageWorker worker = factory.get();
+        // time spent blocked on a full downstream queue is back-pressure, not work
+        long[] blocked = new long[1];
+        Emitter emitter = item -> {
+          long start = System.nanoTime();
+          out.put(item);
+          blocked[0] += System.nanoTime() - start;
+          stage.emitted();
+        };
+        try {
+          Object item;
+          while ((item = in.take()) != EOF) {
+            long start = System.nanoTime();
+            blocked[0] = 0;
+            try {
+              worker.accept(item, emitter);
+            } catch (InterruptedException e) {
+              throw e;
+            } catch (Exception e) {
+              stats.error();
+              log.warn("{} stage skipped {} → {}", stage.getName(), describe(item), e.getMessage());
+            }
+            stage.received(System.nanoTime() - start - blocked[0]);
+          }
+          long start = System.nanoTime();
+          blocked[0] = 0;
+          try {
+            worker.finish(emitter);
+          } catch (InterruptedException e) {
+            throw e;
+          } catch (Exception e) {
+            stats.error();
+            log.warn("{} stage failed to flush → {}", stage.getName(), e.getMessage());
+          }
+          stage.busy(System.nanoTime() - start - blocked[0]);
+        } finally {
+          if (running.decrementAndGet() == 0 && out != null && !Thread.currentThread().isInterrupted()) {
+            for (int d = 0; d < downstreamWorkers; d++) out.put(EOF);
+          }
+        }
+        return null;
+      }));
+    }
+    return futures;
+  }
+
+  private static String describe(Object item) {
+    if (item instanceof Document doc) return "document " + doc.getId();
+    if (item instanceof EmbeddedBatch batch) return "batch of " + batch.documents().size();
+    if (item instanceof SourceFile file) return file.getPath();
+    return String.valueOf(item);
+  }
+
+  private static ThreadFactory threadFactory(String ragTag) {
+    AtomicInteger seq = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, "ingest-" + ragTag + "-" + seq.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+  }
+
+  /** Accumulates chunks until the token budget is reached, then embeds them in a single upstream call. */
+  private final class EmbedWorker implements StageWorker {
+    private final IngestionStats stats;
+    private final List<Document> batch = new ArrayList<>();
+    private int tokens;
+
+    private EmbedWorker(IngestionStats stats) {
+      this.stats = stats;
+    }
+
+    @Override
+    public void accept(Object item, Emitter out) throws InterruptedException {
+      Document chunk = (Document) item;
+      int chunkTokens = TokenCounter.count(chunk.getContent());
+      try {
+        if (!batch.isEmpty() && tokens + chunkTokens > embedBatchTokens) {
+          flush(out);
+        }
+      } finally {
+        // a failed flush loses its own batch, not the chunk that triggered it
+        batch.add(chunk);
+        tokens += chunkTokens;
+      }
+    }
+
+    @Override
+    public void finish(Emitter out) throws InterruptedException {
+      if (!batch.isEmpty()) flush(out);
+    }
+
+    private void flush(Emitter out) throws InterruptedException {
+      List<Document> docs = new ArrayList<>(batch);
+      int docsTokens = tokens;
+      batch.clear();
+      tokens = 0;
+
+      // bulk lane: chat queries embedded meanwhile are batched and sent ahead of these
+      List<List<Double>> vectors;
+      try {
+        vectors = EmbeddingLane.BULK.run(() -> embeddingClient.embed(docs.stream().map(Document::getContent).toList()));
+      } catch (RuntimeException e) {
+        stats.chunksLost(docs.size());
+        throw e;
+      }
+      for (int i = 0; i < docs.size(); i++) {
+        docs.get(i).setEmbedding(vectors.get(i));
+      }
+      stats.chunksEmbedded(docs.size());
+      out.emit(new EmbeddedBatch(docs, docsTokens));
+    }
+  }
+
+  /** Merges embedded batches into larger inserts so each JDBC round trip carries {@code writeBatchTokens}. */
+  private final class WriteWorker implements StageWorker {
+    private final String ragTag;
+    private final IngestionStats stats;
+    private final List<Document> batch = new ArrayList<>();
+    private int tokens;
+
+    private WriteWorker(String ragTag, IngestionStats stats) {
+      this.ragTag = ragTag;
+      this.stats = stats;
+    }
+
+    @Override
+    public void accept(Object item, Emitter out) {
+      EmbeddedBatch embedded = (EmbeddedBatch) item;
+      batch.addAll(embedded.documents());
+      tokens += embedded.tokens();
+      if (tokens >= writeBatchTokens) {
+        flush();
+      }
+    }
+
+    @Override
+    public void finish(Emitter out) {
+      if (!batch.isEmpty()) flush();
+    }
+
+    private void flush() {
+      List<Document> docs = new ArrayList<>(batch);
+      batch.clear();
+      tokens = 0;
+      try {
+        vectorStore.add(docs);
+      } catch (RuntimeException e) {
+        stats.chunksLost(docs.size());
+        throw e;
+      }
+      stats.rowsWritten(docs.size());
+      // cached retrievals of this ragTag no longer see every chunk
+      if (ragTagChangeNotifier != null) ragTagChangeNotifier.notifyChanged(ragTag);
+    }
+  }
+
+  private record EmbeddedBatch(List<Document> documents, int tokens) {
+  }
+
+  /** Feeds the file queue of one run, then one EOF per parse worker. */
+  private interface Walker {
+    void walk(BlockingQueue<Object> files, IngestionStats.Stage stage) throws Exception;
+  }
+
+  private interface Emitter {
+    void emit(Object item) throws InterruptedException;
+  }
+
+  /** Created once per worker thread, so batching state never needs locking. */
+  private interface StageWorker {
+    void accept(Object item, Emitter out) throws Exception;
+
+    default void finish(Emitter out) throws Exception {
+    }
+  }
+}
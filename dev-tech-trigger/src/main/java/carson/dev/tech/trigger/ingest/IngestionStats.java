@@ -0,0 +1,161 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters collected while an {@link IngestionPipeline} run is in flight.
+ * Each stage records how many items it consumed and produced and how long its workers were busy,
+ * which is enough to tell which stage is the bottleneck for a given repository.
+ */
+public class IngestionStats {
+
+  private final Map<String, Stage> stages = new LinkedHashMap<>();
+  private final LongAdder filesScanned = new LongAdder();
+  private final LongAdder filesSkipped = new LongAdder();
+  private final LongAdder chunksEmbedded = new LongAdder();
+  private final LongAdder rowsWritten = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder chunksLost = new LongAdder();
+  private final long startNanos = System.nanoTime();
+  private volatile long endNanos;
+
+  /** Registers a stage; only called while the pipeline is being wired, before any worker starts. */
+  Stage stage(String name, int workers) {
+    Stage stage = new Stage(name, workers);
+    stages.put(name, stage);
+    return stage;
+  }
+
+  void fileScanned() {
+    filesScanned.increment();
+  }
+
+  void fileSkipped() {
+    filesSkipped.increment();
+  }
+
+  void chunksEmbedded(int count) {
+    chunksEmbedded.add(count);
+  }
+
+  void rowsWritten(int count) {
+    rowsWritten.add(count);
+  }
+
+  void error() {
+    errors.increment();
+  }
+
+  void chunksLost(int count) {
+    chunksLost.add(count);
+  }
+
+  void finish() {
+    endNanos = System.nanoTime();
+  }
+
+  public Collection<Stage> getStages() {
+    return Collections.unmodifiableCollection(stages.values());
+  }
+
+  public long getFilesScanned() {
+    return filesScanned.sum();
+  }
+
+  /** Files left out by path rules or content sniffing, without reading past their first bytes. */
+  public long getFilesSkipped() {
+    return filesSkipped.sum();
+  }
+
+  public long getChunksEmbedded() {
+    return chunksEmbedded.sum();
+  }
+
+  public long getRowsWritten() {
+    return rowsWritten.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  /**
+   * Chunks parsed but never stored because their embed or write batch failed, e.g. while Ollama or Postgres was down.
+   * Unlike a file that cannot be parsed, they would be stored by a retry of the run.
+   */
+  public long getChunksLost() {
+    return chunksLost.sum();
+  }
+
+  public long getElapsedMillis() {
+    long end = endNanos == 0 ? System.nanoTime() : endNanos;
+    return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+  }
+
+  /** One line per stage, e.g. {@code embed x4: in=1200 out=110 busy=83% 310.2 items/s}. */
+  public String summary() {
+    double seconds = Math.max(getElapsedMillis(), 1) / 1000d;
+    StringBuilder sb = new StringBuilder(String.format("files=%d skipped=%d chunks=%d rows=%d errors=%d lost=%d in %dms",
+        getFilesScanned(), getFilesSkipped(), getChunksEmbedded(), getRowsWritten(), getErrors(), getChunksLost(),
+        getElapsedMillis()));
+    for (Stage stage : stages.values()) {
+      sb.append(System.lineSeparator())
+          .append(String.format("  %-6s x%d: in=%d out=%d busy=%.0f%% %.1f items/s",
+              stage.name, stage.workers, stage.getReceived(), stage.getEmitted(),
+              stage.utilization(seconds) * 100, stage.getReceived() / seconds));
+    }
+    return sb.toString();
+  }
+
+  public static class Stage {
+    private final String name;
+    private final int workers;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder emitted = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+
+    Stage(String name, int workers) {
+      this.name = name;
+      this.workers = workers;
+    }
+
+    void received(long nanos) {
+      received.increment();
+      busyNanos.add(nanos);
+    }
+
+    void busy(long nanos) {
+      busyNanos.add(nanos);
+    }
+
+    void emitted() {
+      emitted.increment();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getWorkers() {
+      return workers;
+    }
+
+    public long getReceived() {
+      return received.sum();
+    }
+
+    public long getEmitted() {
+      return emitted.sum();
+    }
+
+    /** Fraction of the available worker time this stage spent processing rather than waiting on its queues. */
+    public double utilization(double wallSeconds) {
+      return busyNanos.sum() / 1e9 / (wallSeconds * workers);
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package carson.dev.tech.trigger.ingest;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.vector.MappedVectorStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Metadata-based deletes on the {@link MappedVectorStore} of the no-Postgres mode.
+ */
+@Slf4j
+public class LocalVectorStoreMaintenance implements VectorStoreMaintenance {
+
+  private final MappedVectorStore vectorStore;
+  private final RagTagChangeNotifier ragTagChangeNotifier;
+
+  public LocalVectorStoreMaintenance(MappedVectorStore vectorStore, RagTagChangeNotifier ragTagChangeNotifier) {
+    this.vectorStore = vectorStore;
+    this.ragTagChangeNotifier = ragTagChangeNotifier;
+  }
+
+  @Override
+  public int deleteByRagTag(String ragTag) {
+    int deleted = vectorStore.deleteWhere(ragTag, metadata -> true);
+    log.info("Deleted {} chunks of {}", deleted, ragTag);
+    ragTagChangeNotifier.notifyChanged(ragTag);
+    return deleted;
+  }
+
+  @Override
+  public int deleteByPaths(String ragTag, Collection<String> paths) {
+    Set<String> all = new HashSet<>(paths);
+    int deleted = vectorStore.deleteWhere(ragTag, metadata -> all.contains(String.valueOf(metadata.get("path"))));
+    log.info("Deleted {} chunks of {} across {} paths", deleted, ragTag, all.size());
+    ragTagChangeNotifier.notifyChanged(ragTag);
+    return deleted;
+  }
+}
@@ -0,0 +1,56 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The parse budget of one ingestion run or upload request: a deadline, a byte allowance and a cancel flag that
+ * every parse of the job checks before it starts and while Tika writes text.
+ */
+public final class ParseJob {
+
+  private final long startNanos = System.nanoTime();
+  private final long timeoutNanos;
+  private final long maxBytes;
+  private final AtomicLong bytes = new AtomicLong();
+  private volatile boolean cancelled;
+
+  ParseJob(long timeoutMs, long maxBytes) {
+    this.timeoutNanos = timeoutMs * 1_000_000;
+    this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+  }
+
+  /** A job without limits. */
+  public static ParseJob unbounded() {
+    return new ParseJob(0, 0);
+  }
+
+  /** Stops the parses of this job at their next write, and refuses new ones. */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /** Charges {@code count} bytes read by Tika; fails once the job is cancelled, past its deadline or over budget. */
+  void charge(long count) throws ParseLimitException {
+    if (bytes.addAndGet(count) > maxBytes) {
+      throw new ParseLimitException(ParseLimitException.Limit.SIZE, "parse job exceeded " + maxBytes + " bytes");
+    }
+    check();
+  }
+
+  void check() throws ParseLimitException {
+    if (cancelled) {
+      throw new ParseLimitException(ParseLimitException.Limit.CANCELLED, "parse job cancelled");
+    }
+    if (timeoutNanos > 0 && System.nanoTime() - startNanos > timeoutNanos) {
+      throw new ParseLimitException(ParseLimitException.Limit.TIME, "parse job ran out of time");
+    }
+  }
+}
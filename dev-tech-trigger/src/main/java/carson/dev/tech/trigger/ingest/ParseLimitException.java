@@ -0,0 +1,23 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.io.IOException;
+
+/**
+ * A parse stopped by a limit of {@link TikaParseSettings} or by its {@link ParseJob}. Chunks emitted before the limit
+ * was hit have already reached the sink.
+ */
+public class ParseLimitException extends IOException {
+
+  public enum Limit { TIME, SIZE, CANCELLED }
+
+  private final Limit limit;
+
+  public ParseLimitException(Limit limit, String message) {
+    super(message);
+    this.limit = limit;
+  }
+
+  public Limit getLimit() {
+    return limit;
+  }
+}
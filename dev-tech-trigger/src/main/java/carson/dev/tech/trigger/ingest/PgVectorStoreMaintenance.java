@@ -0,0 +1,76 @@
+package carson.dev.tech.trigger.ingest;
+
+import carson.dev.tech.trigger.cache.RagTagChangeNotifier;
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Metadata-based deletes on the pgvector table. PgVectorStore can only delete by id,
+ * but re-indexing needs "every chunk of this file" and "every chunk of this ragTag".
+ * <p>
+ * The ragTag is matched through {@link PgVectorIndexManager#ragTagPredicate()}, so in the partitioned layout a delete
+ * only touches the partition of its tag, and deleting a whole tag truncates that partition.
+ */
+@Slf4j
+public class PgVectorStoreMaintenance implements VectorStoreMaintenance {
+
+  private static final int DELETE_BATCH = 500;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final PgVectorIndexManager indexManager;
+  private final RagTagChangeNotifier ragTagChangeNotifier;
+
+  public PgVectorStoreMaintenance(JdbcTemplate jdbcTemplate, PgVectorIndexManager indexManager,
+                                  RagTagChangeNotifier ragTagChangeNotifier) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.indexManager = indexManager;
+    this.ragTagChangeNotifier = ragTagChangeNotifier;
+  }
+
+  /**
+   * Index so deletes by (knowledge, path) do not scan the whole table; in the partitioned layout a path index per
+   * partition, the tag being the partition.
+   */
+  public void createIndexes() {
+    String table = indexManager.getTable();
+    if (indexManager.isPartitioned()) {
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_path_idx ON " + table + " ((metadata->>'path'))");
+    } else {
+      jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_knowledge_path_idx "
+          + "ON " + table + " ((metadata->>'knowledge'), (metadata->>'path'))");
+    }
+  }
+
+  @Override
+  public int deleteByRagTag(String ragTag) {
+    int deleted = indexManager.isPartitioned() && !ragTag.isEmpty()
+        ? indexManager.truncatePartition(ragTag)
+        : jdbcTemplate.update("DELETE FROM " + indexManager.getTable() + " WHERE " + indexManager.ragTagPredicate(), ragTag);
+    log.info("Deleted {} chunks of {}", deleted, ragTag);
+    ragTagChangeNotifier.notifyChanged(ragTag);
+    return deleted;
+  }
+
+  @Override
+  public int deleteByPaths(String ragTag, Collection<String> paths) {
+    List<String> all = new ArrayList<>(paths);
+    String sql = "DELETE FROM " + indexManager.getTable() + " WHERE " + indexManager.ragTagPredicate()
+        + " AND metadata->>'path' = ANY(?)";
+    int deleted = 0;
+    for (int from = 0; from < all.size(); from += DELETE_BATCH) {
+      Object[] batch = all.subList(from, Math.min(all.size(), from + DELETE_BATCH)).toArray();
+      deleted += jdbcTemplate.update(sql, ps -> {
+        ps.setString(1, ragTag);
+        ps.setArray(2, ps.getConnection().createArrayOf("text", batch));
+      });
+    }
+    log.info("Deleted {} chunks of {} across {} paths", deleted, ragTag, all.size());
+    ragTagChangeNotifier.notifyChanged(ragTag);
+    return deleted;
+  }
+}
@@ -0,0 +1,245 @@
+package carson.dev.tech.trigger.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.attributes.Attribute;
+import org.eclipse.jgit.attributes.AttributesNode;
+import org.eclipse.jgit.attributes.AttributesRule;
+import org.eclipse.jgit.ignore.IgnoreNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides from a path alone whether a repository file is worth reading, before any of its bytes are:
+ * <ul>
+ *   <li>linguist-vendored / linguist-generated attributes in the root .gitattributes, set to skip and unset or
+ *   {@code false} to keep a path the rules below would drop;</li>
+ *   <li>.gitignore files at any depth, the deepest match winning as in git;</li>
+ *   <li>vendored directories (node_modules, vendor, third_party, ...) and generated files (lockfiles, minified
+ *   bundles, source maps, protobuf output), after GitHub linguist's lists;</li>
+ *   <li>extensions of binaries and media, a cheap set lookup instead of a regex per file.</li>
+ * </ul>
+ * The rule files are read from disk or, for a Git tree, from its blobs ({@link RuleFiles}). One instance per walk;
+ * each directory's .gitignore is parsed once and cached.
+ */
+@Slf4j
+public class RepositoryPathFilter {
+
+  private static final Set<String> SKIPPED_EXTENSIONS = Set.of(
+      "png", "jpg", "jpeg", "gif", "bmp", "ico", "webp", "tif", "tiff", "psd",
+      "mp3", "mp4", "wav", "ogg", "flac", "avi", "mov", "mkv", "webm",
+      "woff", "woff2", "ttf", "otf", "eot",
+      "class", "jar", "war", "ear", "exe", "dll", "so", "dylib", "o", "a", "lib", "obj", "pyc", "pyo", "wasm",
+      "zip", "gz", "tgz", "bz2", "xz", "zst", "rar", "7z", "tar",
+      "bin", "dat", "db", "sqlite", "parquet", "avro", "pkl", "npy", "onnx", "pt", "ckpt", "safetensors");
+
+  private static final Set<String> VENDORED_DIRECTORIES = Set.of(
+      ".git", "node_modules", "bower_components", "jspm_packages", "vendor", "vendors", "third_party", "third-party",
+      "thirdparty", "Godeps", ".yarn", ".pnpm-store", "__pycache__", ".venv", "venv", ".tox", ".mypy_cache",
+      ".gradle", ".idea", ".vscode", "target", "dist", "coverage");
+
+  private static final Set<String> GENERATED_FILES = Set.of(
+      "package-lock.json", "npm-shrinkwrap.json", "yarn.lock", "pnpm-lock.yaml", "composer.lock", "Gemfile.lock",
+      "Cargo.lock", "poetry.lock", "Pipfile.lock", "go.sum", "gradle-wrapper.jar", "mvnw", "mvnw.cmd", "gradlew",
+      "gradlew.bat");
+
+  private static final List<String> GENERATED_SUFFIXES = List.of(
+      ".min.js", ".min.css", ".js.map", ".css.map", ".bundle.js", "_pb2.py", "_pb2_grpc.py", ".pb.go", ".pb.cc",
+      ".pb.h", ".designer.cs", ".g.dart", ".freezed.dart", ".generated.ts");
+
+  private final Path root;
+  private final RuleFiles ruleFiles;
+  private final AttributesNode attributes;
+  private final Map<String, Optional<IgnoreNode>> ignores = new ConcurrentHashMap<>();
+  private final Map<String, Boolean> skippedDirectories = new ConcurrentHashMap<>();
+
+  /** Reads a .gitattributes or .gitignore of the repository by its repo-relative path. */
+  @FunctionalInterface
+  public interface RuleFiles {
+    /** @return the content, or null when the repository has no such file */
+    InputStream open(String relativePath) throws IOException;
+  }
+
+  /** Rules of a working tree on disk. */
+  public RepositoryPathFilter(Path root) {
+    this(root, relative -> {
+      Path file = root.resolve(relative);
+      return Files.isRegularFile(file) ? Files.newInputStream(file) : null;
+    });
+  }
+
+  /** Rules of a repository that is not on disk, e.g. a Git tree read from the object database. */
+  public RepositoryPathFilter(RuleFiles ruleFiles) {
+    this(null, ruleFiles);
+  }
+
+  private RepositoryPathFilter(Path root, RuleFiles ruleFiles) {
+    this.root = root;
+    this.ruleFiles = ruleFiles;
+    this.attributes = parseAttributes();
+  }
+
+  /** Whether {@code name} ends in an extension of a binary or media format. */
+  public static boolean hasSkippedExtension(String name) {
+    return SKIPPED_EXTENSIONS.contains(ContentSniffer.extension(name));
+  }
+
+  /** Whether the walk should not descend into {@code dir}; never true for the root itself. */
+  public boolean skipDirectory(Path dir) {
+    return skipDirectory(relative(dir));
+  }
+
+  /** Whether {@code file} or one of its directories below the root is excluded. */
+  public boolean skipFile(Path file) {
+    return skipFile(relative(file));
+  }
+
+  /** Same as {@link #skipDirectory(Path)} for a repo-relative path with '/' separators, "" being the root. */
+  public boolean skipDirectory(String relative) {
+    if (relative.isEmpty()) {
+      return false;
+    }
+    return skippedDirectories.computeIfAbsent(relative, d -> skip(d, true));
+  }
+
+  /** Same as {@link #skipFile(Path)} for a repo-relative path with '/' separators. */
+  public boolean skipFile(String relative) {
+    for (int slash = relative.indexOf('/'); slash >= 0; slash = relative.indexOf('/', slash + 1)) {
+      if (skipDirectory(relative.substring(0, slash))) {
+        return true;
+      }
+    }
+    return skip(relative, false);
+  }
+
+  private String relative(Path path) {
+    return root.relativize(path).toString().replace(File.separatorChar, '/');
+  }
+
+  private boolean skip(String relative, boolean directory) {
+    Boolean linguist = linguistAttribute(relative, directory);
+    if (linguist != null) {
+      return linguist;
+    }
+    Boolean ignored = gitIgnored(relative, directory);
+    if (ignored != null) {
+      return ignored;
+    }
+    String name = relative.substring(relative.lastIndexOf('/') + 1);
+    if (directory) {
+      // e.g. "vendor/ours/** -linguist-vendored": the walk must still enter vendor/
+      return VENDORED_DIRECTORIES.contains(name) && !reincludesBelow(relative);
+    }
+    // inside a vendored directory the walk only entered for a re-included path
+    return isVendoredOrGenerated(relative);
+  }
+
+  /** The built-in rules: binary extensions, generated file names and any directory component that is vendored. */
+  private static boolean isVendoredOrGenerated(String relativePath) {
+    int slash = relativePath.lastIndexOf('/');
+    String name = relativePath.substring(slash + 1);
+    if (hasSkippedExtension(name) || GENERATED_FILES.contains(name)) {
+      return true;
+    }
+    String lower = name.toLowerCase(Locale.ROOT);
+    for (String suffix : GENERATED_SUFFIXES) {
+      if (lower.endsWith(suffix)) {
+        return true;
+      }
+    }
+    for (int start = 0, end; (end = relativePath.indexOf('/', start)) >= 0 && end <= slash; start = end + 1) {
+      if (VENDORED_DIRECTORIES.contains(relativePath.substring(start, end))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** TRUE when marked vendored or generated, FALSE when explicitly unmarked, null when the attributes are silent. */
+  private Boolean linguistAttribute(String relative, boolean directory) {
+    Boolean result = null;
+    // later lines override earlier ones, as in git
+    for (AttributesRule rule : attributes.getRules()) {
+      if (!rule.isMatch(relative, directory)) continue;
+      for (Attribute attribute : rule.getAttributes()) {
+        if (!"linguist-vendored".equals(attribute.getKey()) && !"linguist-generated".equals(attribute.getKey())) continue;
+        switch (attribute.getState()) {
+          case SET -> result = true;
+          case UNSET -> result = false;
+          case CUSTOM -> result = !"false".equalsIgnoreCase(attribute.getValue());
+          default -> {
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean reincludesBelow(String directory) {
+    String prefix = directory + "/";
+    for (AttributesRule rule : attributes.getRules()) {
+      String pattern = rule.getPattern().startsWith("/") ? rule.getPattern().substring(1) : rule.getPattern();
+      if (!pattern.startsWith(prefix)) continue;
+      for (Attribute attribute : rule.getAttributes()) {
+        if (attribute.getKey().startsWith("linguist-")
+            && (attribute.getState() == Attribute.State.UNSET || "false".equalsIgnoreCase(attribute.getValue()))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Checks the .gitignore of each directory from the path's own up to the root; the deepest rule that matches wins. */
+  private Boolean gitIgnored(String relative, boolean directory) {
+    for (int slash = relative.lastIndexOf('/'); ; slash = relative.lastIndexOf('/', slash - 1)) {
+      String dir = slash < 0 ? "" : relative.substring(0, slash);
+      Optional<IgnoreNode> node = ignores.computeIfAbsent(dir, this::parseIgnore);
+      if (node.isPresent()) {
+        Boolean ignored = node.get().checkIgnored(relative.substring(slash + 1), directory);
+        if (ignored != null) {
+          return ignored;
+        }
+      }
+      if (slash < 0) {
+        return null;
+      }
+    }
+  }
+
+  private Optional<IgnoreNode> parseIgnore(String dir) {
+    String file = dir.isEmpty() ? ".gitignore" : dir + "/.gitignore";
+    IgnoreNode node = new IgnoreNode();
+    try (InputStream in = ruleFiles.open(file)) {
+      if (in == null) {
+        return Optional.empty();
+      }
+      node.parse(in);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable {} → {}", file, e.getMessage());
+      return Optional.empty();
+    }
+    return Optional.of(node);
+  }
+
+  private AttributesNode parseAttributes() {
+    AttributesNode node = new AttributesNode();
+    try (InputStream in = ruleFiles.open(".gitattributes")) {
+      if (in != null) {
+        node.parse(in);
+      }
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable .gitattributes → {}", e.getMessage());
+    }
+    return node;
+  }
+}
@@ -0,0 +1,16 @@
+package carson.dev.tech.trigger.ingest;
+
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * A file of a repository that is not necessarily on disk, e.g. a blob read straight from a Git object database.
+ * {@link #getInputStream()} may be called more than once (sniffing, then parsing) and must return a fresh stream.
+ */
+public interface SourceFile extends InputStreamSource {
+
+  /** Path relative to the repository root, with {@code /} separators; stored as the {@code path} metadata. */
+  String getPath();
+
+  /** Size in bytes, or -1 when unknown. */
+  long getSize();
+}
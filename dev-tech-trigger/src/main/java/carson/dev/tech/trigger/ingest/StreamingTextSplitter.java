@@ -0,0 +1,168 @@
+package carson.dev.tech.trigger.ingest;
+
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The chunking rules of {@link org.springframework.ai.transformer.splitter.TokenTextSplitter} applied to text that
+ * arrives in pieces: cut {@code chunkSize} CL100K tokens, shorten the cut to the last {@code . ? ! \n} when that is
+ * past {@code minChunkSizeChars}, trim, and drop chunks not longer than {@code minChunkLengthToEmbed}.
+ * <p>
+ * TokenTextSplitter needs the whole document as one String and encodes all of it up front. A {@link Session} only
+ * keeps the text that is not yet a chunk, a few chunks' worth, and encodes a window just past the next cut, so memory
+ * no longer grows with the size of the file.
+ */
+public class StreamingTextSplitter {
+
+  /** Tokens encoded past the cut, so the end of the window cannot change how the chunk itself is tokenized. */
+  private static final int GUARD_TOKENS = 16;
+
+  private final int chunkSize;
+  private final int minChunkSizeChars;
+  private final int minChunkLengthToEmbed;
+
+  /** Same defaults as {@code new TokenTextSplitter()}. */
+  public StreamingTextSplitter() {
+    this(800, 350, 5);
+  }
+
+  public StreamingTextSplitter(int chunkSize, int minChunkSizeChars, int minChunkLengthToEmbed) {
+    this.chunkSize = Math.max(1, chunkSize);
+    this.minChunkSizeChars = minChunkSizeChars;
+    this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+  }
+
+  /**
+   * Starts a document. Text written to the session is emitted to {@code sink} chunk by chunk, each with a copy of
+   * {@code metadata}; closing the session emits the rest.
+   */
+  public Session open(Map<String, Object> metadata, DocumentSink sink) {
+    return new Session(metadata, sink);
+  }
+
+  /** Not thread-safe: one writer per document. */
+  public final class Session extends Writer {
+
+    private final Map<String, Object> metadata;
+    private final DocumentSink sink;
+    private final StringBuilder pending = new StringBuilder();
+    private final int baseThreshold = chunkSize * 8;
+    // past this a window is cut even when it holds fewer than chunkSize tokens
+    private final int maxPendingChars = chunkSize * 64;
+    private int threshold = baseThreshold;
+    private int peakPendingChars;
+    private int chunks;
+    private boolean closed;
+
+    private Session(Map<String, Object> metadata, DocumentSink sink) {
+      this.metadata = metadata;
+      this.sink = sink;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+      ensureOpen();
+      pending.append(buffer, offset, length);
+      afterWrite();
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+      ensureOpen();
+      pending.append(text, offset, offset + length);
+      afterWrite();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    /** Emits the text still pending as the last chunks. */
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      cut(true);
+    }
+
+    /** Chunks emitted so far. */
+    public int getChunks() {
+      return chunks;
+    }
+
+    /** Most characters held at once, i.e. what this session cost in heap beyond the chunks it emitted. */
+    public int getPeakPendingChars() {
+      return peakPendingChars;
+    }
+
+    private void afterWrite() throws IOException {
+      peakPendingChars = Math.max(peakPendingChars, pending.length());
+      if (pending.length() >= threshold) {
+        cut(false);
+      }
+    }
+
+    private void cut(boolean last) throws IOException {
+      while (last ? !pending.isEmpty() : pending.length() >= chunkSize * 4) {
+        int length = Math.min(pending.length(), chunkSize * 4);
+        String window;
+        List<Integer> tokens;
+        while (true) {
+          window = pending.substring(0, length);
+          tokens = TokenCounter.encode(window);
+          if (tokens.size() > chunkSize + GUARD_TOKENS || length == pending.length()) break;
+          length = Math.min(pending.length(), length * 2);
+        }
+        if (!last && tokens.size() <= chunkSize + GUARD_TOKENS && pending.length() < maxPendingChars) {
+          // very long tokens (whitespace runs, repeated characters): wait for twice the text before trying again
+          threshold = pending.length() * 2;
+          return;
+        }
+        threshold = baseThreshold;
+
+        String chunk = window;
+        if (tokens.size() > chunkSize) {
+          String decoded = TokenCounter.decode(tokens.subList(0, chunkSize));
+          // a cut inside a multi-byte character decodes to U+FFFD; keep only what matches the source text
+          int end = 0;
+          while (end < decoded.length() && decoded.charAt(end) == pending.charAt(end)) end++;
+          chunk = pending.substring(0, Math.max(1, end));
+        }
+        int lastPunctuation = Math.max(Math.max(chunk.lastIndexOf('.'), chunk.lastIndexOf('?')),
+            Math.max(chunk.lastIndexOf('!'), chunk.lastIndexOf('\n')));
+        if (lastPunctuation != -1 && lastPunctuation > minChunkSizeChars) {
+          chunk = chunk.substring(0, lastPunctuation + 1);
+        }
+        pending.delete(0, chunk.length());
+        emit(chunk.trim());
+      }
+    }
+
+    private void emit(String text) throws IOException {
+      if (text.length() <= minChunkLengthToEmbed) {
+        return;
+      }
+      try {
+        sink.accept(new Document(text, new HashMap<>(metadata)));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while emitting a chunk");
+      }
+      chunks++;
+    }
+
+    private void ensureOpen() throws IOException {
+      if (closed) {
+        throw new IOException("Session is closed");
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package carson.dev.tech.trigger.ingest;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Limits of the {@link TikaParserPool}.
+ * <p>
+ * A file is abandoned once it has produced no text for {@code idleTimeoutMs}, has been parsing for
+ * {@code fileTimeoutMs}, or has read more than {@code maxFileBytes} / written more than {@code maxTextChars}. A
+ * {@link ParseJob} (one repository run or one upload request) stops parsing once {@code jobTimeoutMs} have passed
+ * since it started or it has fed {@code jobMaxBytes} to Tika. 0 disables a limit.
+ * <p>
+ * With {@code forked}, documents are parsed in a pool of {@code forkPoolSize} child JVMs of {@code forkHeapMb} each,
+ * so a parser that loops or exhausts its heap is killed with its process instead of pinning a thread of this one.
+ */
+@Value
+@Builder
+public class TikaParseSettings {
+
+  @Builder.Default
+  int threads = 4;
+  @Builder.Default
+  int queueCapacity = 64;
+  @Builder.Default
+  long idleTimeoutMs = 5_000;
+  @Builder.Default
+  long fileTimeoutMs = 60_000;
+  @Builder.Default
+  long maxFileBytes = 100L << 20;
+  @Builder.Default
+  long maxTextChars = 20_000_000;
+  @Builder.Default
+  long jobTimeoutMs = 30 * 60_000;
+  @Builder.Default
+  long jobMaxBytes = 4L << 30;
+  @Builder.Default
+  boolean forked = false;
+  @Builder.Default
+  int forkPoolSize = 2;
+  @Builder.Default
+  int forkHeapMb = 512;
+}
@@ -0,0 +1,428 @@
+package carson.dev.tech.trigger.ingest;
+
+import carson.dev.tech.api.dto.ParseStatsDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.detect.Detector;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.FilterInputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs every Tika parse of the service on one bounded pool instead of a new single-thread executor per file.
+ * <p>
+ * The caller's thread waits for chunks and hands them to its sink, the pool thread only runs Tika. Limits are
+ * enforced cooperatively: the input stream and the text writer given to Tika check the file and job limits and an
+ * abort flag on every read and write, so a parse that is past its limits stops at its next I/O. A parse that neither
+ * reads nor writes cannot be stopped inside this JVM; it is reported as {@code stuck} until Tika returns, and
+ * {@link TikaParseSettings#isForked()} moves parsing into child JVMs, where {@link ForkParser} kills the process.
+ * <p>
+ * When every thread is busy and the queue is full, {@link #parse} fails fast with {@link RejectedExecutionException}.
+ */
+@Slf4j
+public class TikaParserPool implements AutoCloseable {
+
+  private static final Object END = new Object();
+  /** Chunks the Tika thread may get ahead of the sink. */
+  private static final int HANDOFF_CHUNKS = 4;
+  private static final long POLL_MS = 100;
+
+  private final TikaParseSettings settings;
+  private final ThreadPoolExecutor executor;
+  private final Parser parser;
+  private final ForkParser forkParser;
+  private final Detector detector;
+  private final Map<String, MimeStats> stats = new ConcurrentHashMap<>();
+  private final LongAdder rejected = new LongAdder();
+  private final AtomicInteger stuck = new AtomicInteger();
+
+  public TikaParserPool(TikaParseSettings settings) {
+    this.settings = settings;
+    AtomicInteger seq = new AtomicInteger();
+    int threads = Math.max(1, settings.getThreads());
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())),
+        r -> {
+          Thread t = new Thread(r, "tika-parse-" + seq.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+    AutoDetectParser autoDetectParser = new AutoDetectParser();
+    this.detector = autoDetectParser.getDetector();
+    if (settings.isForked()) {
+      ForkParser fork = new ForkParser(TikaParserPool.class.getClassLoader(), autoDetectParser);
+      fork.setPoolSize(Math.max(1, settings.getForkPoolSize()));
+      fork.setJavaCommand(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+          "-Xmx" + settings.getForkHeapMb() + "m"));
+      if (settings.getFileTimeoutMs() > 0) {
+        fork.setServerParseTimeoutMillis(settings.getFileTimeoutMs());
+      }
+      this.forkParser = fork;
+      this.parser = fork;
+    } else {
+      this.forkParser = null;
+      this.parser = autoDetectParser;
+    }
+  }
+
+  /** Starts a parse budget for one ingestion run or upload request. */
+  public ParseJob newJob() {
+    return new ParseJob(settings.getJobTimeoutMs(), settings.getJobMaxBytes());
+  }
+
+  /**
+   * Parses {@code source} on a pool thread into the session returned by {@code open}; the session's chunks are
+   * passed to {@code sink} on the calling thread, so a slow sink throttles the parse. Returns the number of chunks.
+   * @param name  file name, used for type detection
+   * @param bytes size of the source, or -1 when unknown (the byte limit is then checked while reading)
+   * @throws ParseLimitException        when a file or job limit stopped the parse
+   * @throws RejectedExecutionException when every parser is busy and the queue is full
+   */
+  public int parse(String name, InputStreamSource source, long bytes, ParseJob job,
+                   Function<DocumentSink, StreamingTextSplitter.Session> open, DocumentSink sink) throws Exception {
+    String guessedType = guessType(name);
+    long maxFileBytes = settings.getMaxFileBytes();
+    if (maxFileBytes > 0 && bytes > maxFileBytes) {
+      stats(guessedType).oversized.increment();
+      throw new ParseLimitException(ParseLimitException.Limit.SIZE, name + " has " + bytes + " bytes, limit is " + maxFileBytes);
+    }
+    job.check();
+
+    Task task = new Task(name, source, job, open);
+    Future<?> future;
+    try {
+      future = executor.submit(task);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw e;
+    }
+    long sinkNanos = 0;
+    int chunks = 0;
+    try {
+      while (true) {
+        Object item = task.handoff.poll(POLL_MS, TimeUnit.MILLISECONDS);
+        if (item == END) {
+          future.get();
+          stats(task.mimeType(guessedType)).parsed(task.bytesRead.get(), task.busyNanos);
+          return chunks;
+        }
+        if (item != null) {
+          long sinkStart = System.nanoTime();
+          sink.accept((Document) item);
+          chunks++;
+          sinkNanos += System.nanoTime() - sinkStart;
+          task.progress = System.nanoTime();
+        } else if (future.isDone()) {
+          // a failed parse never enqueues END
+          future.get();
+        } else {
+          String overdue = overdue(task, sinkNanos);
+          if (overdue != null) {
+            task.abort(overdue);
+            boolean cancelled = job.isCancelled();
+            (cancelled ? stats(guessedType).failures : stats(guessedType).timeouts).increment();
+            log.warn("Tika stopped on {} after {} chunks → {}", name, chunks, overdue);
+            throw new ParseLimitException(cancelled ? ParseLimitException.Limit.CANCELLED : ParseLimitException.Limit.TIME,
+                name + ": " + overdue);
+          }
+        }
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      ParseLimitException limit = findLimit(cause);
+      MimeStats mime = stats(task.mimeType(guessedType));
+      if (limit == null) {
+        mime.failures.increment();
+        throw cause instanceof Exception exception ? exception : e;
+      }
+      switch (limit.getLimit()) {
+        case TIME -> mime.timeouts.increment();
+        case SIZE -> mime.oversized.increment();
+        case CANCELLED -> mime.failures.increment();
+      }
+      throw limit;
+    } finally {
+      if (!future.isDone()) {
+        // timed out, interrupted, or the sink failed: stop Tika at its next read or write
+        task.abort("abandoned by the caller");
+        future.cancel(true);
+      }
+    }
+  }
+
+  public ParseStatsDTO stats() {
+    List<ParseStatsDTO.MimeType> mimeTypes = stats.entrySet().stream()
+        .map(e -> e.getValue().toDTO(e.getKey()))
+        .sorted(Comparator.comparing(ParseStatsDTO.MimeType::getParses).reversed())
+        .toList();
+    return ParseStatsDTO.builder()
+        .forked(forkParser != null)
+        .active(executor.getActiveCount())
+        .queued(executor.getQueue().size())
+        .rejected(rejected.sum())
+        .stuck(stuck.get())
+        .mimeTypes(mimeTypes)
+        .build();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    if (forkParser != null) {
+      forkParser.close();
+    }
+  }
+
+  /** Why the parse should stop, or null. Waiting for a thread is not idle time, but is bounded by the file timeout. */
+  private String overdue(Task task, long sinkNanos) {
+    long now = System.nanoTime();
+    if (task.state.get() == Task.QUEUED) {
+      if (settings.getFileTimeoutMs() > 0 && now - task.queuedNanos > TimeUnit.MILLISECONDS.toNanos(settings.getFileTimeoutMs())) {
+        return "no parser thread free for " + settings.getFileTimeoutMs() + "ms";
+      }
+    } else {
+      if (settings.getIdleTimeoutMs() > 0 && now - task.progress > TimeUnit.MILLISECONDS.toNanos(settings.getIdleTimeoutMs())) {
+        return "no text for " + settings.getIdleTimeoutMs() + "ms";
+      }
+      if (settings.getFileTimeoutMs() > 0
+          && now - task.startNanos - sinkNanos > TimeUnit.MILLISECONDS.toNanos(settings.getFileTimeoutMs())) {
+        return "parsing took over " + settings.getFileTimeoutMs() + "ms";
+      }
+    }
+    try {
+      task.job.check();
+    } catch (ParseLimitException e) {
+      return e.getMessage();
+    }
+    return null;
+  }
+
+  private String guessType(String name) {
+    Metadata metadata = new Metadata();
+    metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, name);
+    try {
+      return detector.detect(null, metadata).getBaseType().toString();
+    } catch (IOException e) {
+      return MediaType.OCTET_STREAM.toString();
+    }
+  }
+
+  private MimeStats stats(String mimeType) {
+    return stats.computeIfAbsent(mimeType, k -> new MimeStats());
+  }
+
+  /** Tika reports a failing writer as a SAXException or TikaException around our exception. */
+  private static ParseLimitException findLimit(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof ParseLimitException limit) return limit;
+    }
+    return null;
+  }
+
+  /** One parse; runs on a pool thread and talks to the caller only through {@link #handoff} and volatile fields. */
+  private final class Task implements Callable<Void> {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int FINISHED = 2;
+    private static final int ABANDONED = 3;
+
+    private final String name;
+    private final InputStreamSource source;
+    private final ParseJob job;
+    private final Function<DocumentSink, StreamingTextSplitter.Session> open;
+    private final BlockingQueue<Object> handoff = new ArrayBlockingQueue<>(HANDOFF_CHUNKS);
+    private final Metadata metadata = new Metadata();
+    private final AtomicInteger state = new AtomicInteger(QUEUED);
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final long queuedNanos = System.nanoTime();
+    private volatile long startNanos;
+    private volatile long progress;
+    private volatile String abortReason;
+    // written by the pool thread before END is enqueued, read by the caller after future.get()
+    private long busyNanos;
+
+    private Task(String name, InputStreamSource source, ParseJob job, Function<DocumentSink, StreamingTextSplitter.Session> open) {
+      this.name = name;
+      this.source = source;
+      this.job = job;
+      this.open = open;
+      metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, name);
+    }
+
+    @Override
+    public Void call() throws Exception {
+      long start = System.nanoTime();
+      startNanos = start;
+      progress = start;
+      if (!state.compareAndSet(QUEUED, RUNNING)) {
+        // abandoned while waiting for a thread
+        return null;
+      }
+      long[] blocked = new long[1];
+      try {
+        StreamingTextSplitter.Session session = open.apply(chunk -> {
+          long putStart = System.nanoTime();
+          handoff.put(chunk);
+          blocked[0] += System.nanoTime() - putStart;
+        });
+        try (InputStream in = new LimitedInputStream(source.getInputStream())) {
+          parser.parse(in, new BodyContentHandler(new LimitedWriter(session)), metadata, new ParseContext());
+        }
+        session.close();
+        busyNanos = System.nanoTime() - start - blocked[0];
+        handoff.put(END);
+        return null;
+      } finally {
+        if (!state.compareAndSet(RUNNING, FINISHED)) {
+          stuck.decrementAndGet();
+          log.info("Abandoned Tika parse of {} returned after {}ms", name, (System.nanoTime() - start) / 1_000_000);
+        }
+      }
+    }
+
+    /** Makes the next read or write fail; counts the thread as stuck until the parse actually returns. */
+    private void abort(String reason) {
+      abortReason = reason;
+      if (state.compareAndSet(RUNNING, ABANDONED)) {
+        stuck.incrementAndGet();
+      } else {
+        state.compareAndSet(QUEUED, ABANDONED);
+      }
+    }
+
+    /** The detected type once the parse is over, the guess from the name while it may still be running. */
+    private String mimeType(String guessedType) {
+      if (state.get() != FINISHED) return guessedType;
+      String contentType = metadata.get(Metadata.CONTENT_TYPE);
+      return contentType == null ? guessedType : MediaType.parse(contentType).getBaseType().toString();
+    }
+
+    private void checkAbort() throws ParseLimitException {
+      String reason = abortReason;
+      if (reason != null) {
+        throw new ParseLimitException(ParseLimitException.Limit.CANCELLED, name + ": " + reason);
+      }
+      job.check();
+    }
+
+    /** Counts bytes against the file and job limits. */
+    private final class LimitedInputStream extends FilterInputStream {
+
+      private LimitedInputStream(InputStream in) {
+        super(in);
+      }
+
+      @Override
+      public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) charge(1);
+        return b;
+      }
+
+      @Override
+      public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n > 0) charge(n);
+        return n;
+      }
+
+      @Override
+      public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) charge(skipped);
+        return skipped;
+      }
+
+      private void charge(long count) throws IOException {
+        checkAbort();
+        long total = bytesRead.addAndGet(count);
+        if (settings.getMaxFileBytes() > 0 && total > settings.getMaxFileBytes()) {
+          throw new ParseLimitException(ParseLimitException.Limit.SIZE, name + " is over " + settings.getMaxFileBytes() + " bytes");
+        }
+        job.charge(count);
+      }
+    }
+
+    /** Records progress and enforces the text limit before handing Tika's output to the session. */
+    private final class LimitedWriter extends FilterWriter {
+
+      private long chars;
+
+      private LimitedWriter(StreamingTextSplitter.Session session) {
+        super(session);
+      }
+
+      @Override
+      public void write(char[] buffer, int offset, int length) throws IOException {
+        checkAbort();
+        progress = System.nanoTime();
+        chars += length;
+        if (settings.getMaxTextChars() > 0 && chars > settings.getMaxTextChars()) {
+          throw new ParseLimitException(ParseLimitException.Limit.SIZE, name + " produced over " + settings.getMaxTextChars() + " chars");
+        }
+        super.write(buffer, offset, length);
+      }
+    }
+  }
+
+  private static final class MimeStats {
+    private final LongAdder parses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private void parsed(long byteCount, long busyNanos) {
+      parses.increment();
+      bytes.add(byteCount);
+      nanos.add(busyNanos);
+      maxNanos.accumulateAndGet(busyNanos, Math::max);
+    }
+
+    private ParseStatsDTO.MimeType toDTO(String mimeType) {
+      long count = parses.sum();
+      return ParseStatsDTO.MimeType.builder()
+          .mimeType(mimeType)
+          .parses(count)
+          .failures(failures.sum())
+          .timeouts(timeouts.sum())
+          .oversized(oversized.sum())
+          .bytes(bytes.sum())
+          .avgMillis(count == 0 ? 0 : nanos.sum() / 1e6 / count)
+          .maxMillis(maxNanos.get() / 1e6)
+          .build();
+    }
+  }
+}
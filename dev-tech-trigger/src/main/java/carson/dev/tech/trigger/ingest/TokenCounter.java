@@ -0,0 +1,46 @@
+package carson.dev.tech.trigger.ingest;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+
+import java.util.List;
+
+/**
+ * Counts tokens with the same CL100K_BASE encoding that {@link org.springframework.ai.transformer.splitter.TokenTextSplitter}
+ * uses, so batch sizes and chunk sizes are measured in the same unit.
+ */
+public final class TokenCounter {
+
+  private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+  private TokenCounter() {
+  }
+
+  public static int count(String text) {
+    if (text == null || text.isEmpty()) {
+      return 0;
+    }
+    return ENCODING.countTokens(text);
+  }
+
+  /** Cuts {@code text} to its first {@code maxTokens} tokens. */
+  public static String truncate(String text, int maxTokens) {
+    if (text == null || maxTokens <= 0) {
+      return "";
+    }
+    List<Integer> tokens = ENCODING.encode(text);
+    if (tokens.size() <= maxTokens) {
+      return text;
+    }
+    return ENCODING.decode(tokens.subList(0, maxTokens));
+  }
+
+  static List<Integer> encode(String text) {
+    return ENCODING.encode(text);
+  }
+
+  static String decode(List<Integer> tokens) {
+    return ENCODING.decode(tokens);
+  }
+}
@@ -0,0 +1,14 @@
+package carson.dev.tech.trigger.ingest;
+
+import java.util.Collection;
+
+/**
+ * Metadata-based deletes on the RAG vector store. VectorStore can only delete by id, but re-indexing needs
+ * "every chunk of this file" and "every chunk of this ragTag". Implementations notify the ragTag change.
+ */
+public interface VectorStoreMaintenance {
+
+  int deleteByRagTag(String ragTag);
+
+  int deleteByPaths(String ragTag, Collection<String> paths);
+}
@@ -0,0 +1,156 @@
+package carson.dev.tech.trigger.rag;
+
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the DOCUMENTS section of a RAG prompt within a token budget.
+ * <p>
+ * Chunks are taken best first: highest {@code score} metadata (fused rank from {@link HybridRetriever}), else lowest
+ * {@code distance} (as written by PgVectorStore); chunks with neither keep their retrieval order after the others.
+ * A chunk whose word shingles overlap an already accepted chunk by at least {@code duplicateThreshold} (Jaccard) is
+ * skipped. Tokens are counted with the CL100K_BASE encoding
+ * of TokenTextSplitter; the first chunk that does not fit is truncated when enough budget is left, and assembly stops.
+ */
+public class ContextBuilder {
+
+  static final String SEPARATOR = "\n\n---\n\n";
+  private static final int SHINGLE_SIZE = 3;
+
+  private final int defaultBudgetTokens;
+  private final Map<String, Integer> modelBudgetTokens;
+  private final double duplicateThreshold;
+  private final int minTruncatedTokens;
+
+  public record Context(String text, List<Document> documents, int tokens, int duplicates, int truncated, int omitted) {
+  }
+
+  /**
+   * @param modelBudgetTokens budgets by provider-qualified model name (e.g. {@code ollama:deepseek-r1:1.5b}); the longest
+   *                          key that prefixes the model wins, so {@code ollama:} sets a provider-wide budget
+   * @param minTruncatedTokens smallest remainder worth sending as a truncated chunk
+   */
+  public ContextBuilder(int defaultBudgetTokens, Map<String, Integer> modelBudgetTokens, double duplicateThreshold,
+                        int minTruncatedTokens) {
+    this.defaultBudgetTokens = defaultBudgetTokens;
+    this.modelBudgetTokens = Map.copyOf(modelBudgetTokens);
+    this.duplicateThreshold = duplicateThreshold;
+    this.minTruncatedTokens = minTruncatedTokens;
+  }
+
+  public int budget(String model) {
+    String best = null;
+    for (String key : modelBudgetTokens.keySet()) {
+      if (model.startsWith(key) && (best == null || key.length() > best.length())) {
+        best = key;
+      }
+    }
+    return best == null ? defaultBudgetTokens : modelBudgetTokens.get(best);
+  }
+
+  /**
+   * @param reservedTokens tokens of the prompt outside the DOCUMENTS section (system template, question), taken off
+   *                       the model budget
+   */
+  public Context build(String model, List<Document> documents, int reservedTokens) {
+    int budget = Math.max(0, budget(model) - reservedTokens);
+    List<Document> ordered = new ArrayList<>(documents);
+    ordered.sort(Comparator.comparingDouble(ContextBuilder::rank));
+
+    StringBuilder text = new StringBuilder();
+    List<Document> included = new ArrayList<>();
+    List<Set<Integer>> accepted = new ArrayList<>();
+    int tokens = 0;
+    int duplicates = 0;
+    int truncated = 0;
+    int index = 0;
+    for (; index < ordered.size(); index++) {
+      Document document = ordered.get(index);
+      Set<Integer> shingles = shingles(document.getContent());
+      if (isDuplicate(shingles, accepted)) {
+        duplicates++;
+        continue;
+      }
+      String piece = (included.isEmpty() ? "" : SEPARATOR) + format(document);
+      int pieceTokens = TokenCounter.count(piece);
+      if (tokens + pieceTokens > budget) {
+        int remaining = budget - tokens;
+        if (remaining >= minTruncatedTokens) {
+          String cut = TokenCounter.truncate(piece, remaining);
+          text.append(cut);
+          tokens += TokenCounter.count(cut);
+          included.add(document);
+          truncated++;
+          index++;
+        }
+        break;
+      }
+      text.append(piece);
+      tokens += pieceTokens;
+      included.add(document);
+      accepted.add(shingles);
+    }
+    return new Context(text.toString(), included, tokens, duplicates, truncated, ordered.size() - index);
+  }
+
+  /** Prefixes the chunk with its repository path when it has one, so code chunks stay attributable. */
+  private static String format(Document document) {
+    Object path = document.getMetadata().get("path");
+    return path == null ? document.getContent() : "[" + path + "]\n" + document.getContent();
+  }
+
+  /** Lower is better. */
+  private static double rank(Document document) {
+    if (document.getMetadata().get("score") instanceof Number score) {
+      return -score.doubleValue();
+    }
+    Object distance = document.getMetadata().get("distance");
+    return distance instanceof Number number ? number.doubleValue() : Double.MAX_VALUE;
+  }
+
+  private boolean isDuplicate(Set<Integer> shingles, List<Set<Integer>> accepted) {
+    for (Set<Integer> other : accepted) {
+      if (jaccard(shingles, other) >= duplicateThreshold) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static double jaccard(Set<Integer> a, Set<Integer> b) {
+    if (a.isEmpty() && b.isEmpty()) return 1;
+    Set<Integer> smaller = a.size() <= b.size() ? a : b;
+    Set<Integer> larger = smaller == a ? b : a;
+    int common = 0;
+    for (Integer shingle : smaller) {
+      if (larger.contains(shingle)) common++;
+    }
+    return (double) common / (a.size() + b.size() - common);
+  }
+
+  /** Hashes of every run of {@link #SHINGLE_SIZE} consecutive lower-cased words. */
+  static Set<Integer> shingles(String text) {
+    String[] words = text == null ? new String[0] : text.toLowerCase(Locale.ROOT).split("\\W+");
+    Set<Integer> shingles = new HashSet<>();
+    StringBuilder shingle = new StringBuilder();
+    for (int i = 0; i + SHINGLE_SIZE <= words.length; i++) {
+      shingle.setLength(0);
+      for (int j = i; j < i + SHINGLE_SIZE; j++) {
+        shingle.append(words[j]).append(' ');
+      }
+      shingles.add(shingle.toString().hashCode());
+    }
+    if (shingles.isEmpty() && words.length > 0) {
+      shingles.add(String.join(" ", words).hashCode());
+    }
+    return shingles;
+  }
+}
@@ -0,0 +1,23 @@
+package carson.dev.tech.trigger.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+
+/**
+ * Finds the chunks of one ragTag that answer one query, best first. Implementations block; {@link RagChatService}
+ * calls them on its scheduler.
+ */
+@FunctionalInterface
+public interface DocumentRetriever {
+
+  List<Document> retrieve(String ragTag, String query, int topK);
+
+  /** Plain similarity search restricted to the ragTag through the {@code knowledge} metadata. */
+  static DocumentRetriever of(VectorStore vectorStore) {
+    return (ragTag, query, topK) -> vectorStore.similaritySearch(
+        SearchRequest.query(query).withTopK(topK).withFilterExpression("knowledge == '" + ragTag + "'"));
+  }
+}
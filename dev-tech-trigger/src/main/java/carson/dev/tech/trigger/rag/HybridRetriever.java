@@ -0,0 +1,194 @@
+package carson.dev.tech.trigger.rag;
+
+import carson.dev.tech.trigger.vector.PgVectorIndexManager;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vector search plus PostgreSQL full-text search over the same pgvector table rows, fused with reciprocal rank
+ * fusion (score = Σ 1 / (k + rank)).
+ * <p>
+ * Embeddings blur identifiers, class names and error strings; the lexical side matches them exactly. Both searches
+ * fetch {@code candidates} rows of the ragTag at the same time, and the fused list is cut to {@code topK}. The lexical
+ * query ORs the words of the question, so a chunk sharing more (and rarer) words ranks higher via {@code ts_rank_cd}.
+ * Fused chunks carry their RRF score in the {@code score} metadata, which {@link ContextBuilder} orders by.
+ * <p>
+ * The vector search runs on the calling thread, the full-text search on a small pool of its own, never on the
+ * caller's scheduler: a caller that blocks waiting for work queued behind other blocked callers would starve. The
+ * full-text side is given {@code lexicalTimeoutMs}; when it is late, fails or its pool is full, the vector results
+ * are returned alone.
+ */
+@Slf4j
+public class HybridRetriever implements DocumentRetriever {
+
+  private static final int MAX_QUERY_TERMS = 32;
+
+  private final DocumentRetriever vectorRetriever;
+  private final JdbcTemplate jdbcTemplate;
+  private final PgVectorIndexManager indexManager;
+  private final String textSearchConfig;
+  private final int rrfK;
+  private final int candidates;
+  private final long lexicalTimeoutMs;
+  private final ThreadPoolExecutor lexicalExecutor;
+
+  /**
+   * @param vectorRetriever  the vector side, usually a {@link carson.dev.tech.trigger.vector.PgVectorSearch}
+   * @param indexManager     table and ragTag predicate of the current layout
+   * @param textSearchConfig PostgreSQL text search configuration, e.g. {@code english} or {@code simple}
+   * @param rrfK             RRF damping constant, 60 in the original paper
+   * @param candidates       rows fetched from each side before fusion
+   * @param lexicalThreads   full-text searches running at once; as many more may wait
+   * @param lexicalTimeoutMs how long a retrieval waits for the full-text side
+   */
+  public HybridRetriever(DocumentRetriever vectorRetriever, JdbcTemplate jdbcTemplate, PgVectorIndexManager indexManager,
+                         String textSearchConfig, int rrfK, int candidates, int lexicalThreads, long lexicalTimeoutMs) {
+    if (!textSearchConfig.matches("[a-z_]+")) {
+      throw new IllegalArgumentException("Invalid text search configuration: " + textSearchConfig);
+    }
+    this.vectorRetriever = vectorRetriever;
+    this.jdbcTemplate = jdbcTemplate;
+    this.indexManager = indexManager;
+    this.textSearchConfig = textSearchConfig;
+    this.rrfK = rrfK;
+    this.candidates = candidates;
+    this.lexicalTimeoutMs = lexicalTimeoutMs;
+    int threads = Math.max(1, lexicalThreads);
+    AtomicInteger seq = new AtomicInteger();
+    this.lexicalExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads),
+        r -> {
+          Thread t = new Thread(r, "rag-lexical-" + seq.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
+    this.lexicalExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /** GIN index on the same tsvector expression the lexical query uses, otherwise every query scans the table. */
+  public void createIndexes() {
+    String table = indexManager.getTable();
+    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_content_tsv_" + textSearchConfig + "_idx "
+        + "ON " + table + " USING GIN (" + tsvector() + ")");
+  }
+
+  @Override
+  public List<Document> retrieve(String ragTag, String query, int topK) {
+    int n = Math.max(candidates, topK);
+    Future<List<Document>> lexical;
+    try {
+      lexical = lexicalExecutor.submit(() -> lexicalSearch(ragTag, query, n));
+    } catch (RejectedExecutionException e) {
+      log.warn("Full-text search on {} skipped, {} searches already running or queued", ragTag,
+          lexicalExecutor.getActiveCount() + lexicalExecutor.getQueue().size());
+      lexical = null;
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lexicalTimeoutMs);
+    List<Document> vector;
+    try {
+      vector = vectorRetriever.retrieve(ragTag, query, n);
+    } catch (RuntimeException e) {
+      if (lexical != null) lexical.cancel(true);
+      throw e;
+    }
+    List<Document> words = lexical == null ? List.of() : await(lexical, ragTag, deadline);
+    return fuse(List.of(vector, words), rrfK, topK);
+  }
+
+  /** Stops the full-text pool; searches in flight are interrupted. */
+  public void shutdown() {
+    lexicalExecutor.shutdownNow();
+  }
+
+  /** The full-text results, or none when they are not there by the deadline; the vector side alone is still usable. */
+  private List<Document> await(Future<List<Document>> lexical, String ragTag, long deadline) {
+    try {
+      return lexical.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      lexical.cancel(true);
+      log.warn("Full-text search on {} took longer than {} ms, using vector results only", ragTag, lexicalTimeoutMs);
+    } catch (ExecutionException e) {
+      log.warn("Full-text search on {} failed → {}", ragTag, e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      lexical.cancel(true);
+      Thread.currentThread().interrupt();
+    }
+    return List.of();
+  }
+
+  List<Document> lexicalSearch(String ragTag, String query, int limit) {
+    String tsQuery = toTsQuery(query);
+    if (tsQuery.isEmpty()) {
+      return List.of();
+    }
+    String sql = "SELECT id, content, metadata::text AS metadata FROM " + indexManager.getTable()
+        + ", to_tsquery('" + textSearchConfig + "', ?) q "
+        + "WHERE " + indexManager.ragTagPredicate() + " AND " + tsvector() + " @@ q "
+        + "ORDER BY ts_rank_cd(" + tsvector() + ", q) DESC LIMIT ?";
+    return jdbcTemplate.query(sql, (rs, i) -> {
+      Map<String, Object> metadata = new HashMap<>(JSON.parseObject(rs.getString("metadata")));
+      return new Document(rs.getString("id"), rs.getString("content"), metadata);
+    }, tsQuery, ragTag, limit);
+  }
+
+  private String tsvector() {
+    return "to_tsvector('" + textSearchConfig + "', content)";
+  }
+
+  /**
+   * Words of the question joined with {@code |}. Only letters, digits and underscores survive, so nothing the user
+   * types can break the tsquery syntax.
+   */
+  public static String toTsQuery(String query) {
+    Set<String> terms = new LinkedHashSet<>();
+    for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_]+")) {
+      if (word.length() > 1 && terms.size() < MAX_QUERY_TERMS) {
+        terms.add(word);
+      }
+    }
+    return String.join(" | ", terms);
+  }
+
+  /**
+   * Reciprocal rank fusion of ranked lists; a chunk found by several lists keeps the first copy seen, with its
+   * metadata extended by the fused {@code score}.
+   */
+  public static List<Document> fuse(List<List<Document>> rankings, int k, int topK) {
+    Map<String, Double> scores = new HashMap<>();
+    Map<String, Document> documents = new LinkedHashMap<>();
+    for (List<Document> ranking : rankings) {
+      for (int rank = 0; rank < ranking.size(); rank++) {
+        Document document = ranking.get(rank);
+        scores.merge(document.getId(), 1.0 / (k + rank + 1), Double::sum);
+        documents.putIfAbsent(document.getId(), document);
+      }
+    }
+    List<Document> fused = new ArrayList<>(documents.size());
+    for (Document document : documents.values()) {
+      Map<String, Object> metadata = new HashMap<>(document.getMetadata());
+      metadata.put("score", scores.get(document.getId()));
+      fused.add(new Document(document.getId(), document.getContent(), metadata));
+    }
+    fused.sort(Comparator.comparingDouble((Document d) -> (Double) d.getMetadata().get("score")).reversed());
+    return fused.size() > topK ? new ArrayList<>(fused.subList(0, topK)) : fused;
+  }
+}
@@ -0,0 +1,146 @@
+package carson.dev.tech.trigger.rag;
+
+import carson.dev.tech.trigger.cache.RetrievalCache;
+import carson.dev.tech.trigger.cache.SemanticAnswerCache;
+import carson.dev.tech.trigger.ingest.TokenCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.SystemPromptTemplate;
+import org.springframework.ai.document.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The RAG chat flow shared by every chat provider: retrieve → build prompt → stream the answer.
+ * <p>
+ * Nothing blocking runs on the caller's thread. The question embedding, the vector searches and the prompt assembly
+ * happen on {@code scheduler} (bounded elastic in production) after subscription, so the request thread returns the
+ * {@code Flux} immediately. A request over several ragTags or several query formulations runs one search per
+ * (ragTag, query) pair, all at once, and fuses the results by rank. The DOCUMENTS section is assembled by
+ * {@link ContextBuilder} within the model's token budget.
+ */
+@Slf4j
+public class RagChatService {
+
+  private static final String SYSTEM_PROMPT = """
+                Use the information from the DOCUMENTS section to provide accurate answers but act as if you knew this information innately.
+                If unsure, simply state that you don't know.
+                DOCUMENTS:
+                    {documents}
+                """;
+
+  private final DocumentRetriever documentRetriever;
+  private final RetrievalCache retrievalCache;
+  private final SemanticAnswerCache semanticAnswerCache;
+  private final ContextBuilder contextBuilder;
+  private final int topK;
+  private final Scheduler scheduler;
+
+  public RagChatService(DocumentRetriever documentRetriever, RetrievalCache retrievalCache, SemanticAnswerCache semanticAnswerCache,
+                        ContextBuilder contextBuilder, int topK, Scheduler scheduler) {
+    this.documentRetriever = documentRetriever;
+    this.retrievalCache = retrievalCache;
+    this.semanticAnswerCache = semanticAnswerCache;
+    this.contextBuilder = contextBuilder;
+    this.topK = topK;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Answers {@code question} from the chunks of {@code ragTag}, which may list several tags separated by commas.
+   * @param model provider-qualified model name, e.g. {@code ollama:deepseek-r1:1.5b}; scopes the semantic answer cache
+   */
+  public Flux<ChatResponse> stream(StreamingChatClient chatClient, ChatOptions options, String model, String ragTag, String question) {
+    return stream(chatClient, options, model, parseRagTags(ragTag), question, List.of(question));
+  }
+
+  /**
+   * Answers {@code question} from the chunks retrieved for every (ragTag, query) pair.
+   * @param queries formulations to search with, usually the question itself plus rewrites of it
+   */
+  public Flux<ChatResponse> stream(StreamingChatClient chatClient, ChatOptions options, String model, List<String> ragTags,
+                                   String question, List<String> queries) {
+    Supplier<Flux<ChatResponse>> generate = () -> retrieve(ragTags, queries)
+        .map(documents -> prompt(model, question, documents, options))
+        .flatMapMany(chatClient::stream);
+    // answers are invalidated per ragTag, so only single-tag answers can be cached safely
+    Flux<ChatResponse> answer = ragTags.size() == 1 && queries.size() == 1
+        ? semanticAnswerCache.getOrGenerate(ragTags.get(0), model, question, generate)
+        : Flux.defer(generate);
+    return answer.subscribeOn(scheduler);
+  }
+
+  /**
+   * Searches every (ragTag, query) pair concurrently and merges the hits round-robin by rank, first occurrence of a
+   * chunk wins. At most {@code topK} chunks are kept per ragTag.
+   */
+  public Mono<List<Document>> retrieve(List<String> ragTags, List<String> queries) {
+    List<Mono<List<Document>>> searches = new ArrayList<>(ragTags.size() * queries.size());
+    for (String ragTag : ragTags) {
+      for (String query : queries) {
+        searches.add(search(ragTag, query));
+      }
+    }
+    // mergeSequential subscribes to all searches at once but emits them in request order, so fusion is deterministic
+    return Flux.mergeSequential(searches)
+        .collectList()
+        .map(results -> fuse(results, topK * ragTags.size()));
+  }
+
+  private Mono<List<Document>> search(String ragTag, String query) {
+    // Repeated questions on the same ragTag are answered from the retrieval cache.
+    return Mono.fromCallable(() -> retrievalCache.get(ragTag, query, topK, () -> documentRetriever.retrieve(ragTag, query, topK)))
+        .subscribeOn(scheduler);
+  }
+
+  private Prompt prompt(String model, String question, List<Document> documents, ChatOptions options) {
+    // The chunks are merged into one string, best first, without near-duplicates and within the model's budget.
+    ContextBuilder.Context context = contextBuilder.build(model, documents, TokenCounter.count(SYSTEM_PROMPT) + TokenCounter.count(question));
+    log.debug("RAG context for {}: {} tokens from {} chunks, {} duplicates, {} truncated, {} omitted",
+        model, context.tokens(), context.documents().size(), context.duplicates(), context.truncated(), context.omitted());
+    Message ragMessage = new SystemPromptTemplate(SYSTEM_PROMPT).createMessage(Map.of("documents", context.text()));
+
+    List<Message> messages = new ArrayList<>();
+    messages.add(new UserMessage(question));
+    messages.add(ragMessage);
+    return new Prompt(messages, options);
+  }
+
+  static List<Document> fuse(List<List<Document>> results, int limit) {
+    if (results.size() == 1) {
+      return results.get(0);
+    }
+    Map<String, Document> fused = new LinkedHashMap<>();
+    int depth = results.stream().mapToInt(List::size).max().orElse(0);
+    for (int rank = 0; rank < depth && fused.size() < limit; rank++) {
+      for (List<Document> result : results) {
+        if (rank < result.size() && fused.size() < limit) {
+          fused.putIfAbsent(result.get(rank).getId(), result.get(rank));
+        }
+      }
+    }
+    return new ArrayList<>(fused.values());
+  }
+
+  public static List<String> parseRagTags(String ragTag) {
+    List<String> tags = Arrays.stream(ragTag.split(","))
+        .map(String::trim)
+        .filter(tag -> !tag.isEmpty())
+        .distinct()
+        .toList();
+    return tags.isEmpty() ? List.of(ragTag) : tags;
+  }
+}
@@ -0,0 +1,376 @@
+package carson.dev.tech.trigger.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW graph (Malkov &amp; Yashunin) over the rows of a {@link MappedVectorStore}. Scores are dot products of
+ * normalized vectors, i.e. cosine similarity, and higher is closer.
+ * <p>
+ * The graph holds row numbers only; vectors are read from the store. Inserts may run on several threads while searches
+ * run: the neighbour list of a node on a layer is an immutable {@code int[]}, replaced under the node's monitor, so a
+ * search sees either the old or the new list. Deleted rows stay in the graph as waypoints and are filtered out of
+ * results by the caller's predicate.
+ */
+final class HnswIndex {
+
+  private static final int MAGIC = 0x484E5357;
+  private static final int VERSION = 1;
+  private static final int PAGE_BITS = 14;
+  private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+  private static final int[] NO_LINKS = new int[0];
+  private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+
+  /** Read access to the normalized vectors of the rows. */
+  interface Vectors {
+
+    float[] vector(int row);
+
+    float dot(float[] query, int row);
+  }
+
+  /** Rows best first, with their scores. */
+  record Hits(int[] rows, float[] scores) {
+  }
+
+  private static final class Node {
+
+    final AtomicReferenceArray<int[]> links;
+
+    Node(int level) {
+      links = new AtomicReferenceArray<>(level + 1);
+      for (int l = 0; l <= level; l++) {
+        links.set(l, NO_LINKS);
+      }
+    }
+
+    int level() {
+      return links.length() - 1;
+    }
+  }
+
+  private record Entry(int row, int level) {
+  }
+
+  private final Vectors vectors;
+  private final int m;
+  private final int efConstruction;
+  private final double levelFactor;
+  private final CopyOnWriteArrayList<AtomicReferenceArray<Node>> pages = new CopyOnWriteArrayList<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile Entry entry;
+
+  HnswIndex(Vectors vectors, int m, int efConstruction) {
+    this.vectors = vectors;
+    this.m = m;
+    this.efConstruction = efConstruction;
+    this.levelFactor = 1 / Math.log(m);
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  boolean contains(int row) {
+    return node(row) != null;
+  }
+
+  /** Links a row into the graph; safe to call from several threads, each row at most once. */
+  void insert(int row) {
+    if (node(row) != null) {
+      return;
+    }
+    float[] vector = vectors.vector(row);
+    int level = (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelFactor);
+    Node node = new Node(level);
+    setNode(row, node);
+    Entry start = entry;
+    if (start == null) {
+      synchronized (this) {
+        if (entry == null) {
+          entry = new Entry(row, level);
+          size.incrementAndGet();
+          return;
+        }
+        start = entry;
+      }
+    }
+    RowScorer scorer = candidate -> vectors.dot(vector, candidate);
+    int[] entryRows = {start.row()};
+    float[] entryScores = {scorer.score(start.row())};
+    for (int l = start.level(); l > level; l--) {
+      NeighborQueue closest = searchLayer(scorer, entryRows, entryScores, 1, l, null);
+      entryScores[0] = closest.topScore();
+      entryRows[0] = closest.topNode();
+    }
+    // another inserter may already have linked back to this row
+    IntPredicate other = candidate -> candidate != row;
+    for (int l = Math.min(level, start.level()); l >= 0; l--) {
+      NeighborQueue found = searchLayer(scorer, entryRows, entryScores, efConstruction, l, other);
+      entryRows = new int[found.size()];
+      entryScores = new float[found.size()];
+      drain(found, entryRows, entryScores);
+      int[] neighbors = selectNeighbors(entryRows, entryScores, m);
+      node.links.set(l, neighbors);
+      for (int neighbor : neighbors) {
+        link(neighbor, row, l);
+      }
+    }
+    if (level > start.level()) {
+      synchronized (this) {
+        if (level > entry.level()) {
+          entry = new Entry(row, level);
+        }
+      }
+    }
+    size.incrementAndGet();
+  }
+
+  /**
+   * @param scorer similarity of the query to a row, exact or estimated from quantized codes
+   * @param ef     candidates kept while walking the bottom layer, at least {@code k}
+   * @param accept rows allowed in the results, null for all; rejected rows are still walked through
+   */
+  Hits search(RowScorer scorer, int k, int ef, IntPredicate accept) {
+    Entry start = entry;
+    if (start == null) {
+      return new Hits(new int[0], new float[0]);
+    }
+    int[] entryRows = {start.row()};
+    float[] entryScores = {scorer.score(start.row())};
+    for (int l = start.level(); l > 0; l--) {
+      NeighborQueue closest = searchLayer(scorer, entryRows, entryScores, 1, l, null);
+      entryScores[0] = closest.topScore();
+      entryRows[0] = closest.topNode();
+    }
+    NeighborQueue found = searchLayer(scorer, entryRows, entryScores, Math.max(ef, k), 0, accept);
+    while (found.size() > k) {
+      found.pop();
+    }
+    int[] rows = new int[found.size()];
+    float[] scores = new float[found.size()];
+    drain(found, rows, scores);
+    return new Hits(rows, scores);
+  }
+
+  /** Writes the graph of rows {@code [0, rows)} to {@code file}, replacing it atomically. */
+  void save(Path file, int rows) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    Entry start = entry;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(m);
+      out.writeInt(rows);
+      out.writeInt(start == null ? -1 : start.row());
+      for (int row = 0; row < rows; row++) {
+        Node node = node(row);
+        if (node == null) {
+          out.writeInt(-1);
+          continue;
+        }
+        out.writeInt(node.level());
+        for (int l = 0; l <= node.level(); l++) {
+          int[] links = node.links.get(l);
+          out.writeInt(links.length);
+          for (int link : links) {
+            out.writeInt(link);
+          }
+        }
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a graph written by {@link #save}. Returns null when there is no snapshot, or one built with another
+   * {@code m} or for more rows than the store has (a snapshot newer than the data); rows missing from the snapshot
+   * are left for the caller to insert.
+   */
+  static HnswIndex load(Path file, Vectors vectors, int m, int efConstruction, int maxRows) throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != m) {
+        return null;
+      }
+      int rows = in.readInt();
+      if (rows > maxRows) {
+        return null;
+      }
+      int entryRow = in.readInt();
+      HnswIndex index = new HnswIndex(vectors, m, efConstruction);
+      for (int row = 0; row < rows; row++) {
+        int level = in.readInt();
+        if (level < 0) {
+          continue;
+        }
+        Node node = new Node(level);
+        for (int l = 0; l <= level; l++) {
+          int[] links = new int[in.readInt()];
+          int kept = 0;
+          for (int i = 0; i < links.length; i++) {
+            int link = in.readInt();
+            // rows appended while the snapshot was written are not part of it
+            if (link < rows) {
+              links[kept++] = link;
+            }
+          }
+          node.links.set(l, kept == links.length ? links : Arrays.copyOf(links, kept));
+        }
+        index.setNode(row, node);
+        index.size.incrementAndGet();
+      }
+      Node entryNode = entryRow >= 0 ? index.node(entryRow) : null;
+      if (entryNode != null) {
+        index.entry = new Entry(entryRow, entryNode.level());
+      } else if (index.size() > 0) {
+        return null;
+      }
+      return index;
+    }
+  }
+
+  private NeighborQueue searchLayer(RowScorer scorer, int[] entryRows, float[] entryScores, int ef, int level,
+                                    IntPredicate accept) {
+    NeighborQueue candidates = new NeighborQueue(ef * 2, true);
+    NeighborQueue results = new NeighborQueue(ef + 1, false);
+    BitSet visited = new BitSet();
+    for (int i = 0; i < entryRows.length; i++) {
+      visited.set(entryRows[i]);
+      candidates.push(entryRows[i], entryScores[i]);
+      if (accept == null || accept.test(entryRows[i])) {
+        results.push(entryRows[i], entryScores[i]);
+        if (results.size() > ef) {
+          results.pop();
+        }
+      }
+    }
+    while (candidates.size() > 0) {
+      if (results.size() >= ef && candidates.topScore() < results.topScore()) {
+        break;
+      }
+      Node node = node(candidates.pop());
+      if (node == null || node.level() < level) {
+        continue;
+      }
+      for (int neighbor : node.links.get(level)) {
+        if (visited.get(neighbor)) {
+          continue;
+        }
+        visited.set(neighbor);
+        float score = scorer.score(neighbor);
+        if (results.size() < ef || score > results.topScore()) {
+          candidates.push(neighbor, score);
+          if (accept == null || accept.test(neighbor)) {
+            results.push(neighbor, score);
+            if (results.size() > ef) {
+              results.pop();
+            }
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Neighbour selection heuristic: a candidate is kept when it is closer to the new node than to every neighbour kept
+   * so far, which spreads links across directions; remaining slots are filled with the closest skipped candidates.
+   * @param rows candidates best first
+   */
+  private int[] selectNeighbors(int[] rows, float[] scores, int max) {
+    if (rows.length <= max) {
+      return rows.clone();
+    }
+    int[] selected = new int[max];
+    float[][] selectedVectors = new float[max][];
+    boolean[] taken = new boolean[rows.length];
+    int count = 0;
+    for (int i = 0; i < rows.length && count < max; i++) {
+      float[] candidate = vectors.vector(rows[i]);
+      boolean diverse = true;
+      for (int j = 0; j < count && diverse; j++) {
+        diverse = KERNEL.dot(candidate, selectedVectors[j]) < scores[i];
+      }
+      if (diverse) {
+        selected[count] = rows[i];
+        selectedVectors[count++] = candidate;
+        taken[i] = true;
+      }
+    }
+    for (int i = 0; i < rows.length && count < max; i++) {
+      if (!taken[i]) {
+        selected[count++] = rows[i];
+      }
+    }
+    return selected;
+  }
+
+  /** Adds a back link from {@code neighbor} to {@code row}, re-selecting the neighbour's links when it is full. */
+  private void link(int neighbor, int row, int level) {
+    Node node = node(neighbor);
+    int max = level == 0 ? 2 * m : m;
+    synchronized (node) {
+      int[] links = node.links.get(level);
+      if (links.length < max) {
+        int[] grown = Arrays.copyOf(links, links.length + 1);
+        grown[links.length] = row;
+        node.links.set(level, grown);
+        return;
+      }
+      float[] vector = vectors.vector(neighbor);
+      NeighborQueue byScore = new NeighborQueue(links.length + 1, true);
+      byScore.push(row, vectors.dot(vector, row));
+      for (int link : links) {
+        byScore.push(link, vectors.dot(vector, link));
+      }
+      int[] rows = new int[byScore.size()];
+      float[] scores = new float[byScore.size()];
+      for (int i = 0; i < rows.length; i++) {
+        scores[i] = byScore.topScore();
+        rows[i] = byScore.pop();
+      }
+      node.links.set(level, selectNeighbors(rows, scores, max));
+    }
+  }
+
+  private Node node(int row) {
+    int page = row >>> PAGE_BITS;
+    return page < pages.size() ? pages.get(page).get(row & PAGE_MASK) : null;
+  }
+
+  private void setNode(int row, Node node) {
+    int page = row >>> PAGE_BITS;
+    if (page >= pages.size()) {
+      synchronized (pages) {
+        while (page >= pages.size()) {
+          pages.add(new AtomicReferenceArray<>(1 << PAGE_BITS));
+        }
+      }
+    }
+    pages.get(page).set(row & PAGE_MASK, node);
+  }
+
+  /** Empties a min-heap into arrays, best first. */
+  private static void drain(NeighborQueue queue, int[] rows, float[] scores) {
+    for (int i = rows.length - 1; i >= 0; i--) {
+      scores[i] = queue.topScore();
+      rows[i] = queue.pop();
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package carson.dev.tech.trigger.vector;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * HNSW graph of the {@link MappedVectorStore}.
+ * <p>
+ * {@code m} links per node (2·m on the bottom layer) and {@code efConstruction} candidates while inserting;
+ * {@code efSearch} candidates per query (recall ↑, latency ↑). A query with at most {@code exactSearchThreshold}
+ * candidate rows (all live rows, or the rows of the filtered ragTag) is scanned exactly instead: a small ragTag is
+ * cheaper to scan than to find by walking a graph shared with every other tag.
+ */
+@Value
+@Builder
+public class HnswSettings {
+
+  @Builder.Default
+  boolean enabled = true;
+  @Builder.Default
+  int m = 16;
+  @Builder.Default
+  int efConstruction = 100;
+  @Builder.Default
+  int efSearch = 64;
+  @Builder.Default
+  int exactSearchThreshold = 10_000;
+}
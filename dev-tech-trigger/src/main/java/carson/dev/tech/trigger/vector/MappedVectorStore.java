@@ -0,0 +1,828 @@
+package carson.dev.tech.trigger.vector;
+
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Single-node VectorStore on memory-mapped files, for running without Postgres.
+ * <p>
+ * Files in {@code directory}:
+ * <ul>
+ *   <li>{@code vectors.f32}: one row of {@code dimensions} little-endian float32 per chunk, normalized on insert so
+ *   cosine similarity is a plain dot product.</li>
+ *   <li>{@code rows.idx}: a header (row count, dimensions, file ends) and one fixed-size entry per row with the
+ *   offsets into the two files below, the hash of the {@code knowledge} metadata and a deleted flag.</li>
+ *   <li>{@code content.dat} / {@code metadata.dat}: UTF-8 content, and id + metadata JSON, only read for the rows a
+ *   search returns.</li>
+ * </ul>
+ * Opening maps the files instead of parsing them, so startup does not depend on the number of rows, and the vectors
+ * live in the page cache instead of the Java heap.
+ * <p>
+ * Searches go through an in-memory {@link HnswIndex} ({@code hnsw.graph} on disk, see {@link HnswSettings}), with a
+ * {@code knowledge == 'tag'} filter applied while walking the graph. Small ragTags, other filters and a disabled index
+ * use an exact scan over primitive floats into a bounded top-K heap, skipping other ragTags by hash before any vector
+ * is touched; other filters parse the metadata of every candidate that would make the top K, so they are much slower.
+ * <p>
+ * Writers are serialized, searches take no lock: rows are published by the row count after they are written, and are
+ * linked into the graph after the writer's lock is released, so ingestion threads insert into the graph concurrently.
+ * A chunk is found by graph searches once it is linked, a few milliseconds after {@code add} returns.
+ * <p>
+ * With {@link QuantizationSettings} the rows also get int8 or product-quantized codes on the heap
+ * ({@code vectors.codes} on disk). Graph walks and scans without a metadata filter then score codes, and only the best
+ * {@code topK · rerankFactor} candidates are re-ranked on the float32 rows, so a search reads a few kilobytes of the
+ * mapped vectors instead of every row it visits.
+ * <p>
+ * Deleting or replacing a chunk only sets its deleted flag; the space is not reclaimed. Data reaches the disk when
+ * the OS writes back the mapped pages, or on {@link #flush()} / {@link #close()}.
+ */
+@Slf4j
+public class MappedVectorStore implements VectorStore, Closeable {
+
+  private static final int MAGIC = 0x52414756;
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 64;
+  private static final int ENTRY_BYTES = 40;
+  private static final int ENTRIES_PER_SEGMENT = 1 << 20;
+  private static final long VECTOR_SEGMENT_BYTES = 64L * 1024 * 1024;
+  private static final int DELETED = 1;
+  // candidates of an exact scan are scored this many at a time
+  private static final int SCAN_BLOCK = 256;
+  private static final SimilarityKernel KERNEL = SimilarityKernels.get();
+
+  // header fields
+  private static final int H_DIMENSIONS = 8;
+  private static final int H_COUNT = 16;
+  private static final int H_CONTENT_END = 24;
+  private static final int H_METADATA_END = 32;
+  private static final int H_DELETED = 40;
+
+  // entry fields
+  private static final int E_CONTENT_OFFSET = 0;
+  private static final int E_METADATA_OFFSET = 8;
+  private static final int E_CONTENT_LENGTH = 16;
+  private static final int E_ID_LENGTH = 20;
+  private static final int E_METADATA_LENGTH = 24;
+  private static final int E_KNOWLEDGE_HASH = 28;
+  private static final int E_FLAGS = 32;
+
+  private final Path directory;
+  private final EmbeddingClient embeddingClient;
+  private final FileChannel vectorChannel;
+  private final FileChannel indexChannel;
+  private final FileChannel contentChannel;
+  private final FileChannel metadataChannel;
+  private final MappedByteBuffer header;
+  private final List<MappedByteBuffer> vectorMappings = new CopyOnWriteArrayList<>();
+  private final List<FloatBuffer> vectorSegments = new CopyOnWriteArrayList<>();
+  private final List<MappedByteBuffer> indexSegments = new CopyOnWriteArrayList<>();
+  private final Map<Integer, Integer> liveRowsByHash = new ConcurrentHashMap<>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final HnswSettings hnswSettings;
+  private final HnswIndex index;
+  private final QuantizationSettings quantizationSettings;
+  private final AtomicBoolean training = new AtomicBoolean();
+  // set once the quantizer is trained, under the writer's lock; every row below the row count has a code from then on
+  private volatile QuantizedVectors quantized;
+
+  private int dimensions;
+  private int rowsPerSegment;
+  // published after the rows it covers are written; readers read it before anything else
+  private volatile int count;
+  private volatile int deleted;
+  private long contentEnd;
+  private long metadataEnd;
+  // built on the first write, reads stay independent of the id of every row
+  private Map<String, Integer> rowsById;
+  private boolean closed;
+
+  public MappedVectorStore(Path directory, EmbeddingClient embeddingClient) {
+    this(directory, embeddingClient, HnswSettings.builder().build());
+  }
+
+  public MappedVectorStore(Path directory, EmbeddingClient embeddingClient, HnswSettings hnswSettings) {
+    this(directory, embeddingClient, hnswSettings, QuantizationSettings.builder().build());
+  }
+
+  /**
+   * @param directory            created if missing; an existing store is reopened
+   * @param embeddingClient      embeds queries and documents that arrive without an embedding
+   * @param hnswSettings         graph index; rows missing from its snapshot are inserted before the constructor returns
+   * @param quantizationSettings compressed codes searched before the exact re-rank; codes missing from their snapshot
+   *                             are encoded before the constructor returns
+   */
+  public MappedVectorStore(Path directory, EmbeddingClient embeddingClient, HnswSettings hnswSettings,
+                           QuantizationSettings quantizationSettings) {
+    this.directory = directory;
+    this.embeddingClient = embeddingClient;
+    this.hnswSettings = hnswSettings;
+    this.quantizationSettings = quantizationSettings;
+    try {
+      Files.createDirectories(directory);
+      this.vectorChannel = open("vectors.f32");
+      this.indexChannel = open("rows.idx");
+      this.contentChannel = open("content.dat");
+      this.metadataChannel = open("metadata.dat");
+      this.header = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getInt(0) == 0) {
+        header.putInt(0, MAGIC).putInt(4, VERSION);
+      } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IllegalStateException("Not a vector store of version " + VERSION + ": " + directory);
+      }
+      this.count = (int) header.getLong(H_COUNT);
+      this.deleted = (int) header.getLong(H_DELETED);
+      this.contentEnd = header.getLong(H_CONTENT_END);
+      this.metadataEnd = header.getLong(H_METADATA_END);
+      int storedDimensions = header.getInt(H_DIMENSIONS);
+      if (storedDimensions > 0) {
+        initDimensions(storedDimensions);
+        ensureCapacity(count);
+      }
+      for (int row = 0; row < count; row++) {
+        if (!isDeleted(row)) {
+          liveRowsByHash.merge(knowledgeHashOf(row), 1, Integer::sum);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    log.info("Opened vector store {} with {} chunks of {} dimensions", directory, size(), dimensions);
+    this.index = hnswSettings.isEnabled() ? openIndex() : null;
+    openQuantized();
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /** 0 until the first chunk is added. */
+  public int getDimensions() {
+    return dimensions;
+  }
+
+  /** Live chunks, i.e. rows not deleted. */
+  public int size() {
+    return count - deleted;
+  }
+
+  /** Bytes of the quantized code of a row, 0 until the quantizer is trained (or without quantization). */
+  public int getCodeBytes() {
+    QuantizedVectors codes = quantized;
+    return codes == null ? 0 : codes.codeBytes();
+  }
+
+  @Override
+  public void add(List<Document> documents) {
+    if (documents.isEmpty()) {
+      return;
+    }
+    // the embedding call happens outside the lock, searches keep running meanwhile
+    List<float[]> vectors = embed(documents);
+    int first;
+    writeLock.lock();
+    try {
+      QuantizedVectors codes = quantized;
+      if (dimensions == 0) {
+        initDimensions(vectors.get(0).length);
+        header.putInt(H_DIMENSIONS, dimensions);
+      }
+      for (float[] vector : vectors) {
+        if (vector.length != dimensions) {
+          throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+      }
+      Map<String, Integer> ids = rowsById();
+      ensureCapacity(count + documents.size());
+      ByteArrayOutputStream contents = new ByteArrayOutputStream();
+      ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+      for (int i = 0; i < documents.size(); i++) {
+        Document document = documents.get(i);
+        int row = count + i;
+        Integer previous = ids.put(document.getId(), row);
+        if (previous != null) {
+          markDeleted(previous);
+        }
+        byte[] content = document.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] id = document.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] json = JSON.toJSONString(document.getMetadata()).getBytes(StandardCharsets.UTF_8);
+        Object knowledge = document.getMetadata().get("knowledge");
+
+        ByteBuffer entry = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+        int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+        entry.putLong(at + E_CONTENT_OFFSET, contentEnd + contents.size());
+        entry.putLong(at + E_METADATA_OFFSET, metadataEnd + metadata.size());
+        entry.putInt(at + E_CONTENT_LENGTH, content.length);
+        entry.putInt(at + E_ID_LENGTH, id.length);
+        entry.putInt(at + E_METADATA_LENGTH, json.length);
+        entry.putInt(at + E_KNOWLEDGE_HASH, knowledgeHash(knowledge));
+        entry.putInt(at + E_FLAGS, 0);
+        liveRowsByHash.merge(knowledgeHash(knowledge), 1, Integer::sum);
+        contents.write(content);
+        metadata.write(id);
+        metadata.write(json);
+        float[] vector = normalize(vectors.get(i));
+        vectorSegments.get(row / rowsPerSegment).put((row % rowsPerSegment) * dimensions, vector);
+        if (codes != null) {
+          codes.encode(row, vector);
+        }
+      }
+      write(contentChannel, contents.toByteArray(), contentEnd);
+      write(metadataChannel, metadata.toByteArray(), metadataEnd);
+      contentEnd += contents.size();
+      metadataEnd += metadata.size();
+      // the row count goes last, a crash before it leaves the new rows invisible instead of half written
+      first = count;
+      count = first + documents.size();
+      writeHeader();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      writeLock.unlock();
+    }
+    if (index != null) {
+      for (int row = first; row < first + documents.size(); row++) {
+        index.insert(row);
+      }
+    }
+    if (quantizationSettings.getType() != QuantizationSettings.Type.NONE && quantized == null
+        && size() >= quantizationSettings.getTrainingRows()) {
+      trainQuantizer();
+    }
+  }
+
+  @Override
+  public Optional<Boolean> delete(List<String> idList) {
+    writeLock.lock();
+    try {
+      Map<String, Integer> ids = rowsById();
+      int found = 0;
+      for (String id : idList) {
+        Integer row = ids.remove(id);
+        if (row != null) {
+          markDeleted(row);
+          found++;
+        }
+      }
+      writeHeader();
+      return Optional.of(found == idList.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Deletes the chunks of a ragTag whose metadata matches, e.g. every chunk of some paths.
+   * @return number of chunks deleted
+   */
+  public int deleteWhere(String ragTag, Predicate<Map<String, Object>> metadataFilter) {
+    writeLock.lock();
+    try {
+      int hash = knowledgeHash(ragTag);
+      int removed = 0;
+      for (int row = 0; row < count; row++) {
+        if (isDeleted(row) || knowledgeHashOf(row) != hash) {
+          continue;
+        }
+        Map<String, Object> metadata = readMetadata(row);
+        if (ragTag.equals(metadata.get("knowledge")) && metadataFilter.test(metadata)) {
+          if (rowsById != null) {
+            rowsById.remove(readId(row));
+          }
+          markDeleted(row);
+          removed++;
+        }
+      }
+      if (removed > 0) {
+        writeHeader();
+      }
+      return removed;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public List<Document> similaritySearch(SearchRequest request) {
+    float[] query = normalize(FloatVectorCodec.toFloats(embeddingClient.embed(request.getQuery())));
+    float minScore = request.getSimilarityThreshold() > SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL
+        ? (float) request.getSimilarityThreshold() : Float.NEGATIVE_INFINITY;
+    int rows = count;
+    if (rows == 0) {
+      return List.of();
+    }
+    if (query.length != dimensions) {
+      throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + query.length);
+    }
+    try {
+      String ragTag = MetadataFilter.ragTagOf(request.getFilterExpression());
+      if (ragTag != null) {
+        int hash = knowledgeHash(ragTag);
+        List<Document> found = useIndex(liveRowsByHash.getOrDefault(hash, 0))
+            ? indexSearch(query, request.getTopK(), minScore, row -> !isDeleted(row) && knowledgeHashOf(row) == hash)
+            : scan(rows, query, request.getTopK(), minScore, hash, null);
+        if (found.stream().allMatch(document -> ragTag.equals(document.getMetadata().get("knowledge")))) {
+          return found;
+        }
+        // another ragTag with the same hash made it into the top K, scan again with the exact filter
+      } else if (!request.hasFilterExpression() && useIndex(rows - deleted)) {
+        return indexSearch(query, request.getTopK(), minScore, row -> !isDeleted(row));
+      }
+      Predicate<Map<String, Object>> filter = request.hasFilterExpression()
+          ? MetadataFilter.of(request.getFilterExpression()) : null;
+      return scan(rows, query, request.getTopK(), minScore, null, filter);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Forces mapped pages and appended bytes to disk, and snapshots the graph index and the quantized codes. */
+  public void flush() {
+    writeLock.lock();
+    try {
+      forceAll();
+      saveSnapshots();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    writeLock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      forceAll();
+      saveSnapshots();
+      closed = true;
+      vectorChannel.close();
+      indexChannel.close();
+      contentChannel.close();
+      metadataChannel.close();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private boolean useIndex(int candidateRows) {
+    return index != null && candidateRows > hnswSettings.getExactSearchThreshold();
+  }
+
+  private List<Document> indexSearch(float[] query, int topK, float minScore, IntPredicate accept) throws IOException {
+    QuantizedVectors codes = quantized;
+    if (codes == null) {
+      HnswIndex.Hits hits = index.search(exactScorer(query), topK, hnswSettings.getEfSearch(), accept);
+      return documents(hits.rows(), hits.scores(), minScore);
+    }
+    int candidates = topK * quantizationSettings.getRerankFactor();
+    HnswIndex.Hits hits = index.search(codes.scorer(query), candidates, Math.max(hnswSettings.getEfSearch(), candidates), accept);
+    return rerank(query, hits.rows(), topK, minScore);
+  }
+
+  private List<Document> scan(int rows, float[] query, int topK, float minScore, Integer knowledgeHash,
+                              Predicate<Map<String, Object>> filter) throws IOException {
+    // a metadata filter is tested on every row that would enter the top K, scoring those on codes would only add rows
+    QuantizedVectors codes = filter == null ? quantized : null;
+    RowScorer scorer = codes != null ? codes.scorer(query) : exactScorer(query);
+    // estimated scores are not held to the similarity threshold, the re-ranked ones are
+    float cutoff = codes != null ? Float.NEGATIVE_INFINITY : minScore;
+    TopK top = new TopK(codes != null ? topK * quantizationSettings.getRerankFactor() : topK);
+    int[] block = new int[SCAN_BLOCK];
+    float[] blockScores = new float[SCAN_BLOCK];
+    int pending = 0;
+    for (int row = 0; row < rows; row++) {
+      ByteBuffer entries = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+      int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+      if ((entries.getInt(at + E_FLAGS) & DELETED) != 0
+          || knowledgeHash != null && entries.getInt(at + E_KNOWLEDGE_HASH) != knowledgeHash) {
+        continue;
+      }
+      block[pending++] = row;
+      if (pending == SCAN_BLOCK) {
+        offer(scorer, block, pending, blockScores, cutoff, filter, top);
+        pending = 0;
+      }
+    }
+    offer(scorer, block, pending, blockScores, cutoff, filter, top);
+    if (codes != null) {
+      return rerank(query, top.drainRows(null), topK, minScore);
+    }
+    float[] scores = new float[top.size()];
+    return documents(top.drainRows(scores), scores, minScore);
+  }
+
+  /** Scores a block of candidate rows in one go and offers them to the top K. */
+  private void offer(RowScorer scorer, int[] rows, int count, float[] scores, float cutoff,
+                     Predicate<Map<String, Object>> filter, TopK top) throws IOException {
+    scorer.score(rows, count, scores);
+    for (int i = 0; i < count; i++) {
+      float score = scores[i];
+      if (score < cutoff || score <= top.threshold()) {
+        continue;
+      }
+      // metadata is only parsed for rows that would enter the top K
+      if (filter != null && !filter.test(readMetadata(rows[i]))) {
+        continue;
+      }
+      top.offer(score, rows[i]);
+    }
+  }
+
+  /** Exact scores of candidates found on quantized codes. */
+  private List<Document> rerank(float[] query, int[] candidates, int topK, float minScore) throws IOException {
+    RowScorer exact = exactScorer(query);
+    TopK top = new TopK(topK);
+    for (int row : candidates) {
+      top.offer(exact.score(row), row);
+    }
+    float[] scores = new float[top.size()];
+    return documents(top.drainRows(scores), scores, minScore);
+  }
+
+  private RowScorer exactScorer(float[] query) {
+    return new RowScorer() {
+      private int[] offsets = new int[0];
+      private float[] runScores = new float[0];
+
+      @Override
+      public float score(int row) {
+        return dot(query, row);
+      }
+
+      @Override
+      public void score(int[] rows, int count, float[] scores) {
+        if (offsets.length < count) {
+          offsets = new int[count];
+          runScores = new float[count];
+        }
+        // rows come in ascending order, so each run of rows in one mapped segment is scored in one kernel call
+        int from = 0;
+        while (from < count) {
+          int segment = rows[from] / rowsPerSegment;
+          int to = from;
+          while (to < count && rows[to] / rowsPerSegment == segment) {
+            offsets[to - from] = vectorOffset(rows[to]);
+            to++;
+          }
+          KERNEL.dot(query, vectorMappings.get(segment), offsets, to - from, runScores);
+          System.arraycopy(runScores, 0, scores, from, to - from);
+          from = to;
+        }
+      }
+    };
+  }
+
+  private float dot(float[] query, int row) {
+    return KERNEL.dot(query, vectorMappings.get(row / rowsPerSegment), vectorOffset(row));
+  }
+
+  /** Byte offset of {@code row} in its mapped segment of {@code vectors.f32}. */
+  private int vectorOffset(int row) {
+    return (row % rowsPerSegment) * dimensions * Float.BYTES;
+  }
+
+  private float[] vector(int row) {
+    float[] vector = new float[dimensions];
+    vectorSegments.get(row / rowsPerSegment).get((row % rowsPerSegment) * dimensions, vector);
+    return vector;
+  }
+
+  private List<Document> documents(int[] rows, float[] scores, float minScore) throws IOException {
+    List<Document> documents = new ArrayList<>(rows.length);
+    for (int i = 0; i < rows.length && scores[i] >= minScore; i++) {
+      Map<String, Object> metadata = readMetadata(rows[i]);
+      metadata.put("distance", 1 - scores[i]);
+      documents.add(new Document(readId(rows[i]), readContent(rows[i]), metadata));
+    }
+    return documents;
+  }
+
+  private HnswIndex openIndex() {
+    Path file = directory.resolve("hnsw.graph");
+    HnswIndex.Vectors vectors = new HnswIndex.Vectors() {
+      @Override
+      public float[] vector(int row) {
+        return MappedVectorStore.this.vector(row);
+      }
+
+      @Override
+      public float dot(float[] query, int row) {
+        return MappedVectorStore.this.dot(query, row);
+      }
+    };
+    HnswIndex snapshot = null;
+    try {
+      snapshot = HnswIndex.load(file, vectors, hnswSettings.getM(), hnswSettings.getEfConstruction(), count);
+    } catch (IOException e) {
+      log.warn("Discarding HNSW snapshot {} → {}", file, e.getMessage());
+    }
+    HnswIndex graph = snapshot != null ? snapshot : new HnswIndex(vectors, hnswSettings.getM(), hnswSettings.getEfConstruction());
+    int loaded = graph.size();
+    long start = System.currentTimeMillis();
+    AtomicInteger inserted = new AtomicInteger();
+    // inserts are thread-safe, so a missing or stale snapshot is rebuilt on all cores
+    IntStream.range(0, count).parallel()
+        .filter(row -> !isDeleted(row) && !graph.contains(row))
+        .forEach(row -> {
+          graph.insert(row);
+          inserted.incrementAndGet();
+        });
+    log.info("HNSW index of {}: {} rows from snapshot, {} inserted in {}ms", directory, loaded, inserted.get(),
+        System.currentTimeMillis() - start);
+    return graph;
+  }
+
+  private void openQuantized() {
+    QuantizationSettings.Type type = quantizationSettings.getType();
+    if (type == QuantizationSettings.Type.NONE || dimensions == 0) {
+      return;
+    }
+    Path file = directory.resolve("vectors.codes");
+    QuantizedVectors codes = null;
+    try {
+      codes = QuantizedVectors.load(file, type, dimensions, codeBytes(), count);
+    } catch (IOException e) {
+      log.warn("Discarding quantized vectors {} → {}", file, e.getMessage());
+    }
+    if (codes == null) {
+      if (size() >= quantizationSettings.getTrainingRows()) {
+        trainQuantizer();
+      }
+      return;
+    }
+    QuantizedVectors loaded = codes;
+    long start = System.currentTimeMillis();
+    IntStream.range(loaded.loadedRows(), count).parallel().forEach(row -> loaded.encode(row, vector(row)));
+    quantized = loaded;
+    log.info("{} codes of {}: {} rows from snapshot, {} encoded in {}ms", type, directory, loaded.loadedRows(),
+        count - loaded.loadedRows(), System.currentTimeMillis() - start);
+  }
+
+  /**
+   * Trains the quantizer on a sample of the live rows and encodes every row. Runs at most once at a time; writers
+   * keep going meanwhile, and rows they add before the codes are published are encoded under their lock.
+   */
+  private void trainQuantizer() {
+    if (!training.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      if (quantized != null) {
+        return;
+      }
+      long start = System.currentTimeMillis();
+      int rows = count;
+      List<float[]> sample = sample(rows, quantizationSettings.getTrainingRows());
+      QuantizationSettings.Type type = quantizationSettings.getType();
+      VectorQuantizer quantizer = type == QuantizationSettings.Type.INT8
+          ? ScalarQuantizer.train(sample)
+          : ProductQuantizer.train(sample, codeBytes(), quantizationSettings.getPqIterations());
+      QuantizedVectors codes = new QuantizedVectors(type, quantizer);
+      IntStream.range(0, rows).parallel().forEach(row -> codes.encode(row, vector(row)));
+      writeLock.lock();
+      try {
+        for (int row = rows; row < count; row++) {
+          codes.encode(row, vector(row));
+        }
+        quantized = codes;
+      } finally {
+        writeLock.unlock();
+      }
+      log.info("Trained {} quantizer of {} on {} rows in {}ms: {} bytes per row searched instead of {}", type,
+          directory, sample.size(), System.currentTimeMillis() - start, codes.codeBytes(), dimensions * Float.BYTES);
+    } finally {
+      training.set(false);
+    }
+  }
+
+  /** Up to {@code size} live rows spread evenly over {@code [0, rows)}. */
+  private List<float[]> sample(int rows, int size) {
+    List<float[]> sample = new ArrayList<>(Math.min(rows, size));
+    int stride = Math.max(1, rows / size);
+    for (int row = 0; row < rows && sample.size() < size; row += stride) {
+      if (!isDeleted(row)) {
+        sample.add(vector(row));
+      }
+    }
+    return sample;
+  }
+
+  private int codeBytes() {
+    if (quantizationSettings.getType() == QuantizationSettings.Type.INT8) {
+      return dimensions;
+    }
+    int subvectors = quantizationSettings.getPqSubvectors() > 0
+        ? quantizationSettings.getPqSubvectors() : ProductQuantizer.defaultSubvectors(dimensions);
+    return Math.min(subvectors, dimensions);
+  }
+
+  private void saveSnapshots() throws IOException {
+    if (index != null) {
+      index.save(directory.resolve("hnsw.graph"), count);
+    }
+    QuantizedVectors codes = quantized;
+    if (codes != null) {
+      codes.save(directory.resolve("vectors.codes"), dimensions, count);
+    }
+  }
+
+  private List<float[]> embed(List<Document> documents) {
+    List<float[]> vectors = new ArrayList<>(documents.size());
+    List<Integer> missing = new ArrayList<>();
+    List<String> texts = new ArrayList<>();
+    for (Document document : documents) {
+      List<Double> embedding = document.getEmbedding();
+      if (embedding != null && !embedding.isEmpty()) {
+        vectors.add(FloatVectorCodec.toFloats(embedding));
+      } else {
+        missing.add(vectors.size());
+        texts.add(document.getContent());
+        vectors.add(null);
+      }
+    }
+    if (!texts.isEmpty()) {
+      List<List<Double>> embedded = embeddingClient.embed(texts);
+      for (int i = 0; i < missing.size(); i++) {
+        vectors.set(missing.get(i), FloatVectorCodec.toFloats(embedded.get(i)));
+      }
+    }
+    return vectors;
+  }
+
+  private Map<String, Integer> rowsById() throws IOException {
+    if (rowsById == null) {
+      Map<String, Integer> ids = new HashMap<>(Math.max(16, (count - deleted) * 2));
+      for (int row = 0; row < count; row++) {
+        if (!isDeleted(row)) {
+          ids.put(readId(row), row);
+        }
+      }
+      rowsById = ids;
+    }
+    return rowsById;
+  }
+
+  private void initDimensions(int dimensions) {
+    this.dimensions = dimensions;
+    this.rowsPerSegment = (int) Math.max(1, VECTOR_SEGMENT_BYTES / ((long) dimensions * Float.BYTES));
+  }
+
+  private void ensureCapacity(int rows) throws IOException {
+    long vectorSegmentBytes = (long) rowsPerSegment * dimensions * Float.BYTES;
+    while ((long) vectorSegments.size() * rowsPerSegment < rows) {
+      MappedByteBuffer mapping = vectorChannel.map(FileChannel.MapMode.READ_WRITE,
+          vectorSegments.size() * vectorSegmentBytes, vectorSegmentBytes);
+      mapping.order(ByteOrder.LITTLE_ENDIAN);
+      vectorMappings.add(mapping);
+      vectorSegments.add(mapping.asFloatBuffer());
+    }
+    long indexSegmentBytes = (long) ENTRIES_PER_SEGMENT * ENTRY_BYTES;
+    while ((long) indexSegments.size() * ENTRIES_PER_SEGMENT < rows) {
+      MappedByteBuffer mapping = indexChannel.map(FileChannel.MapMode.READ_WRITE,
+          HEADER_BYTES + indexSegments.size() * indexSegmentBytes, indexSegmentBytes);
+      mapping.order(ByteOrder.LITTLE_ENDIAN);
+      indexSegments.add(mapping);
+    }
+  }
+
+  private boolean isDeleted(int row) {
+    return (indexSegments.get(row / ENTRIES_PER_SEGMENT).getInt((row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES + E_FLAGS) & DELETED) != 0;
+  }
+
+  private int knowledgeHashOf(int row) {
+    return indexSegments.get(row / ENTRIES_PER_SEGMENT).getInt((row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES + E_KNOWLEDGE_HASH);
+  }
+
+  private void markDeleted(int row) {
+    ByteBuffer entries = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+    int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES + E_FLAGS;
+    int flags = entries.getInt(at);
+    if ((flags & DELETED) == 0) {
+      entries.putInt(at, flags | DELETED);
+      liveRowsByHash.merge(entries.getInt(at - E_FLAGS + E_KNOWLEDGE_HASH), -1, Integer::sum);
+      deleted++;
+    }
+  }
+
+  private String readId(int row) throws IOException {
+    ByteBuffer entries = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+    int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+    byte[] id = read(metadataChannel, entries.getLong(at + E_METADATA_OFFSET), entries.getInt(at + E_ID_LENGTH));
+    return new String(id, StandardCharsets.UTF_8);
+  }
+
+  private Map<String, Object> readMetadata(int row) throws IOException {
+    ByteBuffer entries = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+    int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+    int idLength = entries.getInt(at + E_ID_LENGTH);
+    byte[] json = read(metadataChannel, entries.getLong(at + E_METADATA_OFFSET) + idLength, entries.getInt(at + E_METADATA_LENGTH));
+    return new HashMap<>(JSON.parseObject(new String(json, StandardCharsets.UTF_8)));
+  }
+
+  private String readContent(int row) throws IOException {
+    ByteBuffer entries = indexSegments.get(row / ENTRIES_PER_SEGMENT);
+    int at = (row % ENTRIES_PER_SEGMENT) * ENTRY_BYTES;
+    byte[] content = read(contentChannel, entries.getLong(at + E_CONTENT_OFFSET), entries.getInt(at + E_CONTENT_LENGTH));
+    return new String(content, StandardCharsets.UTF_8);
+  }
+
+  private void writeHeader() {
+    header.putLong(H_CONTENT_END, contentEnd);
+    header.putLong(H_METADATA_END, metadataEnd);
+    header.putLong(H_DELETED, deleted);
+    header.putLong(H_COUNT, count);
+  }
+
+  private void forceAll() throws IOException {
+    if (closed) {
+      return;
+    }
+    contentChannel.force(false);
+    metadataChannel.force(false);
+    vectorMappings.forEach(MappedByteBuffer::force);
+    indexSegments.forEach(MappedByteBuffer::force);
+    header.force();
+  }
+
+  private FileChannel open(String name) throws IOException {
+    return FileChannel.open(directory.resolve(name),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private static int knowledgeHash(Object knowledge) {
+    return knowledge == null ? 0 : knowledge.toString().hashCode();
+  }
+
+  private static float[] normalize(float[] vector) {
+    double norm = 0;
+    for (float v : vector) {
+      norm += v * v;
+    }
+    if (norm == 0) {
+      return vector;
+    }
+    float scale = (float) (1 / Math.sqrt(norm));
+    float[] normalized = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      normalized[i] = vector[i] * scale;
+    }
+    return normalized;
+  }
+
+  private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Truncated vector store file at " + position);
+      }
+    }
+    return buffer.array();
+  }
+
+  private static void write(FileChannel channel, byte[] bytes, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package carson.dev.tech.trigger.vector;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Evaluates a Spring AI filter expression against a document's metadata map, for stores that have no query language.
+ */
+public final class MetadataFilter {
+
+  private MetadataFilter() {
+  }
+
+  public static Predicate<Map<String, Object>> of(Filter.Expression expression) {
+    if (expression == null) {
+      return metadata -> true;
+    }
+    return switch (expression.type()) {
+      case AND -> of(operand(expression.left())).and(of(operand(expression.right())));
+      case OR -> of(operand(expression.left())).or(of(operand(expression.right())));
+      case NOT -> of(operand(expression.left())).negate();
+      case EQ -> compare(expression, c -> c == 0);
+      case NE -> compare(expression, c -> c != 0);
+      case GT -> compare(expression, c -> c > 0);
+      case GTE -> compare(expression, c -> c >= 0);
+      case LT -> compare(expression, c -> c < 0);
+      case LTE -> compare(expression, c -> c <= 0);
+      case IN -> metadata -> in(metadata.get(key(expression)), value(expression));
+      case NIN -> metadata -> !in(metadata.get(key(expression)), value(expression));
+      default -> throw new IllegalArgumentException("Unsupported filter expression: " + expression);
+    };
+  }
+
+  /** The ragTag of a plain {@code knowledge == 'tag'} filter, or null for anything else. */
+  public static String ragTagOf(Filter.Expression expression) {
+    if (expression != null && expression.type() == Filter.ExpressionType.EQ
+        && expression.left() instanceof Filter.Key key && "knowledge".equals(key.key())
+        && expression.right() instanceof Filter.Value value && value.value() instanceof String tag) {
+      return tag;
+    }
+    return null;
+  }
+
+  private static Filter.Expression operand(Filter.Operand operand) {
+    if (operand instanceof Filter.Group group) {
+      return group.content();
+    }
+    return (Filter.Expression) operand;
+  }
+
+  private static Predicate<Map<String, Object>> compare(Filter.Expression expression, IntPredicate test) {
+    String key = key(expression);
+    Object expected = value(expression);
+    return metadata -> {
+      Object actual = metadata.get(key);
+      if (actual == null || expected == null) {
+        boolean same = actual == expected;
+        return switch (expression.type()) {
+          case EQ -> same;
+          case NE -> !same;
+          default -> false;
+        };
+      }
+      return test.test(compare(actual, expected));
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static int compare(Object actual, Object expected) {
+    if (actual instanceof Number a && expected instanceof Number b) {
+      return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+    if (actual instanceof Comparable a && actual.getClass().isInstance(expected)) {
+      return a.compareTo(expected);
+    }
+    return String.valueOf(actual).compareTo(String.valueOf(expected));
+  }
+
+  private static boolean in(Object actual, Object expected) {
+    Collection<?> values = expected instanceof Collection<?> c ? c : List.of(expected);
+    for (Object value : values) {
+      if (actual != null && compare(actual, value) == 0) return true;
+    }
+    return false;
+  }
+
+  private static String key(Filter.Expression expression) {
+    String key = ((Filter.Key) expression.left()).key();
+    // keys with spaces are quoted by the filter parser
+    return key.length() > 1 && (key.startsWith("\"") || key.startsWith("'")) ? key.substring(1, key.length() - 1) : key;
+  }
+
+  private static Object value(Filter.Expression expression) {
+    return ((Filter.Value) expression.right()).value();
+  }
+}
@@ -0,0 +1,91 @@
+package carson.dev.tech.trigger.vector;
+
+import java.util.Arrays;
+
+/**
+ * Growable binary heap of (score, node) packed into longs: the sortable bits of the score in the high half, the node in
+ * the low half. The top is the lowest score, or the highest one for a max-heap.
+ */
+final class NeighborQueue {
+
+  private final boolean maxHeap;
+  private long[] heap;
+  private int size;
+
+  NeighborQueue(int initialCapacity, boolean maxHeap) {
+    this.heap = new long[Math.max(4, initialCapacity)];
+    this.maxHeap = maxHeap;
+  }
+
+  void push(int node, float score) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    heap[size] = encode(node, score);
+    siftUp(size++);
+  }
+
+  int pop() {
+    int node = decodeNode(heap[0]);
+    heap[0] = heap[--size];
+    siftDown(0);
+    return node;
+  }
+
+  int topNode() {
+    return decodeNode(heap[0]);
+  }
+
+  float topScore() {
+    return decodeScore(heap[0]);
+  }
+
+  int size() {
+    return size;
+  }
+
+  private long encode(int node, float score) {
+    long encoded = ((long) sortable(score) << 32) | (node & 0xFFFFFFFFL);
+    // bitwise not reverses the order of every long, so the same min-heap code serves both
+    return maxHeap ? ~encoded : encoded;
+  }
+
+  private int decodeNode(long encoded) {
+    return (int) (maxHeap ? ~encoded : encoded);
+  }
+
+  private float decodeScore(long encoded) {
+    int bits = (int) ((maxHeap ? ~encoded : encoded) >> 32);
+    return Float.intBitsToFloat(bits ^ (bits >> 31) & 0x7fffffff);
+  }
+
+  /** Float bits as an int with the same ordering as the floats. */
+  private static int sortable(float score) {
+    int bits = Float.floatToIntBits(score);
+    return bits ^ (bits >> 31) & 0x7fffffff;
+  }
+
+  private void siftUp(int i) {
+    long value = heap[i];
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= value) break;
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = value;
+  }
+
+  private void siftDown(int i) {
+    long value = heap[i];
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) break;
+      if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+      if (value <= heap[child]) break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = value;
+  }
+}
@@ -0,0 +1,97 @@
+package carson.dev.tech.trigger.vector;
+
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import com.alibaba.fastjson.JSON;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.vectorstore.PgVectorFilterExpressionConverter;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * VectorStore over the partitioned layout of {@link PgVectorIndexManager}: same columns and SQL shape as PgVectorStore,
+ * plus the {@code knowledge} partition key, which is taken from the document metadata on insert.
+ * <p>
+ * Like PgVectorStore it calls {@code embeddingClient.embed(document)} per row, so build it on a
+ * {@link carson.dev.tech.trigger.embedding.PrecomputedEmbeddingClient} when chunks arrive already embedded.
+ */
+public class PartitionedPgVectorStore implements VectorStore {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EmbeddingClient embeddingClient;
+  private final PgVectorIndexManager indexManager;
+  private final PgVectorFilterExpressionConverter filterConverter = new PgVectorFilterExpressionConverter();
+
+  public PartitionedPgVectorStore(JdbcTemplate jdbcTemplate, EmbeddingClient embeddingClient, PgVectorIndexManager indexManager) {
+    if (!indexManager.isPartitioned()) {
+      throw new IllegalArgumentException("PartitionedPgVectorStore needs a partitioned PgVectorIndexManager");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.embeddingClient = embeddingClient;
+    this.indexManager = indexManager;
+  }
+
+  @Override
+  public void add(List<Document> documents) {
+    List<Object[]> rows = new ArrayList<>(documents.size());
+    for (Document document : documents) {
+      Object knowledge = document.getMetadata().get("knowledge");
+      String ragTag = knowledge == null ? "" : knowledge.toString();
+      indexManager.ensurePartition(ragTag);
+      float[] embedding = FloatVectorCodec.toFloats(embeddingClient.embed(document));
+      rows.add(new Object[]{UUID.fromString(document.getId()), document.getContent(),
+          JSON.toJSONString(document.getMetadata()), new PGvector(embedding), ragTag});
+    }
+    String sql = "INSERT INTO " + indexManager.getTable() + " (id, content, metadata, embedding, knowledge) "
+        + "VALUES (?, ?, ?::json, ?, ?) ON CONFLICT (knowledge, id) DO UPDATE "
+        + "SET content = EXCLUDED.content, metadata = EXCLUDED.metadata, embedding = EXCLUDED.embedding";
+    jdbcTemplate.batchUpdate(sql, rows);
+  }
+
+  @Override
+  public Optional<Boolean> delete(List<String> idList) {
+    int deleted = jdbcTemplate.update("DELETE FROM " + indexManager.getTable() + " WHERE id = ANY(?)", ps -> {
+      UUID[] ids = idList.stream().map(UUID::fromString).toArray(UUID[]::new);
+      ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+    });
+    return Optional.of(deleted == idList.size());
+  }
+
+  @Override
+  public List<Document> similaritySearch(SearchRequest request) {
+    PGvector query = new PGvector(FloatVectorCodec.toFloats(embeddingClient.embed(request.getQuery())));
+    String ragTag = MetadataFilter.ragTagOf(request.getFilterExpression());
+    String filter;
+    if (ragTag != null) {
+      // the usual "knowledge == 'tag'" filter becomes a partition key predicate, so only that partition is scanned
+      filter = " AND knowledge = '" + ragTag.replace("'", "''") + "'";
+    } else if (request.hasFilterExpression()) {
+      filter = " AND metadata::jsonb @@ '" + filterConverter.convertExpression(request.getFilterExpression()) + "'::jsonpath";
+    } else {
+      filter = "";
+    }
+    boolean threshold = request.getSimilarityThreshold() > SearchRequest.SIMILARITY_THRESHOLD_ACCEPT_ALL;
+    String sql = indexManager.nearestSql("true" + (threshold ? " AND embedding <=> ? < ?" : "") + filter);
+    return PgVectorSearch.inTransaction(jdbcTemplate, indexManager.getSettings(), connection -> {
+      try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        int i = 1;
+        ps.setObject(i++, query);
+        if (threshold) {
+          ps.setObject(i++, query);
+          ps.setDouble(i++, 1 - request.getSimilarityThreshold());
+        }
+        indexManager.bindNearest(ps, i, query, request.getTopK());
+        return PgVectorSearch.readDocuments(ps);
+      }
+    });
+  }
+
+}
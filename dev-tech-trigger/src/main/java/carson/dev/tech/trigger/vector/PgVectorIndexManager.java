@@ -0,0 +1,242 @@
+package carson.dev.tech.trigger.vector;
+
+import com.pgvector.PGvector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the layout and the ANN index of the pgvector table.
+ * <p>
+ * Single layout: the table PgVectorStore creates, plus the index described by {@link PgVectorIndexSettings}.
+ * Partitioned layout: the same columns plus a {@code knowledge} column that the table is LIST-partitioned on, one
+ * partition per ragTag (created on first write) and a DEFAULT partition for untagged rows. A tag-scoped query then
+ * only scans, and only walks the ANN graph of, its own partition, instead of post-filtering a global graph on
+ * {@code metadata->>'knowledge'}. An existing single-layout table is migrated on startup, in one transaction, and kept
+ * as {@code <table>_unpartitioned}.
+ * <p>
+ * ANN indexes on the table other than the configured one (including PgVectorStore's default
+ * {@code spring_ai_vector_index}) are dropped, so a parameter change rebuilds the index instead of adding a second one.
+ */
+@Slf4j
+public class PgVectorIndexManager {
+
+  // comment on the single-layout table once its rows are in the partitioned one
+  private static final String MIGRATED = "migrated to partitions";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String table;
+  private final int dimensions;
+  private final PgVectorIndexSettings settings;
+  private final boolean partitioned;
+  private final Set<String> knownPartitions = ConcurrentHashMap.newKeySet();
+
+  public PgVectorIndexManager(JdbcTemplate jdbcTemplate, String table, int dimensions, PgVectorIndexSettings settings,
+                              boolean partitioned) {
+    if (!table.matches("[a-z_][a-z0-9_]*")) {
+      throw new IllegalArgumentException("Invalid table name: " + table);
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.table = table;
+    this.dimensions = dimensions;
+    this.settings = settings;
+    this.partitioned = partitioned;
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public int getDimensions() {
+    return dimensions;
+  }
+
+  public PgVectorIndexSettings getSettings() {
+    return settings;
+  }
+
+  public boolean isPartitioned() {
+    return partitioned;
+  }
+
+  /** Creates (or migrates to) the configured layout and makes sure exactly the configured ANN index exists. */
+  public void initialize() {
+    jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+    if (partitioned) {
+      createPartitionedTable();
+    } else {
+      jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (id uuid DEFAULT gen_random_uuid() PRIMARY KEY, "
+          + "content text, metadata json, embedding vector(" + dimensions + "))");
+    }
+    rebuildIndex(false);
+  }
+
+  /**
+   * Drops stale ANN indexes and creates the configured one.
+   * @param force also rebuild the configured index, e.g. an IVFFlat index created while the table was still empty
+   */
+  public void rebuildIndex(boolean force) {
+    String wanted = settings.indexName(table);
+    List<String> existing = jdbcTemplate.queryForList(
+        "SELECT indexname FROM pg_indexes WHERE tablename = ? AND (indexdef ILIKE '%USING hnsw%' OR indexdef ILIKE '%USING ivfflat%')",
+        String.class, table);
+    for (String index : existing) {
+      if (force || !index.equals(wanted)) {
+        log.info("Dropping ANN index {} on {}", index, table);
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + index);
+      }
+    }
+    if (settings.getType() != PgVectorIndexSettings.IndexType.NONE) {
+      long start = System.currentTimeMillis();
+      jdbcTemplate.execute(settings.indexDdl(table, dimensions));
+      log.info("ANN index {} on {} ready in {}ms", wanted, table, System.currentTimeMillis() - start);
+    }
+  }
+
+  /** Creates the partition of a ragTag if needed; cheap after the first call per tag. */
+  public void ensurePartition(String ragTag) {
+    if (!partitioned || ragTag == null || ragTag.isEmpty() || knownPartitions.contains(ragTag)) {
+      return;
+    }
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(ragTag) + " PARTITION OF " + table
+        + " FOR VALUES IN ('" + ragTag.replace("'", "''") + "')");
+    knownPartitions.add(ragTag);
+  }
+
+  /**
+   * Nearest-neighbour query over the rows matching {@code where}, returning id, content, metadata (text) and the exact
+   * cosine distance, closest first. With a quantized index an inner query takes {@code topK · rerankFactor}
+   * candidates in index order and the outer one re-ranks them on the full vectors.
+   * <p>
+   * Parameters: the query vector, then those of {@code where}, then the ones bound by {@link #bindNearest}.
+   */
+  public String nearestSql(String where) {
+    if (!settings.reranks()) {
+      return "SELECT id, content, metadata::text AS metadata, embedding <=> ? AS distance FROM " + table
+          + " WHERE " + where + " ORDER BY distance LIMIT ?";
+    }
+    return "SELECT id, content, metadata, embedding <=> ? AS distance FROM (SELECT id, content, metadata::text AS metadata, "
+        + "embedding FROM " + table + " WHERE " + where + " ORDER BY " + settings.orderExpression(dimensions)
+        + " LIMIT ?) candidates ORDER BY distance LIMIT ?";
+  }
+
+  /**
+   * Binds the parameters of {@link #nearestSql} that follow those of {@code where}.
+   * @return the next parameter index
+   */
+  public int bindNearest(PreparedStatement ps, int index, PGvector query, int topK) throws SQLException {
+    if (settings.reranks()) {
+      ps.setObject(index++, query);
+      ps.setInt(index++, topK * settings.getRerankFactor());
+    }
+    ps.setInt(index++, topK);
+    return index;
+  }
+
+  /**
+   * Empties the partition of a ragTag in one statement instead of deleting its rows one by one; the partition itself
+   * stays, so later writes of the tag still land in it.
+   * @return rows removed
+   */
+  public int truncatePartition(String ragTag) {
+    if (!partitioned || ragTag == null || ragTag.isEmpty()) {
+      throw new IllegalStateException("No partition of its own for ragTag '" + ragTag + "'");
+    }
+    String partition = partitionName(ragTag);
+    if (relkind(partition) == null) {
+      return 0;
+    }
+    Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition, Integer.class);
+    jdbcTemplate.execute("TRUNCATE " + partition);
+    return rows == null ? 0 : rows;
+  }
+
+  /** The WHERE clause restricting a query to one ragTag; in partitioned layout it lets the planner prune partitions. */
+  public String ragTagPredicate() {
+    return partitioned ? "knowledge = ?" : "metadata->>'knowledge' = ?";
+  }
+
+  String partitionName(String ragTag) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(ragTag.getBytes(StandardCharsets.UTF_8));
+      return table + "_p_" + HexFormat.of().formatHex(hash, 0, 8);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void createPartitionedTable() {
+    String kind = relkind(table);
+    String legacy = table + "_unpartitioned";
+    if ("p".equals(kind)) {
+      // an interrupted migration of an earlier version left the rows of the old table behind
+      if (relkind(legacy) != null && !MIGRATED.equals(jdbcTemplate.queryForObject(
+          "SELECT obj_description(to_regclass(?), 'pg_class')", String.class, legacy))) {
+        log.info("Resuming the migration of {} into {}", legacy, table);
+        inTransaction(() -> copyRows(legacy));
+      }
+      return;
+    }
+    // DDL is transactional in Postgres: a failure leaves the single-layout table as it was, never an empty
+    // partitioned table next to stranded rows
+    inTransaction(() -> {
+      if ("r".equals(kind)) {
+        log.info("Migrating {} to one partition per ragTag, old rows stay in {}", table, legacy);
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+        // index and constraint names are schema-wide; free them for the new table
+        jdbcTemplate.queryForList("SELECT i.relname FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid "
+            + "WHERE x.indrelid = to_regclass(?) AND NOT x.indisprimary", String.class, legacy)
+            .forEach(index -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + index));
+        jdbcTemplate.queryForList("SELECT conname FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'",
+                String.class, legacy)
+            .forEach(pk -> jdbcTemplate.execute("ALTER TABLE " + legacy + " RENAME CONSTRAINT " + pk + " TO " + legacy + "_pkey"));
+      }
+      jdbcTemplate.execute("CREATE TABLE " + table + " (id uuid NOT NULL DEFAULT gen_random_uuid(), content text, metadata json, "
+          + "embedding vector(" + dimensions + "), knowledge text NOT NULL DEFAULT '', PRIMARY KEY (knowledge, id)) "
+          + "PARTITION BY LIST (knowledge)");
+      jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + "_default PARTITION OF " + table + " DEFAULT");
+      if ("r".equals(kind)) {
+        copyRows(legacy);
+      }
+    });
+  }
+
+  /** Copies the rows of the single-layout table into their partitions and marks it as migrated. */
+  private void copyRows(String legacy) {
+    List<String> tags = jdbcTemplate.queryForList(
+        "SELECT DISTINCT metadata->>'knowledge' FROM " + legacy + " WHERE metadata->>'knowledge' IS NOT NULL", String.class);
+    tags.forEach(this::ensurePartition);
+    int rows = jdbcTemplate.update("INSERT INTO " + table + " (id, content, metadata, embedding, knowledge) "
+        + "SELECT id, content, metadata, embedding, COALESCE(metadata->>'knowledge', '') FROM " + legacy
+        + " ON CONFLICT DO NOTHING");
+    jdbcTemplate.execute("COMMENT ON TABLE " + legacy + " IS '" + MIGRATED + "'");
+    log.info("Migrated {} rows into {} partitions", rows, tags.size());
+  }
+
+  private void inTransaction(Runnable work) {
+    TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    try {
+      transaction.executeWithoutResult(status -> work.run());
+    } catch (RuntimeException e) {
+      // partitions created by the rolled back transaction are gone again
+      knownPartitions.clear();
+      throw e;
+    }
+  }
+
+  private String relkind(String relation) {
+    return jdbcTemplate.query("SELECT relkind FROM pg_class WHERE oid = to_regclass(?)",
+        rs -> rs.next() ? rs.getString(1) : null, relation);
+  }
+}
@@ -0,0 +1,102 @@
+package carson.dev.tech.trigger.vector;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ANN index of the pgvector {@code embedding} column (cosine distance) and the query-time knobs that go with it.
+ * <p>
+ * HNSW: {@code m} links per node and {@code efConstruction} candidates while building; {@code efSearch} candidates per
+ * query (recall ↑, latency ↑). IVFFlat: {@code lists} clusters built from the rows present at index time (so build it
+ * after loading data); {@code probes} clusters scanned per query.
+ * <p>
+ * {@code quantization} builds the index on a compressed expression of the column instead (pgvector 0.7+): HALFVEC
+ * (float16, half the index size) or BINARY (one bit per dimension, Hamming distance, 32x smaller). Queries then take
+ * {@code topK · rerankFactor} candidates from the index and re-rank them on the full vectors.
+ */
+@Value
+@Builder
+public class PgVectorIndexSettings {
+
+  public enum IndexType { NONE, HNSW, IVFFLAT }
+
+  public enum Quantization { NONE, HALFVEC, BINARY }
+
+  @Builder.Default
+  IndexType type = IndexType.HNSW;
+  @Builder.Default
+  int m = 16;
+  @Builder.Default
+  int efConstruction = 64;
+  @Builder.Default
+  int efSearch = 40;
+  @Builder.Default
+  int lists = 100;
+  @Builder.Default
+  int probes = 1;
+  @Builder.Default
+  Quantization quantization = Quantization.NONE;
+  @Builder.Default
+  int rerankFactor = 4;
+
+  /** Name that changes with the build parameters, so a settings change is detected as a different index. */
+  public String indexName(String table) {
+    String suffix = switch (quantization) {
+      case NONE -> "";
+      case HALFVEC -> "_half";
+      case BINARY -> "_bit";
+    };
+    return switch (type) {
+      case NONE -> null;
+      case HNSW -> table + "_hnsw_m" + m + "_ef" + efConstruction + suffix + "_idx";
+      case IVFFLAT -> table + "_ivfflat_l" + lists + suffix + "_idx";
+    };
+  }
+
+  public String indexDdl(String table, int dimensions) {
+    String column = switch (quantization) {
+      case NONE -> "embedding vector_cosine_ops";
+      case HALFVEC -> "(embedding::halfvec(" + dimensions + ")) halfvec_cosine_ops";
+      case BINARY -> "(binary_quantize(embedding)::bit(" + dimensions + ")) bit_hamming_ops";
+    };
+    return switch (type) {
+      case NONE -> null;
+      case HNSW -> "CREATE INDEX IF NOT EXISTS " + indexName(table) + " ON " + table
+          + " USING hnsw (" + column + ") WITH (m = " + m + ", ef_construction = " + efConstruction + ")";
+      case IVFFLAT -> "CREATE INDEX IF NOT EXISTS " + indexName(table) + " ON " + table
+          + " USING ivfflat (" + column + ") WITH (lists = " + lists + ")";
+    };
+  }
+
+  /** True when queries find candidates on the quantized index expression and re-rank them exactly. */
+  public boolean reranks() {
+    return type != IndexType.NONE && quantization != Quantization.NONE;
+  }
+
+  /**
+   * ORDER BY expression matching the indexed expression, with one {@code ?} for the query vector; without
+   * quantization it is the exact cosine distance.
+   */
+  public String orderExpression(int dimensions) {
+    return switch (quantization) {
+      case NONE -> "embedding <=> ?";
+      case HALFVEC -> "embedding::halfvec(" + dimensions + ") <=> ?::halfvec(" + dimensions + ")";
+      case BINARY -> "binary_quantize(embedding)::bit(" + dimensions + ") <~> binary_quantize(?::vector)";
+    };
+  }
+
+  /** {@code SET LOCAL} statements to run in the transaction of each query. */
+  public List<String> querySettings() {
+    List<String> settings = new ArrayList<>(1);
+    switch (type) {
+      case HNSW -> settings.add("SET LOCAL hnsw.ef_search = " + efSearch);
+      case IVFFLAT -> settings.add("SET LOCAL ivfflat.probes = " + probes);
+      default -> {
+      }
+    }
+    return settings;
+  }
+}
@@ -0,0 +1,99 @@
+package carson.dev.tech.trigger.vector;
+
+import carson.dev.tech.trigger.embedding.FloatVectorCodec;
+import carson.dev.tech.trigger.rag.DocumentRetriever;
+import com.alibaba.fastjson.JSON;
+import com.pgvector.PGvector;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tag-scoped nearest-neighbour query on the pgvector table, with the query-time index settings
+ * ({@code hnsw.ef_search} / {@code ivfflat.probes}) applied through {@code SET LOCAL} in the query's own transaction,
+ * so pooled connections never keep them.
+ * <p>
+ * PgVectorStore cannot do this: it filters through a jsonpath on {@code metadata} and runs on whatever session
+ * settings the pooled connection has.
+ */
+public class PgVectorSearch implements DocumentRetriever {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EmbeddingClient embeddingClient;
+  private final PgVectorIndexManager indexManager;
+
+  public PgVectorSearch(JdbcTemplate jdbcTemplate, EmbeddingClient embeddingClient, PgVectorIndexManager indexManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.embeddingClient = embeddingClient;
+    this.indexManager = indexManager;
+  }
+
+  @Override
+  public List<Document> retrieve(String ragTag, String query, int topK) {
+    return search(ragTag, FloatVectorCodec.toFloats(embeddingClient.embed(query)), topK);
+  }
+
+  /** Search by an already embedded query. */
+  public List<Document> search(String ragTag, float[] query, int topK) {
+    String sql = indexManager.nearestSql(indexManager.ragTagPredicate());
+    PGvector vector = new PGvector(query);
+    return inTransaction(jdbcTemplate, indexManager.getSettings(), connection -> {
+      try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        ps.setObject(1, vector);
+        ps.setString(2, ragTag);
+        indexManager.bindNearest(ps, 3, vector, topK);
+        return readDocuments(ps);
+      }
+    });
+  }
+
+  /** Runs {@code callback} in a transaction that starts with the settings' {@code SET LOCAL} statements. */
+  static <T> T inTransaction(JdbcTemplate jdbcTemplate, PgVectorIndexSettings settings, ConnectionCallback<T> callback) {
+    List<String> statements = settings.querySettings();
+    return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+      if (statements.isEmpty()) {
+        return callback.doInConnection(connection);
+      }
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try {
+        try (Statement statement = connection.createStatement()) {
+          for (String sql : statements) {
+            statement.execute(sql);
+          }
+        }
+        T result = callback.doInConnection(connection);
+        connection.commit();
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    });
+  }
+
+  static List<Document> readDocuments(PreparedStatement ps) throws SQLException {
+    List<Document> documents = new ArrayList<>();
+    try (ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        String json = rs.getString("metadata");
+        Map<String, Object> metadata = json == null ? new HashMap<>() : new HashMap<>(JSON.parseObject(json));
+        metadata.put("distance", rs.getFloat("distance"));
+        documents.add(new Document(rs.getString("id"), rs.getString("content"), metadata));
+      }
+    }
+    return documents;
+  }
+}
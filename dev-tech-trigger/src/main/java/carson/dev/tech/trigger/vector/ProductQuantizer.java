@@ -0,0 +1,164 @@
+package carson.dev.tech.trigger.vector;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Product quantization (Jégou et al.): the dimensions are split into {@code subvectors} contiguous slices, each slice
+ * gets its own 256-centroid k-means codebook, and a vector is stored as the centroid number of each slice, one byte
+ * per slice. With 8 dimensions per slice that is 32x smaller than float32.
+ * <p>
+ * Scoring builds a table of the query slice · centroid dot products once per query (256 × dimensions multiply-adds),
+ * after which a code costs {@code subvectors} lookups and additions.
+ */
+final class ProductQuantizer implements VectorQuantizer {
+
+  private static final int CENTROIDS = 256;
+
+  private final int subvectors;
+  // slice s covers dimensions [bounds[s], bounds[s + 1])
+  private final int[] bounds;
+  // centroid c of slice s starts at bounds[s] * CENTROIDS + c * (slice width)
+  private final float[] codebooks;
+
+  private ProductQuantizer(int dimensions, int subvectors, float[] codebooks) {
+    this.subvectors = subvectors;
+    this.bounds = new int[subvectors + 1];
+    for (int s = 0; s <= subvectors; s++) {
+      bounds[s] = (int) ((long) s * dimensions / subvectors);
+    }
+    this.codebooks = codebooks;
+  }
+
+  /** One slice per 8 dimensions, the usual trade-off between recall and code size. */
+  static int defaultSubvectors(int dimensions) {
+    return Math.max(1, dimensions / 8);
+  }
+
+  /**
+   * Runs k-means on every slice of the sample, slices in parallel.
+   * @param sample     normalized vectors, at least a few thousand for stable codebooks
+   * @param iterations Lloyd iterations per slice
+   */
+  static ProductQuantizer train(List<float[]> sample, int subvectors, int iterations) {
+    int dimensions = sample.get(0).length;
+    ProductQuantizer quantizer = new ProductQuantizer(dimensions, Math.min(subvectors, dimensions),
+        new float[dimensions * CENTROIDS]);
+    IntStream.range(0, quantizer.subvectors).parallel().forEach(s -> quantizer.trainSlice(s, sample, iterations));
+    return quantizer;
+  }
+
+  static ProductQuantizer read(DataInputStream in, int dimensions) throws IOException {
+    int subvectors = in.readInt();
+    float[] codebooks = new float[dimensions * CENTROIDS];
+    for (int i = 0; i < codebooks.length; i++) {
+      codebooks[i] = in.readFloat();
+    }
+    return new ProductQuantizer(dimensions, subvectors, codebooks);
+  }
+
+  @Override
+  public int codeBytes() {
+    return subvectors;
+  }
+
+  @Override
+  public void encode(float[] vector, byte[] codes, int offset) {
+    for (int s = 0; s < subvectors; s++) {
+      codes[offset + s] = (byte) nearest(s, vector, bounds[s]);
+    }
+  }
+
+  @Override
+  public CodeScorer scorer(float[] query) {
+    float[] table = new float[subvectors * CENTROIDS];
+    for (int s = 0; s < subvectors; s++) {
+      int from = bounds[s];
+      int width = bounds[s + 1] - from;
+      for (int c = 0; c < CENTROIDS; c++) {
+        int centroid = from * CENTROIDS + c * width;
+        float dot = 0;
+        for (int d = 0; d < width; d++) {
+          dot += query[from + d] * codebooks[centroid + d];
+        }
+        table[s * CENTROIDS + c] = dot;
+      }
+    }
+    return (codes, offset) -> {
+      float sum = 0;
+      for (int s = 0; s < subvectors; s++) {
+        sum += table[s * CENTROIDS + (codes[offset + s] & 0xFF)];
+      }
+      return sum;
+    };
+  }
+
+  @Override
+  public void write(DataOutputStream out) throws IOException {
+    out.writeInt(subvectors);
+    for (float value : codebooks) {
+      out.writeFloat(value);
+    }
+  }
+
+  private void trainSlice(int s, List<float[]> sample, int iterations) {
+    int from = bounds[s];
+    int width = bounds[s + 1] - from;
+    int base = from * CENTROIDS;
+    Random random = new Random(s);
+    for (int c = 0; c < CENTROIDS; c++) {
+      System.arraycopy(sample.get(random.nextInt(sample.size())), from, codebooks, base + c * width, width);
+    }
+    int[] assignment = new int[sample.size()];
+    for (int iteration = 0; iteration < iterations; iteration++) {
+      for (int i = 0; i < sample.size(); i++) {
+        assignment[i] = nearest(s, sample.get(i), from);
+      }
+      double[] sums = new double[CENTROIDS * width];
+      int[] counts = new int[CENTROIDS];
+      for (int i = 0; i < sample.size(); i++) {
+        float[] vector = sample.get(i);
+        int c = assignment[i];
+        counts[c]++;
+        for (int d = 0; d < width; d++) {
+          sums[c * width + d] += vector[from + d];
+        }
+      }
+      for (int c = 0; c < CENTROIDS; c++) {
+        if (counts[c] == 0) {
+          // an empty cluster restarts from a random sample point
+          System.arraycopy(sample.get(random.nextInt(sample.size())), from, codebooks, base + c * width, width);
+          continue;
+        }
+        for (int d = 0; d < width; d++) {
+          codebooks[base + c * width + d] = (float) (sums[c * width + d] / counts[c]);
+        }
+      }
+    }
+  }
+
+  /** Centroid of slice {@code s} closest (L2) to {@code vector[from, from + width)}. */
+  private int nearest(int s, float[] vector, int from) {
+    int width = bounds[s + 1] - from;
+    int base = from * CENTROIDS;
+    int best = 0;
+    float bestDistance = Float.POSITIVE_INFINITY;
+    for (int c = 0; c < CENTROIDS; c++) {
+      int centroid = base + c * width;
+      float distance = 0;
+      for (int d = 0; d < width; d++) {
+        float diff = vector[from + d] - codebooks[centroid + d];
+        distance += diff * diff;
+      }
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = c;
+      }
+    }
+    return best;
+  }
+}
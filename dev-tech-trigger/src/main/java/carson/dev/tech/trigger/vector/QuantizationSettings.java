@@ -0,0 +1,31 @@
+package carson.dev.tech.trigger.vector;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Compressed copy of the vectors of the {@link MappedVectorStore}, kept on the heap next to the float32 rows.
+ * <p>
+ * Searches score candidates on the codes (INT8: 1 byte per dimension, PQ: 1 byte per {@code pqSubvectors} slice) and
+ * re-rank the best {@code topK · rerankFactor} of them exactly on the float32 rows, so the mapped vectors are only
+ * touched for a few rows per query. The quantizer is trained once the store holds {@code trainingRows} chunks (from
+ * a sample of that many rows); smaller stores search exactly.
+ */
+@Value
+@Builder
+public class QuantizationSettings {
+
+  public enum Type { NONE, INT8, PQ }
+
+  @Builder.Default
+  Type type = Type.NONE;
+  /** 0 means one slice per 8 dimensions. */
+  @Builder.Default
+  int pqSubvectors = 0;
+  @Builder.Default
+  int rerankFactor = 10;
+  @Builder.Default
+  int trainingRows = 10_000;
+  @Builder.Default
+  int pqIterations = 10;
+}
@@ -0,0 +1,121 @@
+package carson.dev.tech.trigger.vector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The codes of every row of a {@link MappedVectorStore} under one trained {@link VectorQuantizer}, in heap pages of
+ * {@code 2^PAGE_BITS} rows.
+ * <p>
+ * Rows are encoded by the store's writer before it publishes the row count, so a reader that only scores rows below
+ * the count it read never sees a missing code.
+ */
+final class QuantizedVectors {
+
+  private static final int MAGIC = 0x51564543;
+  private static final int VERSION = 1;
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+  private final QuantizationSettings.Type type;
+  private final VectorQuantizer quantizer;
+  private final int codeBytes;
+  private final CopyOnWriteArrayList<byte[]> pages = new CopyOnWriteArrayList<>();
+  private int loadedRows;
+
+  QuantizedVectors(QuantizationSettings.Type type, VectorQuantizer quantizer) {
+    this.type = type;
+    this.quantizer = quantizer;
+    this.codeBytes = quantizer.codeBytes();
+  }
+
+  QuantizationSettings.Type type() {
+    return type;
+  }
+
+  int codeBytes() {
+    return codeBytes;
+  }
+
+  /** Rows read by {@link #load}; rows at or above it still have to be encoded. */
+  int loadedRows() {
+    return loadedRows;
+  }
+
+  /** Encodes a row; rows may be encoded concurrently, each by one thread. */
+  void encode(int row, float[] vector) {
+    quantizer.encode(vector, page(row), (row & PAGE_MASK) * codeBytes);
+  }
+
+  RowScorer scorer(float[] query) {
+    VectorQuantizer.CodeScorer scorer = quantizer.scorer(query);
+    return row -> scorer.score(pages.get(row >>> PAGE_BITS), (row & PAGE_MASK) * codeBytes);
+  }
+
+  /** Writes the quantizer and the codes of rows {@code [0, rows)} to {@code file}, replacing it atomically. */
+  void save(Path file, int dimensions, int rows) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(type.ordinal());
+      out.writeInt(dimensions);
+      quantizer.write(out);
+      out.writeInt(rows);
+      for (int from = 0; from < rows; from += 1 << PAGE_BITS) {
+        out.write(pages.get(from >>> PAGE_BITS), 0, Math.min(1 << PAGE_BITS, rows - from) * codeBytes);
+      }
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads codes written by {@link #save}. Returns null when there is no file, or one of another quantization type,
+   * dimension count or code size, or for more rows than the store has.
+   */
+  static QuantizedVectors load(Path file, QuantizationSettings.Type type, int dimensions, int codeBytes, int maxRows)
+      throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != type.ordinal() || in.readInt() != dimensions) {
+        return null;
+      }
+      VectorQuantizer quantizer = switch (type) {
+        case INT8 -> ScalarQuantizer.read(in, dimensions);
+        case PQ -> ProductQuantizer.read(in, dimensions);
+        case NONE -> throw new IllegalArgumentException("Nothing to load for " + type);
+      };
+      int rows = in.readInt();
+      if (quantizer.codeBytes() != codeBytes || rows > maxRows) {
+        return null;
+      }
+      QuantizedVectors vectors = new QuantizedVectors(type, quantizer);
+      for (int from = 0; from < rows; from += 1 << PAGE_BITS) {
+        in.readFully(vectors.page(from), 0, Math.min(1 << PAGE_BITS, rows - from) * vectors.codeBytes);
+      }
+      vectors.loadedRows = rows;
+      return vectors;
+    }
+  }
+
+  private byte[] page(int row) {
+    int page = row >>> PAGE_BITS;
+    if (page >= pages.size()) {
+      synchronized (pages) {
+        while (page >= pages.size()) {
+          pages.add(new byte[(1 << PAGE_BITS) * codeBytes]);
+        }
+      }
+    }
+    return pages.get(page);
+  }
+}
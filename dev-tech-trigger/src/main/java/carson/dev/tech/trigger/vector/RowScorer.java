@@ -0,0 +1,15 @@
+package carson.dev.tech.trigger.vector;
+
+/** Similarity of one query to a row of the store, higher is closer; exact or estimated from quantized codes. */
+@FunctionalInterface
+interface RowScorer {
+
+  float score(int row);
+
+  /** Scores {@code rows[0..count)} into {@code scores}; the exact scorer reads the query once for several rows. */
+  default void score(int[] rows, int count, float[] scores) {
+    for (int i = 0; i < count; i++) {
+      scores[i] = score(rows[i]);
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package carson.dev.tech.trigger.vector;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * int8 scalar quantization: each dimension is mapped linearly from its [min, max] over a training sample onto 256
+ * levels, one byte per dimension (4x smaller than float32). Values outside the trained range are clamped.
+ * <p>
+ * Scoring needs no decoding: with {@code x = min + step * (code + 128)},
+ * {@code q·x = Σ q·(min + 128·step) + Σ (q·step)·code}, where the first sum and the weights {@code q·step} are
+ * computed once per query.
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+
+  private final float[] min;
+  private final float[] step;
+
+  private ScalarQuantizer(float[] min, float[] step) {
+    this.min = min;
+    this.step = step;
+  }
+
+  static ScalarQuantizer train(List<float[]> sample) {
+    int dimensions = sample.get(0).length;
+    float[] min = new float[dimensions];
+    float[] max = new float[dimensions];
+    Arrays.fill(min, Float.POSITIVE_INFINITY);
+    Arrays.fill(max, Float.NEGATIVE_INFINITY);
+    for (float[] vector : sample) {
+      for (int i = 0; i < dimensions; i++) {
+        min[i] = Math.min(min[i], vector[i]);
+        max[i] = Math.max(max[i], vector[i]);
+      }
+    }
+    float[] step = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      step[i] = (max[i] - min[i]) / 255;
+    }
+    return new ScalarQuantizer(min, step);
+  }
+
+  static ScalarQuantizer read(DataInputStream in, int dimensions) throws IOException {
+    float[] min = new float[dimensions];
+    float[] step = new float[dimensions];
+    for (int i = 0; i < dimensions; i++) {
+      min[i] = in.readFloat();
+      step[i] = in.readFloat();
+    }
+    return new ScalarQuantizer(min, step);
+  }
+
+  @Override
+  public int codeBytes() {
+    return min.length;
+  }
+
+  @Override
+  public void encode(float[] vector, byte[] codes, int offset) {
+    for (int i = 0; i < min.length; i++) {
+      int level = step[i] == 0 ? 0 : Math.round((vector[i] - min[i]) / step[i]);
+      codes[offset + i] = (byte) (Math.max(0, Math.min(255, level)) - 128);
+    }
+  }
+
+  @Override
+  public CodeScorer scorer(float[] query) {
+    float[] weights = new float[min.length];
+    float base = 0;
+    for (int i = 0; i < min.length; i++) {
+      weights[i] = query[i] * step[i];
+      base += query[i] * (min[i] + 128 * step[i]);
+    }
+    float constant = base;
+    return (codes, offset) -> {
+      float sum = constant;
+      for (int i = 0; i < weights.length; i++) {
+        sum += weights[i] * codes[offset + i];
+      }
+      return sum;
+    };
+  }
+
+  @Override
+  public void write(DataOutputStream out) throws IOException {
+    for (int i = 0; i < min.length; i++) {
+      out.writeFloat(min[i]);
+      out.writeFloat(step[i]);
+    }
+  }
+}
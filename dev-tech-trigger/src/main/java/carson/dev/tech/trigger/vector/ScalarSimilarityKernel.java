@@ -0,0 +1,69 @@
+package carson.dev.tech.trigger.vector;
+
+import java.nio.ByteBuffer;
+
+/** Plain loops over primitive floats; runs on any JVM and is what C2 auto-vectorizes, if anything. */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+  static final ScalarSimilarityKernel INSTANCE = new ScalarSimilarityKernel();
+
+  private ScalarSimilarityKernel() {
+  }
+
+  @Override
+  public float dot(float[] a, float[] b) {
+    checkLength(a, b);
+    float sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public float dot(float[] query, ByteBuffer vectors, int offset) {
+    float sum = 0;
+    for (int i = 0; i < query.length; i++) {
+      sum += query[i] * vectors.getFloat(offset + i * Float.BYTES);
+    }
+    return sum;
+  }
+
+  @Override
+  public void dot(float[] query, ByteBuffer vectors, int[] offsets, int count, float[] scores) {
+    for (int r = 0; r < count; r++) {
+      scores[r] = dot(query, vectors, offsets[r]);
+    }
+  }
+
+  @Override
+  public float cosine(float[] a, float[] b) {
+    checkLength(a, b);
+    float dot = 0;
+    float normA = 0;
+    float normB = 0;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? 0 : (float) (dot / Math.sqrt((double) normA * normB));
+  }
+
+  @Override
+  public float squaredDistance(float[] a, float[] b) {
+    checkLength(a, b);
+    float sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      float diff = a[i] - b[i];
+      sum += diff * diff;
+    }
+    return sum;
+  }
+
+  static void checkLength(float[] a, float[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("Vectors of " + a.length + " and " + b.length + " dimensions");
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package carson.dev.tech.trigger.vector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The inner loops of every similarity computed in the JVM: exact scans and re-ranking in {@link MappedVectorStore},
+ * HNSW graph walks and the semantic answer cache. Vectors are float32, either on the heap or as rows of a
+ * {@link ByteBuffer} in the buffer's byte order, such as the mapped {@code vectors.f32} of the store.
+ * <p>
+ * {@link SimilarityKernels#get()} is the fastest implementation this JVM can run. Both implementations are
+ * stateless and thread-safe.
+ */
+public interface SimilarityKernel {
+
+  /** Dot product of two vectors of the same length. */
+  float dot(float[] a, float[] b);
+
+  /** Dot product of {@code query} with the {@code query.length} floats of {@code vectors} at byte {@code offset}. */
+  float dot(float[] query, ByteBuffer vectors, int offset);
+
+  /**
+   * Scores {@code query} against the rows of {@code vectors} at the byte offsets {@code offsets[0..count)}, into
+   * {@code scores[0..count)}; the query is read once for several rows instead of once per row.
+   */
+  void dot(float[] query, ByteBuffer vectors, int[] offsets, int count, float[] scores);
+
+  /** Cosine similarity of two vectors of the same length, 0 when either is all zeros. */
+  float cosine(float[] a, float[] b);
+
+  /** Squared euclidean distance of two vectors of the same length. */
+  float squaredDistance(float[] a, float[] b);
+}
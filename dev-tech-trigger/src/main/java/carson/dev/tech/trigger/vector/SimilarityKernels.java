@@ -0,0 +1,61 @@
+package carson.dev.tech.trigger.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the {@link SimilarityKernel} once per JVM. The Vector API kernel needs the incubator module on the command
+ * line ({@code --add-modules jdk.incubator.vector}) and a CPU with at least 128-bit SIMD; otherwise, or with
+ * {@code -Drag.similarity.kernel=scalar}, every caller gets the scalar loops.
+ */
+@Slf4j
+public final class SimilarityKernels {
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+  private static final SimilarityKernel BEST = select();
+
+  private SimilarityKernels() {
+  }
+
+  public static SimilarityKernel get() {
+    return BEST;
+  }
+
+  public static SimilarityKernel scalar() {
+    return ScalarSimilarityKernel.INSTANCE;
+  }
+
+  /** The Vector API kernel whatever {@link #get()} chose, for benchmarks and tests. */
+  public static SimilarityKernel vectorized() {
+    if (!vectorModuleResolved()) {
+      throw new IllegalStateException(VECTOR_MODULE + " is not resolved, start the JVM with --add-modules " + VECTOR_MODULE);
+    }
+    return VectorApiSimilarityKernel.INSTANCE;
+  }
+
+  public static boolean vectorModuleResolved() {
+    return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+  }
+
+  private static SimilarityKernel select() {
+    if ("scalar".equalsIgnoreCase(System.getProperty("rag.similarity.kernel"))) {
+      log.info("Similarity kernel: scalar, as configured");
+      return scalar();
+    }
+    if (!vectorModuleResolved()) {
+      log.info("Similarity kernel: scalar, start the JVM with --add-modules {} for SIMD", VECTOR_MODULE);
+      return scalar();
+    }
+    try {
+      int lanes = VectorApiSimilarityKernel.lanes();
+      if (lanes < 4) {
+        log.info("Similarity kernel: scalar, {} float lanes are not worth the Vector API", lanes);
+        return scalar();
+      }
+      log.info("Similarity kernel: Vector API, {} float lanes", lanes);
+      return VectorApiSimilarityKernel.INSTANCE;
+    } catch (LinkageError e) {
+      log.warn("Similarity kernel: scalar, the Vector API failed to load → {}", e.toString());
+      return scalar();
+    }
+  }
+}
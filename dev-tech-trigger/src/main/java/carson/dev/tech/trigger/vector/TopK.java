@@ -0,0 +1,82 @@
+package carson.dev.tech.trigger.vector;
+
+/**
+ * Bounded min-heap of (score, row) on primitive arrays: keeps the {@code k} highest scores seen, with no boxing and
+ * no allocation per offer.
+ */
+final class TopK {
+
+  private final float[] scores;
+  private final int[] rows;
+  private int size;
+
+  TopK(int k) {
+    this.scores = new float[Math.max(1, k)];
+    this.rows = new int[Math.max(1, k)];
+  }
+
+  /** The score a candidate has to beat once the heap is full. */
+  float threshold() {
+    return size < scores.length ? Float.NEGATIVE_INFINITY : scores[0];
+  }
+
+  void offer(float score, int row) {
+    if (size < scores.length) {
+      scores[size] = score;
+      rows[size] = row;
+      siftUp(size++);
+    } else if (score > scores[0]) {
+      scores[0] = score;
+      rows[0] = row;
+      siftDown(0);
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Rows best first; empties the heap. */
+  int[] drainRows(float[] scoresOut) {
+    int n = size;
+    int[] out = new int[n];
+    for (int i = n - 1; i >= 0; i--) {
+      out[i] = rows[0];
+      if (scoresOut != null) scoresOut[i] = scores[0];
+      size--;
+      scores[0] = scores[size];
+      rows[0] = rows[size];
+      siftDown(0);
+    }
+    return out;
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (scores[parent] <= scores[i]) break;
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int left = 2 * i + 1;
+      if (left >= size) break;
+      int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+      if (scores[i] <= scores[smallest]) break;
+      swap(i, smallest);
+      i = smallest;
+    }
+  }
+
+  private void swap(int a, int b) {
+    float score = scores[a];
+    scores[a] = scores[b];
+    scores[b] = score;
+    int row = rows[a];
+    rows[a] = rows[b];
+    rows[b] = row;
+  }
+}
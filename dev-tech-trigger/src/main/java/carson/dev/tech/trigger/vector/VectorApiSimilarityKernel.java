@@ -0,0 +1,151 @@
+package carson.dev.tech.trigger.vector;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SIMD loops on {@code jdk.incubator.vector}, as wide as the CPU allows (8 floats with AVX2, 16 with AVX-512), with a
+ * scalar tail for dimensions that are not a multiple of the width. Multiply and add stay separate instructions: a
+ * fused multiply-add is emulated, and very slow, on CPUs without FMA.
+ * <p>
+ * Only loaded by {@link SimilarityKernels} once the module is known to be resolved; loading it otherwise fails with
+ * a {@link NoClassDefFoundError}. On JDK 17 rows are read straight from the ByteBuffer, which later JDKs replace
+ * with MemorySegment.
+ */
+final class VectorApiSimilarityKernel implements SimilarityKernel {
+
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+  static final VectorApiSimilarityKernel INSTANCE = new VectorApiSimilarityKernel();
+
+  private VectorApiSimilarityKernel() {
+  }
+
+  /** Floats per SIMD register. */
+  static int lanes() {
+    return SPECIES.length();
+  }
+
+  @Override
+  public float dot(float[] a, float[] b) {
+    ScalarSimilarityKernel.checkLength(a, b);
+    int bound = SPECIES.loopBound(a.length);
+    FloatVector acc = FloatVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      acc = acc.add(FloatVector.fromArray(SPECIES, a, i).mul(FloatVector.fromArray(SPECIES, b, i)));
+    }
+    float sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  @Override
+  public float dot(float[] query, ByteBuffer vectors, int offset) {
+    int bound = SPECIES.loopBound(query.length);
+    FloatVector acc = FloatVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      FloatVector row = FloatVector.fromByteBuffer(SPECIES, vectors, offset + i * Float.BYTES, vectors.order());
+      acc = acc.add(FloatVector.fromArray(SPECIES, query, i).mul(row));
+    }
+    float sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < query.length; i++) {
+      sum += query[i] * vectors.getFloat(offset + i * Float.BYTES);
+    }
+    return sum;
+  }
+
+  @Override
+  public void dot(float[] query, ByteBuffer vectors, int[] offsets, int count, float[] scores) {
+    int bound = SPECIES.loopBound(query.length);
+    int r = 0;
+    // four rows per pass: each slice of the query is loaded once, and four independent sums keep the adders busy
+    for (; r + 4 <= count; r += 4) {
+      int o0 = offsets[r];
+      int o1 = offsets[r + 1];
+      int o2 = offsets[r + 2];
+      int o3 = offsets[r + 3];
+      FloatVector acc0 = FloatVector.zero(SPECIES);
+      FloatVector acc1 = FloatVector.zero(SPECIES);
+      FloatVector acc2 = FloatVector.zero(SPECIES);
+      FloatVector acc3 = FloatVector.zero(SPECIES);
+      int i = 0;
+      for (; i < bound; i += SPECIES.length()) {
+        FloatVector q = FloatVector.fromArray(SPECIES, query, i);
+        int at = i * Float.BYTES;
+        acc0 = acc0.add(q.mul(FloatVector.fromByteBuffer(SPECIES, vectors, o0 + at, vectors.order())));
+        acc1 = acc1.add(q.mul(FloatVector.fromByteBuffer(SPECIES, vectors, o1 + at, vectors.order())));
+        acc2 = acc2.add(q.mul(FloatVector.fromByteBuffer(SPECIES, vectors, o2 + at, vectors.order())));
+        acc3 = acc3.add(q.mul(FloatVector.fromByteBuffer(SPECIES, vectors, o3 + at, vectors.order())));
+      }
+      float s0 = acc0.reduceLanes(VectorOperators.ADD);
+      float s1 = acc1.reduceLanes(VectorOperators.ADD);
+      float s2 = acc2.reduceLanes(VectorOperators.ADD);
+      float s3 = acc3.reduceLanes(VectorOperators.ADD);
+      for (; i < query.length; i++) {
+        int at = i * Float.BYTES;
+        s0 += query[i] * vectors.getFloat(o0 + at);
+        s1 += query[i] * vectors.getFloat(o1 + at);
+        s2 += query[i] * vectors.getFloat(o2 + at);
+        s3 += query[i] * vectors.getFloat(o3 + at);
+      }
+      scores[r] = s0;
+      scores[r + 1] = s1;
+      scores[r + 2] = s2;
+      scores[r + 3] = s3;
+    }
+    for (; r < count; r++) {
+      scores[r] = dot(query, vectors, offsets[r]);
+    }
+  }
+
+  @Override
+  public float cosine(float[] a, float[] b) {
+    ScalarSimilarityKernel.checkLength(a, b);
+    int bound = SPECIES.loopBound(a.length);
+    FloatVector dotAcc = FloatVector.zero(SPECIES);
+    FloatVector normAAcc = FloatVector.zero(SPECIES);
+    FloatVector normBAcc = FloatVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+      FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+      dotAcc = dotAcc.add(va.mul(vb));
+      normAAcc = normAAcc.add(va.mul(va));
+      normBAcc = normBAcc.add(vb.mul(vb));
+    }
+    float dot = dotAcc.reduceLanes(VectorOperators.ADD);
+    float normA = normAAcc.reduceLanes(VectorOperators.ADD);
+    float normB = normBAcc.reduceLanes(VectorOperators.ADD);
+    for (; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? 0 : (float) (dot / Math.sqrt((double) normA * normB));
+  }
+
+  @Override
+  public float squaredDistance(float[] a, float[] b) {
+    ScalarSimilarityKernel.checkLength(a, b);
+    int bound = SPECIES.loopBound(a.length);
+    FloatVector acc = FloatVector.zero(SPECIES);
+    int i = 0;
+    for (; i < bound; i += SPECIES.length()) {
+      FloatVector diff = FloatVector.fromArray(SPECIES, a, i).sub(FloatVector.fromArray(SPECIES, b, i));
+      acc = acc.add(diff.mul(diff));
+    }
+    float sum = acc.reduceLanes(VectorOperators.ADD);
+    for (; i < a.length; i++) {
+      float diff = a[i] - b[i];
+      sum += diff * diff;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,29 @@
+package carson.dev.tech.trigger.vector;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Lossy compression of normalized vectors into fixed-size byte codes, scored against an uncompressed query
+ * (asymmetric distance): the query keeps full precision, only the stored side is approximated.
+ */
+interface VectorQuantizer {
+
+  /** Bytes of one code. */
+  int codeBytes();
+
+  void encode(float[] vector, byte[] codes, int offset);
+
+  /** Prepares a query once, so scoring a code costs {@code codeBytes} multiply-adds or table lookups. */
+  CodeScorer scorer(float[] query);
+
+  /** Writes the trained parameters, read back by the implementation's {@code read}. */
+  void write(DataOutputStream out) throws IOException;
+
+  /** Estimated dot product of a prepared query and one code. */
+  @FunctionalInterface
+  interface CodeScorer {
+
+    float score(byte[] codes, int offset);
+  }
+}